@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.benchmarks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Random;
+
+import rseslib.structure.attribute.Header;
+import rseslib.structure.data.DoubleData;
+import rseslib.structure.table.ArrayListDoubleDataTable;
+import rseslib.structure.table.DoubleDataTable;
+import rseslib.structure.table.NumericalStatistics;
+import rseslib.system.progress.EmptyProgress;
+
+/**
+ * Data tables used in benchmarks: the data sets bundled with Rseslib
+ * and synthetic tables scaled up from them.
+ * The directory with data sets is given by the system property rseslib.data,
+ * by default it is the directory data in the current directory
+ * or in its parent directory.
+ */
+public class BenchmarkData
+{
+    /** Name of the system property with the directory of data sets. */
+    public static final String DATA_DIR_PROPERTY_NAME = "rseslib.data";
+    /** Standard deviation of the noise added to numeric values of copied objects relative to the standard deviation of an attribute. */
+    public static final double NOISE_LEVEL = 0.01;
+
+    /**
+     * Returns a data file from the directory of data sets.
+     *
+     * @param dataset Name of a data file.
+     * @return        Data file.
+     */
+    public static File dataFile(String dataset)
+    {
+        String dir = System.getProperty(DATA_DIR_PROPERTY_NAME);
+        if (dir == null)
+            dir = new File("data").isDirectory() ? "data" : "../data";
+        return new File(dir, dataset);
+    }
+
+    /**
+     * Loads a data set bundled with Rseslib.
+     *
+     * @param dataset Name of a data file.
+     * @return        Loaded table.
+     * @throws Exception if loading fails.
+     */
+    public static DoubleDataTable load(String dataset) throws Exception
+    {
+        return new ArrayListDoubleDataTable(dataFile(dataset), new EmptyProgress());
+    }
+
+    /**
+     * Loads a data set bundled with Rseslib and scales it up.
+     *
+     * @param dataset Name of a data file.
+     * @param scale   Scale factor.
+     * @return        Loaded and scaled table.
+     * @throws Exception if loading fails.
+     */
+    public static DoubleDataTable load(String dataset, int scale) throws Exception
+    {
+        return scale(load(dataset), scale, 0);
+    }
+
+    /**
+     * Constructs a synthetic table containing the objects of a given table
+     * and scale-1 copies of each object. Numeric conditional values of the copies
+     * are perturbed with gaussian noise, nominal values and decisions are copied.
+     *
+     * @param table Original table.
+     * @param scale Scale factor.
+     * @param seed  Seed of the random generator.
+     * @return      Scaled table.
+     */
+    public static DoubleDataTable scale(DoubleDataTable table, int scale, long seed)
+    {
+        if (scale <= 1)
+            return table;
+        Header hdr = table.attributes();
+        double[] noise = new double[hdr.noOfAttr()];
+        for (int attr = 0; attr < hdr.noOfAttr(); attr++)
+            if (hdr.isConditional(attr) && hdr.isNumeric(attr))
+                noise[attr] = NOISE_LEVEL*new NumericalStatistics(table.getDataObjects(), attr).getStandardDeviation();
+        Random rand = new Random(seed);
+        ArrayList<DoubleData> objects = new ArrayList<DoubleData>(table.noOfObjects()*scale);
+        objects.addAll(table.getDataObjects());
+        for (int copy = 1; copy < scale; copy++)
+            for (DoubleData obj : table.getDataObjects())
+            {
+                DoubleData newObj = (DoubleData)obj.clone();
+                for (int attr = 0; attr < hdr.noOfAttr(); attr++)
+                    if (noise[attr] > 0 && !Double.isNaN(obj.get(attr)))
+                        newObj.set(attr, obj.get(attr) + noise[attr]*rand.nextGaussian());
+                objects.add(newObj);
+            }
+        return new ArrayListDoubleDataTable(objects);
+    }
+}
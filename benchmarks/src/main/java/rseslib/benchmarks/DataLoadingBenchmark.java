@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rseslib.structure.table.ArrayListDoubleDataTable;
+import rseslib.structure.table.DoubleDataTable;
+import rseslib.system.progress.EmptyProgress;
+
+/**
+ * Benchmark of loading data tables from files in the ARFF format
+ * and in the Rseslib binary format.
+ * Tables are stored in temporary files before the measurements,
+ * ARFF files are scaled up by repeating the data lines of the original file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataLoadingBenchmark
+{
+    /** Data set. */
+    @Param({"iris.arff", "segment-challenge.arff", "credit-g.arff"})
+    public String dataset;
+    /** Scale factor of the data set. */
+    @Param({"1", "10"})
+    public int scale;
+    /** Data format: arff or binary. */
+    @Param({"arff", "binary"})
+    public String format;
+
+    /** Loaded file. */
+    File m_File;
+
+    /**
+     * Stores the table in a temporary file in the measured format.
+     *
+     * @throws Exception if loading or storing data fails.
+     */
+    @Setup
+    public void setup() throws Exception
+    {
+        m_File = File.createTempFile("rseslib-benchmark", "."+format);
+        if (format.equals("arff"))
+            replicateArff(BenchmarkData.dataFile(dataset), m_File, scale);
+        else if (format.equals("binary"))
+            BenchmarkData.load(dataset, scale).storeBinary(m_File, new EmptyProgress());
+        else
+            throw new IllegalArgumentException("Unknown format: "+format);
+    }
+
+    /**
+     * Copies an ARFF file repeating the data lines a given number of times.
+     *
+     * @param source Source ARFF file.
+     * @param target Target ARFF file.
+     * @param scale  Number of repetitions of the data lines.
+     * @throws Exception if reading or writing fails.
+     */
+    static void replicateArff(File source, File target, int scale) throws Exception
+    {
+        BufferedReader br = new BufferedReader(new FileReader(source));
+        PrintWriter pw = new PrintWriter(target);
+        ArrayList<String> data = new ArrayList<String>();
+        boolean inData = false;
+        for (String line = br.readLine(); line != null; line = br.readLine())
+        {
+            if (inData)
+                data.add(line);
+            else
+            {
+                pw.println(line);
+                inData = line.trim().toUpperCase().startsWith("@DATA");
+            }
+        }
+        br.close();
+        for (int copy = 0; copy < scale; copy++)
+            for (String line : data)
+                pw.println(line);
+        pw.close();
+    }
+
+    /**
+     * Removes the temporary file.
+     */
+    @TearDown
+    public void tearDown()
+    {
+        m_File.delete();
+    }
+
+    /**
+     * Loads the table.
+     *
+     * @return Loaded table.
+     * @throws Exception if loading data fails.
+     */
+    @Benchmark
+    public DoubleDataTable load() throws Exception
+    {
+        return new ArrayListDoubleDataTable(m_File, new EmptyProgress());
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rseslib.processing.classification.tree.c45.BestGainRatioDiscriminationProvider;
+import rseslib.structure.function.intval.Discrimination;
+import rseslib.structure.table.DoubleDataTable;
+
+/**
+ * Benchmark of the selection of the best split
+ * in the root of the C4.5 decision tree.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DecisionTreeBenchmark
+{
+    /** Data set. */
+    @Param({"credit-g.arff", "segment-challenge.arff", "diabetes.arff"})
+    public String dataset;
+    /** Scale factor of the data set. */
+    @Param({"1", "10"})
+    public int scale;
+
+    /** Table split. */
+    DoubleDataTable m_Table;
+
+    /**
+     * Loads the table.
+     *
+     * @throws Exception if loading data fails.
+     */
+    @Setup
+    public void setup() throws Exception
+    {
+        m_Table = BenchmarkData.load(dataset, scale);
+    }
+
+    /**
+     * Selects the split with the best gain ratio.
+     *
+     * @return Best split.
+     */
+    @Benchmark
+    public Discrimination getDiscrimination()
+    {
+        return new BestGainRatioDiscriminationProvider().getDiscrimination(m_Table.getDataObjects(), m_Table.attributes());
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.benchmarks;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rseslib.processing.indexing.metric.TreeIndexer;
+import rseslib.processing.metrics.MetricFactory;
+import rseslib.processing.searching.metric.VicinityProviderFactory;
+import rseslib.structure.index.metric.IndexingTreeNode;
+import rseslib.structure.metric.Metric;
+import rseslib.structure.table.DoubleDataTable;
+import rseslib.system.progress.EmptyProgress;
+
+/**
+ * Benchmark of the construction of the indexing tree
+ * used by the k-nn classifiers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IndexingBenchmark
+{
+    /** Data set. */
+    @Param({"segment-challenge.arff", "credit-g.arff", "diabetes.arff"})
+    public String dataset;
+    /** Scale factor of the data set. */
+    @Param({"1", "10"})
+    public int scale;
+    /** Number of threads splitting nodes, 0 means the number of available processors. */
+    @Param({"1", "0"})
+    public int indexingThreads;
+    /** Maximal number of data objects used to select the centers of subnodes, 0 means all data objects. */
+    @Param({"0", "1000"})
+    public int centersSampleSize;
+
+    /** Indexed table. */
+    DoubleDataTable m_Table;
+    /** Metric used for indexing. */
+    Metric m_Metric;
+    /** Properties of the tree indexer. */
+    Properties m_IndexerProperties;
+
+    /**
+     * Loads the table and induces the metric.
+     *
+     * @throws Exception if loading data or inducing the metric fails.
+     */
+    @Setup
+    public void setup() throws Exception
+    {
+        m_Table = BenchmarkData.load(dataset, scale);
+        Properties prop = new Properties();
+        prop.setProperty(MetricFactory.METRIC_PROPERTY_NAME, "CityAndSimpleValueDifference");
+        m_Metric = MetricFactory.getMetric(prop, m_Table);
+        prop.setProperty(TreeIndexer.INDEXING_THREADS_PROPERTY_NAME, String.valueOf(indexingThreads));
+        prop.setProperty(TreeIndexer.CENTERS_SAMPLE_SIZE_PROPERTY_NAME, String.valueOf(centersSampleSize));
+        m_IndexerProperties = VicinityProviderFactory.getIndexerProperties(prop);
+    }
+
+    /**
+     * Builds the indexing tree.
+     *
+     * @return Root of the indexing tree.
+     * @throws Exception if indexing fails.
+     */
+    @Benchmark
+    public IndexingTreeNode indexing() throws Exception
+    {
+        return new TreeIndexer(m_IndexerProperties).indexing(m_Table.getDataObjects(), m_Metric, new EmptyProgress());
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Runs the benchmarks with the JMH command line options.
+ * The GC profiler reporting the allocation rate and the garbage collections
+ * is enabled unless other profilers are given with the option -prof.
+ */
+public class Main
+{
+    /**
+     * The main method.
+     *
+     * @param args JMH command line options.
+     * @throws Exception when an error occurs.
+     */
+    public static void main(String[] args) throws Exception
+    {
+        ArrayList<String> options = new ArrayList<String>(Arrays.asList(args));
+        if (!options.contains("-prof"))
+        {
+            options.add("-prof");
+            options.add("gc");
+        }
+        org.openjdk.jmh.Main.main(options.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rseslib.processing.metrics.MetricFactory;
+import rseslib.structure.data.DoubleData;
+import rseslib.structure.metric.Metric;
+import rseslib.structure.table.DoubleDataTable;
+
+/**
+ * Benchmark of the distance computation
+ * of the metrics induced from data sets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricBenchmark
+{
+    /** Number of pairs of objects measured in one invocation. */
+    static final int PAIRS = 1024;
+
+    /** Data set. */
+    @Param({"iris.arff", "segment-challenge.arff", "credit-g.arff"})
+    public String dataset;
+    /** Scale factor of the data set. */
+    @Param({"1", "10"})
+    public int scale;
+    /** Metric type. */
+    @Param({"CityAndHamming", "CityAndSimpleValueDifference", "InterpolatedValueDifference", "DensityBasedValueDifference"})
+    public String metric;
+
+    /** Measured metric. */
+    Metric m_Metric;
+    /** First objects of the pairs. */
+    DoubleData[] m_arrFirst = new DoubleData[PAIRS];
+    /** Second objects of the pairs. */
+    DoubleData[] m_arrSecond = new DoubleData[PAIRS];
+
+    /**
+     * Induces the metric and selects random pairs of objects.
+     *
+     * @throws Exception if loading data or inducing the metric fails.
+     */
+    @Setup
+    public void setup() throws Exception
+    {
+        DoubleDataTable table = BenchmarkData.load(dataset, scale);
+        Properties prop = new Properties();
+        prop.setProperty(MetricFactory.METRIC_PROPERTY_NAME, metric);
+        prop.setProperty(MetricFactory.VICINITY_SIZE_FOR_DBVDM_PROPERTY_NAME, "200");
+        m_Metric = MetricFactory.getMetric(prop, table);
+        ArrayList<DoubleData> objects = table.getDataObjects();
+        Random rand = new Random(0);
+        for (int p = 0; p < PAIRS; p++)
+        {
+            m_arrFirst[p] = objects.get(rand.nextInt(objects.size()));
+            m_arrSecond[p] = objects.get(rand.nextInt(objects.size()));
+        }
+    }
+
+    /**
+     * Computes the distances between the pairs of objects.
+     *
+     * @return Sum of the distances.
+     */
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public double dist()
+    {
+        double sum = 0;
+        for (int p = 0; p < PAIRS; p++)
+            sum += m_Metric.dist(m_arrFirst[p], m_arrSecond[p]);
+        return sum;
+    }
+}
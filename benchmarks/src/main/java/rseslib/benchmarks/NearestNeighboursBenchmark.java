@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import rseslib.processing.indexing.metric.TreeIndexer;
+import rseslib.processing.metrics.MetricFactory;
+import rseslib.processing.searching.metric.TreeSetBasedNearestNeighboursProviderFromTree;
+import rseslib.structure.data.DoubleData;
+import rseslib.structure.index.metric.IndexingTreeNode;
+import rseslib.structure.metric.Metric;
+import rseslib.structure.table.DoubleDataTable;
+import rseslib.system.progress.EmptyProgress;
+
+/**
+ * Benchmark of the search for nearest neighbours
+ * in the indexing tree used by the k-nn classifiers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NearestNeighboursBenchmark
+{
+    /** Number of queries in one invocation. */
+    static final int QUERIES = 64;
+
+    /** Data set. */
+    @Param({"segment-challenge.arff", "credit-g.arff", "diabetes.arff"})
+    public String dataset;
+    /** Scale factor of the data set. */
+    @Param({"1", "10"})
+    public int scale;
+    /** Number of nearest neighbours. */
+    @Param({"1", "10", "100"})
+    public int k;
+
+    /** Metric used in the search. */
+    Metric m_Metric;
+    /** Root of the indexing tree. */
+    IndexingTreeNode m_Tree;
+    /** Searched provider. */
+    TreeSetBasedNearestNeighboursProviderFromTree m_Provider = new TreeSetBasedNearestNeighboursProviderFromTree();
+    /** Query objects. */
+    DoubleData[] m_arrQueries = new DoubleData[QUERIES];
+
+    /**
+     * Induces the metric, indexes the table and selects random queries.
+     *
+     * @throws Exception if loading data or indexing fails.
+     */
+    @Setup
+    public void setup() throws Exception
+    {
+        DoubleDataTable table = BenchmarkData.load(dataset, scale);
+        Properties prop = new Properties();
+        prop.setProperty(MetricFactory.METRIC_PROPERTY_NAME, "CityAndSimpleValueDifference");
+        m_Metric = MetricFactory.getMetric(prop, table);
+        m_Tree = new TreeIndexer(null).indexing(table.getDataObjects(), m_Metric, new EmptyProgress());
+        ArrayList<DoubleData> objects = table.getDataObjects();
+        Random rand = new Random(0);
+        for (int q = 0; q < QUERIES; q++)
+            m_arrQueries[q] = objects.get(rand.nextInt(objects.size()));
+    }
+
+    /**
+     * Finds the nearest neighbours of the query objects.
+     *
+     * @param bh Blackhole consuming the neighbours found.
+     */
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void getKNearest(Blackhole bh)
+    {
+        for (int q = 0; q < QUERIES; q++)
+            bh.consume(m_Provider.getKNearest(m_Metric, m_arrQueries[q], m_Tree, k));
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.benchmarks;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rseslib.processing.discernibility.DiscernibilityMatrixProvider;
+import rseslib.processing.discretization.DiscretizationFactory;
+import rseslib.processing.logic.KurzydlowskiPrimeImplicantsProvider;
+import rseslib.processing.transformation.TableTransformer;
+import rseslib.processing.transformation.TransformationProvider;
+import rseslib.structure.data.DoubleData;
+import rseslib.structure.rule.EqualityDescriptorsRule;
+import rseslib.structure.table.DoubleDataTable;
+
+/**
+ * Benchmark of the rough set algorithms used by the rough set classifier:
+ * the discernibility matrix, the prime implicants of the discernibility function
+ * and matching objects by rules.
+ * Numeric attributes are discretized before the measurements.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoughSetBenchmark
+{
+    /** Number of rules matched in one invocation. */
+    static final int RULES = 256;
+    /** Number of objects matched by each rule in one invocation. */
+    static final int OBJECTS = 256;
+
+    /** Data set. */
+    @Param({"iris.arff", "breast-cancer.arff", "vote.arff", "glass.arff"})
+    public String dataset;
+    /** Scale factor of the data set. */
+    @Param({"1", "4"})
+    public int scale;
+
+    /** Discretized table. */
+    DoubleDataTable m_Table;
+    /** Provider of the discernibility matrix. */
+    DiscernibilityMatrixProvider m_Discernibility;
+    /** Discernibility function in the conjunctive normal form. */
+    Collection<BitSet> m_Cnf;
+    /** Rules matched. */
+    EqualityDescriptorsRule[] m_arrRules = new EqualityDescriptorsRule[RULES];
+    /** Objects matched. */
+    DoubleData[] m_arrObjects = new DoubleData[OBJECTS];
+
+    /**
+     * Loads and discretizes the table, computes the discernibility function
+     * and generates the rules from random objects and random sets of attributes.
+     *
+     * @throws Exception if loading data fails.
+     */
+    @Setup
+    public void setup() throws Exception
+    {
+        DoubleDataTable table = BenchmarkData.load(dataset, scale);
+        Properties discrProp = new Properties();
+        discrProp.setProperty(DiscretizationFactory.DISCRETIZATION_PROPERTY_NAME, "EqualFrequency");
+        discrProp.setProperty(DiscretizationFactory.NUMBER_OF_INTERVALS_PROPERTY_NAME, "5");
+        TransformationProvider discrProv = DiscretizationFactory.getDiscretizationProvider(discrProp);
+        m_Table = TableTransformer.transform(table, discrProv.generateTransformer(table));
+        m_Discernibility = new DiscernibilityMatrixProvider(null, m_Table);
+        m_Cnf = m_Discernibility.getDiscernibilityMatrix();
+        ArrayList<DoubleData> objects = m_Table.getDataObjects();
+        int noOfAttr = m_Table.attributes().noOfAttr();
+        Random rand = new Random(0);
+        for (int r = 0; r < RULES; r++)
+        {
+            BitSet mask = new BitSet(noOfAttr);
+            for (int attr = 0; attr < noOfAttr; attr++)
+                if (m_Table.attributes().isConditional(attr) && rand.nextInt(4) == 0)
+                    mask.set(attr);
+            m_arrRules[r] = new EqualityDescriptorsRule(mask, objects.get(rand.nextInt(objects.size())));
+        }
+        for (int o = 0; o < OBJECTS; o++)
+            m_arrObjects[o] = objects.get(rand.nextInt(objects.size()));
+    }
+
+    /**
+     * Computes the discernibility matrix.
+     *
+     * @return Discernibility matrix.
+     */
+    @Benchmark
+    public Collection<BitSet> getDiscernibilityMatrix()
+    {
+        return m_Discernibility.getDiscernibilityMatrix();
+    }
+
+    /**
+     * Computes the prime implicants of the discernibility function.
+     * The provider modifies the clauses so they are copied in each invocation.
+     *
+     * @return Prime implicants.
+     */
+    @Benchmark
+    public Collection<BitSet> generatePrimeImplicants()
+    {
+        ArrayList<BitSet> cnf = new ArrayList<BitSet>(m_Cnf.size());
+        for (BitSet clause : m_Cnf)
+            cnf.add((BitSet)clause.clone());
+        return new KurzydlowskiPrimeImplicantsProvider().generatePrimeImplicants(cnf, m_Table.attributes().noOfAttr());
+    }
+
+    /**
+     * Matches the objects by the rules.
+     *
+     * @return Number of matches.
+     */
+    @Benchmark
+    @OperationsPerInvocation(RULES*OBJECTS)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int matches()
+    {
+        int matches = 0;
+        for (EqualityDescriptorsRule rule : m_arrRules)
+            for (DoubleData obj : m_arrObjects)
+                if (rule.matches(obj))
+                    matches++;
+        return matches;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+
+package rseslib.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rseslib.processing.metrics.MetricFactory;
+import rseslib.processing.searching.metric.ArrayVicinityProvider;
+import rseslib.processing.searching.metric.VicinityProvider;
+import rseslib.processing.searching.metric.VicinityProviderFactory;
+import rseslib.structure.data.DoubleData;
+import rseslib.structure.metric.Metric;
+import rseslib.structure.metric.NeighbourList;
+import rseslib.structure.table.DoubleDataTable;
+import rseslib.system.progress.EmptyProgress;
+
+/**
+ * Benchmark comparing the search for nearest neighbours
+ * in the indices available to the k-nn classifiers
+ * with the linear search. At the end of each trial
+ * the average number of distance calculations per search is printed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VicinityProviderBenchmark
+{
+    /** Number of queries in one invocation. */
+    static final int QUERIES = 64;
+
+    /** Data set. */
+    @Param({"segment-challenge.arff", "credit-g.arff", "diabetes.arff"})
+    public String dataset;
+    /** Scale factor of the data set. */
+    @Param({"1", "10"})
+    public int scale;
+    /** Number of nearest neighbours. */
+    @Param({"1", "10", "100"})
+    public int k;
+    /** Type of the index, Linear for the search without index. */
+    @Param({"Linear", "KApproxCentersTree", "VantagePointTree", "BallTree"})
+    public String index;
+
+    /** Searched provider. */
+    VicinityProvider m_Provider;
+    /** List of neighbours reused by the searches. */
+    NeighbourList m_Neighbours = new NeighbourList();
+    /** Query objects. */
+    DoubleData[] m_arrQueries = new DoubleData[QUERIES];
+
+    /**
+     * Induces the metric, builds the index and selects random queries.
+     *
+     * @throws Exception if loading data or indexing fails.
+     */
+    @Setup
+    public void setup() throws Exception
+    {
+        DoubleDataTable table = BenchmarkData.load(dataset, scale);
+        Properties prop = new Properties();
+        prop.setProperty(MetricFactory.METRIC_PROPERTY_NAME, "CityAndSimpleValueDifference");
+        Metric metric = MetricFactory.getMetric(prop, table);
+        ArrayList<DoubleData> objects = table.getDataObjects();
+        if ("Linear".equals(index))
+            m_Provider = new ArrayVicinityProvider(metric, objects);
+        else
+        {
+            prop.setProperty(VicinityProviderFactory.INDEX_TYPE_PROPERTY_NAME, index);
+            m_Provider = VicinityProviderFactory.getVicinityProvider(prop, metric, objects, new EmptyProgress());
+        }
+        Random rand = new Random(0);
+        for (int q = 0; q < QUERIES; q++)
+            m_arrQueries[q] = objects.get(rand.nextInt(objects.size()));
+    }
+
+    /**
+     * Prints the average number of distance calculations per search.
+     */
+    @TearDown
+    public void tearDown()
+    {
+        System.out.println();
+        System.out.println(index+": "+m_Provider.getAverageNoOfDistCalculations()+" distance calculations per search");
+    }
+
+    /**
+     * Finds the nearest neighbours of the query objects.
+     *
+     * @return Number of neighbours found.
+     */
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public int getVicinity()
+    {
+        int found = 0;
+        for (int q = 0; q < QUERIES; q++)
+        {
+            m_Provider.getVicinity(m_arrQueries[q], k, m_Neighbours);
+            found += m_Neighbours.size();
+        }
+        return found;
+    }
+}
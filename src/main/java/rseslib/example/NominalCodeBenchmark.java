@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.example;
+
+import java.util.Random;
+
+import rseslib.structure.attribute.Attribute;
+import rseslib.structure.attribute.NominalAttribute;
+import rseslib.system.Report;
+import rseslib.system.output.StandardErrorOutput;
+import rseslib.system.output.StandardOutput;
+
+/**
+ * Benchmark of the translation between global and local codes
+ * of nominal values on a decision attribute with many values.
+ * It compares the constant-time translation of NominalAttribute
+ * with the linear scan over the map between local and global codes.
+ */
+public class NominalCodeBenchmark
+{
+    /**
+     * Translates global codes to local codes with a linear scan.
+     *
+     * @param localToGlobal Map between local and global codes.
+     * @param globalCodes   Global codes to be translated.
+     * @return              Sum of local codes.
+     */
+    private static long linearScan(int[] localToGlobal, double[] globalCodes)
+    {
+        long sum = 0;
+        for (double globalCode : globalCodes)
+        {
+            int local = -1;
+            for (int v = 0; v < localToGlobal.length; v++)
+                if (localToGlobal[v]==globalCode)
+                {
+                    local = v;
+                    break;
+                }
+            sum += local;
+        }
+        return sum;
+    }
+
+    /**
+     * Translates global codes to local codes with NominalAttribute.
+     *
+     * @param attr        Nominal attribute.
+     * @param globalCodes Global codes to be translated.
+     * @return            Sum of local codes.
+     */
+    private static long attributeLookup(NominalAttribute attr, double[] globalCodes)
+    {
+        long sum = 0;
+        for (double globalCode : globalCodes)
+            sum += attr.localValueCode(globalCode);
+        return sum;
+    }
+
+    /**
+     * The main method runs the benchmark
+     * and prints the results to the standard output.
+     *
+     * @param args Optional arguments: the number of decision values and the number of translations.
+     * @throws Exception when an error occurs.
+     */
+    public static void main(String[] args) throws Exception
+    {
+        Report.addErrorOutput(new StandardErrorOutput());
+        Report.addInfoOutput(new StandardOutput());
+        int noOfValues = (args.length > 0) ? Integer.parseInt(args[0]) : 5000;
+        int noOfTranslations = (args.length > 1) ? Integer.parseInt(args[1]) : 200000;
+
+        NominalAttribute decision = new NominalAttribute(Attribute.Type.decision, "decision");
+        for (int v = 0; v < noOfValues; v++)
+            decision.globalValueCode("class_"+v);
+        int[] localToGlobal = new int[noOfValues];
+        for (int v = 0; v < noOfValues; v++)
+            localToGlobal[v] = (int)decision.globalValueCode(v);
+        Random rand = new Random(0);
+        double[] globalCodes = new double[noOfTranslations];
+        for (int t = 0; t < noOfTranslations; t++)
+            globalCodes[t] = localToGlobal[rand.nextInt(noOfValues)];
+
+        // warm up both translations
+        for (int r = 0; r < 3; r++)
+        {
+            linearScan(localToGlobal, globalCodes);
+            attributeLookup(decision, globalCodes);
+        }
+        long start = System.nanoTime();
+        long scanSum = linearScan(localToGlobal, globalCodes);
+        long scanTime = System.nanoTime() - start;
+        start = System.nanoTime();
+        long lookupSum = attributeLookup(decision, globalCodes);
+        long lookupTime = System.nanoTime() - start;
+        if (scanSum!=lookupSum) throw new RuntimeException("Translations give different local codes");
+
+        Report.displaynl("Decision values: "+noOfValues+", translations: "+noOfTranslations);
+        Report.displaynl("Linear scan:       "+(scanTime/noOfTranslations)+" ns per translation");
+        Report.displaynl("NominalAttribute:  "+(lookupTime/noOfTranslations)+" ns per translation");
+        Report.displaynl("Speedup:           "+(scanTime/Math.max(1, lookupTime))+"x");
+        Report.close();
+    }
+}
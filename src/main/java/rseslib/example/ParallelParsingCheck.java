@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+
+
+package rseslib.example;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+
+import rseslib.structure.attribute.ArrayHeader;
+import rseslib.structure.attribute.Header;
+import rseslib.structure.attribute.NominalAttribute;
+import rseslib.structure.data.DoubleData;
+import rseslib.structure.data.formats.DataFormatException;
+import rseslib.structure.data.formats.DoubleDataInput;
+import rseslib.structure.data.formats.ParallelRseslibDoubleDataInput;
+import rseslib.structure.data.formats.RseslibDoubleDataInput;
+import rseslib.structure.table.ArrayListDoubleDataTable;
+import rseslib.structure.table.DoubleDataTable;
+import rseslib.system.Report;
+import rseslib.system.output.StandardErrorOutput;
+import rseslib.system.output.StandardOutput;
+import rseslib.system.progress.EmptyProgress;
+
+/**
+ * Checks that the parallel parser of data files in rseslib format
+ * gives the same results as the sequential parser.
+ * Each data set from a given directory is written in rseslib format
+ * with the data repeated a given number of times, so that the file is split
+ * into many ranges, and the file is loaded with RseslibDoubleDataInput
+ * and with ParallelRseslibDoubleDataInput. The check compares the attributes,
+ * the local codes of nominal values and all attribute values.
+ * Then a broken line is appended to the file
+ * and the check compares the error messages of both parsers.
+ */
+public class ParallelParsingCheck
+{
+    /**
+     * Writes a table in rseslib format with comma separated values
+     * and with the data repeated a given number of times.
+     *
+     * @param table   Table to be written.
+     * @param repeats Number of repetitions of the data.
+     * @param file    Output file.
+     * @throws IOException If an I/O error has occured.
+     */
+    private static void write(DoubleDataTable table, int repeats, File file) throws IOException
+    {
+        Header hdr = table.attributes();
+        BufferedWriter output = new BufferedWriter(new FileWriter(file));
+        hdr.store(output);
+        for (int r = 0; r < repeats; r++)
+            for (DoubleData obj : table.getDataObjects())
+            {
+                for (int attr = 0; attr < hdr.noOfAttr(); attr++)
+                {
+                    if (attr > 0) output.write(',');
+                    double value = obj.get(attr);
+                    if (Double.isNaN(value)) output.write(hdr.missing());
+                    else if (hdr.isNominal(attr) || hdr.isText(attr)) output.write(NominalAttribute.stringValue(value));
+                    else output.write(Double.toString(value));
+                }
+                output.newLine();
+            }
+        output.close();
+    }
+
+    /**
+     * Compares the attributes and the data returned by two inputs.
+     *
+     * @param seq Sequential input.
+     * @param par Parallel input.
+     * @return    Description of the first difference, null if the inputs give the same results.
+     * @throws Exception when an error occurs.
+     */
+    private static String compare(DoubleDataInput seq, DoubleDataInput par) throws Exception
+    {
+        int noOfObjects = 0;
+        while (seq.available())
+        {
+            if (!par.available()) return "parallel parser returns "+noOfObjects+" objects only";
+            DoubleData seqObj = seq.readDoubleData();
+            DoubleData parObj = par.readDoubleData();
+            for (int attr = 0; attr < seqObj.attributes().noOfAttr(); attr++)
+                if (Double.doubleToLongBits(seqObj.get(attr))!=Double.doubleToLongBits(parObj.get(attr)))
+                    return "object "+noOfObjects+", attribute "+seqObj.attributes().name(attr)+": "+seqObj.get(attr)+" and "+parObj.get(attr);
+            noOfObjects++;
+        }
+        if (par.available()) return "parallel parser returns more than "+noOfObjects+" objects";
+        Header seqHdr = seq.attributes();
+        Header parHdr = par.attributes();
+        if (seqHdr.noOfAttr()!=parHdr.noOfAttr()) return "different numbers of attributes";
+        for (int attr = 0; attr < seqHdr.noOfAttr(); attr++)
+        {
+            if (!seqHdr.name(attr).equals(parHdr.name(attr))
+                || seqHdr.isNominal(attr)!=parHdr.isNominal(attr) || seqHdr.isNumeric(attr)!=parHdr.isNumeric(attr)
+                || seqHdr.isText(attr)!=parHdr.isText(attr) || seqHdr.isDecision(attr)!=parHdr.isDecision(attr))
+                return "different definitions of attribute "+seqHdr.name(attr);
+            if (seqHdr.attribute(attr) instanceof NominalAttribute)
+            {
+                NominalAttribute seqAttr = (NominalAttribute)seqHdr.attribute(attr);
+                NominalAttribute parAttr = (NominalAttribute)parHdr.attribute(attr);
+                if (seqAttr.noOfValues()!=parAttr.noOfValues()) return "different numbers of values of attribute "+seqHdr.name(attr);
+                for (int v = 0; v < seqAttr.noOfValues(); v++)
+                    if (seqAttr.globalValueCode(v)!=parAttr.globalValueCode(v))
+                        return "different local code "+v+" of attribute "+seqHdr.name(attr);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads a whole input and returns the error message.
+     *
+     * @param input Input to be read.
+     * @return      Message of the data format error, null if there was no error.
+     * @throws Exception when an error occurs.
+     */
+    private static String error(DoubleDataInput input) throws Exception
+    {
+        try
+        {
+            while (input.available())
+                input.readDoubleData();
+        }
+        catch (DataFormatException e)
+        {
+            return e.getMessage();
+        }
+        return null;
+    }
+
+    /**
+     * The main method runs the check for all data sets
+     * and prints the results to the standard output.
+     *
+     * @param args Optional arguments: the directory with data sets,
+     *             the number of repetitions of data and the number of threads.
+     * @throws Exception when an error occurs.
+     */
+    public static void main(String[] args) throws Exception
+    {
+        Report.addErrorOutput(new StandardErrorOutput());
+        Report.addInfoOutput(new StandardOutput());
+        File dir = new File((args.length > 0) ? args[0] : "data");
+        int repeats = (args.length > 1) ? Integer.parseInt(args[1]) : 100;
+        int noOfThreads = (args.length > 2) ? Integer.parseInt(args[2]) : 4;
+        File file = File.createTempFile("rseslib", ".dat");
+        file.deleteOnExit();
+        boolean allSame = true;
+        String[] names = dir.list();
+        Arrays.sort(names);
+        for (String name : names)
+        {
+            DoubleDataTable table;
+            if (name.endsWith(".arff"))
+                table = new ArrayListDoubleDataTable(new File(dir, name), new EmptyProgress());
+            else if (name.endsWith(".dat") && new File(dir, name.substring(0, name.length()-4)+".hdr").exists())
+                table = new ArrayListDoubleDataTable(new File(dir, name), new ArrayHeader(new File(dir, name.substring(0, name.length()-4)+".hdr")), new EmptyProgress());
+            else continue;
+            for (int r : new int[] { 1, repeats })
+            {
+                write(table, r, file);
+                ParallelRseslibDoubleDataInput parInput = new ParallelRseslibDoubleDataInput(file, new EmptyProgress(), noOfThreads);
+                String difference;
+                try
+                {
+                    difference = compare(new RseslibDoubleDataInput(file, new EmptyProgress()), parInput);
+                }
+                finally
+                {
+                    parInput.close();
+                }
+                BufferedWriter output = new BufferedWriter(new FileWriter(file, true));
+                output.write("broken line");
+                output.newLine();
+                output.close();
+                String seqError = error(new RseslibDoubleDataInput(file, new EmptyProgress()));
+                parInput = new ParallelRseslibDoubleDataInput(file, new EmptyProgress(), noOfThreads);
+                String parError;
+                try
+                {
+                    parError = error(parInput);
+                }
+                finally
+                {
+                    parInput.close();
+                }
+                if (difference==null && (seqError==null ? parError!=null : !seqError.equals(parError)))
+                    difference = "different errors: "+seqError+" and "+parError;
+                Report.displaynl(name+" x"+r+": "+(difference==null ? "same" : difference));
+                allSame &= (difference==null);
+            }
+        }
+        Report.displaynl(allSame ? "Parallel and sequential parsing give the same results" : "Parallel and sequential parsing differ");
+        Report.close();
+        if (!allSame) System.exit(1);
+    }
+}
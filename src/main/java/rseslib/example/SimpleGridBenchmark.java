@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.example;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Properties;
+import java.util.Random;
+
+import rseslib.processing.classification.Classifier;
+import rseslib.simplegrid.LocalCluster;
+import rseslib.structure.data.DoubleData;
+import rseslib.structure.table.DoubleDataTable;
+import rseslib.system.Report;
+import rseslib.system.output.StandardErrorOutput;
+import rseslib.system.output.StandardOutput;
+import rseslib.system.progress.Progress;
+
+/**
+ * Throughput benchmark of simplegrid run on a local cluster.
+ * It generates a file with synthetic tasks of given durations,
+ * a small fraction of tasks takes much longer to simulate stragglers,
+ * computes the tasks on a manager and nodes running in this JVM
+ * and reports the number of tasks per second, the latency of task requests
+ * and the fraction of duplicate executions.
+ */
+public class SimpleGridBenchmark
+{
+    /**
+     * Synthetic classifier used in the benchmark tasks:
+     * training takes the time given by the property millis.
+     */
+    public static class SyntheticClassifier implements Classifier
+    {
+        /** Statistics of this classifier. */
+        private Properties m_Statistics = new Properties();
+
+        /**
+         * Simulates training for the time given by the property millis.
+         *
+         * @param prop Properties with the training time in milliseconds.
+         * @param trainTable Training table.
+         * @param prog Progress object.
+         * @throws InterruptedException If the training has been interrupted.
+         */
+        public SyntheticClassifier(Properties prop, DoubleDataTable trainTable, Progress prog) throws InterruptedException
+        {
+            Thread.sleep(Long.parseLong(prop.getProperty("millis")));
+        }
+
+        /**
+         * Returns the decision 0.
+         *
+         * @param dObj Object to be classified.
+         * @return     Decision 0.
+         */
+        public double classify(DoubleData dObj)
+        {
+            return 0;
+        }
+
+        /**
+         * Calculates statistics.
+         */
+        public void calculateStatistics()
+        {
+        }
+
+        /**
+         * Resets statistics.
+         */
+        public void resetStatistics()
+        {
+        }
+
+        /**
+         * Returns statistics.
+         *
+         * @return Statistics.
+         */
+        public Properties getStatistics()
+        {
+            return m_Statistics;
+        }
+    }
+
+    /**
+     * Output stream discarding all bytes.
+     */
+    private static class NullOutputStream extends OutputStream
+    {
+        /**
+         * Discards a byte.
+         *
+         * @param b Byte to be discarded.
+         */
+        public void write(int b)
+        {
+        }
+
+        /**
+         * Discards an array of bytes.
+         *
+         * @param b   Bytes to be discarded.
+         * @param off Offset of the first byte.
+         * @param len Number of bytes.
+         */
+        public void write(byte[] b, int off, int len)
+        {
+        }
+    }
+
+    /**
+     * The main method runs the benchmark
+     * and prints the results to the standard output.
+     *
+     * @param args Optional arguments: the number of tasks, the number of nodes,
+     *             the number of threads per node, the task duration in milliseconds
+     *             and the data file used as the training and test table.
+     * @throws Exception when an error occurs.
+     */
+    public static void main(String[] args) throws Exception
+    {
+        Report.addErrorOutput(new StandardErrorOutput());
+        Report.addInfoOutput(new StandardOutput());
+        int noOfTasks = (args.length > 0) ? Integer.parseInt(args[0]) : 2000;
+        int noOfNodes = (args.length > 1) ? Integer.parseInt(args[1]) : 4;
+        int noOfThreads = (args.length > 2) ? Integer.parseInt(args[2]) : 4;
+        int taskMillis = (args.length > 3) ? Integer.parseInt(args[3]) : 10;
+        String dataFile = (args.length > 4) ? args[4] : "data/iris.dat";
+
+        // generate the tasks, 1% of tasks simulate stragglers
+        File dir = Files.createTempDirectory("sgm-benchmark").toFile();
+        File tasks = new File(dir, "tasks.txt");
+        File results = new File(dir, "results.txt");
+        Random rand = new Random(0);
+        long totalMillis = 0;
+        PrintWriter pw = new PrintWriter(tasks);
+        for (int t = 0; t < noOfTasks; t++)
+        {
+            int millis = (rand.nextInt(100) == 0) ? 20*taskMillis : taskMillis;
+            totalMillis += millis;
+            pw.println(SyntheticClassifier.class.getName()+" "+dataFile+" "+dataFile+" millis="+millis+";id="+t);
+        }
+        pw.close();
+        ArrayList<String> scripts = new ArrayList<String>();
+        scripts.add(tasks.getPath());
+        ArrayList<String> resultFiles = new ArrayList<String>();
+        resultFiles.add(results.getPath());
+
+        // run the tasks with the console output of the grid suppressed
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(new NullOutputStream()));
+        LocalCluster cluster = null;
+        long time;
+        try
+        {
+            long start = System.nanoTime();
+            cluster = new LocalCluster(scripts, resultFiles, noOfNodes, noOfThreads);
+            cluster.waitUntilFinished(10);
+            time = System.nanoTime() - start;
+        }
+        finally
+        {
+            if (cluster != null) cluster.stop();
+            System.setOut(out);
+        }
+
+        Report.displaynl("Tasks: "+noOfTasks+", nodes: "+noOfNodes+", threads per node: "+noOfThreads+", task time: "+taskMillis+" ms");
+        Report.displaynl("Time: "+(time/1000000)+" ms, ideal time: "+(totalMillis/(noOfNodes*noOfThreads))+" ms");
+        Report.displaynl("Throughput: "+String.format("%.1f", noOfTasks/(time/1e9))+" tasks/s");
+        Report.displaynl(cluster.getStatistics());
+        new File(results.getPath()+".idx").delete();
+        results.delete();
+        tasks.delete();
+        dir.delete();
+        Report.close();
+    }
+}
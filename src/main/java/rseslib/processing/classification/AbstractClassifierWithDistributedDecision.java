@@ -23,6 +23,7 @@ package rseslib.processing.classification;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.List;
 import java.util.Properties;
 
 import rseslib.structure.attribute.NominalAttribute;
@@ -39,6 +40,9 @@ import rseslib.system.PropertyConfigurationException;
  */
 public abstract class AbstractClassifierWithDistributedDecision extends ConfigurationWithStatistics implements ClassifierWithDistributedDecision, Classifier
 {
+	/** Number of objects in a block classified at once by the method classify(List, double[]). */
+	private static final int BLOCK_SIZE = 256;
+
 	/** Decision attribute. */
 	private NominalAttribute m_DecisionAttribute;
 	/** Preferences of decision values in case of ties. */
@@ -114,7 +118,39 @@ public abstract class AbstractClassifierWithDistributedDecision extends Configur
      */
     public double classify(DoubleData dObj) throws PropertyConfigurationException
     {
-        double[] decDistr = classifyWithDistributedDecision(dObj);
+        return decision(classifyWithDistributedDecision(dObj));
+    }
+
+    /**
+     * Assigns decisions to a list of test objects.
+     * The decision distributions are computed in blocks
+     * with the method classifyWithDistributedDecision(List, double[][])
+     * reusing the same distribution vectors for all blocks.
+     *
+     * @param objects   Test objects.
+     * @param decisions Array to be filled with the decisions assigned to the test objects.
+     */
+    public void classify(List<DoubleData> objects, double[] decisions) throws PropertyConfigurationException
+    {
+        double[][] distributions = new double[Math.min(BLOCK_SIZE, objects.size())][m_DecisionAttribute.noOfValues()];
+        for (int from = 0; from < objects.size(); from += distributions.length)
+        {
+            int to = Math.min(from + distributions.length, objects.size());
+            classifyWithDistributedDecision(objects.subList(from, to), distributions);
+            for (int i = from; i < to; i++)
+                decisions[i] = decision(distributions[i - from]);
+        }
+    }
+
+    /**
+     * Selects the decision with the greatest weight
+     * using the decision preferences in case of ties.
+     *
+     * @param decDistr  Decision distribution.
+     * @return          Selected decision.
+     */
+    private double decision(double[] decDistr)
+    {
         int bestDec = 0;
         for (int dec = 1; dec < decDistr.length; dec++)
             if (decDistr[dec] > decDistr[bestDec] || (decDistr[dec] == decDistr[bestDec] && m_DecPreferencesForTies[dec] > m_DecPreferencesForTies[bestDec]))
@@ -20,7 +20,10 @@
 
 package rseslib.processing.classification;
 
+import java.util.List;
+
 import rseslib.structure.data.DoubleData;
+import rseslib.structure.table.DoubleDataTable;
 import rseslib.system.PropertyConfigurationException;
 import rseslib.system.Statistics;
 
@@ -38,4 +41,31 @@ public interface Classifier extends Statistics
      * @return      Assigned decision.
      */
     public abstract double classify(DoubleData dObj) throws PropertyConfigurationException;
+
+    /**
+     * Assigns decisions to a list of test objects.
+     * The default implementation classifies the objects one by one,
+     * classifiers can override it to classify many objects faster.
+     *
+     * @param objects   Test objects.
+     * @param decisions Array to be filled with the decisions assigned to the test objects,
+     *                  the decision for the i-th object is set at the position i.
+     */
+    public default void classify(List<DoubleData> objects, double[] decisions) throws PropertyConfigurationException
+    {
+        for (int i = 0; i < objects.size(); i++)
+            decisions[i] = classify(objects.get(i));
+    }
+
+    /**
+     * Assigns decisions to all objects from a test table.
+     *
+     * @param table     Test table.
+     * @param decisions Array to be filled with the decisions assigned to the test objects
+     *                  in the order of the objects in the table.
+     */
+    public default void classify(DoubleDataTable table, double[] decisions) throws PropertyConfigurationException
+    {
+        classify(table.getDataObjects(), decisions);
+    }
 }
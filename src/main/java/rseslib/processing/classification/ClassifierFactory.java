@@ -23,6 +23,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.util.Properties;
 
 import rseslib.structure.table.DoubleDataTable;
+import rseslib.system.monitoring.Monitoring;
 import rseslib.system.progress.Progress;
 
 
@@ -36,6 +37,7 @@ public class ClassifierFactory {
 
 	/**
 	 * Constructs a classifier of given class using standard constructor form - (Properties, DoubbleDataTable, Progress). 
+	 * The training time is recorded in the monitoring histogram of training times.
 	 * 
 	 * @param classifierClass	Class of a classifier to be created
 	 * @param prop				Properties of a classifier to be created. If null, default properties are loaded.
@@ -55,7 +57,11 @@ public class ClassifierFactory {
 	{		
 		Class[] args_t = { Properties.class, DoubleDataTable.class, Progress.class };
 		Object[] args = { prop, trainTable, prog };
-		return (Classifier) classifierClass.getConstructor(args_t).newInstance(args);
+		long start = Monitoring.start();
+		Classifier cl = (Classifier) classifierClass.getConstructor(args_t).newInstance(args);
+		if (Monitoring.isEnabled())
+			Monitoring.histogram(Monitoring.TRAINING, "classifier", classifierClass.getSimpleName()).stop(start);
+		return cl;
 	}
 	
 }
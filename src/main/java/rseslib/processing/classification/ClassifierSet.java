@@ -25,19 +25,26 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 
 import rseslib.structure.attribute.BadHeaderException;
 import rseslib.structure.attribute.NominalAttribute;
+import rseslib.structure.attribute.NominalValueScope;
 import rseslib.structure.data.DoubleData;
-import rseslib.structure.data.DoubleDataWithDecision;
 import rseslib.structure.table.DoubleDataTable;
 import rseslib.system.PropertyConfigurationException;
 import rseslib.system.Report;
+import rseslib.system.progress.ConcurrentProgress;
 import rseslib.system.progress.MultiProgress;
 import rseslib.system.progress.Progress;
+import rseslib.util.random.RandomSelection;
 
 /**
  * This class enables to test a number of classifiers
@@ -50,6 +57,10 @@ public class ClassifierSet implements Serializable
 {
     /** Serialization version. */
 	private static final long serialVersionUID = 1L;
+	/** Minimal number of test objects classified in one task. */
+	private static final int MIN_PART_SIZE = 64;
+	/** Number of parts of a test table per thread for a classifier classifying in parallel. */
+	private static final int PARTS_PER_THREAD = 4;
 
 	/** Map between classifier names and their classes. */
 	private Map<String,Class> m_ClassifierTypes = new HashMap<String,Class>();
@@ -59,6 +70,31 @@ public class ClassifierSet implements Serializable
     private Map<String,Classifier> m_Classifiers = new HashMap<String,Classifier>();
     /** Map between classifier names and errors. */
     private Map<String,String> m_Errors = new HashMap<String,String>();
+    /** Number of threads used to train and to test the classifiers, 0 for the number of available processors. */
+    private int m_nNoOfThreads = 1;
+    /** Executor used to train and to test the classifiers concurrently, null if not set. */
+    private ExecutorService m_Executor = null;
+
+    /**
+     * Constructs an empty set of classifiers.
+     */
+    public ClassifierSet()
+    {
+    }
+
+    /**
+     * Constructs a set of untrained classifiers
+     * of the same types and with the same properties as a given set.
+     * The classifiers added to the given set as trained objects are not copied.
+     * The copy trains and tests the classifiers in one thread.
+     *
+     * @param set Set of classifiers to be copied.
+     */
+    public ClassifierSet(ClassifierSet set)
+    {
+    	m_ClassifierTypes.putAll(set.m_ClassifierTypes);
+    	m_ClassifierProperties.putAll(set.m_ClassifierProperties);
+    }
 
     /**
      * Add a classifier to this set of classifiers.
@@ -100,6 +136,8 @@ public class ClassifierSet implements Serializable
     	m_ClassifierProperties = (Map<String,Properties>)in.readObject();
     	m_Classifiers = new HashMap<String,Classifier>();
     	m_Errors = new HashMap<String,String>();
+    	m_nNoOfThreads = 1;
+    	m_Executor = null;
     }
 
     /**
@@ -126,6 +164,65 @@ public class ClassifierSet implements Serializable
         m_Classifiers.put(name, cl);
     }
 
+    /**
+     * Sets the number of threads used to train and to test the classifiers.
+     * With one thread the classifiers are trained and tested sequentially.
+     * With more threads the classifiers are trained concurrently
+     * and the test objects are classified concurrently:
+     * a classifier implementing ThreadSafeClassifier classifies
+     * parts of a test table in parallel, other classifiers
+     * classify the whole test table in one thread.
+     *
+     * @param noOfThreads Number of threads, 0 means the number of available processors.
+     */
+    public void setNoOfThreads(int noOfThreads)
+    {
+    	if (noOfThreads < 0) throw new IllegalArgumentException("Negative number of threads: "+noOfThreads);
+    	m_nNoOfThreads = noOfThreads;
+    }
+
+    /**
+     * Sets the executor used to train and to test the classifiers concurrently.
+     * The executor is not shut down by this set of classifiers.
+     * If the executor is null and the number of threads is greater than 1,
+     * a new thread pool is created for each training and each test.
+     *
+     * @param executor Executor to be used, null to switch to the thread pools created on demand.
+     */
+    public void setExecutor(ExecutorService executor)
+    {
+    	m_Executor = executor;
+    }
+
+    /**
+     * Returns the number of threads to be used.
+     *
+     * @return Number of threads to be used.
+     */
+    private int noOfThreads()
+    {
+    	return TaskExecution.noOfThreads(m_nNoOfThreads);
+    }
+
+    /**
+     * Reports an error in construction of a classifier.
+     *
+     * @param name Name of the classifier.
+     * @param e    Exception thrown while constructing the classifier.
+     */
+    private void reportTrainingError(String name, Exception e)
+    {
+		if (e instanceof InvocationTargetException)
+		{
+			if (((InvocationTargetException)e).getTargetException() instanceof BadHeaderException)
+				m_Errors.put(name, ((InvocationTargetException)e).getTargetException().getMessage());
+			else
+				Report.exception((Exception)((InvocationTargetException)e).getTargetException());
+		}
+		else
+			Report.exception(e);
+    }
+
     /**
      * Constructs classifiers to be tested.
      *
@@ -142,34 +239,103 @@ public class ClassifierSet implements Serializable
     		return;
     	}
     	int[] progressVolumes = new int[m_ClassifierTypes.size()];
-    	progressVolumes[0] = 100/progressVolumes.length;
-    	for (int i = 1; i < progressVolumes.length; i++)
-    		progressVolumes[i] = 100*(i+1)/progressVolumes.length-progressVolumes[i-1];
+    	for (int i = 0; i < progressVolumes.length; i++)
+    		progressVolumes[i] = 100*(i+1)/progressVolumes.length-100*i/progressVolumes.length;
+    	if (m_Executor!=null || noOfThreads() > 1)
+    	{
+    		trainConcurrently(trainTable, progressVolumes, prog);
+    		return;
+    	}
     	prog = new MultiProgress("Training classifiers", prog, progressVolumes);
 		for (Map.Entry<String,Class> cl : m_ClassifierTypes.entrySet())
 		{
 			m_Classifiers.remove(cl.getKey());
+			long seed = RandomSelection.generator().nextLong();
 			try
 			{
 				Class classifierClass = cl.getValue();
 				Properties prop = m_ClassifierProperties.get(cl.getKey());
-				Classifier classifier = ClassifierFactory.createClassifier(classifierClass, prop, trainTable, prog);
+				Classifier classifier = createClassifier(classifierClass, prop, trainTable, seed, prog);
 				m_Classifiers.put(cl.getKey(), classifier);
 			}
-			catch (InvocationTargetException e)
-			{
-				if (e.getTargetException() instanceof BadHeaderException)
-					m_Errors.put(cl.getKey(), e.getTargetException().getMessage());
-				else
-					Report.exception((Exception)e.getTargetException());
-			}
 			catch (Exception e)
 			{
-				Report.exception(e);
+				reportTrainingError(cl.getKey(), e);
 			}
 		}
 	}
 
+    /**
+     * Constructs a classifier with the random operations
+     * of the class RandomSelection seeded with a given seed,
+     * so the construction gives the same classifier in any thread.
+     *
+     * @param classifierClass Class of the classifier.
+     * @param prop            Properties of the classifier.
+     * @param trainTable      Training data set.
+     * @param seed            Seed for the random operations.
+     * @param prog            Progress object for the construction.
+     * @return                Constructed classifier.
+     * @throws Exception when the construction fails.
+     */
+    private static Classifier createClassifier(Class classifierClass, Properties prop, DoubleDataTable trainTable, long seed, Progress prog) throws Exception
+    {
+    	Random previous = RandomSelection.setGenerator(new Random(seed));
+    	try
+    	{
+    		return ClassifierFactory.createClassifier(classifierClass, prop, trainTable, prog);
+    	}
+    	finally
+    	{
+    		RandomSelection.setGenerator(previous);
+    	}
+	}
+
+    /**
+     * Constructs classifiers concurrently.
+     * All classifiers being retrained are removed before the construction starts
+     * and only the successfully constructed classifiers are put back.
+     * Each classifier reports the progress of its construction
+     * to its own section of a concurrent progress.
+     * The section of a classifier is completed by the calling thread
+     * when the construction of the classifier is finished.
+     *
+     * @param trainTable      Training data set.
+     * @param progressVolumes Numbers of steps of the progress made by the classifiers.
+     * @param prog            Progress object.
+     * @throws InterruptedException when the user interrupts the execution.
+     */
+    private void trainConcurrently(DoubleDataTable trainTable, int[] progressVolumes, Progress prog) throws InterruptedException
+    {
+    	int noOfSteps = 0;
+    	for (int volume : progressVolumes)
+    		noOfSteps += volume;
+    	ConcurrentProgress concurrentProg = new ConcurrentProgress(prog);
+    	concurrentProg.set("Training classifiers", noOfSteps);
+    	ArrayList<Callable<Training>> tasks = new ArrayList<Callable<Training>>();
+    	NominalValueScope scope = NominalValueScope.current();
+		for (Map.Entry<String,Class> cl : m_ClassifierTypes.entrySet())
+			m_Classifiers.remove(cl.getKey());
+		for (Map.Entry<String,Class> cl : m_ClassifierTypes.entrySet())
+			tasks.add(new Training(cl.getKey(), cl.getValue(), m_ClassifierProperties.get(cl.getKey()), trainTable, RandomSelection.generator().nextLong(), scope,
+					concurrentProg.section(progressVolumes[tasks.size()])));
+		TaskExecution<Training> execution = new TaskExecution<Training>(m_Executor, noOfThreads(), tasks);
+		try
+		{
+			for (int t = 0; t < tasks.size(); t++)
+			{
+				Training training = execution.next();
+				if (training.m_Exception==null) m_Classifiers.put(training.m_Name, training.m_Classifier);
+				else reportTrainingError(training.m_Name, training.m_Exception);
+				training.m_Progress.finish();
+			}
+		}
+		finally
+		{
+			execution.cancel();
+		}
+    }
+
     /**
      * Classifies a test data set.
      *
@@ -185,36 +351,21 @@ public class ClassifierSet implements Serializable
         if (tstTable.noOfObjects()<=0) throw new RuntimeException("Classification of an empty table");
         NominalAttribute decAttr = tstTable.attributes().nominalDecisionAttribute();
         Map<String,int[][]> mapOfConfusionMatrices = new HashMap<String,int[][]>();
-        prog.set("Classifing test table", tstTable.noOfObjects());
-        for (DoubleData dObj : tstTable.getDataObjects())
+        if (m_Executor!=null || noOfThreads() > 1)
+        	classifyConcurrently(tstTable, mapOfConfusionMatrices, prog);
+        else
         {
-            int objDecLocalCode = decAttr.localValueCode(((DoubleDataWithDecision)dObj).getDecision());
-            for (Map.Entry<String,Classifier> cl : m_Classifiers.entrySet())
-            {
-                int[][] confusionMatrix = (int[][])mapOfConfusionMatrices.get(cl.getKey());
-                if (confusionMatrix==null)
-                {
-                    confusionMatrix = new int[decAttr.noOfValues()][];
-                    for (int i = 0; i < confusionMatrix.length; i++)
-                        confusionMatrix[i] = new int[decAttr.noOfValues()];
-                    mapOfConfusionMatrices.put(cl.getKey(), confusionMatrix);
-                }
-                try
-                {
-                    double dec = cl.getValue().classify(dObj);
-                    if (!Double.isNaN(dec))
-                    	confusionMatrix[objDecLocalCode][decAttr.localValueCode(dec)]++;
-                }
-                catch (RuntimeException e)
-                {
-                    Report.exception(e);
-                }
-                catch (PropertyConfigurationException e)
-                {
-                    Report.exception(e);
-                }
-            }
-            prog.step();
+        	ArrayList<DoubleData> objects = tstTable.getDataObjects();
+        	prog.set("Classifing test table", (objects.size() + SingleClassifierTest.BATCH_SIZE - 1) / SingleClassifierTest.BATCH_SIZE);
+        	for (Map.Entry<String,Classifier> cl : m_Classifiers.entrySet())
+        		mapOfConfusionMatrices.put(cl.getKey(), new int[decAttr.noOfValues()][decAttr.noOfValues()]);
+        	for (int start = 0; start < objects.size(); start += SingleClassifierTest.BATCH_SIZE)
+        	{
+        		List<DoubleData> batch = objects.subList(start, Math.min(start + SingleClassifierTest.BATCH_SIZE, objects.size()));
+        		for (Map.Entry<String,Classifier> cl : m_Classifiers.entrySet())
+        			SingleClassifierTest.classify(cl.getValue(), batch, decAttr, mapOfConfusionMatrices.get(cl.getKey()));
+        		prog.step();
+        	}
         }
         // prepare classification results
         Map<String,TestResult> resultMap = new HashMap<String,TestResult>();
@@ -229,4 +380,177 @@ public class ClassifierSet implements Serializable
         	resultMap.put(err.getKey(), new TestResult(err.getValue()));
         return resultMap;
     }
+
+    /**
+     * Classifies a test data set concurrently.
+     * Each classifier computes confusion matrices for separate parts
+     * of the test table and the matrices are summed at the end.
+     * The progress is reported by the calling thread
+     * when the classification of a part is completed.
+     *
+     * @param tstTable               Test data set.
+     * @param mapOfConfusionMatrices Map to be filled with the confusion matrices of classifiers.
+     * @param prog                   Progress object for classification process.
+     * @throws InterruptedException when the user interrupts the execution.
+     */
+    private void classifyConcurrently(DoubleDataTable tstTable, Map<String,int[][]> mapOfConfusionMatrices, Progress prog) throws InterruptedException
+    {
+        NominalAttribute decAttr = tstTable.attributes().nominalDecisionAttribute();
+        ArrayList<DoubleData> objects = tstTable.getDataObjects();
+        int partSize = Math.max(MIN_PART_SIZE, (objects.size() + PARTS_PER_THREAD * noOfThreads() - 1) / (PARTS_PER_THREAD * noOfThreads()));
+        ArrayList<Callable<Classification>> tasks = new ArrayList<Callable<Classification>>();
+        // the classifiers classifying the whole table in one thread are started first
+        for (Map.Entry<String,Classifier> cl : m_Classifiers.entrySet())
+        {
+        	mapOfConfusionMatrices.put(cl.getKey(), new int[decAttr.noOfValues()][decAttr.noOfValues()]);
+        	if (!(cl.getValue() instanceof ThreadSafeClassifier))
+        		tasks.add(new Classification(cl.getKey(), cl.getValue(), objects, decAttr));
+        }
+        for (Map.Entry<String,Classifier> cl : m_Classifiers.entrySet())
+        	if (cl.getValue() instanceof ThreadSafeClassifier)
+        		for (int start = 0; start < objects.size(); start += partSize)
+        			tasks.add(new Classification(cl.getKey(), cl.getValue(), objects.subList(start, Math.min(start + partSize, objects.size())), decAttr));
+        prog.set("Classifing test table", Math.max(tasks.size(), 1));
+        if (tasks.isEmpty())
+        {
+        	prog.step();
+        	return;
+        }
+        TaskExecution<Classification> execution = new TaskExecution<Classification>(m_Executor, noOfThreads(), tasks);
+        try
+        {
+        	for (int t = 0; t < tasks.size(); t++)
+        	{
+        		Classification classification = execution.next();
+        		int[][] confusionMatrix = mapOfConfusionMatrices.get(classification.m_Name);
+        		for (int i = 0; i < confusionMatrix.length; i++)
+        			for (int j = 0; j < confusionMatrix[i].length; j++)
+        				confusionMatrix[i][j] += classification.m_ConfusionMatrix[i][j];
+        		prog.step();
+        	}
+        }
+        finally
+        {
+        	execution.cancel();
+        }
+    }
+
+    /**
+     * Task constructing one classifier.
+     */
+    private static class Training implements Callable<Training>
+    {
+    	/** Name of the classifier. */
+    	final String m_Name;
+    	/** Class of the classifier. */
+    	final Class m_Type;
+    	/** Properties of the classifier. */
+    	final Properties m_Properties;
+    	/** Training data set. */
+    	final DoubleDataTable m_TrainTable;
+    	/** Seed for the random operations in the construction of the classifier. */
+    	final long m_lSeed;
+    	/** Scope of nominal values entered in the thread that started the training. */
+    	final NominalValueScope m_Scope;
+    	/** Section of a concurrent progress for the construction of the classifier. */
+    	final ConcurrentProgress m_Progress;
+    	/** Constructed classifier. */
+    	Classifier m_Classifier = null;
+    	/** Exception thrown while constructing the classifier. */
+    	Exception m_Exception = null;
+
+    	/**
+    	 * Constructor.
+    	 *
+    	 * @param name       Name of the classifier.
+    	 * @param type       Class of the classifier.
+    	 * @param prop       Properties of the classifier.
+    	 * @param trainTable Training data set.
+    	 * @param seed       Seed for the random operations in the construction of the classifier.
+    	 * @param scope      Scope of nominal values to be used, null if no scope is used.
+    	 * @param prog       Section of a concurrent progress for the construction of the classifier.
+    	 */
+    	Training(String name, Class type, Properties prop, DoubleDataTable trainTable, long seed, NominalValueScope scope, ConcurrentProgress prog)
+    	{
+    		m_Name = name;
+    		m_Type = type;
+    		m_Properties = prop;
+    		m_TrainTable = trainTable;
+    		m_lSeed = seed;
+    		m_Scope = scope;
+    		m_Progress = prog;
+    	}
+
+    	/**
+    	 * Constructs the classifier.
+    	 *
+    	 * @return This task.
+    	 */
+    	public Training call()
+    	{
+    		if (m_Scope!=null) m_Scope.enter();
+    		try
+    		{
+    			m_Classifier = createClassifier(m_Type, m_Properties, m_TrainTable, m_lSeed, m_Progress);
+    		}
+    		catch (Exception e)
+    		{
+    			m_Exception = e;
+    		}
+    		finally
+    		{
+    			if (m_Scope!=null) m_Scope.exit();
+    		}
+    		return this;
+    	}
+    }
+
+    /**
+     * Task classifying a part of a test table with one classifier.
+     */
+    private static class Classification implements Callable<Classification>
+    {
+    	/** Name of the classifier. */
+    	final String m_Name;
+    	/** Classifier. */
+    	final Classifier m_Classifier;
+    	/** Test objects. */
+    	final List<DoubleData> m_Objects;
+    	/** Decision attribute. */
+    	final NominalAttribute m_DecisionAttribute;
+    	/** Confusion matrix for the test objects. */
+    	final int[][] m_ConfusionMatrix;
+
+    	/**
+    	 * Constructor.
+    	 *
+    	 * @param name    Name of the classifier.
+    	 * @param cl      Classifier.
+    	 * @param objects Test objects.
+    	 * @param decAttr Decision attribute.
+    	 */
+    	Classification(String name, Classifier cl, List<DoubleData> objects, NominalAttribute decAttr)
+    	{
+    		m_Name = name;
+    		m_Classifier = cl;
+    		m_Objects = objects;
+    		m_DecisionAttribute = decAttr;
+    		m_ConfusionMatrix = new int[decAttr.noOfValues()][decAttr.noOfValues()];
+    	}
+
+    	/**
+    	 * Classifies the test objects.
+    	 *
+    	 * @return This task.
+    	 */
+    	public Classification call()
+    	{
+    		for (int start = 0; start < m_Objects.size(); start += SingleClassifierTest.BATCH_SIZE)
+    		{
+    			if (Thread.currentThread().isInterrupted()) break;
+    			SingleClassifierTest.classify(m_Classifier, m_Objects.subList(start, Math.min(start + SingleClassifierTest.BATCH_SIZE, m_Objects.size())), m_DecisionAttribute, m_ConfusionMatrix);
+    		}
+    		return this;
+    	}
+    }
 }
@@ -20,7 +20,10 @@
 
 package rseslib.processing.classification;
 
+import java.util.List;
+
 import rseslib.structure.data.DoubleData;
+import rseslib.structure.table.DoubleDataTable;
 import rseslib.system.PropertyConfigurationException;
 import rseslib.system.Statistics;
 
@@ -42,4 +45,39 @@ public interface ClassifierWithDistributedDecision extends Statistics
      * @return      Assigned decision distribution.
      */
     public abstract double[] classifyWithDistributedDecision(DoubleData dObj) throws PropertyConfigurationException;
+
+    /**
+     * Returns decision distribution vectors for a list of test objects.
+     * The default implementation classifies the objects one by one,
+     * classifiers can override it to classify many objects faster.
+     *
+     * @param objects       Test objects.
+     * @param distributions Array to be filled with the decision distributions
+     *                      assigned to the test objects, the distribution for the i-th object
+     *                      is set at the position i. The rows equal to null are set
+     *                      to new vectors, the rows provided by the caller must have
+     *                      the length equal to the number of decision values and are overwritten.
+     */
+    public default void classifyWithDistributedDecision(List<DoubleData> objects, double[][] distributions) throws PropertyConfigurationException
+    {
+        for (int i = 0; i < objects.size(); i++)
+        {
+            double[] decDistr = classifyWithDistributedDecision(objects.get(i));
+            if (distributions[i]==null) distributions[i] = decDistr;
+            else System.arraycopy(decDistr, 0, distributions[i], 0, decDistr.length);
+        }
+    }
+
+    /**
+     * Returns decision distribution vectors for all objects from a test table.
+     *
+     * @param table         Test table.
+     * @param distributions Array to be filled with the decision distributions
+     *                      in the order of the objects in the table,
+     *                      the rows are treated as in classifyWithDistributedDecision(List, double[][]).
+     */
+    public default void classifyWithDistributedDecision(DoubleDataTable table, double[][] distributions) throws PropertyConfigurationException
+    {
+        classifyWithDistributedDecision(table.getDataObjects(), distributions);
+    }
 }
@@ -20,22 +20,23 @@
 
 package rseslib.processing.classification;
 
-import java.util.Collection;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
 
-import rseslib.structure.data.DoubleData;
-import rseslib.structure.table.ArrayListDoubleDataTable;
 import rseslib.structure.table.DoubleDataTable;
+import rseslib.structure.table.DoubleDataTableView;
 import rseslib.system.Configuration;
 import rseslib.system.PropertyConfigurationException;
-import rseslib.system.progress.EmptyProgress;
 import rseslib.system.progress.Progress;
+import rseslib.util.random.RandomSelection;
 
 /**
  * Cross-validation object that splits a given test table
  * into a number of folds and performs the cross-validation test.
+ * The folds can be executed concurrently.
  *
  * @author      Arkadiusz Wojna
  */
@@ -48,6 +49,12 @@ public class CrossValidationTest extends Configuration
     private final int m_nNoOfFolds = getIntProperty(NO_OF_FOLDS_PROPERTY_NAME);
     /** The set of classifiers. */
     private ClassifierSet m_Classifiers;
+    /** Number of threads executing the folds, 0 for the number of available processors. */
+    private int m_nNoOfThreads = 1;
+    /** Executor executing the folds concurrently, null if not set. */
+    private ExecutorService m_Executor = null;
+    /** Seed for the random operations in the test, null if not set. */
+    private Long m_Seed = null;
 
     /**
      * Constructs the cross-validation tester for a given classifiers.
@@ -61,6 +68,47 @@ public class CrossValidationTest extends Configuration
         m_Classifiers = classifiers;
     }
 
+    /**
+     * Sets the number of threads executing the folds.
+     * With one thread the folds are executed sequentially
+     * with the given set of classifiers.
+     * With more threads the folds are executed concurrently,
+     * each fold with its own copy of the set of classifiers.
+     *
+     * @param noOfThreads Number of threads, 0 means the number of available processors.
+     */
+    public void setNoOfThreads(int noOfThreads)
+    {
+    	if (noOfThreads < 0) throw new IllegalArgumentException("Negative number of threads: "+noOfThreads);
+    	m_nNoOfThreads = noOfThreads;
+    }
+
+    /**
+     * Sets the executor executing the folds concurrently.
+     * The executor is not shut down by this test.
+     *
+     * @param executor Executor to be used, null to switch to the thread pools created on demand.
+     */
+    public void setExecutor(ExecutorService executor)
+    {
+    	m_Executor = executor;
+    }
+
+    /**
+     * Sets the seed for the random operations in the test:
+     * the partition into folds and the random operations
+     * of the class RandomSelection performed while training
+     * and testing the classifiers in each fold.
+     * Each fold gets its own seed derived from this seed,
+     * so the results are reproducible regardless of the number of threads.
+     *
+     * @param seed Seed for the random operations.
+     */
+    public void setSeed(long seed)
+    {
+    	m_Seed = seed;
+    }
+
     /**
      * Test the table.
      *
@@ -72,46 +120,54 @@ public class CrossValidationTest extends Configuration
      */
     public Map<String,MultipleTestResult> test(DoubleDataTable table, Progress prog) throws InterruptedException
     {
-        // divide the test table into n parts 
-        Collection<DoubleData>[] parts =  table.randomPartition(m_nNoOfFolds);
-        Map<String,TestResult[]> mapOfAccuracyForClassifiers = new HashMap<String,TestResult[]>();
-        Progress emptyProg = new EmptyProgress();
-        prog.set("Cross-validation test", 2*parts.length);
-        for (int cv = 0; cv < parts.length; cv++)
-        {
-            // create the train and test tables
-            DoubleDataTable trnTable = new ArrayListDoubleDataTable(table.attributes());
-            DoubleDataTable tstTable = new ArrayListDoubleDataTable(table.attributes());
-            for (int part = 0; part < parts.length; part++)
-            {
-                DoubleDataTable tab = trnTable;
-                if (part==cv) tab = tstTable;
-                for (DoubleData obj : parts[part]) tab.add(obj);
-            }
-
-            // train the classifiers using the training part
-            m_Classifiers.train(trnTable, emptyProg);
-            prog.step();
+        long seed = (m_Seed!=null) ? m_Seed : RandomSelection.generator().nextLong();
+        boolean concurrent = m_Executor!=null || TaskExecution.noOfThreads(m_nNoOfThreads) > 1;
+        ArrayList<SingleTest> folds = folds(table, seed, concurrent);
+        prog.set("Cross-validation test", 2*m_nNoOfFolds);
+        SingleTest.execute(folds, m_Executor, m_nNoOfThreads, prog);
+        return SingleTest.aggregate(folds);
+    }
 
-            // classify the test part
-            Map<String,TestResult> classificationResults = m_Classifiers.classify(tstTable, emptyProg);
-            for (Map.Entry<String,TestResult> clRes : classificationResults.entrySet())
+    /**
+     * Divides a table into folds and creates the tests for all folds.
+     *
+     * @param table      Table to be tested.
+     * @param seed       Seed for the partition and for the tests of the folds.
+     * @param concurrent If true, each fold gets its own copy of the set of classifiers.
+     * @return           Tests for all folds.
+     */
+    ArrayList<SingleTest> folds(DoubleDataTable table, long seed, boolean concurrent)
+    {
+        Random seeds = new Random(seed);
+        // divide the test table into n parts
+        final int[] partOfObject;
+        Random previous = RandomSelection.setGenerator(new Random(seeds.nextLong()));
+        try
+        {
+            partOfObject = RandomSelection.partition(table.noOfObjects(), m_nNoOfFolds);
+        }
+        finally
+        {
+            RandomSelection.setGenerator(previous);
+        }
+        ArrayList<SingleTest> folds = new ArrayList<SingleTest>(m_nNoOfFolds);
+        final DoubleDataTable parent = table;
+        for (int cv = 0; cv < m_nNoOfFolds; cv++)
+        {
+            final int fold = cv;
+            // create the train and test views when the fold is executed
+            SingleTest.Split split = new SingleTest.Split()
             {
-                TestResult[] results = (TestResult[])mapOfAccuracyForClassifiers.get(clRes.getKey());
-                if (results==null)
+                public DoubleDataTable[] create()
                 {
-                    results = new TestResult[parts.length];
-                    mapOfAccuracyForClassifiers.put(clRes.getKey(), results);
+                    return new DoubleDataTable[] {
+                        new DoubleDataTableView(parent, partOfObject, fold, true),
+                        new DoubleDataTableView(parent, partOfObject, fold, false) };
                 }
-                results[cv] = clRes.getValue();
-            }
-            prog.step();
+            };
+            ClassifierSet classifiers = concurrent ? new ClassifierSet(m_Classifiers) : m_Classifiers;
+            folds.add(new SingleTest(classifiers, split, seeds.nextLong()));
         }
-
-        // aggregate the results
-        Map<String,MultipleTestResult> crossValidationResults = new HashMap<String,MultipleTestResult>();
-        for (Map.Entry<String,TestResult[]> clRes : mapOfAccuracyForClassifiers.entrySet())
-            crossValidationResults.put(clRes.getKey(), new MultipleTestResult(clRes.getValue()));
-        return crossValidationResults;
+        return folds;
     }
 }
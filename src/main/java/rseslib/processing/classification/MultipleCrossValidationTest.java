@@ -20,20 +20,24 @@
 
 package rseslib.processing.classification;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
 
 import rseslib.structure.table.DoubleDataTable;
 import rseslib.system.Configuration;
 import rseslib.system.PropertyConfigurationException;
-import rseslib.system.progress.EmptyProgress;
 import rseslib.system.progress.Progress;
+import rseslib.util.random.RandomSelection;
 
 /**
  * Multitest object that performs a number of tests.
  * In each test a given table is tested
  * with the cross-validation test.
+ * The folds of all tests can be executed concurrently.
  *
  * @author      Arkadiusz Wojna, Grzegorz Gora
  */
@@ -50,6 +54,12 @@ public class MultipleCrossValidationTest extends Configuration
     private ClassifierSet m_Classifiers;
     /** The set of classifiers. */
     private CrossValidationTest m_SingleCrossValidation;
+    /** Number of threads executing the folds, 0 for the number of available processors. */
+    private int m_nNoOfThreads = 1;
+    /** Executor executing the folds concurrently, null if not set. */
+    private ExecutorService m_Executor = null;
+    /** Seed for the random operations in this multitest, null if not set. */
+    private Long m_Seed = null;
 
     /**
      * Constructs the multitest for a given classifiers.
@@ -66,6 +76,45 @@ public class MultipleCrossValidationTest extends Configuration
         m_SingleCrossValidation = new CrossValidationTest(cvprop, m_Classifiers);
     }
 
+    /**
+     * Sets the number of threads executing the folds.
+     * With one thread the folds are executed sequentially
+     * with the given set of classifiers.
+     * With more threads the folds are executed concurrently,
+     * each fold with its own copy of the set of classifiers.
+     *
+     * @param noOfThreads Number of threads, 0 means the number of available processors.
+     */
+    public void setNoOfThreads(int noOfThreads)
+    {
+    	if (noOfThreads < 0) throw new IllegalArgumentException("Negative number of threads: "+noOfThreads);
+    	m_nNoOfThreads = noOfThreads;
+    }
+
+    /**
+     * Sets the executor executing the folds concurrently.
+     * The executor is not shut down by this multitest.
+     *
+     * @param executor Executor to be used, null to switch to the thread pools created on demand.
+     */
+    public void setExecutor(ExecutorService executor)
+    {
+    	m_Executor = executor;
+    }
+
+    /**
+     * Sets the seed for the random operations in this multitest.
+     * Each test gets its own seed derived from this seed
+     * and each fold of a test gets its own seed derived from the seed of the test,
+     * so the results are reproducible regardless of the number of threads.
+     *
+     * @param seed Seed for the random operations.
+     */
+    public void setSeed(long seed)
+    {
+    	m_Seed = seed;
+    }
+
     /**
      * Test the table.
      *
@@ -77,12 +126,22 @@ public class MultipleCrossValidationTest extends Configuration
      */
     public Map<String,MultipleTestResult> test(DoubleDataTable table, Progress prog) throws InterruptedException
     {
-        prog.set("Multiple cross-validation test", m_nNoOfTests);
+        Random seeds = new Random((m_Seed!=null) ? m_Seed : RandomSelection.generator().nextLong());
+        boolean concurrent = m_Executor!=null || TaskExecution.noOfThreads(m_nNoOfThreads) > 1;
+        ArrayList<ArrayList<SingleTest>> crossValidations = new ArrayList<ArrayList<SingleTest>>(m_nNoOfTests);
+        ArrayList<SingleTest> folds = new ArrayList<SingleTest>();
+        for (int t = 0; t < m_nNoOfTests; t++)
+        {
+            crossValidations.add(m_SingleCrossValidation.folds(table, seeds.nextLong(), concurrent));
+            folds.addAll(crossValidations.get(t));
+        }
+        // run the folds of all cross-validations
+        prog.set("Multiple cross-validation test", 2*folds.size());
+        SingleTest.execute(folds, m_Executor, m_nNoOfThreads, prog);
         Map<String,MultipleTestResult[]> mapOfAccuracyForClassifiers = new HashMap<String,MultipleTestResult[]>();
         for (int t = 0; t < m_nNoOfTests; t++)
         {
-            // run single cross-validation
-            Map<String,MultipleTestResult> classificationResults = m_SingleCrossValidation.test(table, new EmptyProgress());
+            Map<String,MultipleTestResult> classificationResults = SingleTest.aggregate(crossValidations.get(t));
             for (Map.Entry<String,MultipleTestResult> clRes : classificationResults.entrySet())
             {
             	MultipleTestResult[] results = (MultipleTestResult[])mapOfAccuracyForClassifiers.get(clRes.getKey());
@@ -93,7 +152,6 @@ public class MultipleCrossValidationTest extends Configuration
             	}
               results[t] = clRes.getValue();
             }
-            prog.step();
         }
         Map<String,MultipleTestResult> multipleCrossValidationTestResults = new HashMap<String,MultipleTestResult>();
         for (Map.Entry<String,MultipleTestResult[]> clRes : mapOfAccuracyForClassifiers.entrySet())
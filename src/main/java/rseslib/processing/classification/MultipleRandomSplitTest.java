@@ -21,17 +21,18 @@
 package rseslib.processing.classification;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
 
 import rseslib.structure.data.DoubleData;
 import rseslib.structure.table.ArrayListDoubleDataTable;
 import rseslib.structure.table.DoubleDataTable;
 import rseslib.system.Configuration;
 import rseslib.system.PropertyConfigurationException;
-import rseslib.system.progress.EmptyProgress;
 import rseslib.system.progress.Progress;
+import rseslib.util.random.RandomSelection;
 
 /**
  * Multitest object that performs a number of tests.
@@ -39,6 +40,7 @@ import rseslib.system.progress.Progress;
  * into a training and a test table
  * and the classifiers are trained with the generated trainig table
  * and tested with the generated test table.
+ * The tests can be executed concurrently.
  *
  * @author      Arkadiusz Wojna
  */
@@ -59,6 +61,12 @@ public class MultipleRandomSplitTest extends Configuration
     private final int m_nNoOfPartsForTesting = getIntProperty(NO_OF_TESTINIG_PARTS_PROPERTY_NAME);
     /** The set of classifiers. */
     private ClassifierSet m_Classifiers;
+    /** Number of threads executing the tests, 0 for the number of available processors. */
+    private int m_nNoOfThreads = 1;
+    /** Executor executing the tests concurrently, null if not set. */
+    private ExecutorService m_Executor = null;
+    /** Seed for the random operations in this multitest, null if not set. */
+    private Long m_Seed = null;
 
     /**
      * Constructs the multitest for a given classifiers.
@@ -72,6 +80,45 @@ public class MultipleRandomSplitTest extends Configuration
         m_Classifiers = classifiers;
     }
 
+    /**
+     * Sets the number of threads executing the tests.
+     * With one thread the tests are executed sequentially
+     * with the given set of classifiers.
+     * With more threads the tests are executed concurrently,
+     * each test with its own copy of the set of classifiers.
+     *
+     * @param noOfThreads Number of threads, 0 means the number of available processors.
+     */
+    public void setNoOfThreads(int noOfThreads)
+    {
+    	if (noOfThreads < 0) throw new IllegalArgumentException("Negative number of threads: "+noOfThreads);
+    	m_nNoOfThreads = noOfThreads;
+    }
+
+    /**
+     * Sets the executor executing the tests concurrently.
+     * The executor is not shut down by this multitest.
+     *
+     * @param executor Executor to be used, null to switch to the thread pools created on demand.
+     */
+    public void setExecutor(ExecutorService executor)
+    {
+    	m_Executor = executor;
+    }
+
+    /**
+     * Sets the seed for the random operations in this multitest.
+     * Each test gets its own seeds for the split and for the classifiers
+     * derived from this seed,
+     * so the results are reproducible regardless of the number of threads.
+     *
+     * @param seed Seed for the random operations.
+     */
+    public void setSeed(long seed)
+    {
+    	m_Seed = seed;
+    }
+
     /**
      * Test the table.
      *
@@ -83,37 +130,36 @@ public class MultipleRandomSplitTest extends Configuration
      */
     public Map<String,MultipleTestResult> test(DoubleDataTable table, Progress prog) throws InterruptedException
     {
-        prog.set("Multiple test", 2*m_nNoOfTests);
-        Map<String,TestResult[]> mapOfAccuracyForClassifiers = new HashMap<String,TestResult[]>();
-        Progress emptyProg = new EmptyProgress();
+        Random seeds = new Random((m_Seed!=null) ? m_Seed : RandomSelection.generator().nextLong());
+        boolean concurrent = m_Executor!=null || TaskExecution.noOfThreads(m_nNoOfThreads) > 1;
+        ArrayList<SingleTest> tests = new ArrayList<SingleTest>(m_nNoOfTests);
+        final DoubleDataTable parent = table;
         for (int t = 0; t < m_nNoOfTests; t++)
         {
-            // split the table into the train part and the test part
-            ArrayList<DoubleData>[] parts = table.randomSplit(m_nNoOfPartsForTraining, m_nNoOfPartsForTesting);
-            DoubleDataTable trnTable = new ArrayListDoubleDataTable(parts[0]);
-            DoubleDataTable tstTable = new ArrayListDoubleDataTable(parts[1]);
-
-            // train the classifiers
-            m_Classifiers.train(trnTable, emptyProg);
-            prog.step();
-
-            // classify the test part
-            Map<String,TestResult> classificationResults = m_Classifiers.classify(tstTable, emptyProg);
-            for (Map.Entry<String,TestResult> clRes : classificationResults.entrySet())
+            final long splitSeed = seeds.nextLong();
+            // split the table into the train part and the test part when the test is executed
+            SingleTest.Split split = new SingleTest.Split()
             {
-                TestResult[] results = (TestResult[])mapOfAccuracyForClassifiers.get(clRes.getKey());
-                if (results==null)
+                public DoubleDataTable[] create()
                 {
-                    results = new TestResult[m_nNoOfTests];
-                    mapOfAccuracyForClassifiers.put(clRes.getKey(), results);
+                    ArrayList<DoubleData>[] parts;
+                    Random previous = RandomSelection.setGenerator(new Random(splitSeed));
+                    try
+                    {
+                        parts = parent.randomSplit(m_nNoOfPartsForTraining, m_nNoOfPartsForTesting);
+                    }
+                    finally
+                    {
+                        RandomSelection.setGenerator(previous);
+                    }
+                    return new DoubleDataTable[] { new ArrayListDoubleDataTable(parts[0]), new ArrayListDoubleDataTable(parts[1]) };
                 }
-                results[t] = clRes.getValue();
-            }
-            prog.step();
+            };
+            ClassifierSet classifiers = concurrent ? new ClassifierSet(m_Classifiers) : m_Classifiers;
+            tests.add(new SingleTest(classifiers, split, seeds.nextLong()));
         }
-        Map<String,MultipleTestResult> multipleTestResults = new HashMap<String,MultipleTestResult>();
-        for (Map.Entry<String,TestResult[]> clRes : mapOfAccuracyForClassifiers.entrySet())
-            multipleTestResults.put(clRes.getKey(), new MultipleTestResult(clRes.getValue()));
-        return multipleTestResults;
+        prog.set("Multiple test", 2*m_nNoOfTests);
+        SingleTest.execute(tests, m_Executor, m_nNoOfThreads, prog);
+        return SingleTest.aggregate(tests);
     }
 }
@@ -20,12 +20,17 @@
 
 package rseslib.processing.classification;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import rseslib.structure.attribute.NominalAttribute;
 import rseslib.structure.data.DoubleData;
 import rseslib.structure.data.DoubleDataWithDecision;
 import rseslib.structure.table.DoubleDataTable;
 import rseslib.system.PropertyConfigurationException;
 import rseslib.system.Report;
+import rseslib.system.monitoring.Monitoring;
 import rseslib.system.progress.Progress;
 
 /**
@@ -37,6 +42,11 @@ import rseslib.system.progress.Progress;
  */
 public class SingleClassifierTest
 {
+    /** Number of test objects classified in one call to a classifier. */
+    static final int BATCH_SIZE = 1024;
+    /** Value marking the test objects without a decision assigned by a call to a classifier. */
+    private static final double NOT_CLASSIFIED = Double.NEGATIVE_INFINITY;
+
     /**
      * Classifies a test data collection.
      *
@@ -48,30 +58,86 @@ public class SingleClassifierTest
      */
     public TestResult classify(Classifier cl, DoubleDataTable testTable, Progress prog) throws InterruptedException
     {
-        prog.set("Classifing test table", testTable.noOfObjects());
+        ArrayList<DoubleData> objects = testTable.getDataObjects();
+        prog.set("Classifing test table", Math.max(1, (objects.size() + BATCH_SIZE - 1) / BATCH_SIZE));
         NominalAttribute decAttr = testTable.attributes().nominalDecisionAttribute();
         int[][] confusionMatrix = new int[decAttr.noOfValues()][];
         for (int i = 0; i < confusionMatrix.length; i++)
             confusionMatrix[i] = new int[decAttr.noOfValues()];
-        for (DoubleData dObj : testTable.getDataObjects())
+        if (objects.isEmpty()) prog.step();
+        for (int start = 0; start < objects.size(); start += BATCH_SIZE)
         {
-            try
-            {
-            	double dec = cl.classify(dObj);
-            	if (!Double.isNaN(dec))
-            		confusionMatrix[decAttr.localValueCode(((DoubleDataWithDecision)dObj).getDecision())][decAttr.localValueCode(dec)]++;
-            }
-            catch (RuntimeException e)
-            {
-                Report.exception(e);
-            }
-            catch (PropertyConfigurationException e)
-            {
-                Report.exception(e);
-            }
+            classify(cl, objects.subList(start, Math.min(start + BATCH_SIZE, objects.size())), decAttr, confusionMatrix);
             prog.step();
         }
         cl.calculateStatistics();
         return new TestResult(decAttr, testTable.getDecisionDistribution(), confusionMatrix, cl.getStatistics());
     }
+
+    /**
+     * Classifies a list of test objects with one call to a classifier
+     * and updates a confusion matrix. If the classifier fails
+     * the error is reported and the objects left without a decision
+     * are classified one by one, so that the objects classified
+     * before the failure are not classified again.
+     * If monitoring is enabled the time of the call is recorded
+     * as one batch classification time, so monitoring does not change
+     * the classification path.
+     *
+     * @param cl              Classifier.
+     * @param objects         Test objects.
+     * @param decAttr         Decision attribute.
+     * @param confusionMatrix Confusion matrix to be updated.
+     */
+    static void classify(Classifier cl, List<DoubleData> objects, NominalAttribute decAttr, int[][] confusionMatrix)
+    {
+        double[] decisions = new double[objects.size()];
+        Arrays.fill(decisions, NOT_CLASSIFIED);
+        long start = Monitoring.start();
+        try
+        {
+            cl.classify(objects, decisions);
+            if (Monitoring.isEnabled())
+                Monitoring.histogram(Monitoring.CLASSIFICATION_BATCH, "classifier", cl.getClass().getSimpleName()).stop(start);
+        }
+        catch (RuntimeException e)
+        {
+            Report.exception(e);
+        }
+        catch (PropertyConfigurationException e)
+        {
+            Report.exception(e);
+        }
+        for (int i = 0; i < decisions.length; i++)
+            if (decisions[i]==NOT_CLASSIFIED)
+                classify(cl, objects.get(i), decAttr, confusionMatrix);
+            else if (!Double.isNaN(decisions[i]))
+                confusionMatrix[decAttr.localValueCode(((DoubleDataWithDecision)objects.get(i)).getDecision())][decAttr.localValueCode(decisions[i])]++;
+    }
+
+    /**
+     * Classifies a test object and updates a confusion matrix.
+     *
+     * @param cl              Classifier.
+     * @param dObj            Test object.
+     * @param decAttr         Decision attribute.
+     * @param confusionMatrix Confusion matrix to be updated.
+     */
+    static void classify(Classifier cl, DoubleData dObj, NominalAttribute decAttr, int[][] confusionMatrix)
+    {
+        try
+        {
+            double dec = cl.classify(dObj);
+            if (!Double.isNaN(dec))
+                confusionMatrix[decAttr.localValueCode(((DoubleDataWithDecision)dObj).getDecision())][decAttr.localValueCode(dec)]++;
+        }
+        catch (RuntimeException e)
+        {
+            Report.exception(e);
+        }
+        catch (PropertyConfigurationException e)
+        {
+            Report.exception(e);
+        }
+    }
 }
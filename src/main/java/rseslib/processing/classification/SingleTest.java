@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.processing.classification;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import rseslib.structure.attribute.NominalValueScope;
+import rseslib.structure.table.DoubleDataTable;
+import rseslib.system.progress.ConcurrentProgress;
+import rseslib.system.progress.EmptyProgress;
+import rseslib.system.progress.Progress;
+import rseslib.util.random.RandomSelection;
+
+/**
+ * Single test of a set of classifiers: the classifiers are trained
+ * with a training table and tested with a test table.
+ * The tables are created when the test is executed
+ * and the test keeps only the results after execution,
+ * so the tables and the trained classifiers of a list of tests
+ * are not held in memory all at once.
+ * The random operations of the class RandomSelection
+ * performed in the test are seeded with the seed of the test,
+ * so the result of the test does not depend
+ * on the thread executing the test.
+ * It is used by the multiple tests to execute their single tests
+ * sequentially or concurrently.
+ */
+class SingleTest implements Callable<SingleTest>
+{
+    /**
+     * Source of the training and the test table of a single test.
+     */
+    interface Split
+    {
+        /**
+         * Creates the training and the test table.
+         *
+         * @return Array with the training table at the position 0
+         *         and the test table at the position 1.
+         */
+        DoubleDataTable[] create();
+    }
+
+    /** The set of classifiers, null after execution. */
+    private ClassifierSet m_Classifiers;
+    /** Source of the training and the test table, null after execution. */
+    private Split m_Split;
+    /** Seed for the random operations in this test. */
+    private long m_lSeed;
+    /** Scope of nominal values entered in the thread that created this test. */
+    private NominalValueScope m_Scope = NominalValueScope.current();
+    /** Results of this test, null if the test has not been executed yet. */
+    private Map<String,TestResult> m_Results = null;
+    /** Progress object stepped when this test is executed as a task. */
+    private Progress m_Progress = new EmptyProgress();
+
+    /**
+     * Constructor.
+     *
+     * @param classifiers The set of classifiers to be tested.
+     * @param split       Source of the training and the test table.
+     * @param seed        Seed for the random operations in this test.
+     */
+    SingleTest(ClassifierSet classifiers, Split split, long seed)
+    {
+        m_Classifiers = classifiers;
+        m_Split = split;
+        m_lSeed = seed;
+    }
+
+    /**
+     * Creates the tables, trains and tests the classifiers.
+     * The progress is stepped twice:
+     * after training and after classification.
+     * Afterwards the test releases the tables and the classifiers.
+     *
+     * @param prog Progress object.
+     * @throws InterruptedException when the user interrupts the execution.
+     */
+    void run(Progress prog) throws InterruptedException
+    {
+        Progress emptyProg = new EmptyProgress();
+        Random previous = RandomSelection.setGenerator(new Random(m_lSeed));
+        try
+        {
+            DoubleDataTable[] tables = m_Split.create();
+            m_Classifiers.train(tables[0], emptyProg);
+            prog.step();
+            m_Results = m_Classifiers.classify(tables[1], emptyProg);
+            prog.step();
+        }
+        finally
+        {
+            RandomSelection.setGenerator(previous);
+            m_Split = null;
+            m_Classifiers = null;
+        }
+    }
+
+    /**
+     * Trains and tests the classifiers in the scope of nominal values
+     * of the thread that created this test.
+     *
+     * @return This test.
+     * @throws InterruptedException when the execution is interrupted.
+     */
+    public SingleTest call() throws InterruptedException
+    {
+        if (m_Scope!=null) m_Scope.enter();
+        try
+        {
+            run(m_Progress);
+        }
+        finally
+        {
+            if (m_Scope!=null) m_Scope.exit();
+        }
+        return this;
+    }
+
+    /**
+     * Returns the results of this test.
+     *
+     * @return Map of entries: name of a classifier
+     *         and the object TestResult with a classification result.
+     */
+    Map<String,TestResult> getResults()
+    {
+        return m_Results;
+    }
+
+    /**
+     * Executes a list of tests. If the executor is null
+     * and the number of threads is 1 the tests are executed
+     * sequentially in the calling thread, otherwise they are executed
+     * concurrently and the tests must not share the sets of classifiers.
+     * The progress is stepped twice for each test,
+     * by concurrent tests through a concurrent progress.
+     *
+     * @param tests       Tests to be executed.
+     * @param executor    Executor to be used, null if not set.
+     * @param noOfThreads Number of threads, 0 means the number of available processors.
+     * @param prog        Progress object.
+     * @throws InterruptedException when the user interrupts the execution.
+     */
+    static void execute(List<SingleTest> tests, ExecutorService executor, int noOfThreads, Progress prog) throws InterruptedException
+    {
+        if (executor==null && TaskExecution.noOfThreads(noOfThreads) <= 1)
+        {
+            for (SingleTest test : tests)
+                test.run(prog);
+            return;
+        }
+        ConcurrentProgress concurrentProg = new ConcurrentProgress(prog, ConcurrentProgress.DEFAULT_INTERVAL, 2*tests.size());
+        concurrentProg.set("Executing tests", 2*tests.size());
+        for (SingleTest test : tests)
+            test.m_Progress = concurrentProg;
+        TaskExecution<SingleTest> execution = new TaskExecution<SingleTest>(executor, TaskExecution.noOfThreads(noOfThreads), tests);
+        try
+        {
+            for (int t = 0; t < tests.size(); t++)
+                execution.next();
+        }
+        finally
+        {
+            execution.cancel();
+        }
+    }
+
+    /**
+     * Aggregates the results of a list of executed tests
+     * in the order of the tests.
+     *
+     * @param tests Executed tests.
+     * @return      Map of entries: name of a classifier
+     *              and the object MultipleTestResult with the aggregated results.
+     */
+    static Map<String,MultipleTestResult> aggregate(List<SingleTest> tests)
+    {
+        Map<String,TestResult[]> mapOfAccuracyForClassifiers = new HashMap<String,TestResult[]>();
+        for (int t = 0; t < tests.size(); t++)
+            for (Map.Entry<String,TestResult> clRes : tests.get(t).getResults().entrySet())
+            {
+                TestResult[] results = mapOfAccuracyForClassifiers.get(clRes.getKey());
+                if (results==null)
+                {
+                    results = new TestResult[tests.size()];
+                    mapOfAccuracyForClassifiers.put(clRes.getKey(), results);
+                }
+                results[t] = clRes.getValue();
+            }
+        Map<String,MultipleTestResult> aggregatedResults = new HashMap<String,MultipleTestResult>();
+        for (Map.Entry<String,TestResult[]> clRes : mapOfAccuracyForClassifiers.entrySet())
+            aggregatedResults.put(clRes.getKey(), new MultipleTestResult(clRes.getValue()));
+        return aggregatedResults;
+    }
+}
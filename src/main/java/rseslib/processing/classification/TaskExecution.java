@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.processing.classification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Execution of tasks with the results collected in the order of completion.
+ */
+class TaskExecution<T>
+{
+	/** Executor created for this execution, null if an external executor is used. */
+	private ExecutorService m_OwnExecutor = null;
+	/** Service collecting the results of completed tasks. */
+	private CompletionService<T> m_Completion;
+	/** Futures of all tasks. */
+	private ArrayList<Future<T>> m_Futures;
+
+	/**
+	 * Returns the number of threads to be used.
+	 *
+	 * @param noOfThreads Requested number of threads, 0 means the number of available processors.
+	 * @return            Number of threads to be used.
+	 */
+	static int noOfThreads(int noOfThreads)
+	{
+		if (noOfThreads==0) return Runtime.getRuntime().availableProcessors();
+		return noOfThreads;
+	}
+
+	/**
+	 * Starts the execution of tasks.
+	 *
+	 * @param executor    Executor to be used, if null a new thread pool is created.
+	 * @param noOfThreads Number of threads in a new thread pool.
+	 * @param tasks       Tasks to be executed.
+	 */
+	TaskExecution(ExecutorService executor, int noOfThreads, List<? extends Callable<T>> tasks)
+	{
+		if (executor==null)
+		{
+			m_OwnExecutor = Executors.newFixedThreadPool(Math.max(1, Math.min(noOfThreads, tasks.size())));
+			executor = m_OwnExecutor;
+		}
+		m_Completion = new ExecutorCompletionService<T>(executor);
+		m_Futures = new ArrayList<Future<T>>(tasks.size());
+		for (Callable<T> task : tasks)
+			m_Futures.add(m_Completion.submit(task));
+	}
+
+	/**
+	 * Waits for the next completed task and returns its result.
+	 *
+	 * @return Result of the next completed task.
+	 * @throws InterruptedException when the calling thread is interrupted
+	 *                              or the task has been interrupted by its progress object.
+	 */
+	T next() throws InterruptedException
+	{
+		try
+		{
+			return m_Completion.take().get();
+		}
+		catch (ExecutionException e)
+		{
+			if (e.getCause() instanceof InterruptedException) throw (InterruptedException)e.getCause();
+			if (e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+			if (e.getCause() instanceof Error) throw (Error)e.getCause();
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	/**
+	 * Cancels the tasks not completed yet
+	 * and releases the threads created for this execution.
+	 */
+	void cancel()
+	{
+		for (Future<T> future : m_Futures)
+			future.cancel(true);
+		if (m_OwnExecutor!=null) m_OwnExecutor.shutdownNow();
+	}
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.processing.classification;
+
+/**
+ * Marker interface for classifiers
+ * that can classify many objects concurrently:
+ * the method classify of a trained classifier
+ * does not change the state of the classifier
+ * and can be called from many threads at the same time.
+ * Test tables are classified in parallel partitions
+ * only by the classifiers implementing this interface.
+ */
+public interface ThreadSafeClassifier extends Classifier
+{
+}
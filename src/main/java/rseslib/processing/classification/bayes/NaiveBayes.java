@@ -20,10 +20,12 @@
 
 package rseslib.processing.classification.bayes;
 
+import java.util.List;
 import java.util.Properties;
 
-import rseslib.processing.classification.Classifier;
+import rseslib.processing.classification.ThreadSafeClassifier;
 import rseslib.structure.attribute.Header;
+import rseslib.structure.attribute.NominalAttribute;
 import rseslib.structure.data.DoubleData;
 import rseslib.structure.probability.DecisionDependentProbability;
 import rseslib.structure.probability.KernelNumericDecisionDependentProbability;
@@ -39,7 +41,7 @@ import rseslib.system.progress.Progress;
  * @author Lukasz Ligowski
  */
 
-public class NaiveBayes extends ConfigurationWithStatistics implements Classifier
+public class NaiveBayes extends ConfigurationWithStatistics implements ThreadSafeClassifier
 {
 	/** Attributes. */
 	private Header m_Attributes;
@@ -110,6 +112,52 @@ public class NaiveBayes extends ConfigurationWithStatistics implements Classifie
 		return m_Attributes.nominalDecisionAttribute().globalValueCode(iMax);
 	}
 
+	/**
+	 * Classifies a list of objects.
+	 * The conditional attributes are selected once for all objects
+	 * and one probability vector is reused for all objects.
+	 *
+	 * @param objects   Data objects to classify.
+	 * @param decisions Array to be filled with the decisions assigned to the objects.
+	 */
+	public void classify(List<DoubleData> objects, double[] decisions)
+	{
+		int noOfCondAttrs = 0;
+		for (int att=0; att<m_Provider.length; att++)
+			if (m_Attributes.isConditional(att)) noOfCondAttrs++;
+		int[] condAttrs = new int[noOfCondAttrs];
+		DecisionDependentProbability[] providers = new DecisionDependentProbability[noOfCondAttrs];
+		noOfCondAttrs = 0;
+		for (int att=0; att<m_Provider.length; att++)
+			if (m_Attributes.isConditional(att))
+			{
+				condAttrs[noOfCondAttrs] = att;
+				providers[noOfCondAttrs++] = m_Provider[att];
+			}
+		NominalAttribute decAttr = m_Attributes.nominalDecisionAttribute();
+		double[] prob = new double[m_TotalDecProbability.length];
+		for (int i = 0; i < objects.size(); i++)
+		{
+			DoubleData dObj = objects.get(i);
+			System.arraycopy(m_TotalDecProbability, 0, prob, 0, prob.length);
+			for (int a = 0; a < condAttrs.length; a++)
+			{
+				double value = dObj.get(condAttrs[a]);
+				for (int dec = 0; dec < prob.length; dec++)
+					prob[dec] *= providers[a].getProbability(value, dec);
+			}
+			int iMax=0;
+			double ArgMax=0;
+			for (int dec=0; dec<prob.length; dec++)
+				if (ArgMax<prob[dec])
+				{
+					iMax=dec;
+					ArgMax=prob[dec];
+				}
+			decisions[i] = decAttr.globalValueCode(iMax);
+		}
+	}
+
 	/**
 	 *  Calculates statistics.
 	 */
@@ -20,7 +20,6 @@
 
 package rseslib.processing.classification.parameterised;
 
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
@@ -28,13 +27,13 @@ import java.util.Properties;
 import rseslib.processing.classification.ClassifierSet;
 import rseslib.processing.classification.MultipleTestResult;
 import rseslib.processing.classification.TestResult;
-import rseslib.structure.data.DoubleData;
-import rseslib.structure.table.ArrayListDoubleDataTable;
 import rseslib.structure.table.DoubleDataTable;
+import rseslib.structure.table.DoubleDataTableView;
 import rseslib.system.Configuration;
 import rseslib.system.PropertyConfigurationException;
 import rseslib.system.progress.EmptyProgress;
 import rseslib.system.progress.Progress;
+import rseslib.util.random.RandomSelection;
 
 /**
  * Cross-validation object that splits a given test table
@@ -80,22 +79,16 @@ public class CrossValidationTestForParameterised extends Configuration
      */
     public Map[] test(DoubleDataTable table, Progress prog) throws InterruptedException
     {
-        Collection<DoubleData>[] parts =  table.randomPartition(m_nNoOfFolds);
-        prog.set("Cross-validation test", parts.length);
+        int[] partOfObject = RandomSelection.partition(table.noOfObjects(), m_nNoOfFolds);
+        prog.set("Cross-validation test", m_nNoOfFolds);
         Map<String,TestResult[]> mapOfAccuracyForClassifiers = new HashMap<String,TestResult[]>();
         Map<String,ParameterisedTestResult[]> mapOfAccuracyForParameterisedClassifiers = new HashMap<String,ParameterisedTestResult[]>();
         Progress emptyProg = new EmptyProgress();
-        for (int cv = 0; cv < parts.length; cv++)
+        for (int cv = 0; cv < m_nNoOfFolds; cv++)
         {
             // podzial danych na tabele treningowa i testowa
-            DoubleDataTable trnTable = new ArrayListDoubleDataTable(table.attributes());
-            DoubleDataTable tstTable = new ArrayListDoubleDataTable(table.attributes());
-            for (int part = 0; part < parts.length; part++)
-            {
-                DoubleDataTable tab = trnTable;
-                if (part==cv) tab = tstTable;
-                for (DoubleData obj : parts[part]) tab.add(obj);
-            }
+            DoubleDataTable trnTable = new DoubleDataTableView(table, partOfObject, cv, true);
+            DoubleDataTable tstTable = new DoubleDataTableView(table, partOfObject, cv, false);
 
             // wyuczenie klasyfikatorow
             if (m_Classifiers!=null) m_Classifiers.train(trnTable, emptyProg);
@@ -110,7 +103,7 @@ public class CrossValidationTestForParameterised extends Configuration
                     TestResult[] results = (TestResult[])mapOfAccuracyForClassifiers.get(clRes.getKey());
                     if (results==null)
                     {
-                        results = new TestResult[parts.length];
+                        results = new TestResult[m_nNoOfFolds];
                         mapOfAccuracyForClassifiers.put(clRes.getKey(), results);
                     }
                     results[cv] = clRes.getValue();
@@ -124,7 +117,7 @@ public class CrossValidationTestForParameterised extends Configuration
                     ParameterisedTestResult[] results = (ParameterisedTestResult[])mapOfAccuracyForParameterisedClassifiers.get(clRes.getKey());
                     if (results==null)
                     {
-                        results = new ParameterisedTestResult[parts.length];
+                        results = new ParameterisedTestResult[m_nNoOfFolds];
                         mapOfAccuracyForParameterisedClassifiers.put(clRes.getKey(), results);
                     }
                     results[cv] = clRes.getValue();
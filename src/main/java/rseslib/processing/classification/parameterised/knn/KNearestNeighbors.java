@@ -21,15 +21,19 @@
 package rseslib.processing.classification.parameterised.knn;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.NotSerializableException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Properties;
 
 import rseslib.processing.classification.ClassifierWithDistributedDecision;
+import rseslib.processing.classification.ThreadSafeClassifier;
 import rseslib.processing.classification.parameterised.AbstractParameterisedClassifier;
 import rseslib.processing.classification.parameterised.ParameterisedTestResult;
 import rseslib.processing.indexing.metric.TreeIndexer;
@@ -37,6 +41,7 @@ import rseslib.processing.metrics.MetricFactory;
 import rseslib.processing.searching.metric.ArrayVicinityProvider;
 import rseslib.processing.searching.metric.IndexingTreeVicinityProvider;
 import rseslib.processing.searching.metric.VicinityProvider;
+import rseslib.processing.searching.metric.VicinityProviderFactory;
 import rseslib.processing.transformation.AttributeTransformer;
 import rseslib.processing.transformation.TableTransformer;
 import rseslib.structure.attribute.NominalAttribute;
@@ -45,10 +50,12 @@ import rseslib.structure.data.DoubleDataWithDecision;
 import rseslib.structure.index.metric.IndexingTreeNode;
 import rseslib.structure.metric.Metric;
 import rseslib.structure.metric.Neighbour;
+import rseslib.structure.metric.NeighbourList;
 import rseslib.structure.metric.AbstractWeightedMetric;
 import rseslib.structure.table.ArrayListDoubleDataTable;
 import rseslib.structure.table.DoubleDataTable;
 import rseslib.system.PropertyConfigurationException;
+import rseslib.system.monitoring.Monitoring;
 import rseslib.system.progress.EmptyProgress;
 import rseslib.system.progress.MultiProgress;
 import rseslib.system.progress.Progress;
@@ -61,17 +68,19 @@ import rseslib.system.progress.Progress;
  * Various methods of voting by nearest neighbors can be used to select the decision.
  * The nearest neighbors can be filtered using rules (RIONA algorithm).
  * This k-nn implementation uses a metric tree with dual search pruning criterion
- * to accelerate searching for nearest neighbors.
+ * to accelerate searching for nearest neighbors,
+ * a vantage point tree or a ball tree can be used instead.
+ * A trained classifier can classify objects from many threads at the same time.
  *
  * @author      Arkadiusz Wojna, Grzegorz Gora, Lukasz Ligowski
  */
-public class KNearestNeighbors extends AbstractParameterisedClassifier implements ClassifierWithDistributedDecision, Serializable
+public class KNearestNeighbors extends AbstractParameterisedClassifier implements ClassifierWithDistributedDecision, ThreadSafeClassifier, Serializable
 {
 	/** Attribute weighting methods. */
 	public enum Voting { Equal, InverseDistance, InverseSquareDistance; }
 
     /** Serialization version. */
-	private static final long serialVersionUID = 1L;
+	private static final long serialVersionUID = 2L;
     /** Parameter name for the used method weighting the attributes in the metric. */
     public static final String WEIGHTING_METHOD_PROPERTY_NAME = "weightingMethod";
     /** Name for the switch indicating whether the classifier uses a metric tree to speed up searching for nearest neighbors. */
@@ -107,6 +116,36 @@ public class KNearestNeighbors extends AbstractParameterisedClassifier implement
     private NominalAttribute m_DecisionAttribute;
     /** The default decision defined by the largest decision class in the training data. */
     private int m_nDefaultDec;
+    /** Values of the properties used in classification, null if not read yet. */
+    private transient volatile ClassificationSettings m_Settings = null;
+
+    /**
+     * Values of the properties used in classification
+     * read once from the configuration.
+     */
+    private static class ClassificationSettings
+    {
+        /** Number of nearest neighbors. */
+        final int m_nK;
+        /** Switch indicating whether rules are used to filter the nearest neighbors. */
+        final boolean m_bFilterNeighbours;
+        /** Method of voting by the nearest neighbors. */
+        final Voting m_Voting;
+
+        /**
+         * Constructor.
+         *
+         * @param k                Number of nearest neighbors.
+         * @param filterNeighbours Switch indicating whether rules are used to filter the nearest neighbors.
+         * @param voting           Method of voting by the nearest neighbors.
+         */
+        ClassificationSettings(int k, boolean filterNeighbours, Voting voting)
+        {
+            m_nK = k;
+            m_bFilterNeighbours = filterNeighbours;
+            m_Voting = voting;
+        }
+    }
     
     
     /**
@@ -145,24 +184,29 @@ public class KNearestNeighbors extends AbstractParameterisedClassifier implement
         prog = new MultiProgress("Learning the k-nn classifier", prog, progressVolumes);
         // induce a metric and transform training objects to speed up distance computation
         m_OriginalData =  trainTable.getDataObjects();
+        long start = Monitoring.start();
         m_Metric = MetricFactory.getMetric(getProperties(), trainTable);
         m_Transformer = m_Metric.transformationOutside();
         m_TransformedTrainTable = trainTable;
         if (m_Transformer!=null)
         	m_TransformedTrainTable = TableTransformer.transform(trainTable, m_Transformer);
+        Monitoring.trainingPhase(KNearestNeighbors.class, "metric").stop(start);
+        start = Monitoring.start();
         if (m_Metric instanceof AbstractWeightedMetric)
         	MetricFactory.adjustWeights(getProperty(WEIGHTING_METHOD_PROPERTY_NAME), (AbstractWeightedMetric)m_Metric, m_TransformedTrainTable, prog);
+        Monitoring.trainingPhase(KNearestNeighbors.class, "weighting").stop(start);
+        start = Monitoring.start();
         if(getBoolProperty(INDEXING_PROPERTY_NAME))
         {
         	// build the metric tree and index the training objects
-        	IndexingTreeNode indexingTree = new TreeIndexer(null).indexing(m_TransformedTrainTable.getDataObjects(), m_Metric, prog);
-        	m_VicinityProvider = new IndexingTreeVicinityProvider(null, m_Metric, indexingTree);
+        	m_VicinityProvider = VicinityProviderFactory.getVicinityProvider(getProperties(), m_Metric, m_TransformedTrainTable.getDataObjects(), prog);
         } else {
         	// use linear search
             prog.set("Constructing simple vicinity provider", 1);
             m_VicinityProvider = new ArrayVicinityProvider(m_Metric, m_TransformedTrainTable.getDataObjects());
             prog.step();
         }
+        Monitoring.trainingPhase(KNearestNeighbors.class, "indexing").stop(start);
         // store information required in classification 
         if (m_Metric instanceof AbstractWeightedMetric)
         	m_NeighboursFilter = new CubeBasedNeighboursFilter((AbstractWeightedMetric)m_Metric, m_Transformer!=null);
@@ -175,9 +219,11 @@ public class KNearestNeighbors extends AbstractParameterisedClassifier implement
         if (getBoolProperty(LEARN_OPTIMAL_K_PROPERTY_NAME))
         {
         	// optimize the number of nearest neighbors using the leave-one-out method
+            start = Monitoring.start();
             m_bSelfLearning = true;
             learnOptimalParameterValue(trainTable, prog);
             m_bSelfLearning = false;
+            Monitoring.trainingPhase(KNearestNeighbors.class, "optimal_k").stop(start);
         }
         makePropertyModifiable(K_PROPERTY_NAME);
         makePropertyModifiable(FILTER_NEIGHBOURS_PROPERTY_NAME);
@@ -197,7 +243,7 @@ public class KNearestNeighbors extends AbstractParameterisedClassifier implement
     public KNearestNeighbors(Properties prop, Metric metric, DoubleDataTable trainTable, Progress prog) throws PropertyConfigurationException, InterruptedException
     {
         super(prop, K_PROPERTY_NAME);
-        IndexingTreeNode indexingTree = new TreeIndexer(null).indexing(trainTable.getDataObjects(), metric, prog);
+        IndexingTreeNode indexingTree = new TreeIndexer(VicinityProviderFactory.getIndexerProperties(getProperties())).indexing(trainTable.getDataObjects(), metric, prog);
         m_VicinityProvider = new IndexingTreeVicinityProvider(null, metric, indexingTree);
         m_nMaxK = getIntProperty(MAXIMAL_K_PROPERTY_NAME);
         if (metric instanceof AbstractWeightedMetric)
@@ -244,9 +290,12 @@ public class KNearestNeighbors extends AbstractParameterisedClassifier implement
     private void writeObject(ObjectOutputStream out) throws IOException
     {
     	writeAbstractParameterisedClassifier(out);
-    	out.writeObject(m_OriginalData);
+    	KnnModelFormat.writeData(out, m_OriginalData);
     	out.writeObject(m_Transformer);
     	out.writeObject(m_Metric);
+    	out.writeBoolean(m_VicinityProvider instanceof IndexingTreeVicinityProvider);
+    	if (m_VicinityProvider instanceof IndexingTreeVicinityProvider)
+    		KnnModelFormat.writeIndex(out, ((IndexingTreeVicinityProvider)m_VicinityProvider).getIndexingTree(), m_TransformedTrainTable.getDataObjects());
     	out.writeInt(m_nMaxK);
     	out.writeObject(m_DecisionAttribute);
     	out.writeInt(m_nDefaultDec);
@@ -261,7 +310,7 @@ public class KNearestNeighbors extends AbstractParameterisedClassifier implement
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
     {
     	readAbstractParameterisedClassifier(in);
-    	m_OriginalData = (ArrayList<DoubleData>)in.readObject();
+    	m_OriginalData = KnnModelFormat.readData(in);
     	ArrayList<DoubleData> transformedObjects = m_OriginalData;
     	m_Transformer = (AttributeTransformer)in.readObject();
         if (m_Transformer!=null)
@@ -274,20 +323,21 @@ public class KNearestNeighbors extends AbstractParameterisedClassifier implement
     	m_Metric = (Metric)in.readObject();
     	try
     	{
-            if(getBoolProperty(INDEXING_PROPERTY_NAME))
-            {
-            	IndexingTreeNode indexingTree = new TreeIndexer(null).indexing(m_TransformedTrainTable.getDataObjects(), m_Metric, new EmptyProgress());
-            	m_VicinityProvider = new IndexingTreeVicinityProvider(null, m_Metric, indexingTree);                
-            } else
-                m_VicinityProvider = new ArrayVicinityProvider(m_Metric, m_TransformedTrainTable.getDataObjects());
+            if (in.readBoolean())
+            	m_VicinityProvider = new IndexingTreeVicinityProvider(null, m_Metric, KnnModelFormat.readIndex(in, m_Metric, transformedObjects));
+            else if (getBoolProperty(INDEXING_PROPERTY_NAME) && VicinityProviderFactory.getIndexType(getProperties())!=VicinityProviderFactory.IndexType.KApproxCentersTree)
+            	// the vantage point tree and the ball tree are not stored, they are rebuilt
+            	m_VicinityProvider = VicinityProviderFactory.getVicinityProvider(getProperties(), m_Metric, transformedObjects, new EmptyProgress());
+            else
+                m_VicinityProvider = new ArrayVicinityProvider(m_Metric, transformedObjects);
     	}
-    	catch (InterruptedException e)
+    	catch (PropertyConfigurationException e)
     	{
     		throw new NotSerializableException(e.getMessage());
     	}
-    	catch (PropertyConfigurationException e)
+    	catch (InterruptedException e)
     	{
-    		throw new NotSerializableException(e.getMessage());
+    		throw new InterruptedIOException(e.getMessage());
     	}
     	m_bSelfLearning = false;
     	m_nMaxK = in.readInt();
@@ -334,10 +384,8 @@ public class KNearestNeighbors extends AbstractParameterisedClassifier implement
                 	trn.addAll(parts[part]);
             VicinityProvider vicProv = null;
             if (getBoolProperty(INDEXING_PROPERTY_NAME))
-            {
-            	IndexingTreeNode indexingTree = new TreeIndexer(null).indexing(trn, m_Metric, new EmptyProgress());
-            	vicProv = new IndexingTreeVicinityProvider(null, m_Metric, indexingTree);
-            } else
+            	vicProv = VicinityProviderFactory.getVicinityProvider(getProperties(), m_Metric, trn, new EmptyProgress());
+            else
             	vicProv = new ArrayVicinityProvider(m_Metric, trn);
             
             // classify single fold
@@ -358,6 +406,7 @@ public class KNearestNeighbors extends AbstractParameterisedClassifier implement
             		confusionMatrices[parVal][m_DecisionAttribute.localValueCode(((DoubleDataWithDecision)dObj).getDecision())][m_DecisionAttribute.localValueCode(decisions[parVal])]++;
                 prog.step();
             }
+            vicProv.releaseQueries();
         }
 
         // select the best number of nearest neighbors
@@ -382,21 +431,108 @@ public class KNearestNeighbors extends AbstractParameterisedClassifier implement
      */
     public double[] classifyWithDistributedDecision(DoubleData dObj) throws PropertyConfigurationException
     {
-        if (m_Transformer!=null) dObj = m_Transformer.transformToNew(dObj);
-        Neighbour[] neighbours = m_VicinityProvider.getVicinity(dObj, getIntProperty(K_PROPERTY_NAME));
-    	boolean checkConsistency = getBoolProperty(FILTER_NEIGHBOURS_PROPERTY_NAME);
-        if (checkConsistency && m_NeighboursFilter!=null)
-        	m_NeighboursFilter.markConsistency(dObj, neighbours);
         double[] decDistr = new double[m_DecisionAttribute.noOfValues()];
-        Voting votingType;
+        ClassificationSettings settings = settings();
+        classifyWithDistributedDecision(dObj, settings.m_nK, settings.m_bFilterNeighbours, settings.m_Voting, decDistr, new NeighbourList());
+        return decDistr;
+    }
+
+    /**
+     * Assigns decision distributions to a list of test objects.
+     * The properties of this classifier are read once for all objects.
+     *
+     * @param objects       Objects to be classified.
+     * @param distributions Array to be filled with the decision distributions assigned to the objects.
+     */
+    public void classifyWithDistributedDecision(List<DoubleData> objects, double[][] distributions) throws PropertyConfigurationException
+    {
+        ClassificationSettings settings = settings();
+        int k = settings.m_nK;
+        boolean checkConsistency = settings.m_bFilterNeighbours;
+        Voting votingType = settings.m_Voting;
+        NeighbourList neighbours = new NeighbourList(k);
+        try
+        {
+            for (int i = 0; i < objects.size(); i++)
+            {
+                if (distributions[i]==null) distributions[i] = new double[m_DecisionAttribute.noOfValues()];
+                else Arrays.fill(distributions[i], 0.0);
+                classifyWithDistributedDecision(objects.get(i), k, checkConsistency, votingType, distributions[i], neighbours);
+            }
+        }
+        finally
+        {
+            m_VicinityProvider.releaseQueries();
+        }
+    }
+
+    /**
+     * Returns the values of the properties used in classification
+     * reading them from the configuration at the first request
+     * and after each modification of a property.
+     *
+     * @return Values of the properties used in classification.
+     */
+    private ClassificationSettings settings() throws PropertyConfigurationException
+    {
+        ClassificationSettings settings = m_Settings;
+        if (settings==null)
+        {
+            settings = new ClassificationSettings(getIntProperty(K_PROPERTY_NAME), getBoolProperty(FILTER_NEIGHBOURS_PROPERTY_NAME), votingType());
+            m_Settings = settings;
+        }
+        return settings;
+    }
+
+    /**
+     * Forgets the values of the properties read for classification
+     * after a property has been modified.
+     */
+    protected void propertiesModified()
+    {
+        super.propertiesModified();
+        m_Settings = null;
+    }
+
+    /**
+     * Returns the selected method of voting by the neighbors.
+     *
+     * @return Method of voting by the neighbors.
+     */
+    private Voting votingType() throws PropertyConfigurationException
+    {
         try
         {
-        	votingType = Voting.valueOf(getProperty(VOTING_PROPERTY_NAME));
+        	return Voting.valueOf(getProperty(VOTING_PROPERTY_NAME));
         }
         catch (IllegalArgumentException e)
         {
         	throw new PropertyConfigurationException("Unknown voting method: "+getProperty(VOTING_PROPERTY_NAME));
         }
+    }
+
+    /**
+     * Adds the votes of the nearest neighbors of a single test object
+     * to a decision distribution.
+     *
+     * @param dObj             Object to be classified.
+     * @param k                Number of nearest neighbors.
+     * @param checkConsistency Indicates whether the neighbors are filtered by rules.
+     * @param votingType       Method of voting by the neighbors.
+     * @param decDistr         Decision distribution to be updated.
+     * @param neighbourList    List of neighbours reused by subsequent calls.
+     */
+    private void classifyWithDistributedDecision(DoubleData dObj, int k, boolean checkConsistency, Voting votingType, double[] decDistr, NeighbourList neighbourList)
+    {
+        if (m_Transformer!=null) dObj = m_Transformer.transformToNew(dObj);
+        if (!checkConsistency || m_NeighboursFilter==null)
+        {
+            voteWithoutFiltering(dObj, k, votingType, decDistr, neighbourList);
+            return;
+        }
+        Neighbour[] neighbours = m_VicinityProvider.getVicinity(dObj, k);
+        if (checkConsistency && m_NeighboursFilter!=null)
+        	m_NeighboursFilter.markConsistency(dObj, neighbours);
         if (neighbours[1].dist() == 0.0 && (votingType == Voting.InverseDistance || votingType == Voting.InverseSquareDistance))
         {
         	for (int n = 1; n < neighbours.length && neighbours[n].dist() == 0; n++)
@@ -421,7 +557,44 @@ public class KNearestNeighbors extends AbstractParameterisedClassifier implement
         				break;
         			}
         	}
-        return decDistr;
+    }
+
+    /**
+     * Adds the votes of the nearest neighbors of a single transformed test object
+     * to a decision distribution when the neighbors are not filtered.
+     * The neighbors are found without creating an object for each neighbor.
+     *
+     * @param dObj          Transformed object to be classified.
+     * @param k             Number of nearest neighbors.
+     * @param votingType    Method of voting by the neighbors.
+     * @param decDistr      Decision distribution to be updated.
+     * @param neighbours    List of neighbours reused by subsequent calls.
+     */
+    private void voteWithoutFiltering(DoubleData dObj, int k, Voting votingType, double[] decDistr, NeighbourList neighbours)
+    {
+        m_VicinityProvider.getVicinity(dObj, k, neighbours);
+        if (neighbours.size() > 0 && neighbours.dist(0) == 0.0 && (votingType == Voting.InverseDistance || votingType == Voting.InverseSquareDistance))
+        {
+        	for (int n = 0; n < neighbours.size() && neighbours.dist(n) == 0; n++)
+        		decDistr[m_DecisionAttribute.localValueCode(neighbours.neighbour(n).getDecision())] = 1.0;
+        }
+        else
+        	for (int n = 0; n < neighbours.size(); n++)
+        	{
+        		int curDec = m_DecisionAttribute.localValueCode(neighbours.neighbour(n).getDecision());
+        		switch (votingType)
+        		{
+        		case Equal:
+        			decDistr[curDec] += 1.0;
+        			break;
+        		case InverseDistance:
+        			decDistr[curDec] += 1.0 / neighbours.dist(n);
+        			break;
+        		case InverseSquareDistance:
+        			decDistr[curDec] += 1.0 / (neighbours.dist(n)*neighbours.dist(n));
+        			break;
+        		}
+        	}
     }
 
     /**
@@ -437,19 +610,12 @@ public class KNearestNeighbors extends AbstractParameterisedClassifier implement
      */
     public double[] getDistributedDecisionAndVotingWeights(DoubleData dObj, Neighbour[] neighbours, double[] neighbourWeights) throws PropertyConfigurationException
     {
-    	boolean checkConsistency = getBoolProperty(FILTER_NEIGHBOURS_PROPERTY_NAME);
+    	ClassificationSettings settings = settings();
+    	boolean checkConsistency = settings.m_bFilterNeighbours;
         if (checkConsistency && m_NeighboursFilter!=null)
         	m_NeighboursFilter.markConsistency(dObj, neighbours);
         double[] decDistr = new double[m_DecisionAttribute.noOfValues()];
-        Voting votingType;
-        try
-        {
-        	votingType = Voting.valueOf(getProperty(VOTING_PROPERTY_NAME));
-        }
-        catch (IllegalArgumentException e)
-        {
-        	throw new PropertyConfigurationException("Unknown voting method: "+getProperty(VOTING_PROPERTY_NAME));
-        }
+        Voting votingType = settings.m_Voting;
         for (int n = 0; n < neighbourWeights.length; ++n)
         	neighbourWeights[n] = 0.0;
         if (neighbours[1].dist() == 0.0 && (votingType == Voting.InverseDistance || votingType == Voting.InverseSquareDistance))
@@ -502,6 +668,40 @@ public class KNearestNeighbors extends AbstractParameterisedClassifier implement
         return m_DecisionAttribute.globalValueCode(bestDec);
     }
 
+    /**
+     * Assigns decisions to a list of test objects.
+     * The properties of this classifier are read once for all objects
+     * and one decision distribution vector is reused for all objects.
+     *
+     * @param objects   Objects to be classified.
+     * @param decisions Array to be filled with the decisions assigned to the objects.
+     */
+    public void classify(List<DoubleData> objects, double[] decisions) throws PropertyConfigurationException
+    {
+        ClassificationSettings settings = settings();
+        int k = settings.m_nK;
+        boolean checkConsistency = settings.m_bFilterNeighbours;
+        Voting votingType = settings.m_Voting;
+        double[] decDistr = new double[m_DecisionAttribute.noOfValues()];
+        NeighbourList neighbours = new NeighbourList(k);
+        try
+        {
+            for (int i = 0; i < objects.size(); i++)
+            {
+                Arrays.fill(decDistr, 0.0);
+                classifyWithDistributedDecision(objects.get(i), k, checkConsistency, votingType, decDistr, neighbours);
+                int bestDec = 0;
+                for (int dec = 1; dec < decDistr.length; dec++)
+                    if (decDistr[dec] > decDistr[bestDec]) bestDec = dec;
+                decisions[i] = m_DecisionAttribute.globalValueCode(bestDec);
+            }
+        }
+        finally
+        {
+            m_VicinityProvider.releaseQueries();
+        }
+    }
+
     /**
      * Assigns decisions for the range of different numbers of nearest neighbors.
      *
@@ -535,22 +735,15 @@ public class KNearestNeighbors extends AbstractParameterisedClassifier implement
      */
     public double[] classifyWithParameter(DoubleData dObj, Neighbour[] neighbours) throws PropertyConfigurationException
     {
-    	boolean checkConsistency = getBoolProperty(FILTER_NEIGHBOURS_PROPERTY_NAME);
+    	ClassificationSettings settings = settings();
+    	boolean checkConsistency = settings.m_bFilterNeighbours;
         if (checkConsistency && m_NeighboursFilter!=null)
         	m_NeighboursFilter.markConsistency(dObj, neighbours);
         double[] decisions = new double[m_nMaxK+1];
         double[] decDistr = new double[m_DecisionAttribute.noOfValues()];
         int bestDec = m_nDefaultDec;
         decisions[0] = m_DecisionAttribute.globalValueCode(bestDec);
-        Voting votingType;
-        try
-        {
-        	votingType = Voting.valueOf(getProperty(VOTING_PROPERTY_NAME));
-        }
-        catch (IllegalArgumentException e)
-        {
-        	throw new PropertyConfigurationException("Unknown voting method: "+getProperty(VOTING_PROPERTY_NAME));
-        }
+        Voting votingType = settings.m_Voting;
         int firstNotSet = 1;
         for (int n = 1; n < neighbours.length; n++)
         {
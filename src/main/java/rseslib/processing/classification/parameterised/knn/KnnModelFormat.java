@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.processing.classification.parameterised.knn;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import rseslib.structure.attribute.Header;
+import rseslib.structure.attribute.NominalAttribute;
+import rseslib.structure.data.DoubleData;
+import rseslib.structure.data.DoubleDataObject;
+import rseslib.structure.index.metric.IndexingTreeFork;
+import rseslib.structure.index.metric.IndexingTreeLeaf;
+import rseslib.structure.index.metric.IndexingTreeNode;
+import rseslib.structure.metric.Metric;
+
+/**
+ * Compact format of the training data and the metric tree
+ * used by the k nearest neighbors classifiers for serialization.
+ * Data objects are stored as primitive arrays, one per attribute:
+ * int local codes for attributes with a dictionary of values
+ * (-1 for missing values) and double values for the other attributes.
+ * The metric tree is stored in preorder as primitive arrays
+ * with the sizes, the radiuses and the weights of nodes
+ * and the indices of the data objects in leaves and of the centers,
+ * so the tree is restored without computing any distance.
+ * Each block starts with the format version.
+ */
+public class KnnModelFormat
+{
+    /** Version of the format. */
+    public static final int VERSION = 1;
+
+    /**
+     * Checks the version of a block.
+     *
+     * @param in            Input for reading.
+     * @throws IOException  if the version is not supported or an I/O error has occured.
+     */
+    private static void readVersion(ObjectInputStream in) throws IOException
+    {
+        int version = in.readInt();
+        if (version!=VERSION) throw new InvalidObjectException("Unsupported version "+version+" of the k-nn model format");
+    }
+
+    /**
+     * Writes data objects with a common header.
+     *
+     * @param out           Output for writing.
+     * @param objects       Data objects to be written.
+     * @throws IOException  if an I/O error has occured.
+     */
+    public static void writeData(ObjectOutputStream out, Collection<DoubleData> objects) throws IOException
+    {
+        out.writeInt(VERSION);
+        out.writeInt(objects.size());
+        if (objects.isEmpty()) return;
+        Header hdr = objects.iterator().next().attributes();
+        out.writeObject(hdr);
+        for (int attr = 0; attr < hdr.noOfAttr(); attr++)
+        {
+            int obj = 0;
+            if (hdr.attribute(attr) instanceof NominalAttribute)
+            {
+                NominalAttribute nomAttr = (NominalAttribute)hdr.attribute(attr);
+                int[] column = new int[objects.size()];
+                for (DoubleData dObj : objects)
+                    column[obj++] = nomAttr.localValueCode(dObj.get(attr));
+                out.writeObject(column);
+            }
+            else
+            {
+                double[] column = new double[objects.size()];
+                for (DoubleData dObj : objects)
+                    column[obj++] = dObj.get(attr);
+                out.writeObject(column);
+            }
+        }
+    }
+
+    /**
+     * Reads data objects written with writeData.
+     *
+     * @param in            Input for reading.
+     * @return              Data objects.
+     * @throws IOException  if an I/O error has occured.
+     * @throws ClassNotFoundException if a class of a serialized object cannot be found.
+     */
+    public static ArrayList<DoubleData> readData(ObjectInputStream in) throws IOException, ClassNotFoundException
+    {
+        readVersion(in);
+        int noOfObjects = in.readInt();
+        ArrayList<DoubleData> objects = new ArrayList<DoubleData>(noOfObjects);
+        if (noOfObjects==0) return objects;
+        Header hdr = (Header)in.readObject();
+        for (int obj = 0; obj < noOfObjects; obj++)
+            objects.add(new DoubleDataObject(hdr));
+        for (int attr = 0; attr < hdr.noOfAttr(); attr++)
+        {
+            if (hdr.attribute(attr) instanceof NominalAttribute)
+            {
+                NominalAttribute nomAttr = (NominalAttribute)hdr.attribute(attr);
+                int[] column = (int[])in.readObject();
+                for (int obj = 0; obj < noOfObjects; obj++)
+                    objects.get(obj).set(attr, nomAttr.globalValueCode(column[obj]));
+            }
+            else
+            {
+                double[] column = (double[])in.readObject();
+                for (int obj = 0; obj < noOfObjects; obj++)
+                    objects.get(obj).set(attr, column[obj]);
+            }
+        }
+        return objects;
+    }
+
+    /**
+     * Writes a metric tree indexing a list of data objects.
+     * The data objects themselves are not written.
+     *
+     * @param out           Output for writing.
+     * @param tree          Metric tree to be written.
+     * @param objects       Data objects indexed by the tree.
+     * @throws IOException  if an I/O error has occured.
+     */
+    public static void writeIndex(ObjectOutputStream out, IndexingTreeNode tree, List<DoubleData> objects) throws IOException
+    {
+        IdentityHashMap<DoubleData,Integer> indices = new IdentityHashMap<DoubleData,Integer>(2 * objects.size());
+        for (int obj = 0; obj < objects.size(); obj++)
+            indices.put(objects.get(obj), obj);
+        ArrayList<IndexingTreeNode> nodes = new ArrayList<IndexingTreeNode>();
+        ArrayList<IndexingTreeNode> stack = new ArrayList<IndexingTreeNode>();
+        stack.add(tree);
+        int noOfLeafObjects = 0;
+        while (!stack.isEmpty())
+        {
+            IndexingTreeNode node = stack.remove(stack.size()-1);
+            nodes.add(node);
+            if (node.isElementary()) noOfLeafObjects += node.size();
+            else
+                for (int child = ((IndexingTreeFork)node).noOfChildren()-1; child >= 0; child--)
+                    stack.add(((IndexingTreeFork)node).getChildNode(child));
+        }
+        int[] structure = new int[nodes.size()];
+        int[] centers = new int[nodes.size()];
+        double[] radiuses = new double[nodes.size()];
+        double[] weights = new double[nodes.size()];
+        int[] leafObjects = new int[noOfLeafObjects];
+        ArrayList<DoubleData> extraCenters = new ArrayList<DoubleData>();
+        int leafObj = 0;
+        for (int n = 0; n < structure.length; n++)
+        {
+            IndexingTreeNode node = nodes.get(n);
+            if (node.isElementary())
+            {
+                structure[n] = -1 - node.size();
+                for (DoubleData dObj : ((IndexingTreeLeaf)node).getObjects())
+                {
+                    Integer index = indices.get(dObj);
+                    if (index==null) throw new IOException("A data object in the metric tree is not on the list of indexed objects");
+                    leafObjects[leafObj++] = index;
+                }
+            }
+            else structure[n] = ((IndexingTreeFork)node).noOfChildren();
+            Integer center = indices.get(node.getCenter());
+            if (center!=null) centers[n] = center;
+            else
+            {
+                extraCenters.add(node.getCenter());
+                centers[n] = -extraCenters.size();
+            }
+            radiuses[n] = node.getRadius();
+            weights[n] = node.getWeight();
+        }
+        out.writeInt(VERSION);
+        out.writeObject(structure);
+        out.writeObject(centers);
+        out.writeObject(radiuses);
+        out.writeObject(weights);
+        out.writeObject(leafObjects);
+        writeData(out, extraCenters);
+    }
+
+    /**
+     * Reads a metric tree written with writeIndex.
+     *
+     * @param in            Input for reading.
+     * @param metric        Metric used by the tree.
+     * @param objects       Data objects indexed by the tree in the same order as while writing.
+     * @return              Restored metric tree.
+     * @throws IOException  if an I/O error has occured.
+     * @throws ClassNotFoundException if a class of a serialized object cannot be found.
+     */
+    public static IndexingTreeNode readIndex(ObjectInputStream in, Metric metric, List<DoubleData> objects) throws IOException, ClassNotFoundException
+    {
+        readVersion(in);
+        int[] structure = (int[])in.readObject();
+        int[] centers = (int[])in.readObject();
+        double[] radiuses = (double[])in.readObject();
+        double[] weights = (double[])in.readObject();
+        int[] leafObjects = (int[])in.readObject();
+        ArrayList<DoubleData> extraCenters = readData(in);
+        // restore nodes in reverse preorder, so the children of a fork are restored before the fork
+        int leafObj = leafObjects.length;
+        ArrayList<IndexingTreeNode> restored = new ArrayList<IndexingTreeNode>();
+        for (int n = structure.length-1; n >= 0; n--)
+        {
+            IndexingTreeNode node = null;
+            DoubleData center = (centers[n] >= 0) ? objects.get(centers[n]) : extraCenters.get(-centers[n]-1);
+            if (structure[n] < 0)
+            {
+                DoubleData[] leaf = new DoubleData[-1-structure[n]];
+                leafObj -= leaf.length;
+                for (int obj = 0; obj < leaf.length; obj++)
+                    leaf[obj] = objects.get(leafObjects[leafObj+obj]);
+                node = new IndexingTreeLeaf(metric, leaf, center, radiuses[n], weights[n]);
+            }
+            else
+            {
+                IndexingTreeNode[] subnodes = new IndexingTreeNode[structure[n]];
+                for (int child = 0; child < subnodes.length; child++)
+                    subnodes[child] = restored.remove(restored.size()-1);
+                node = new IndexingTreeFork(metric, center, radiuses[n], weights[n], subnodes);
+            }
+            restored.add(node);
+        }
+        if (restored.size()!=1) throw new InvalidObjectException("Incorrect structure of the metric tree");
+        return restored.get(0);
+    }
+}
@@ -21,6 +21,7 @@
 package rseslib.processing.classification.parameterised.knn;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.NotSerializableException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
@@ -28,14 +29,15 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Properties;
 
 import rseslib.processing.classification.ClassifierWithDistributedDecision;
 import rseslib.processing.classification.parameterised.AbstractParameterisedClassifier;
-import rseslib.processing.indexing.metric.TreeIndexer;
 import rseslib.processing.metrics.MetricFactory;
 import rseslib.processing.searching.metric.IndexingTreeVicinityProvider;
 import rseslib.processing.searching.metric.VicinityProvider;
+import rseslib.processing.searching.metric.VicinityProviderFactory;
 import rseslib.processing.transformation.AttributeTransformer;
 import rseslib.structure.attribute.NominalAttribute;
 import rseslib.structure.data.DoubleData;
@@ -66,7 +68,7 @@ public class LocalKNearestNeighbors extends AbstractParameterisedClassifier impl
 	public enum Voting { Equal, InverseDistance, InverseSquareDistance; }
 
     /** Serialization version. */
-	private static final long serialVersionUID = 1L;
+	private static final long serialVersionUID = 2L;
 	/** Property name for weighting method. */
     public static final String WEIGHTING_METHOD_PROPERTY_NAME = "weightingMethod";
     /** Name of property indicating whether the classifier learns the optimal number k. */
@@ -85,6 +87,8 @@ public class LocalKNearestNeighbors extends AbstractParameterisedClassifier impl
 
     /** Collection of the original training data objects. */  
     private Collection<DoubleData> m_OriginalData;
+    /** Transformed training data objects in the order of the original data objects. */  
+    private ArrayList<DoubleData> m_TransformedData;
     /** Data transformer used in the induced metric. */
     private AttributeTransformer m_Transformer;
     /** The induced metric. */
@@ -142,21 +146,20 @@ public class LocalKNearestNeighbors extends AbstractParameterisedClassifier impl
         m_OriginalData =  trainTable.getDataObjects();
         m_Metric = MetricFactory.getMetric(getProperties(), trainTable);
         m_Transformer = m_Metric.transformationOutside();
-        ArrayList<DoubleData> transformedObjects = new ArrayList<DoubleData>(m_OriginalData.size());
+        m_TransformedData = new ArrayList<DoubleData>(m_OriginalData.size());
         for (DoubleData dObj : m_OriginalData)
         {
         	DoubleDataObjectWithMemory newDObj = new DoubleDataObjectWithMemory(dObj);
         	newDObj.saveValues(0);
         	if (m_Transformer!=null) m_Transformer.transform(newDObj);
         	newDObj.saveValues(1);
-        	transformedObjects.add(newDObj);
+        	m_TransformedData.add(newDObj);
         }
-        DoubleDataTable transformedTrainTable = new ArrayListDoubleDataTable(transformedObjects);
+        DoubleDataTable transformedTrainTable = new ArrayListDoubleDataTable(m_TransformedData);
         if (m_Metric instanceof AbstractWeightedMetric)
         	MetricFactory.adjustWeights(getProperty(WEIGHTING_METHOD_PROPERTY_NAME), (AbstractWeightedMetric)m_Metric, transformedTrainTable, prog);
         // index the training objects
-        IndexingTreeNode indexingTree = new TreeIndexer(null).indexing(transformedTrainTable.getDataObjects(), m_Metric, prog);
-        m_VicinityProvider = new IndexingTreeVicinityProvider(null, m_Metric, indexingTree);
+        m_VicinityProvider = VicinityProviderFactory.getVicinityProvider(getProperties(), m_Metric, m_TransformedData, prog);
         // store information required in classification 
         m_nLocalSetSize = getIntProperty(LOCAL_SET_SIZE_PROPERTY_NAME);
         m_LocalMetricProperties.setProperty(MetricFactory.METRIC_PROPERTY_NAME, MetricFactory.MetricType.CityAndSimpleValueDifference.name());
@@ -207,9 +210,11 @@ public class LocalKNearestNeighbors extends AbstractParameterisedClassifier impl
     private void writeObject(ObjectOutputStream out) throws IOException
     {
     	writeAbstractParameterisedClassifier(out);
-    	out.writeObject(m_OriginalData);
+    	KnnModelFormat.writeData(out, m_OriginalData);
     	out.writeObject(m_Transformer);
     	out.writeObject(m_Metric);
+    	if (m_VicinityProvider instanceof IndexingTreeVicinityProvider)
+    		KnnModelFormat.writeIndex(out, ((IndexingTreeVicinityProvider)m_VicinityProvider).getIndexingTree(), m_TransformedData);
     	out.writeInt(m_nLocalSetSize);
     	out.writeObject(m_LocalMetricProperties);
     	out.writeObject(m_DecisionAttribute);
@@ -225,31 +230,36 @@ public class LocalKNearestNeighbors extends AbstractParameterisedClassifier impl
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
     {
     	readAbstractParameterisedClassifier(in);
-    	m_OriginalData = (Collection<DoubleData>)in.readObject();
+    	m_OriginalData = KnnModelFormat.readData(in);
     	m_Transformer = (AttributeTransformer)in.readObject();
-    	ArrayList<DoubleData> transformedObjects = new ArrayList<DoubleData>(m_OriginalData.size());
+    	m_TransformedData = new ArrayList<DoubleData>(m_OriginalData.size());
     	for (DoubleData dObj : m_OriginalData)
     	{
     		DoubleDataObjectWithMemory newDObj = new DoubleDataObjectWithMemory(dObj);
     		newDObj.saveValues(0);
     		if (m_Transformer!=null) m_Transformer.transform(newDObj);
     		newDObj.saveValues(1);
-    		transformedObjects.add(newDObj);
+    		m_TransformedData.add(newDObj);
     	}
-        DoubleDataTable transformedTrainTable = new ArrayListDoubleDataTable(transformedObjects);
     	m_Metric = (Metric)in.readObject();
     	try
     	{
-    		IndexingTreeNode indexingTree = new TreeIndexer(null).indexing(transformedTrainTable.getDataObjects(), m_Metric, new EmptyProgress());
-    		m_VicinityProvider = new IndexingTreeVicinityProvider(null, m_Metric, indexingTree);
+    		if (VicinityProviderFactory.getIndexType(getProperties())==VicinityProviderFactory.IndexType.KApproxCentersTree)
+    		{
+    			IndexingTreeNode indexingTree = KnnModelFormat.readIndex(in, m_Metric, m_TransformedData);
+    			m_VicinityProvider = new IndexingTreeVicinityProvider(null, m_Metric, indexingTree);
+    		}
+    		else
+    			// the vantage point tree and the ball tree are not stored, they are rebuilt
+    			m_VicinityProvider = VicinityProviderFactory.getVicinityProvider(getProperties(), m_Metric, m_TransformedData, new EmptyProgress());
     	}
-    	catch (InterruptedException e)
+    	catch (PropertyConfigurationException e)
     	{
     		throw new NotSerializableException(e.getMessage());
     	}
-    	catch (PropertyConfigurationException e)
+    	catch (InterruptedException e)
     	{
-    		throw new NotSerializableException(e.getMessage());
+    		throw new InterruptedIOException(e.getMessage());
     	}
     	m_bSelfLearning = false;
     	m_nLocalSetSize = in.readInt();
@@ -470,6 +480,47 @@ public class LocalKNearestNeighbors extends AbstractParameterisedClassifier impl
         return classifyWithParameter(dObj)[getIntProperty(K_PROPERTY_NAME)];
     }
 
+    /**
+     * Assigns decisions to a list of test objects.
+     * The state kept for the calling thread by the vicinity provider
+     * is released after the last object.
+     *
+     * @param objects   Test objects.
+     * @param decisions Array to be filled with the decisions assigned to the test objects.
+     */
+    public void classify(List<DoubleData> objects, double[] decisions) throws PropertyConfigurationException
+    {
+        try
+        {
+            for (int i = 0; i < objects.size(); i++)
+                decisions[i] = classify(objects.get(i));
+        }
+        finally
+        {
+            m_VicinityProvider.releaseQueries();
+        }
+    }
+
+    /**
+     * Assigns decision distributions to a list of test objects.
+     * The state kept for the calling thread by the vicinity provider
+     * is released after the last object.
+     *
+     * @param objects       Test objects.
+     * @param distributions Array to be filled with the decision distributions assigned to the test objects.
+     */
+    public void classifyWithDistributedDecision(List<DoubleData> objects, double[][] distributions) throws PropertyConfigurationException
+    {
+        try
+        {
+            ClassifierWithDistributedDecision.super.classifyWithDistributedDecision(objects, distributions);
+        }
+        finally
+        {
+            m_VicinityProvider.releaseQueries();
+        }
+    }
+
     /**
      * Calculates statistics.
      */
@@ -24,17 +24,17 @@ import rseslib.processing.classification.SingleClassifierTest;
 import rseslib.processing.classification.TestResult;
 import rseslib.processing.classification.parameterised.SingleParameter;
 import rseslib.processing.classification.parameterised.knn.CubeBasedNeighboursFilter;
-import rseslib.processing.indexing.metric.TreeIndexer;
+import rseslib.processing.classification.parameterised.knn.KnnModelFormat;
 import rseslib.processing.metrics.MetricFactory;
 import rseslib.processing.searching.metric.ArrayVicinityProvider;
 import rseslib.processing.searching.metric.IndexingTreeVicinityProvider;
 import rseslib.processing.searching.metric.VicinityProvider;
+import rseslib.processing.searching.metric.VicinityProviderFactory;
 import rseslib.processing.transformation.AttributeTransformer;
 import rseslib.processing.transformation.TableTransformer;
 import rseslib.structure.attribute.NominalAttribute;
 import rseslib.structure.data.DoubleData;
 import rseslib.structure.data.DoubleDataWithDecision;
-import rseslib.structure.index.metric.IndexingTreeNode;
 import rseslib.structure.metric.AbstractWeightedMetric;
 import rseslib.structure.metric.Metric;
 import rseslib.structure.metric.Neighbour;
@@ -48,6 +48,7 @@ import rseslib.system.progress.Progress;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.NotSerializableException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
@@ -55,6 +56,7 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Properties;
 
 /**
@@ -69,7 +71,7 @@ public class RIONIDA extends AbstractParameterised3DClassifier implements Classi
 	public enum Voting { Equal, InverseDistance, InverseSquareDistance; }
 
     /** Serialization version. */
-	private static final long serialVersionUID = 1L;
+	private static final long serialVersionUID = 2L;
     /** Name of property indicating whether the majority decision is used as the minority decision. */
     public static final String MAJORITY_AS_MINORITY_PROPERTY_NAME = "useMajorityDecAsMinorityDec";
     /** Property name for weighting method. */
@@ -227,8 +229,7 @@ public class RIONIDA extends AbstractParameterised3DClassifier implements Classi
         if(getBoolProperty(INDEXING_PROPERTY_NAME))
         {
         	// index the training objects
-        	IndexingTreeNode indexingTree = new TreeIndexer(null).indexing(m_TransformedTrainTable.getDataObjects(), m_Metric, prog);
-        	m_VicinityProvider = new IndexingTreeVicinityProvider(null, m_Metric, indexingTree);
+        	m_VicinityProvider = VicinityProviderFactory.getVicinityProvider(getProperties(), m_Metric, m_TransformedTrainTable.getDataObjects(), prog);
         } else {
             prog.set("Constructing simple vicinity provider", 1);
             m_VicinityProvider = new ArrayVicinityProvider(m_Metric, m_TransformedTrainTable.getDataObjects());
@@ -323,8 +324,7 @@ public class RIONIDA extends AbstractParameterised3DClassifier implements Classi
             if (getBoolProperty(INDEXING_PROPERTY_NAME))
             {
 //            	IndexingTreeNode indexingTree = new TreeIndexer(null).indexing(trn, m_Metric, prog);
-            	IndexingTreeNode indexingTree = new TreeIndexer(null).indexing(trn, m_Metric, new EmptyProgress()); //ggora poprawka 22.05.2017 (po mailu Arka 22.05.2017) 
-            	vicProv = new IndexingTreeVicinityProvider(null, m_Metric, indexingTree);
+            	vicProv = VicinityProviderFactory.getVicinityProvider(getProperties(), m_Metric, trn, new EmptyProgress()); //ggora poprawka 22.05.2017 (po mailu Arka 22.05.2017) 
             } else
             	vicProv = new ArrayVicinityProvider(m_Metric, trn);
             
@@ -346,6 +346,7 @@ public class RIONIDA extends AbstractParameterised3DClassifier implements Classi
             		confusionMatrices[parVal][m_DecisionAttribute.localValueCode(((DoubleDataWithDecision)dObj).getDecision())][m_DecisionAttribute.localValueCode(decisions[parVal])]++;
                 prog.step();
             }
+            vicProv.releaseQueries();
         }
 
 //tak by�o dla algorytmu RIONA
@@ -521,9 +522,12 @@ public class RIONIDA extends AbstractParameterised3DClassifier implements Classi
     private void writeObject(ObjectOutputStream out) throws IOException
     {
     	writeAbstractParameterisedClassifier(out);
-    	out.writeObject(m_OriginalData);
+    	KnnModelFormat.writeData(out, m_OriginalData);
     	out.writeObject(m_Transformer);
     	out.writeObject(m_Metric);
+    	out.writeBoolean(m_VicinityProvider instanceof IndexingTreeVicinityProvider);
+    	if (m_VicinityProvider instanceof IndexingTreeVicinityProvider)
+    		KnnModelFormat.writeIndex(out, ((IndexingTreeVicinityProvider)m_VicinityProvider).getIndexingTree(), m_TransformedTrainTable.getDataObjects());
     	out.writeInt(m_nMaxK);
     	out.writeObject(m_DecisionAttribute);
     	out.writeInt(m_nDefaultDec);
@@ -539,7 +543,7 @@ public class RIONIDA extends AbstractParameterised3DClassifier implements Classi
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
     {
     	readAbstractParameterisedClassifier(in);
-    	m_OriginalData = (ArrayList<DoubleData>)in.readObject();
+    	m_OriginalData = KnnModelFormat.readData(in);
     	ArrayList<DoubleData> transformedObjects = m_OriginalData;
     	m_Transformer = (AttributeTransformer)in.readObject();
         if (m_Transformer!=null)
@@ -552,20 +556,21 @@ public class RIONIDA extends AbstractParameterised3DClassifier implements Classi
     	m_Metric = (Metric)in.readObject();
     	try
     	{
-            if(getBoolProperty(INDEXING_PROPERTY_NAME))
-            {
-            	IndexingTreeNode indexingTree = new TreeIndexer(null).indexing(m_TransformedTrainTable.getDataObjects(), m_Metric, new EmptyProgress());
-            	m_VicinityProvider = new IndexingTreeVicinityProvider(null, m_Metric, indexingTree);                
-            } else
-                m_VicinityProvider = new ArrayVicinityProvider(m_Metric, m_TransformedTrainTable.getDataObjects());
+            if (in.readBoolean())
+            	m_VicinityProvider = new IndexingTreeVicinityProvider(null, m_Metric, KnnModelFormat.readIndex(in, m_Metric, transformedObjects));
+            else if (getBoolProperty(INDEXING_PROPERTY_NAME) && VicinityProviderFactory.getIndexType(getProperties())!=VicinityProviderFactory.IndexType.KApproxCentersTree)
+            	// the vantage point tree and the ball tree are not stored, they are rebuilt
+            	m_VicinityProvider = VicinityProviderFactory.getVicinityProvider(getProperties(), m_Metric, transformedObjects, new EmptyProgress());
+            else
+                m_VicinityProvider = new ArrayVicinityProvider(m_Metric, transformedObjects);
     	}
-    	catch (InterruptedException e)
+    	catch (PropertyConfigurationException e)
     	{
     		throw new NotSerializableException(e.getMessage());
     	}
-    	catch (PropertyConfigurationException e)
+    	catch (InterruptedException e)
     	{
-    		throw new NotSerializableException(e.getMessage());
+    		throw new InterruptedIOException(e.getMessage());
     	}
     	m_bSelfLearning = false;
     	m_nMaxK = in.readInt();
@@ -794,6 +799,47 @@ public class RIONIDA extends AbstractParameterised3DClassifier implements Classi
 		return m_DecisionAttribute.globalValueCode(retDec);
     }
 
+    /**
+     * Assigns decisions to a list of test objects.
+     * The state kept for the calling thread by the vicinity provider
+     * is released after the last object.
+     *
+     * @param objects   Test objects.
+     * @param decisions Array to be filled with the decisions assigned to the test objects.
+     */
+    public void classify(List<DoubleData> objects, double[] decisions) throws PropertyConfigurationException
+    {
+        try
+        {
+            for (int i = 0; i < objects.size(); i++)
+                decisions[i] = classify(objects.get(i));
+        }
+        finally
+        {
+            m_VicinityProvider.releaseQueries();
+        }
+    }
+
+    /**
+     * Assigns decision distributions to a list of test objects.
+     * The state kept for the calling thread by the vicinity provider
+     * is released after the last object.
+     *
+     * @param objects       Test objects.
+     * @param distributions Array to be filled with the decision distributions assigned to the test objects.
+     */
+    public void classifyWithDistributedDecision(List<DoubleData> objects, double[][] distributions) throws PropertyConfigurationException
+    {
+        try
+        {
+            ClassifierWithDistributedDecision.super.classifyWithDistributedDecision(objects, distributions);
+        }
+        finally
+        {
+            m_VicinityProvider.releaseQueries();
+        }
+    }
+
     /**
      * classifyWithParameter - oryginalna metoda, z ewentualnymi ma�ymi zmianami
      * Classifies a test object on the basis of nearest neighbours.
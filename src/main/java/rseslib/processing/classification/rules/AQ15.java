@@ -40,6 +40,8 @@ import rseslib.structure.rule.Rule;
 import rseslib.structure.table.ArrayListDoubleDataTable;
 import rseslib.structure.table.DoubleDataTable;
 import rseslib.system.PropertyConfigurationException;
+import rseslib.system.monitoring.Counter;
+import rseslib.system.monitoring.Monitoring;
 import rseslib.system.progress.Progress;
 
 /**
@@ -58,6 +60,10 @@ public class AQ15 extends AbstractClassifierWithDistributedDecision implements S
 
     /** Serialization version. */
 	private static final long serialVersionUID = 1L;	
+	/** Counter of rules checked against test objects. */
+	private static final Counter s_RulesChecked = Monitoring.counter(Monitoring.RULES_CHECKED, "classifier", "AQ15");
+	/** Counter of rules matching test objects. */
+	private static final Counter s_RulesMatched = Monitoring.counter(Monitoring.RULES_MATCHED, "classifier", "AQ15");
 	/** Name of the switch indicating whether test objects are classified by rule voting or by one best rule. */
 	public static final String RULE_VOTING_NAME = "ruleVoting";
 	
@@ -206,14 +212,18 @@ public class AQ15 extends AbstractClassifierWithDistributedDecision implements S
 		dObj = prepare(dObj);
 		double dec = m_DecisionAttribute.globalValueCode(m_nMajorityDecision);
 		double maxWeight = 0;
+		int matched = 0;
 		for(int i=0; i<m_Rules.length; i++) {
-			if ((m_Rules[i].matches(dObj))
-				&& (m_RulesWeight[i] > maxWeight))
-            {
-				maxWeight = m_RulesWeight[i];
-				dec       = m_Rules[i].getDecision();
-            }
+			if (m_Rules[i].matches(dObj)) {
+				matched++;
+				if (m_RulesWeight[i] > maxWeight) {
+					maxWeight = m_RulesWeight[i];
+					dec       = m_Rules[i].getDecision();
+				}
+			}
 		}
+		s_RulesChecked.add(m_Rules.length);
+		s_RulesMatched.add(matched);
 		if (maxWeight > 0) m_nNoOfMatchesWithRules++;
 		m_nNoOfClassifiedObjects++;
 		
@@ -230,12 +240,16 @@ public class AQ15 extends AbstractClassifierWithDistributedDecision implements S
 		dObj = prepare(dObj);
 		double[] voteTable = new double[m_DecisionAttribute.noOfValues()];
 		
+		int noOfMatched = 0;
 		for(int i=0; i<m_Rules.length; i++) {
 			if (m_Rules[i].matches(dObj)) {
 				int dec = m_DecisionAttribute.localValueCode(m_Rules[i].getDecision());
 				voteTable[dec] += m_RulesWeight[i]; 
+				noOfMatched++;
             }
 		}
+		s_RulesChecked.add(m_Rules.length);
+		s_RulesMatched.add(noOfMatched);
 		
 		boolean matched = false;
 		for(int i=0; i<voteTable.length; i++)
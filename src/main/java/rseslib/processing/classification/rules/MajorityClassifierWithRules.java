@@ -31,6 +31,8 @@ import rseslib.structure.rule.Rule;
 import rseslib.structure.table.DoubleDataTable;
 import rseslib.system.ConfigurationWithStatistics;
 import rseslib.system.PropertyConfigurationException;
+import rseslib.system.monitoring.Counter;
+import rseslib.system.monitoring.Monitoring;
 import rseslib.system.progress.Progress;
 
 /**
@@ -43,6 +45,11 @@ import rseslib.system.progress.Progress;
  */
 public class MajorityClassifierWithRules extends ConfigurationWithStatistics implements Classifier
 {
+    /** Counter of rules checked against test objects. */
+    private static final Counter s_RulesChecked = Monitoring.counter(Monitoring.RULES_CHECKED, "classifier", "MajorityClassifierWithRules");
+    /** Counter of rules matching test objects. */
+    private static final Counter s_RulesMatched = Monitoring.counter(Monitoring.RULES_MATCHED, "classifier", "MajorityClassifierWithRules");
+
     /** Decision attribute. */
     NominalAttribute m_DecisionAttribute;
     /** Majority decision computed from a training data set. */
@@ -88,14 +95,19 @@ public class MajorityClassifierWithRules extends ConfigurationWithStatistics imp
      */
     public double classify(DoubleData dObj)
     {
+        int checked = 0;
        	for (Rule r : m_Rules)
         {
+            checked++;
             if (r.matches(dObj))
             {
                 m_nNoOfMatchesWithRules++;
+                s_RulesChecked.add(checked);
+                s_RulesMatched.increment();
                 return r.getDecision();
             }
         }
+        s_RulesChecked.add(checked);
         return m_DecisionAttribute.globalValueCode(m_nMajorityDecision);
     }
 
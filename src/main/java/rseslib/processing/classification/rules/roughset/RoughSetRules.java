@@ -27,6 +27,8 @@ import java.io.Serializable;
 import java.util.*;
 
 import rseslib.system.*; 
+import rseslib.system.monitoring.Counter;
+import rseslib.system.monitoring.Monitoring;
 import rseslib.system.progress.Progress;
 import rseslib.structure.table.DoubleDataTable;
 import rseslib.structure.vector.Vector;
@@ -55,6 +57,10 @@ public class RoughSetRules extends AbstractClassifierWithDistributedDecision imp
 {
     /** Serialization version. */
 	private static final long serialVersionUID = 1L;
+	/** Counter of rules checked against test objects. */
+	private static final Counter s_RulesChecked = Monitoring.counter(Monitoring.RULES_CHECKED, "classifier", "RoughSetRules");
+	/** Counter of rules matching test objects. */
+	private static final Counter s_RulesMatched = Monitoring.counter(Monitoring.RULES_MATCHED, "classifier", "RoughSetRules");
 
 	/** Discretizer used to discretize numerical attributes. */
 	Transformer m_cDiscretizer = null;
@@ -64,6 +70,10 @@ public class RoughSetRules extends AbstractClassifierWithDistributedDecision imp
     Header m_DiscrHeader;
     /** Decision attribute. */
     NominalAttribute m_DecAttr;
+    /** Rules used for classifying lists of objects, null if not prepared yet. */
+    private transient Rule[] m_arrRules = null;
+    /** Decision vectors of the rules from m_arrRules. */
+    private transient double[][] m_arrRuleDecisions = null;
     
     /**
      * Constructor required by rseslib tools.
@@ -79,18 +89,24 @@ public class RoughSetRules extends AbstractClassifierWithDistributedDecision imp
     public RoughSetRules(Properties prop, DoubleDataTable trainTable, Progress prog) throws PropertyConfigurationException, InterruptedException
     {
         super(prop, trainTable);
+        long start = Monitoring.start();
         TransformationProvider discrProv = DiscretizationFactory.getDiscretizationProvider(getProperties());
         if (discrProv != null)
         	m_cDiscretizer = discrProv.generateTransformer(trainTable);
     	if (m_cDiscretizer != null)
     		trainTable = TableTransformer.transform(trainTable, m_cDiscretizer);
+    	Monitoring.trainingPhase(RoughSetRules.class, "discretization").stop(start);
     	m_DiscrHeader = trainTable.attributes();
         m_DecAttr = m_DiscrHeader.nominalDecisionAttribute();
+        start = Monitoring.start();
         m_cDecisionRules = new ReductRuleGenerator(getProperties()).generate(trainTable, prog);
+        Monitoring.trainingPhase(RoughSetRules.class, "rules").stop(start);
     }
 
     /**
      * Constructor based on a prepared set of rules.
+     * The collection is used by this classifier without copying
+     * and must not be modified afterwards.
      * 
      * @param	Prepared set of rules.
      * @param	Decision attribute.
@@ -140,14 +156,78 @@ public class RoughSetRules extends AbstractClassifierWithDistributedDecision imp
     	if (m_cDiscretizer != null)
     		object = m_cDiscretizer.transformToNew(object);
         Vector dv = new Vector(m_DecAttr.noOfValues());
+        int matched = 0;
         for (Rule rule : m_cDecisionRules)
             if (rule.matches(object)) 
+            {
                 dv.add(((DistributedDecisionRule)rule).getDecisionVector()); 
+                matched++;
+            }
+        s_RulesChecked.add(m_cDecisionRules.size());
+        s_RulesMatched.add(matched);
         double[] result = new double[dv.dimension()];
        	for (int i=0; i<dv.dimension(); i++)
        		result[i] = dv.get(i);
        	return result;
     }
+
+    /**
+     * Prepares the array of rules and their decision vectors
+     * used for classifying lists of objects.
+     * The arrays are created once for this classifier.
+     */
+    private synchronized void prepareRules()
+    {
+        if (m_arrRules!=null) return;
+        Rule[] rules = m_cDecisionRules.toArray(new Rule[m_cDecisionRules.size()]);
+        double[][] ruleDecisions = new double[rules.length][m_DecAttr.noOfValues()];
+        for (int r = 0; r < rules.length; r++)
+        {
+            Vector dv = ((DistributedDecisionRule)rules[r]).getDecisionVector();
+            for (int i = 0; i < ruleDecisions[r].length; i++)
+                ruleDecisions[r][i] = dv.get(i);
+        }
+        m_arrRuleDecisions = ruleDecisions;
+        m_arrRules = rules;
+    }
+
+    /**
+     * Assigns decision distributions to a list of test objects.
+     * The rules and their decision vectors are prepared once for this classifier
+     * and the supports are summed directly in the output vectors.
+     *
+     * @param objects       Test objects to be classified.
+     * @param distributions Array to be filled with the decision distributions assigned to the objects.
+     */
+    public void classifyWithDistributedDecision(List<DoubleData> objects, double[][] distributions)
+    {
+        prepareRules();
+        Rule[] rules = m_arrRules;
+        double[][] ruleDecisions = m_arrRuleDecisions;
+        int matched = 0;
+        for (int obj = 0; obj < objects.size(); obj++)
+        {
+            DoubleData object = objects.get(obj);
+            if (m_cDiscretizer != null)
+                object = m_cDiscretizer.transformToNew(object);
+            double[] result = distributions[obj];
+            if (result==null)
+            {
+                result = new double[m_DecAttr.noOfValues()];
+                distributions[obj] = result;
+            }
+            else Arrays.fill(result, 0.0);
+            for (int r = 0; r < rules.length; r++)
+                if (rules[r].matches(object))
+                {
+                    for (int i = 0; i < result.length; i++)
+                        result[i] += ruleDecisions[r][i];
+                    matched++;
+                }
+        }
+        s_RulesChecked.add((long)rules.length*objects.size());
+        s_RulesMatched.add(matched);
+    }
     
     /**
      * Calculates statistics.
@@ -166,11 +246,13 @@ public class RoughSetRules extends AbstractClassifierWithDistributedDecision imp
     
     /**
      * Returns the collection of rules induced by this classifier.
+     * The collection cannot be modified, so the rules prepared
+     * for classifying lists of objects remain up to date.
      * 
-     * @return Collection of rules induced by this classifier.
+     * @return Unmodifiable collection of rules induced by this classifier.
      */
     public Collection<Rule> getRules()
     {
-        return m_cDecisionRules;
+        return Collections.unmodifiableCollection(m_cDecisionRules);
     }
 }
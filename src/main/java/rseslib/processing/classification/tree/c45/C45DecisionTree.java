@@ -23,7 +23,7 @@ package rseslib.processing.classification.tree.c45;
 import java.io.*;
 import java.util.*;
 
-import rseslib.processing.classification.Classifier;
+import rseslib.processing.classification.ThreadSafeClassifier;
 import rseslib.structure.attribute.*;
 import rseslib.structure.data.*;
 import rseslib.structure.table.DoubleDataTable;
@@ -38,7 +38,7 @@ import rseslib.system.progress.Progress;
  *
  * @author      Arkadiusz Wojna
  */
-public class C45DecisionTree extends ConfigurationWithStatistics implements Classifier, Serializable
+public class C45DecisionTree extends ConfigurationWithStatistics implements ThreadSafeClassifier, Serializable
 {
    /** Serialization version. */
 	private static final long serialVersionUID = 1L;
@@ -131,6 +131,27 @@ public class C45DecisionTree extends ConfigurationWithStatistics implements Clas
         return m_DecisionAttribute.globalValueCode(bestDec);*/
     }
 
+    /**
+     * Assigns decisions to a list of test objects.
+     * Each object descends the tree in a loop without recursive calls
+     * until it reaches a leaf or a node that can not determine one branch.
+     *
+     * @param objects   Test objects.
+     * @param decisions Array to be filled with the decisions assigned to the test objects.
+     */
+    public void classify(List<DoubleData> objects, double[] decisions)
+    {
+        for (int i = 0; i < objects.size(); i++)
+        {
+            DoubleData dObj = objects.get(i);
+            DecisionTreeNode node = m_Root;
+            int val;
+            while (!node.isLeaf() && (val = node.m_BranchSelector.intValue(dObj)) >= 0)
+                node = node.m_Children[val];
+            decisions[i] = node.classify(dObj);
+        }
+    }
+
     /**
      * Assigns a decision vector to a single test object.
      *
@@ -79,6 +79,7 @@ public class RTEditingFilter implements Filter
                 && neighbours[2].neighbour().getDecision()==dObj.getDecision())
                 balanceArray[((NumberedDoubleDataObject)neighbours[1].neighbour()).getNumber()]--;
         }
+        m_VicinityProvider.releaseQueries();
         ArrayList<DoubleData> editedColl = new ArrayList<DoubleData>();
         for (DoubleData dObj : dataColl)
             if (balanceArray[((NumberedDoubleDataObject)dObj).getNumber()] >= 0) editedColl.add(dObj);
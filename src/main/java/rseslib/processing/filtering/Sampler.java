@@ -23,9 +23,9 @@ package rseslib.processing.filtering;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.Random;
 
 import rseslib.structure.data.DoubleData;
+import rseslib.util.random.RandomSelection;
 
 /**
  * Selects randomly generated sample of data objects.
@@ -34,9 +34,6 @@ import rseslib.structure.data.DoubleData;
  */
 public class Sampler
 {
-    /** Random number generator. */
-    private static final Random RANDOM_GENERATOR = new Random();
-
     /**
      * Returns a sample of data objects
      * selected from an original collection without repetitions.
@@ -53,7 +50,7 @@ public class Sampler
             boolean[] inSample = new boolean[data.size()];
             while (sample.size() < sampleSize)
             {
-                int ind = RANDOM_GENERATOR.nextInt(data.size());
+                int ind = RandomSelection.generator().nextInt(data.size());
                 if (!inSample[ind])
                 {
                 	sample.add(data.get(ind));
@@ -77,7 +74,7 @@ public class Sampler
     {
         ArrayList<DoubleData> sample = new ArrayList<DoubleData>(sampleSize);
         for (int obj = 0; obj < sampleSize; obj++)
-        	sample.add(data.get(RANDOM_GENERATOR.nextInt(data.size())));
+        	sample.add(data.get(RandomSelection.generator().nextInt(data.size())));
         return sample;
     }
     
@@ -141,7 +138,7 @@ public class Sampler
     	
     	ArrayList<PairDoubleInteger> random = new ArrayList<PairDoubleInteger>(sampleSize);
     	for (int i=0; i<sampleSize; i++)
-    		random.add(new PairDoubleInteger(RANDOM_GENERATOR.nextDouble(), i));
+    		random.add(new PairDoubleInteger(RandomSelection.generator().nextDouble(), i));
     	Collections.sort(random, comparator);
     	ArrayList<DoubleData> result = new ArrayList<DoubleData>(sampleSize);
     	for (int i=0; i<sampleSize; i++)
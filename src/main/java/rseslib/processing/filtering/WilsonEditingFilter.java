@@ -84,6 +84,7 @@ public class WilsonEditingFilter implements Filter
                 if (decDistr[d] > decDistr[majorityDec]) majorityDec = d;
             if (m_DecisionAttribute.globalValueCode(majorityDec) == dObj.getDecision()) editedColl.add(dObj);
         }
+        m_VicinityProvider.releaseQueries();
         return editedColl;
     }
 }
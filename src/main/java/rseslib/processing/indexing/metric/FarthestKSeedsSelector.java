@@ -27,13 +27,20 @@ import rseslib.structure.metric.Metric;
  * Selector of k seeds from a collection of data objects.
  * The first one is the farthest data object from the mean
  * and each next one is the farthest from all previously selected.
+ * The selector can be used by many threads at the same time.
  *
  * @author      Arkadiusz Wojna
  */
 public class FarthestKSeedsSelector implements SeedsSelectorWithCenters
 {
-    /** Counter for the number of distance comparisions. */
-    private int m_nDistOperCounter = 0;
+    /** Counter for the number of distance comparisions in the last call made by a thread. */
+    private final ThreadLocal<Integer> m_nDistOperCounter = new ThreadLocal<Integer>()
+    {
+        protected Integer initialValue()
+        {
+            return 0;
+        }
+    };
 
     /**
      * Selects a number of seeds from a collection of data objects.
@@ -48,7 +55,7 @@ public class FarthestKSeedsSelector implements SeedsSelectorWithCenters
      */
     public DoubleData[] getSeeds(DoubleData[] objects, DoubleData mean, Metric metric, int noOfSeeds)
     {
-        m_nDistOperCounter = 0;
+        int distOperCounter = 0;
         DoubleData[] seeds;
         if (noOfSeeds < objects.length)
         {
@@ -58,7 +65,7 @@ public class FarthestKSeedsSelector implements SeedsSelectorWithCenters
             for (int obj = 0; obj < objects.length; obj++)
             {
                 double dist = metric.dist(objects[obj], mean);
-                m_nDistOperCounter++;
+                distOperCounter++;
                 if (farthestObj == -1 || dist > farthestDist)
                 {
                     farthestObj = obj;
@@ -79,7 +86,7 @@ public class FarthestKSeedsSelector implements SeedsSelectorWithCenters
                         else
                         {
                             double dist = metric.dist(seeds[s], dObj);
-                            m_nDistOperCounter++;
+                            distOperCounter++;
                             if (dist < minDist) minDist = dist;
                         }
                     if (farthestObj == -1 || minDist > farthestDist)
@@ -96,16 +103,18 @@ public class FarthestKSeedsSelector implements SeedsSelectorWithCenters
             seeds = new DoubleData[objects.length];
             for (int seed = 0; seed < seeds.length; seed++) seeds[seed] = objects[seed];
         }
+        m_nDistOperCounter.set(distOperCounter);
         return seeds;
     }
 
     /**
-     * Returns the number of distance comparisions in the last call of the seeding procedure.
+     * Returns the number of distance comparisions in the last call of the seeding procedure
+     * made by the current thread.
      *
      * @return Number of distance comparisions in the last call of the seeding procedure.
      */
     public int getNoOfDistOper()
     {
-        return m_nDistOperCounter;
+        return m_nDistOperCounter.get();
     }
 }
@@ -20,8 +20,11 @@
 
 package rseslib.processing.indexing.metric;
 
+import java.util.Random;
+
 import rseslib.structure.index.metric.IndexingTreeFork;
 import rseslib.structure.index.metric.IndexingTreeLeaf;
+import rseslib.util.random.RandomSelection;
 
 /**
  * Clusterer divides a set of data objects
@@ -40,6 +43,30 @@ public interface IndexingTreeLeafClusterer
      */
     public abstract IndexingTreeFork cluster(IndexingTreeLeaf leaf) throws InterruptedException;
 
+    /**
+     * Clusters data objects of a leaf node in an indexing tree
+     * drawing random numbers from a given generator.
+     * By default the generator is assigned to the current thread
+     * for the random operations of the class RandomSelection.
+     *
+     * @param leaf                  Leaf node to be clustered.
+     * @param random                Random number generator.
+     * @return                      Clustered node.
+     * @throws InterruptedException when the user interrupts the execution.
+     */
+    public default IndexingTreeFork cluster(IndexingTreeLeaf leaf, Random random) throws InterruptedException
+    {
+        Random previous = RandomSelection.setGenerator(random);
+        try
+        {
+            return cluster(leaf);
+        }
+        finally
+        {
+            RandomSelection.setGenerator(previous);
+        }
+    }
+
     /**
      * Returns the average number of iterations.
      *
@@ -27,9 +27,15 @@ import rseslib.structure.data.DoubleData;
 import rseslib.structure.index.metric.IndexingTreeFork;
 import rseslib.structure.index.metric.IndexingTreeLeaf;
 import rseslib.structure.metric.Metric;
+import rseslib.util.random.RandomSelection;
 
 /**
  * K means clusterer with initial seeds selection procedure given as a parameter.
+ * Optionally the centers of clusters are selected from a random sample
+ * of a large set of data objects and then all data objects
+ * are assigned to the nearest centers.
+ * The clusterer can be used by many threads at the same time
+ * if the seeds selector can be used so.
  *
  * @author      Arkadiusz Wojna
  */
@@ -37,15 +43,21 @@ public class KApproxCentersIndexingTreeLeafClusterer implements IndexingTreeLeaf
 {
     /** Maximal number of tries in splitting procedure. */
     private static final int MAX_NO_OF_ITERATIONS = 1000;
-    /** Generator of random numbers. */
-    private static final Random RANDOM_NUMBER_GENERATOR = new Random();
 
     /** Selector of initial seeds for clustering. */
     private SeedsSelectorWithCenters m_SeedsSelector;
     /** Number of seeds used to cluster data. */
     private int m_nNoOfSeeds;
-    /** Counter for the number of distance comparisions. */
-    private int m_nDistOperCounter = 0;
+    /** Maximal number of data objects used to select centers, 0 if centers are selected from all data objects. */
+    private int m_nSampleSize;
+    /** Counter for the number of distance comparisions in the last call made by a thread. */
+    private final ThreadLocal<Integer> m_nDistOperCounter = new ThreadLocal<Integer>()
+    {
+        protected Integer initialValue()
+        {
+            return 0;
+        }
+    };
     /** Counter for the number of this procedure calls. */
     private int m_nCallsCounter = 0;
     /** The total number of performed iterations. */
@@ -60,9 +72,23 @@ public class KApproxCentersIndexingTreeLeafClusterer implements IndexingTreeLeaf
      * @param noOfSeeds     Number of seeds used to cluster data.
      */
     public KApproxCentersIndexingTreeLeafClusterer(SeedsSelectorWithCenters seedsSelector, int noOfSeeds)
+    {
+        this(seedsSelector, noOfSeeds, 0);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param seedsSelector Selector of initial seeds for clustering algorithm.
+     * @param noOfSeeds     Number of seeds used to cluster data.
+     * @param sampleSize    Maximal number of data objects used to select centers of clusters,
+     *                      0 if centers are selected from all data objects.
+     */
+    public KApproxCentersIndexingTreeLeafClusterer(SeedsSelectorWithCenters seedsSelector, int noOfSeeds, int sampleSize)
     {
         m_SeedsSelector = seedsSelector;
         m_nNoOfSeeds = noOfSeeds;
+        m_nSampleSize = sampleSize;
     }
 
     /**
@@ -70,7 +96,7 @@ public class KApproxCentersIndexingTreeLeafClusterer implements IndexingTreeLeaf
      *
      * @return Average number of iterations.
      */
-    public double getAverageNoOfIterations()
+    public synchronized double getAverageNoOfIterations()
     {
         if (m_nCallsCounter==0) return 0;
         return m_nIterationsCounter/((double)m_nCallsCounter);
@@ -81,7 +107,7 @@ public class KApproxCentersIndexingTreeLeafClusterer implements IndexingTreeLeaf
      *
      * @return Maximum number of iterations.
      */
-    public double getMaximumNoOfIterations()
+    public synchronized double getMaximumNoOfIterations()
     {
         return m_nMaxIterations;
     }
@@ -89,6 +115,9 @@ public class KApproxCentersIndexingTreeLeafClusterer implements IndexingTreeLeaf
     /**
      * Clusters data objects of a leaf node in an indexing tree
      * using objects as cluster centers instead of means.
+     * If the leaf has more data objects than the sample size
+     * the centers are selected from a sample and all data objects
+     * are assigned to the nearest centers at the end.
      *
      * @param leaf                  Leaf node to be clustered.
      * @return                      Clustered node.
@@ -96,11 +125,30 @@ public class KApproxCentersIndexingTreeLeafClusterer implements IndexingTreeLeaf
      */
     public IndexingTreeFork cluster(IndexingTreeLeaf leaf) throws InterruptedException
     {
-        m_nDistOperCounter = 0;
+        return cluster(leaf, RandomSelection.generator());
+    }
+
+    /**
+     * Clusters data objects of a leaf node in an indexing tree
+     * using objects as cluster centers instead of means
+     * and drawing random numbers from a given generator,
+     * so threads clustering different leaves with their own generators
+     * do not share random numbers.
+     *
+     * @param leaf                  Leaf node to be clustered.
+     * @param random                Random number generator.
+     * @return                      Clustered node.
+     * @throws InterruptedException when the user interrupts the execution.
+     */
+    public IndexingTreeFork cluster(IndexingTreeLeaf leaf, Random random) throws InterruptedException
+    {
         Metric metric = leaf.getMetric();
-        DoubleData[] objects = leaf.getObjects();
+        DoubleData[] allObjects = leaf.getObjects();
+        DoubleData[] objects = allObjects;
+        if (m_nSampleSize > 0 && allObjects.length > m_nSampleSize)
+            objects = sample(allObjects, m_nSampleSize, random);
         DoubleData[] seeds = m_SeedsSelector.getSeeds(objects, leaf.getCenter(), metric, m_nNoOfSeeds);
-        m_nDistOperCounter += m_SeedsSelector.getNoOfDistOper();
+        int distOperCounter = m_SeedsSelector.getNoOfDistOper();
         DoubleData[] centers = new DoubleData[seeds.length];
         double[] distances = new double[centers.length];
         ArrayList<DoubleData>[] subnodeObjects = new ArrayList[centers.length];
@@ -116,58 +164,106 @@ public class KApproxCentersIndexingTreeLeafClusterer implements IndexingTreeLeaf
         while (cont && iter < MAX_NO_OF_ITERATIONS)
         {
             iter++;
-            for (int cl = 0; cl < subnodeObjects.length; cl++)
-                subnodeObjects[cl].clear();
-            for (int obj = 0; obj < objects.length; obj++)
-            {
-                int nearestMean = -1;
-                for (int cl = 0; cl < subnodeObjects.length; cl++)
-                {
-                    distances[cl] = metric.dist(objects[obj], centers[cl]);
-                    m_nDistOperCounter++;
-                    if (nearestMean==-1 || distances[cl] < distances[nearestMean]) nearestMean = cl;
-                }
-                subnodeObjects[nearestMean].add(objects[obj]);
-            }
-            for (int cl = 0; cl < subnodeObjects.length; cl++)
-                if (subnodeObjects[cl].size()==0)
-                {
-                    int nearestCl = -1;
-                    int nearestObjInd = -1;
-                    double nearestDist = Double.MAX_VALUE;
-                    for (int cl2 = 0; cl2 < subnodeObjects.length; cl2++)
-                        if (subnodeObjects[cl2].size()>1)
-                            for (int obj = 0; obj < subnodeObjects[cl2].size(); obj++)
-                            {
-                                double dist;
-                                dist = metric.dist((DoubleData)subnodeObjects[cl2].get(obj), centers[cl]);
-                                m_nDistOperCounter++;
-                                if (dist < nearestDist)
-                                {
-                                    nearestCl = cl2;
-                                    nearestObjInd = obj;
-                                    nearestDist = dist;
-                                }
-                            }
-                    subnodeObjects[cl].add(subnodeObjects[nearestCl].remove(nearestObjInd));
-                }
+            distOperCounter += assign(objects, centers, metric, subnodeObjects, distances);
             cont = false;
             for (int cl = 0; cl < subnodeObjects.length; cl++)
             {
                 prevCenters[cl] = centers[cl];
                 subnodes[cl] = (DoubleData[])subnodeObjects[cl].toArray(new DoubleData[0]);
-                centers[cl] = selectCenter(subnodes[cl], prevCenters[cl], metric);
+                centers[cl] = selectCenter(subnodes[cl], prevCenters[cl], metric, random);
                 if (!cont)
                 {
                 	if (metric.dist(centers[cl], prevCenters[cl]) > 0) cont = true;
-                	m_nDistOperCounter++;
+                	distOperCounter++;
                 }
             }
         }
-        m_nCallsCounter++;
-        m_nIterationsCounter += iter;
-        if (iter > m_nMaxIterations) m_nMaxIterations = iter;
-       return new IndexingTreeFork(null, metric, objects, leaf.getCenter(), subnodes, prevCenters);
+        if (objects != allObjects)
+        {
+            distOperCounter += assign(allObjects, prevCenters, metric, subnodeObjects, distances);
+            for (int cl = 0; cl < subnodeObjects.length; cl++)
+                subnodes[cl] = (DoubleData[])subnodeObjects[cl].toArray(new DoubleData[0]);
+        }
+        m_nDistOperCounter.set(distOperCounter);
+        synchronized (this)
+        {
+            m_nCallsCounter++;
+            m_nIterationsCounter += iter;
+            if (iter > m_nMaxIterations) m_nMaxIterations = iter;
+        }
+       return new IndexingTreeFork(null, metric, allObjects, leaf.getCenter(), subnodes, prevCenters);
+    }
+
+    /**
+     * Assigns data objects to the nearest centers.
+     * If no data object is assigned to a center
+     * the nearest data object from another cluster is moved to this center.
+     *
+     * @param objects        Data objects to be assigned.
+     * @param centers        Centers of clusters.
+     * @param metric         Metric used to measure distance between data objects.
+     * @param subnodeObjects Lists to be filled with the data objects assigned to the centers.
+     * @param distances      Array for distances to the centers.
+     * @return               Number of distance comparisions.
+     */
+    private static int assign(DoubleData[] objects, DoubleData[] centers, Metric metric, ArrayList<DoubleData>[] subnodeObjects, double[] distances)
+    {
+        int distOperCounter = 0;
+        for (int cl = 0; cl < subnodeObjects.length; cl++)
+            subnodeObjects[cl].clear();
+        for (int obj = 0; obj < objects.length; obj++)
+        {
+            int nearestMean = -1;
+            for (int cl = 0; cl < subnodeObjects.length; cl++)
+            {
+                distances[cl] = metric.dist(objects[obj], centers[cl]);
+                distOperCounter++;
+                if (nearestMean==-1 || distances[cl] < distances[nearestMean]) nearestMean = cl;
+            }
+            subnodeObjects[nearestMean].add(objects[obj]);
+        }
+        for (int cl = 0; cl < subnodeObjects.length; cl++)
+            if (subnodeObjects[cl].size()==0)
+            {
+                int nearestCl = -1;
+                int nearestObjInd = -1;
+                double nearestDist = Double.MAX_VALUE;
+                for (int cl2 = 0; cl2 < subnodeObjects.length; cl2++)
+                    if (subnodeObjects[cl2].size()>1)
+                        for (int obj = 0; obj < subnodeObjects[cl2].size(); obj++)
+                        {
+                            double dist;
+                            dist = metric.dist((DoubleData)subnodeObjects[cl2].get(obj), centers[cl]);
+                            distOperCounter++;
+                            if (dist < nearestDist)
+                            {
+                                nearestCl = cl2;
+                                nearestObjInd = obj;
+                                nearestDist = dist;
+                            }
+                        }
+                subnodeObjects[cl].add(subnodeObjects[nearestCl].remove(nearestObjInd));
+            }
+        return distOperCounter;
+    }
+
+    /**
+     * Selects a random sample of data objects
+     * preserving the order of the selected data objects.
+     *
+     * @param objects    Data objects to be sampled.
+     * @param sampleSize Number of data objects to be selected.
+     * @param random     Random number generator.
+     * @return           Sample of data objects.
+     */
+    private static DoubleData[] sample(DoubleData[] objects, int sampleSize, Random random)
+    {
+        DoubleData[] sample = new DoubleData[sampleSize];
+        int selected = 0;
+        for (int obj = 0; selected < sampleSize; obj++)
+            if (random.nextInt(objects.length - obj) < sampleSize - selected)
+                sample[selected++] = objects[obj];
+        return sample;
     }
 
     /**
@@ -176,9 +272,10 @@ public class KApproxCentersIndexingTreeLeafClusterer implements IndexingTreeLeaf
      * @param objects    Set of data objects.
      * @param prevCenter The previously selected center of a cluster
      *                   in an iterative algorithm.
+     * @param random     Random number generator.
      * @return           Approximate center of the set of data objects.
      */
-    private static DoubleData selectCenter(DoubleData[] objects, DoubleData prevCenter, Metric metric)
+    private static DoubleData selectCenter(DoubleData[] objects, DoubleData prevCenter, Metric metric, Random random)
     {
         double sampleSize = Math.sqrt(objects.length);
         if (sampleSize < 3)
@@ -192,7 +289,7 @@ public class KApproxCentersIndexingTreeLeafClusterer implements IndexingTreeLeaf
             boolean occured = true;
             while (occured)
             {
-                sample[obj] = objects[RANDOM_NUMBER_GENERATOR.nextInt(objects.length)];
+                sample[obj] = objects[random.nextInt(objects.length)];
                 occured = false;
                 for (int prev = 0; !occured && prev < obj; prev++)
                     if (sample[obj]==sample[prev]) occured = true;
@@ -226,16 +323,18 @@ public class KApproxCentersIndexingTreeLeafClusterer implements IndexingTreeLeaf
      */
     public static DoubleData selectCenter(DoubleData[] objects, Metric metric)
     {
-    	return selectCenter(objects, objects[RANDOM_NUMBER_GENERATOR.nextInt(objects.length)], metric);
+    	Random random = RandomSelection.generator();
+    	return selectCenter(objects, objects[random.nextInt(objects.length)], metric, random);
     }
     
     /**
-     * Returns the number of distance comparisions in the last call of the clustering procedure.
+     * Returns the number of distance comparisions in the last call of the clustering procedure
+     * made by the current thread.
      *
      * @return Number of distance comparisions in the last call of the clustering procedure.
      */
     public int getNoOfDistOper()
     {
-        return m_nDistOperCounter;
+        return m_nDistOperCounter.get();
     }
 }
@@ -22,8 +22,13 @@ package rseslib.processing.indexing.metric;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.Properties;
+import java.util.Random;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import rseslib.structure.data.DoubleData;
 import rseslib.structure.index.metric.IndexingTreeFork;
@@ -33,11 +38,24 @@ import rseslib.structure.index.metric.IndexingTreeNodeComparator;
 import rseslib.structure.metric.Metric;
 import rseslib.system.ConfigurationWithStatistics;
 import rseslib.system.PropertyConfigurationException;
+import rseslib.system.progress.ConcurrentProgress;
 import rseslib.system.progress.Progress;
+import rseslib.util.random.RandomSelection;
 
 /**
  * Abstract indexer constructing binary tree
  * that indexes data objects.
+ * The tree grows by splitting the heaviest leaves.
+ * By default the leaves are split one by one in the calling thread.
+ * With more than one indexing thread a number of the heaviest leaves
+ * are split at the same time in a fork-join pool shared by all indexings,
+ * the clusterer must be thread-safe then.
+ * Each leaf is split with its own random number generator
+ * seeded from the generator of the parent split, the root generator
+ * is seeded once per indexing from the generator of RandomSelection,
+ * so the splits do not depend on the scheduling of threads.
+ * The parallel splitting may still change the tree,
+ * because the leaves are split in batches in a different order.
  *
  * @author      Arkadiusz Wojna
  */
@@ -45,9 +63,18 @@ public class TreeIndexer extends ConfigurationWithStatistics
 {
     /** Property name for the ratio of data objects to the number of generated elementary nodes. */
     public static final String OBJECTS_TO_LEAVES_RATIO_PROPERTY_NAME = "objectsToLeavesRatio";
+    /** Property name for the number of threads splitting nodes. */
+    public static final String INDEXING_THREADS_PROPERTY_NAME = "indexingThreads";
+    /** Property name for the maximal number of data objects used to select centers of subnodes. */
+    public static final String CENTERS_SAMPLE_SIZE_PROPERTY_NAME = "centersSampleSize";
 
     /** Ratio of data objects to the number of generated leaves. */
     private int m_nObjectsToLeavesRatio = getIntProperty(OBJECTS_TO_LEAVES_RATIO_PROPERTY_NAME);
+    /** Number of threads splitting nodes, 0 means the number of available processors. */
+    private int m_nIndexingThreads = getIntProperty(INDEXING_THREADS_PROPERTY_NAME);
+    /** Fork-join pool shared by all indexings splitting nodes in parallel. */
+    private static ForkJoinPool s_Pool = null;
+
     /** Clustering procedure used for splitting nodes. */
     private IndexingTreeLeafClusterer m_Clusterer;
     /** Last indexing tree. */
@@ -65,14 +92,15 @@ public class TreeIndexer extends ConfigurationWithStatistics
     public TreeIndexer(Properties prop) throws PropertyConfigurationException
     {
         super(prop);
-        m_Clusterer = new KApproxCentersIndexingTreeLeafClusterer(new FarthestKSeedsSelector(), 3);
+        m_Clusterer = new KApproxCentersIndexingTreeLeafClusterer(new FarthestKSeedsSelector(), 3, getIntProperty(CENTERS_SAMPLE_SIZE_PROPERTY_NAME));
     }
 
     /**
      * Constructor.
      *
      * @param prop      Map between property names and property values.
-     * @param clusterer Clustering procedure used for splitting nodes.
+     * @param clusterer Clustering procedure used for splitting nodes,
+     *                  it must be thread-safe if more than one indexing thread is used.
      */
     public TreeIndexer(Properties prop, IndexingTreeLeafClusterer clusterer) throws PropertyConfigurationException
     {
@@ -80,6 +108,22 @@ public class TreeIndexer extends ConfigurationWithStatistics
         m_Clusterer = clusterer;
     }
 
+    /**
+     * Returns the fork-join pool shared by all indexings
+     * with at least a given number of threads.
+     * If the shared pool has fewer threads it is replaced with a larger one,
+     * the indexings using the previous pool complete their splits there.
+     *
+     * @param noOfThreads Required number of threads.
+     * @return            Fork-join pool.
+     */
+    private static synchronized ForkJoinPool pool(int noOfThreads)
+    {
+        if (s_Pool==null || s_Pool.getParallelism() < noOfThreads)
+            s_Pool = new ForkJoinPool(noOfThreads);
+        return s_Pool;
+    }
+
     /**
      * Constructs a binary tree indexing a data set.
      *
@@ -95,41 +139,184 @@ public class TreeIndexer extends ConfigurationWithStatistics
         m_Tree = new IndexingTreeLeaf(null, metric, objectsArray, KApproxCentersIndexingTreeLeafClusterer.selectCenter(objectsArray, metric));
         TreeSet<IndexingTreeNode> ts = new TreeSet<IndexingTreeNode>(new IndexingTreeNodeComparator());
         ts.add(m_Tree);
+        IdentityHashMap<IndexingTreeNode,Long> seeds = new IdentityHashMap<IndexingTreeNode,Long>();
+        seeds.put(m_Tree, RandomSelection.generator().nextLong());
         int noOfLeaves = objects.size()/m_nObjectsToLeavesRatio;
-        int percentage = 0;
-        prog.set("Indexing training objects", 100);
+        int noOfThreads = m_nIndexingThreads;
+        if (noOfThreads <= 0) noOfThreads = Runtime.getRuntime().availableProcessors();
+        SplitProgress splitProg = new SplitProgress(prog, noOfLeaves);
         boolean cont = true;
         while (cont && ts.size() < noOfLeaves)
         {
-            IndexingTreeLeaf cl = (IndexingTreeLeaf)ts.last();
-            if (cl.getWeight()== 0) cont = false;
+            // a split adds at least two leaves to the tree
+            // so the batch is limited not to exceed the number of leaves much
+            int batchSize = Math.min(noOfThreads, (noOfLeaves - ts.size() + 1)/2);
+            ArrayList<NodeSplit> batch = new ArrayList<NodeSplit>();
+            while (!ts.isEmpty() && batch.size() < batchSize && ts.last().getWeight() > 0)
+            {
+                IndexingTreeLeaf leaf = (IndexingTreeLeaf)ts.pollLast();
+                batch.add(new NodeSplit(leaf, seeds.remove(leaf), splitProg));
+            }
+            if (batch.size()==0) cont = false;
             else
             {
-            	ts.pollLast();
-            	IndexingTreeFork splitNode;
-            	splitNode = m_Clusterer.cluster(cl);
-            	m_nDistOperCounter += m_Clusterer.getNoOfDistOper();
-            	if (cl.getParent()!=null) cl.getParent().replaceChild(cl, splitNode);
-            	else m_Tree = splitNode;
-            	for (int child = 0; child < splitNode.noOfChildren(); child++)
-            		if (splitNode.getChildNode(child).size()>0) ts.add(splitNode.getChildNode(child));
-            	while (percentage < 100 && 100*Math.log(ts.size())/Math.log(noOfLeaves) >= percentage+1)
-            	{
-            		percentage++;
-            		prog.step();
-            	}
+                if (batch.size()==1) batch.get(0).invoke();
+                else
+                {
+                    final ArrayList<NodeSplit> splits = batch;
+                    pool(noOfThreads).invoke(new RecursiveAction()
+                    {
+                        protected void compute()
+                        {
+                            invokeAll(splits);
+                        }
+                    });
+                }
+                for (NodeSplit split : batch)
+                {
+                    IndexingTreeLeaf cl = split.m_Leaf;
+                    IndexingTreeFork splitNode = split.getSplitNode();
+                    m_nDistOperCounter += split.m_nDistOperCounter;
+                    if (cl.getParent()!=null) cl.getParent().replaceChild(cl, splitNode);
+                    else m_Tree = splitNode;
+                    for (int child = 0; child < splitNode.noOfChildren(); child++)
+                        if (splitNode.getChildNode(child).size()>0)
+                        {
+                            ts.add(splitNode.getChildNode(child));
+                            seeds.put(splitNode.getChildNode(child), split.m_arrChildSeeds[child]);
+                        }
+                }
             }
         }
-        while (percentage < 100)
-        {
-            percentage++;
-            prog.step();
-        }
+        splitProg.m_Progress.finish();
         m_nHeight = m_Tree.getHeight();
         m_nDistOperCounter /= (double)objectsArray.length;
         return m_Tree;
     }
 
+    /**
+     * Progress of indexing passed to a concurrent progress
+     * by the threads splitting leaves. The percentage of indexing
+     * is the logarithm of the number of non-empty leaves
+     * relative to the logarithm of the number of leaves to be generated.
+     */
+    private static class SplitProgress
+    {
+        /** Concurrent progress with 100 steps. */
+        final ConcurrentProgress m_Progress;
+        /** Number of leaves to be generated. */
+        final int m_nNoOfLeaves;
+        /** Number of non-empty leaves. */
+        final AtomicInteger m_nLeaves = new AtomicInteger(1);
+        /** Percentage of indexing passed to the progress. */
+        final AtomicInteger m_nPercentage = new AtomicInteger(0);
+
+        /**
+         * Constructor.
+         *
+         * @param prog       Progress object of indexing.
+         * @param noOfLeaves Number of leaves to be generated.
+         */
+        SplitProgress(Progress prog, int noOfLeaves)
+        {
+            m_Progress = new ConcurrentProgress(prog);
+            m_Progress.set("Indexing training objects", 100);
+            m_nNoOfLeaves = noOfLeaves;
+        }
+
+        /**
+         * Adds the leaves created by a split and steps the progress
+         * up to the current percentage of indexing.
+         *
+         * @param newLeaves Change of the number of non-empty leaves made by a split.
+         * @throws InterruptedException when the user interrupts the execution.
+         */
+        void leavesAdded(int newLeaves) throws InterruptedException
+        {
+            int leaves = m_nLeaves.addAndGet(newLeaves);
+            if (m_nNoOfLeaves <= 1)
+                return;
+            int target = (int)Math.min(100, 100*Math.log(leaves)/Math.log(m_nNoOfLeaves));
+            for (int percentage = m_nPercentage.get(); percentage < target; percentage = m_nPercentage.get())
+                if (m_nPercentage.compareAndSet(percentage, percentage+1))
+                    m_Progress.step();
+        }
+    }
+
+    /**
+     * Splitting of a leaf that can be done
+     * in parallel with splitting other leaves.
+     */
+    private class NodeSplit extends RecursiveAction
+    {
+        /** Serialization version. */
+        private static final long serialVersionUID = 1L;
+
+        /** Leaf to be split. */
+        final IndexingTreeLeaf m_Leaf;
+        /** Node replacing the split leaf. */
+        private IndexingTreeFork m_SplitNode;
+        /** Number of distance comparisions made by splitting. */
+        int m_nDistOperCounter;
+        /** Interruption of splitting. */
+        private InterruptedException m_Interruption;
+        /** Progress of indexing. */
+        private final SplitProgress m_Progress;
+        /** Random number generator used to split the leaf. */
+        private final Random m_Random;
+        /** Seeds of the generators used to split the children of the split node. */
+        long[] m_arrChildSeeds;
+
+        /**
+         * Constructor.
+         *
+         * @param leaf Leaf to be split.
+         * @param seed Seed of the random number generator used to split the leaf.
+         * @param prog Progress of indexing.
+         */
+        NodeSplit(IndexingTreeLeaf leaf, long seed, SplitProgress prog)
+        {
+            m_Leaf = leaf;
+            m_Random = new Random(seed);
+            m_Progress = prog;
+        }
+
+        /**
+         * Splits the leaf and reports the progress of indexing.
+         */
+        protected void compute()
+        {
+            try
+            {
+                m_SplitNode = m_Clusterer.cluster(m_Leaf, m_Random);
+                m_nDistOperCounter = m_Clusterer.getNoOfDistOper();
+                m_arrChildSeeds = new long[m_SplitNode.noOfChildren()];
+                for (int child = 0; child < m_arrChildSeeds.length; child++)
+                    m_arrChildSeeds[child] = m_Random.nextLong();
+                int newLeaves = -1;
+                for (int child = 0; child < m_SplitNode.noOfChildren(); child++)
+                    if (m_SplitNode.getChildNode(child).size()>0) newLeaves++;
+                m_Progress.leavesAdded(newLeaves);
+            }
+            catch (InterruptedException e)
+            {
+                m_Interruption = e;
+            }
+        }
+
+        /**
+         * Returns the node replacing the split leaf.
+         *
+         * @return Node replacing the split leaf.
+         * @throws InterruptedException when the user interrupted splitting.
+         */
+        IndexingTreeFork getSplitNode() throws InterruptedException
+        {
+            if (m_Interruption!=null) throw m_Interruption;
+            return m_SplitNode;
+        }
+    }
+
     /**
      * Returns the average number of iterations.
      *
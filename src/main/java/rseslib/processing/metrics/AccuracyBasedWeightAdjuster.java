@@ -21,7 +21,6 @@
 package rseslib.processing.metrics;
 
 import java.util.Properties;
-import java.util.Random;
 
 import rseslib.processing.indexing.metric.TreeIndexer;
 import rseslib.processing.searching.metric.NearestNeighboursProviderFromTree;
@@ -36,6 +35,7 @@ import rseslib.system.Configuration;
 import rseslib.system.PropertyConfigurationException;
 import rseslib.system.progress.EmptyProgress;
 import rseslib.system.progress.Progress;
+import rseslib.util.random.RandomSelection;
 
 /**
  * The method adjusting attribute weights in a metric.
@@ -53,8 +53,6 @@ public class AccuracyBasedWeightAdjuster extends Configuration implements Weight
     private static final String TRAINING_SAMPLE_SIZE_FOR_WEIGHTING_PARAMETER_NAME = "trainingSampleSizeForWeighting";
     /** Parameter name for the maximal size of randomly selected test sample used in a single iteration. */
     private static final String TEST_SAMPLE_SIZE_FOR_WEIGHTING_PARAMETER_NAME = "testSampleSizeForWeighting";
-    /** Generator of random numbers. */
-    private static final Random RANDOM_GENERATOR = new Random();
     /** Empty progress. */
     private static final Progress EMPTY_PROGRESS = new EmptyProgress();
 
@@ -114,7 +112,7 @@ public class AccuracyBasedWeightAdjuster extends Configuration implements Weight
                     boolean[] inSample = new boolean[tabObjects.length];
                     while (selected < m_nTrainingSampleSizeForWeighting)
                     {
-                        int ind = RANDOM_GENERATOR.nextInt(tabObjects.length);
+                        int ind = RandomSelection.generator().nextInt(tabObjects.length);
                         if (!inSample[ind])
                         {
                             sampleTab[decAttr.localValueCode(tabObjects[ind].getDecision())].add(tabObjects[ind]);
@@ -140,7 +138,7 @@ public class AccuracyBasedWeightAdjuster extends Configuration implements Weight
                 for (int tst = 0; tst < noOfTests; tst++)
                 {
                     int ind = tst;
-                    if (noOfTests < tabObjects.length) ind = RANDOM_GENERATOR.nextInt(tabObjects.length);
+                    if (noOfTests < tabObjects.length) ind = RandomSelection.generator().nextInt(tabObjects.length);
                     DoubleDataWithDecision dObj = tabObjects[ind];
                     Neighbour nearestGood = null, nearestBad = null;
                     for (int dec = 0; dec < indexedObjects.length; dec++)
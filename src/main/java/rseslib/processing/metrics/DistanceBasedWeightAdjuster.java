@@ -22,7 +22,6 @@ package rseslib.processing.metrics;
 
 import java.util.Collection;
 import java.util.Properties;
-import java.util.Random;
 
 import rseslib.processing.filtering.Sampler;
 import rseslib.processing.indexing.metric.TreeIndexer;
@@ -38,6 +37,7 @@ import rseslib.system.Configuration;
 import rseslib.system.PropertyConfigurationException;
 import rseslib.system.progress.EmptyProgress;
 import rseslib.system.progress.Progress;
+import rseslib.util.random.RandomSelection;
 
 /**
  * The method adjusting attribute weights in a metric.
@@ -58,8 +58,6 @@ public class DistanceBasedWeightAdjuster extends Configuration implements Weight
     private static final String TRAINING_SAMPLE_SIZE_FOR_WEIGHTING_PARAMETER_NAME = "trainingSampleSizeForWeighting";
     /** Parameter name for the maximal size of randomly selected test sample used in a single iteration. */
     private static final String TEST_SAMPLE_SIZE_FOR_WEIGHTING_PARAMETER_NAME = "testSampleSizeForWeighting";
-    /** Generator of random numbers. */
-    private static final Random RANDOM_GENERATOR = new Random();
     /** Empty progress. */
     private static final Progress EMPTY_PROGRESS = new EmptyProgress();
 
@@ -123,7 +121,7 @@ public class DistanceBasedWeightAdjuster extends Configuration implements Weight
                 for (int tst = 0; tst < noOfTests; tst++) {
                     int ind = tst;
                     if (noOfTests < tabObjects.length)
-                        ind = RANDOM_GENERATOR.nextInt(tabObjects.length);
+                        ind = RandomSelection.generator().nextInt(tabObjects.length);
                     DoubleDataWithDecision dObj = tabObjects[ind];
                     Neighbour[] neighbours = m_NeighboursProvider.getKNearest(
                         metr, dObj, indexedObjects, 2);
@@ -34,6 +34,7 @@ import rseslib.structure.table.DoubleDataTable;
 import rseslib.system.Configuration;
 import rseslib.system.PropertyConfigurationException;
 import rseslib.system.progress.Progress;
+import rseslib.util.random.RandomSelection;
 
 /**
  * The method adjusting attribute weights in a metric.
@@ -70,7 +71,7 @@ public class PerceptronBasedWeightAdjuster extends Configuration implements Weig
      */
     public void adjustWeights(AbstractWeightedMetric metr, DoubleDataTable tab, Progress prog) throws InterruptedException
     {
-        Random rnd = new Random();
+        Random rnd = RandomSelection.generator();
         ArrayList<DoubleData> tableOfObjects = new ArrayList<DoubleData>();
         for (DoubleData obj : tab.getDataObjects())
         	tableOfObjects.add(obj);
@@ -0,0 +1,352 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+
+
+package rseslib.processing.searching.metric;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+import rseslib.structure.data.DoubleData;
+import rseslib.structure.metric.Metric;
+import rseslib.structure.metric.Neighbour;
+import rseslib.structure.metric.NeighbourList;
+import rseslib.system.monitoring.Counter;
+import rseslib.system.monitoring.Monitoring;
+
+/**
+ * Provider of vicinity of data objects
+ * indexed with a binary tree built for any metric.
+ * Data objects are kept in one array ordered so that
+ * the data objects of each leaf occupy a range in this array.
+ * A search goes down the tree nearest subtree first
+ * and skips subtrees with a lower bound of the distance
+ * greater than the distance of the k-th nearest neighbour found so far.
+ * The state of a search is kept in a per-thread search context,
+ * so one provider can serve many threads at the same time.
+ */
+abstract class AbstractBinaryTreeVicinityProvider implements VicinityProvider
+{
+    /** Maximal number of data objects in a leaf. */
+    static final int LEAF_SIZE = 8;
+    /** Relative tolerance for rounding errors in lower bounds, keeps equally distant neighbours from being pruned. */
+    private static final double BOUND_TOLERANCE = 1e-10;
+
+    /** Metric. */
+    final Metric m_Metric;
+    /** Indexed data objects, the data objects of each leaf in a range. */
+    final DoubleData[] m_Objects;
+    /** Root of the tree. */
+    Node m_Root;
+    /** Monitoring counter of searches. */
+    private final Counter m_Searches;
+    /** Monitoring counter of distance calculations. */
+    private final Counter m_DistCalculations;
+    /** Counter for the number of searches. */
+    private final LongAdder m_nCallsCounter = new LongAdder();
+    /** Counter for the number of distance calculations. */
+    private final LongAdder m_nDistCalculationsCounter = new LongAdder();
+    /** Counter for the square number of distance calculations. */
+    private final LongAdder m_nSquareDistCalculationsCounter = new LongAdder();
+    /** Search contexts of particular threads shared by all providers. */
+    private static final ThreadLocal<SearchContext> s_Contexts = new ThreadLocal<SearchContext>()
+    {
+        protected SearchContext initialValue()
+        {
+            return new SearchContext();
+        }
+    };
+
+    /**
+     * Node of a tree covering a range of data objects.
+     */
+    static class Node
+    {
+        /** Index of the first data object of this node. */
+        int m_nFrom;
+        /** Index after the last data object of this node. */
+        int m_nTo;
+        /** The first subnode, null if this node is a leaf. */
+        Node m_Left;
+        /** The second subnode, null if this node is a leaf. */
+        Node m_Right;
+
+        /**
+         * Constructor.
+         *
+         * @param from Index of the first data object of this node.
+         * @param to   Index after the last data object of this node.
+         */
+        Node(int from, int to)
+        {
+            m_nFrom = from;
+            m_nTo = to;
+        }
+
+        /**
+         * Returns true if this node is a leaf.
+         *
+         * @return True if this node is a leaf.
+         */
+        boolean isLeaf()
+        {
+            return m_Left == null;
+        }
+    }
+
+    /**
+     * State of a search reused by subsequent searches of one thread.
+     */
+    static class SearchContext
+    {
+        /** Collected nearest neighbours. */
+        final NeighbourHeap m_Nearest = new NeighbourHeap();
+        /** Stack of nodes to be visited. */
+        Node[] m_NodeStack = new Node[64];
+        /** Lower bounds of the distance between the reference object and the data objects of the nodes on the stack. */
+        double[] m_BoundStack = new double[64];
+        /** Number of nodes on the stack. */
+        int m_nStackSize = 0;
+
+        /**
+         * Puts a node on the stack.
+         *
+         * @param node  Node to be visited.
+         * @param bound Lower bound of the distance between the reference object and the data objects of the node.
+         */
+        void push(Node node, double bound)
+        {
+            if (m_nStackSize == m_NodeStack.length)
+            {
+                Node[] nodeStack = new Node[2*m_NodeStack.length];
+                System.arraycopy(m_NodeStack, 0, nodeStack, 0, m_nStackSize);
+                m_NodeStack = nodeStack;
+                double[] boundStack = new double[nodeStack.length];
+                System.arraycopy(m_BoundStack, 0, boundStack, 0, m_nStackSize);
+                m_BoundStack = boundStack;
+            }
+            m_NodeStack[m_nStackSize] = node;
+            m_BoundStack[m_nStackSize] = bound;
+            m_nStackSize++;
+        }
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param metric  Metric used as a measure of distance between data objects.
+     * @param objects Data objects to be indexed.
+     */
+    AbstractBinaryTreeVicinityProvider(Metric metric, ArrayList<DoubleData> objects)
+    {
+        m_Metric = metric;
+        m_Objects = objects.toArray(new DoubleData[0]);
+        String provider = getClass().getSimpleName();
+        m_Searches = Monitoring.counter(Monitoring.NEIGHBOUR_SEARCHES, "provider", provider);
+        m_DistCalculations = Monitoring.counter(Monitoring.DISTANCE_CALCULATIONS, "provider", provider);
+    }
+
+    /**
+     * Collects the nearest neighbours of a data object
+     * in the heap of a search context.
+     *
+     * @param dObj Data object that is the reference for neighbours.
+     * @param ctx  Search context with the cleared heap and the empty stack.
+     * @return     Number of distance calculations.
+     */
+    abstract int search(DoubleData dObj, SearchContext ctx);
+
+    /**
+     * Returns the lower bound of the distance between a reference object
+     * and a data object from the triangle inequality.
+     * The bound is lowered by the tolerance for rounding errors.
+     *
+     * @param further Distance assumed to be larger.
+     * @param nearer  Distance assumed to be smaller.
+     * @return        Lower bound of the distance.
+     */
+    static double lowerBound(double further, double nearer)
+    {
+        return further - nearer - BOUND_TOLERANCE*(further + nearer);
+    }
+
+    /**
+     * Offers all data objects of a leaf to the heap of nearest neighbours.
+     *
+     * @param leaf    Leaf to be scanned.
+     * @param dObj    Data object that is the reference for neighbours.
+     * @param nearest Heap of nearest neighbours.
+     * @return        Number of distance calculations.
+     */
+    int scan(Node leaf, DoubleData dObj, NeighbourHeap nearest)
+    {
+        for (int obj = leaf.m_nFrom; obj < leaf.m_nTo; obj++)
+            nearest.offer(m_Objects[obj], m_Metric.dist(dObj, m_Objects[obj]));
+        return leaf.m_nTo - leaf.m_nFrom;
+    }
+
+    /**
+     * Collects the nearest neighbours in the search context of the calling thread
+     * and updates the statistics.
+     *
+     * @param dObj          Data object that is the reference for neighbours.
+     * @param noOfNearest   Number of nearest neighbours to be collected.
+     * @return              Search context with the nearest neighbours.
+     */
+    private SearchContext collect(DoubleData dObj, int noOfNearest)
+    {
+        SearchContext ctx = s_Contexts.get();
+        ctx.m_Nearest.clear(noOfNearest);
+        ctx.m_nStackSize = 0;
+        int distCalculationsCounter = 0;
+        if (m_Objects.length > 0)
+            distCalculationsCounter = search(dObj, ctx);
+        for (int n = 0; n < ctx.m_nStackSize; n++)
+            ctx.m_NodeStack[n] = null;
+        ctx.m_nStackSize = 0;
+        m_nCallsCounter.increment();
+        m_nDistCalculationsCounter.add(distCalculationsCounter);
+        m_nSquareDistCalculationsCounter.add((long)distCalculationsCounter*distCalculationsCounter);
+        m_Searches.increment();
+        m_DistCalculations.add(distCalculationsCounter);
+        return ctx;
+    }
+
+    /**
+     * Releases the search context of the calling thread.
+     */
+    public void releaseQueries()
+    {
+        s_Contexts.remove();
+    }
+
+    /**
+     * Provides nearest neighbours of a given data object
+     * and sorts them according to the growing distance.
+     * In case when distance between data object is not unique
+     * the returned number of neighbours may be larger
+     * than the value of the parameter noOfNeighbours.
+     *
+     * @param dObj          Data object to be used for searching vicinity.
+     * @param noOfNearest   Number of nearest neighbours to be returned.
+     * @return              Vicinity of a given data object.
+     */
+    public Neighbour[] getVicinity(DoubleData dObj, int noOfNearest)
+    {
+        return collect(dObj, noOfNearest).m_Nearest.moveToArray(1);
+    }
+
+    /**
+     * Provides nearest neighbours of a given data object
+     * in a list of neighbours sorted according to the growing distance.
+     * No memory is allocated if the search context
+     * of the calling thread and the list are large enough.
+     *
+     * @param dObj          Data object to be used for searching vicinity.
+     * @param noOfNearest   Number of nearest neighbours to be returned.
+     * @param result        List to be filled with the vicinity of the data object.
+     */
+    public void getVicinity(DoubleData dObj, int noOfNearest, NeighbourList result)
+    {
+        collect(dObj, noOfNearest).m_Nearest.moveTo(result);
+    }
+
+    /**
+     * Returns the average number of distance calculations.
+     *
+     * @return Average number of distance calculations.
+     */
+    public double getAverageNoOfDistCalculations()
+    {
+        long calls = m_nCallsCounter.sum();
+        if (calls==0) return 0;
+        return m_nDistCalculationsCounter.sum()/((double)calls);
+    }
+
+    /**
+     * Returns the standard deviation of the number of distance calculations.
+     *
+     * @return Standard deviation of the number of distance calculations.
+     */
+    public double getStdDevNoOfDistCalculations()
+    {
+        long calls = m_nCallsCounter.sum();
+        if (calls==0) return 0;
+        double avg = m_nDistCalculationsCounter.sum()/((double)calls);
+        return Math.sqrt(m_nSquareDistCalculationsCounter.sum()/((double)calls)-avg*avg);
+    }
+
+    /**
+     * Returns the height of the tree.
+     *
+     * @return Height of the tree, 0 if the root is a leaf.
+     */
+    public int getHeight()
+    {
+        return height(m_Root);
+    }
+
+    /**
+     * Returns the height of a subtree.
+     *
+     * @param node Root of a subtree.
+     * @return     Height of the subtree.
+     */
+    private static int height(Node node)
+    {
+        int height = 0;
+        ArrayList<Node> nodes = new ArrayList<Node>();
+        ArrayList<Integer> depths = new ArrayList<Integer>();
+        nodes.add(node);
+        depths.add(0);
+        while (nodes.size() > 0)
+        {
+            Node n = nodes.remove(nodes.size()-1);
+            int depth = depths.remove(depths.size()-1);
+            if (depth > height) height = depth;
+            if (!n.isLeaf())
+            {
+                nodes.add(n.m_Left);
+                depths.add(depth+1);
+                nodes.add(n.m_Right);
+                depths.add(depth+1);
+            }
+        }
+        return height;
+    }
+
+    /**
+     * Swaps two data objects and their distances.
+     *
+     * @param dist Distances of the data objects.
+     * @param i    Index of the first data object.
+     * @param j    Index of the second data object.
+     */
+    void swap(double[] dist, int i, int j)
+    {
+        DoubleData obj = m_Objects[i];
+        m_Objects[i] = m_Objects[j];
+        m_Objects[j] = obj;
+        double d = dist[i];
+        dist[i] = dist[j];
+        dist[j] = d;
+    }
+}
@@ -27,6 +27,8 @@ import rseslib.structure.data.DoubleData;
 import rseslib.structure.metric.Metric;
 import rseslib.structure.metric.Neighbour;
 import rseslib.structure.metric.NeighbourComparator;
+import rseslib.system.monitoring.Counter;
+import rseslib.system.monitoring.Monitoring;
 
 /**
  * Provides vicinity of data objects extracted from a given data collection.
@@ -37,6 +39,11 @@ import rseslib.structure.metric.NeighbourComparator;
  */
 public class ArrayVicinityProvider implements VicinityProvider
 {
+    /** Monitoring counter of searches. */
+    private static final Counter s_Searches = Monitoring.counter(Monitoring.NEIGHBOUR_SEARCHES, "provider", "ArrayVicinityProvider");
+    /** Monitoring counter of distance calculations. */
+    private static final Counter s_DistCalculations = Monitoring.counter(Monitoring.DISTANCE_CALCULATIONS, "provider", "ArrayVicinityProvider");
+
 	/** Metric. */
     Metric m_Metric;
     /** Objects to be searched. */
@@ -68,7 +75,9 @@ public class ArrayVicinityProvider implements VicinityProvider
     public Neighbour[] getVicinity(DoubleData dObj, int noOfNearest)
     {
         TreeSet<Neighbour> nearests = new TreeSet<Neighbour>(new NeighbourComparator());
-        m_NeighboursProvider.getKNearest(m_Metric, dObj, m_Objects, noOfNearest, nearests);
+        m_NeighboursProvider.getKNearest(m_Metric, dObj, m_Objects, noOfNearest, nearests, 0);
+        s_Searches.increment();
+        s_DistCalculations.add(m_Objects.length);
         Neighbour[] result = nearests.toArray(new Neighbour[0]);
         Neighbour[] result_shifted = new Neighbour[result.length+1];
         for (int n = 0; n < result.length; n++)
@@ -83,18 +92,17 @@ public class ArrayVicinityProvider implements VicinityProvider
      */
     public double getAverageNoOfDistCalculations()
     {
-    	// TODO: implement
-        return 0;
+        return m_Objects.length;
     }
 
     /**
      * Returns the standard deviation of the number of distance calculations.
+     * Each search calculates the distances to all objects.
      *
      * @return Standard deviation of the number of distance calculations.
      */
     public double getStdDevNoOfDistCalculations()
     {
-    	// TODO: implement
         return 0;
     }
 }
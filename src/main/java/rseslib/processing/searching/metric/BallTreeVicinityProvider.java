@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+
+
+package rseslib.processing.searching.metric;
+
+import java.util.ArrayList;
+
+import rseslib.processing.indexing.metric.KApproxCentersIndexingTreeLeafClusterer;
+import rseslib.structure.data.DoubleData;
+import rseslib.structure.metric.Metric;
+
+/**
+ * Provides vicinity of data objects extracted from a given data collection.
+ * Data collection is indexed with a ball tree.
+ * Each node is a ball with a data object as the center
+ * and the radius equal to the maximal distance of its data objects to the center.
+ * A node is split with two pivots: the data object farthest from the center
+ * and the data object farthest from the first pivot.
+ * Each data object goes to the subnode of the nearer pivot
+ * and the pivots become the centers of the subnodes.
+ * Centers are data objects, so the tree works with any metric.
+ */
+public class BallTreeVicinityProvider extends AbstractBinaryTreeVicinityProvider
+{
+    /**
+     * Node of a ball tree.
+     */
+    private static class BallNode extends Node
+    {
+        /** Center of this node. */
+        final DoubleData m_Center;
+        /** Maximal distance of the data objects of this node to the center. */
+        double m_nRadius;
+
+        /**
+         * Constructor.
+         *
+         * @param from   Index of the first data object of this node.
+         * @param to     Index after the last data object of this node.
+         * @param center Center of this node.
+         */
+        BallNode(int from, int to, DoubleData center)
+        {
+            super(from, to);
+            m_Center = center;
+        }
+    }
+
+    /**
+     * Constructor builds a ball tree.
+     *
+     * @param metric  Metric used as a measure of distance between data objects.
+     * @param objects Data objects to be indexed.
+     */
+    public BallTreeVicinityProvider(Metric metric, ArrayList<DoubleData> objects)
+    {
+        super(metric, objects);
+        m_Root = build();
+    }
+
+    /**
+     * Builds the tree.
+     *
+     * @return Root of the tree.
+     */
+    private Node build()
+    {
+        if (m_Objects.length == 0)
+            return new BallNode(0, 0, null);
+        double[] dist = new double[m_Objects.length];
+        double[] dist1 = new double[m_Objects.length];
+        double[] dist2 = new double[m_Objects.length];
+        BallNode root = new BallNode(0, m_Objects.length, KApproxCentersIndexingTreeLeafClusterer.selectCenter(m_Objects, m_Metric));
+        for (int obj = 0; obj < m_Objects.length; obj++)
+        {
+            dist[obj] = m_Metric.dist(root.m_Center, m_Objects[obj]);
+            if (dist[obj] > root.m_nRadius) root.m_nRadius = dist[obj];
+        }
+        ArrayList<BallNode> nodes = new ArrayList<BallNode>();
+        nodes.add(root);
+        while (nodes.size() > 0)
+        {
+            BallNode node = nodes.remove(nodes.size()-1);
+            int from = node.m_nFrom, to = node.m_nTo;
+            if (to - from <= LEAF_SIZE || node.m_nRadius == 0) continue;
+            int pivot1 = farthest(dist, from, to);
+            DoubleData center1 = m_Objects[pivot1];
+            for (int obj = from; obj < to; obj++)
+                dist1[obj] = m_Metric.dist(center1, m_Objects[obj]);
+            DoubleData center2 = m_Objects[farthest(dist1, from, to)];
+            for (int obj = from; obj < to; obj++)
+                dist2[obj] = m_Metric.dist(center2, m_Objects[obj]);
+            int mid = from;
+            for (int obj = from; obj < to; obj++)
+                if (dist1[obj] <= dist2[obj])
+                {
+                    double d = dist2[obj];
+                    dist2[obj] = dist2[mid];
+                    dist2[mid] = d;
+                    swap(dist1, obj, mid++);
+                }
+            BallNode left = new BallNode(from, mid, center1);
+            BallNode right = new BallNode(mid, to, center2);
+            for (int obj = from; obj < mid; obj++)
+            {
+                dist[obj] = dist1[obj];
+                if (dist[obj] > left.m_nRadius) left.m_nRadius = dist[obj];
+            }
+            for (int obj = mid; obj < to; obj++)
+            {
+                dist[obj] = dist2[obj];
+                if (dist[obj] > right.m_nRadius) right.m_nRadius = dist[obj];
+            }
+            node.m_Left = left;
+            node.m_Right = right;
+            nodes.add(left);
+            nodes.add(right);
+        }
+        return root;
+    }
+
+    /**
+     * Returns the index of the data object with the largest distance in a range.
+     *
+     * @param dist Distances of the data objects.
+     * @param from Index of the first data object in the range.
+     * @param to   Index after the last data object in the range.
+     * @return     Index of the farthest data object.
+     */
+    private static int farthest(double[] dist, int from, int to)
+    {
+        int farthest = from;
+        for (int obj = from+1; obj < to; obj++)
+            if (dist[obj] > dist[farthest]) farthest = obj;
+        return farthest;
+    }
+
+    /**
+     * Collects the nearest neighbours of a data object
+     * in the heap of a search context.
+     *
+     * @param dObj Data object that is the reference for neighbours.
+     * @param ctx  Search context with the cleared heap and the empty stack.
+     * @return     Number of distance calculations.
+     */
+    int search(DoubleData dObj, SearchContext ctx)
+    {
+        NeighbourHeap nearest = ctx.m_Nearest;
+        BallNode root = (BallNode)m_Root;
+        double rootDist = m_Metric.dist(dObj, root.m_Center);
+        int distCalculationsCounter = 1;
+        ctx.push(root, Math.max(0, lowerBound(rootDist, root.m_nRadius)));
+        while (ctx.m_nStackSize > 0)
+        {
+            ctx.m_nStackSize--;
+            Node node = ctx.m_NodeStack[ctx.m_nStackSize];
+            double bound = ctx.m_BoundStack[ctx.m_nStackSize];
+            if (nearest.isFull() && bound > nearest.maxDist()) continue;
+            if (node.isLeaf())
+                distCalculationsCounter += scan(node, dObj, nearest);
+            else
+            {
+                BallNode left = (BallNode)node.m_Left;
+                BallNode right = (BallNode)node.m_Right;
+                double leftDist = m_Metric.dist(dObj, left.m_Center);
+                double rightDist = m_Metric.dist(dObj, right.m_Center);
+                distCalculationsCounter += 2;
+                double leftBound = Math.max(bound, lowerBound(leftDist, left.m_nRadius));
+                double rightBound = Math.max(bound, lowerBound(rightDist, right.m_nRadius));
+                if (leftBound < rightBound || (leftBound == rightBound && leftDist <= rightDist))
+                {
+                    push(ctx, right, rightBound);
+                    push(ctx, left, leftBound);
+                }
+                else
+                {
+                    push(ctx, left, leftBound);
+                    push(ctx, right, rightBound);
+                }
+            }
+        }
+        return distCalculationsCounter;
+    }
+
+    /**
+     * Puts a subnode on the stack of a search context
+     * unless it is pruned by the nearest neighbours found so far.
+     *
+     * @param ctx   Search context.
+     * @param node  Subnode.
+     * @param bound Lower bound of the distance between the reference object and the data objects of the subnode.
+     */
+    private static void push(SearchContext ctx, Node node, double bound)
+    {
+        if (!ctx.m_Nearest.isFull() || bound <= ctx.m_Nearest.maxDist())
+            ctx.push(node, bound);
+    }
+}
@@ -20,12 +20,14 @@
 
 package rseslib.processing.searching.metric;
 
+import java.lang.ref.WeakReference;
 import java.util.Properties;
 
 import rseslib.structure.data.DoubleData;
 import rseslib.structure.index.metric.IndexingTreeNode;
 import rseslib.structure.metric.Metric;
 import rseslib.structure.metric.Neighbour;
+import rseslib.structure.metric.NeighbourList;
 import rseslib.system.Configuration;
 import rseslib.system.PropertyConfigurationException;
 
@@ -38,6 +40,15 @@ import rseslib.system.PropertyConfigurationException;
  * it remembers the last result and uses it
  * if the requested number of neighbours is smaller or equal
  * than in the previous query.
+ * The last result is remembered separately for each thread
+ * and the search state is kept in per-thread search contexts,
+ * so one provider can serve many threads at the same time.
+ * Each thread keeps one last query and one search context
+ * shared by all providers, the last query remembers
+ * the provider it was asked to with a weak reference,
+ * so pooled threads do not keep a query for each provider they have used.
+ * The last query and the search context are released by releaseQueries
+ * at the end of a batch of queries.
  *
  * @author      Arkadiusz Wojna
  */
@@ -50,12 +61,33 @@ public class IndexingTreeVicinityProvider extends Configuration implements Vicin
     TreeSetBasedNearestNeighboursProviderFromTree m_NeighboursProvider;
     /** Minimum number of neighbours extracted. */
     int m_nMinNumberOfNeighbours = 0;
-    /** The data object for that a vicinity was searched last time. */
-    DoubleData m_LastData;
-    /** The number of nearest for that a vicinity was searched last time. */
-    int m_LastNoOfNearest = 0;
-    /** Vicinity of the data object for that a vicinity was searched last time. */
-    Neighbour[] m_LastVicinity;
+    /** Weak reference to this provider identifying the last queries asked to this provider. */
+    private final WeakReference<IndexingTreeVicinityProvider> m_Self = new WeakReference<IndexingTreeVicinityProvider>(this);
+    /** The last queries of particular threads. */
+    private static final ThreadLocal<LastQuery> s_LastQueries = new ThreadLocal<LastQuery>()
+    {
+        protected LastQuery initialValue()
+        {
+            return new LastQuery();
+        }
+    };
+
+    /**
+     * The last query of a thread.
+     */
+    private static class LastQuery
+    {
+        /** Provider that was asked the last query, null if no query has been asked. */
+        WeakReference<IndexingTreeVicinityProvider> m_Provider = null;
+        /** The data object for that a vicinity was searched last time. */
+        DoubleData m_LastData;
+        /** The number of nearest for that a vicinity was searched last time. */
+        int m_LastNoOfNearest = 0;
+        /** Vicinity of the data object for that a vicinity was searched last time. */
+        Neighbour[] m_LastVicinity;
+        /** Search context used by the thread. */
+        TreeSetBasedNearestNeighboursProviderFromTree.SearchContext m_Context = new TreeSetBasedNearestNeighboursProviderFromTree.SearchContext();
+    }
 
     /**
      * Constructor.
@@ -72,6 +104,16 @@ public class IndexingTreeVicinityProvider extends Configuration implements Vicin
         m_NeighboursProvider = new TreeSetBasedNearestNeighboursProviderFromTree();
     }
 
+    /**
+     * Returns the indexing tree used for searching.
+     *
+     * @return Indexing tree used for searching.
+     */
+    public IndexingTreeNode getIndexingTree()
+    {
+    	return m_Tree;
+    }
+
     /**
      * Sets the minimum number of neighbors that are extracted.
      * If a user requests less neighbours 
@@ -99,27 +141,52 @@ public class IndexingTreeVicinityProvider extends Configuration implements Vicin
      */
     public Neighbour[] getVicinity(DoubleData dObj, int noOfNearest)
     {
-        if (dObj!=m_LastData || noOfNearest>m_LastNoOfNearest)
+        LastQuery last = s_LastQueries.get();
+        if (last.m_Provider!=m_Self || dObj!=last.m_LastData || noOfNearest>last.m_LastNoOfNearest)
         {
-            m_LastData = dObj;
-            if (noOfNearest >= m_nMinNumberOfNeighbours) m_LastNoOfNearest = noOfNearest;
-            else m_LastNoOfNearest = m_nMinNumberOfNeighbours;
-            Neighbour[] nearest = m_NeighboursProvider.getKNearest(m_Metric, dObj, m_Tree, m_LastNoOfNearest);
-            m_LastVicinity = new Neighbour[nearest.length+1];
-            for (int n = 0; n < nearest.length; n++) m_LastVicinity[n+1] = nearest[n];
+            last.m_Provider = m_Self;
+            last.m_LastData = dObj;
+            if (noOfNearest >= m_nMinNumberOfNeighbours) last.m_LastNoOfNearest = noOfNearest;
+            else last.m_LastNoOfNearest = m_nMinNumberOfNeighbours;
+            last.m_LastVicinity = m_NeighboursProvider.getKNearest(m_Metric, dObj, m_Tree, last.m_LastNoOfNearest, last.m_Context, 1);
         }
-        if (noOfNearest<m_LastNoOfNearest && noOfNearest<m_LastVicinity.length-1)
+        if (noOfNearest<last.m_LastNoOfNearest && noOfNearest<last.m_LastVicinity.length-1)
         {
         	int arrayLength = noOfNearest+1;
-        	while (arrayLength < m_LastVicinity.length
-        			&& m_LastVicinity[arrayLength].dist()==m_LastVicinity[noOfNearest].dist())
+        	while (arrayLength < last.m_LastVicinity.length
+        			&& last.m_LastVicinity[arrayLength].dist()==last.m_LastVicinity[noOfNearest].dist())
         		arrayLength++;
         	Neighbour[] nearest = new Neighbour[arrayLength];
             for (int n = 1; n < nearest.length; n++)
-            	nearest[n] = m_LastVicinity[n];
+            	nearest[n] = last.m_LastVicinity[n];
             return nearest;
         }
-        return m_LastVicinity;
+        return last.m_LastVicinity;
+    }
+
+    /**
+     * Provides nearest neighbours of a given data object
+     * in a list of neighbours sorted according to the growing distance.
+     * The search uses the search context of the calling thread
+     * and allocates no memory if the list is large enough.
+     * The last result remembered for the array version of this method
+     * is neither used nor changed.
+     *
+     * @param dObj          Data object to be used for searching vicinity.
+     * @param noOfNearest   Number of nearest neighbours to be returned.
+     * @param result        List to be filled with the vicinity of the data object.
+     */
+    public void getVicinity(DoubleData dObj, int noOfNearest, NeighbourList result)
+    {
+        m_NeighboursProvider.getKNearest(m_Metric, dObj, m_Tree, noOfNearest, s_LastQueries.get().m_Context, result);
+    }
+
+    /**
+     * Releases the last query and the search context of the calling thread.
+     */
+    public void releaseQueries()
+    {
+        s_LastQueries.remove();
     }
 
     /**
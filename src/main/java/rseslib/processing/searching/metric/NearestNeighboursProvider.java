@@ -22,7 +22,6 @@ package rseslib.processing.searching.metric;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Random;
 import java.util.TreeSet;
 import java.util.Iterator;
 
@@ -30,6 +29,7 @@ import rseslib.structure.data.DoubleData;
 import rseslib.structure.data.DoubleDataWithDecision;
 import rseslib.structure.metric.Metric;
 import rseslib.structure.metric.Neighbour;
+import rseslib.util.random.RandomSelection;
 
 /**
  * The method extracting nearest neighbours of a data object
@@ -39,8 +39,6 @@ import rseslib.structure.metric.Neighbour;
  */
 public class NearestNeighboursProvider
 {
-    /** Generator of random numbers. */
-    static final Random RANDOM_GENERATOR = new Random();
     /** Neighbours counter. */
     private int m_Counter = 0;
 
@@ -64,7 +62,7 @@ public class NearestNeighboursProvider
             int left = 0, right = objectArray.length - 1;
             while (left < right)
             {
-                int p = left + RANDOM_GENERATOR.nextInt(right-left+1);
+                int p = left + RandomSelection.generator().nextInt(right-left+1);
                 DoubleData tmpObj = objectArray[right];
                 objectArray[right] = objectArray[p];
                 objectArray[p] = tmpObj;
@@ -167,7 +165,29 @@ public class NearestNeighboursProvider
      */
     public void getKNearest(Metric metr, DoubleData dObj, DoubleData[] objectArray, int noOfNearest, TreeSet<Neighbour> nearest)
     {
-    	if (noOfNearest == 0) return;
+        m_Counter = getKNearest(metr, dObj, objectArray, noOfNearest, nearest, m_Counter);
+    }
+
+    /**
+     * Returns noOfNearest data objects nearest to dObj
+     * from both the array objectArray and the set nearest.
+     * It works like the method above but the identifiers
+     * of new neighbours are numbered from a given identifier
+     * instead of the counter of this provider,
+     * so it can be called by many threads at the same time.
+     *
+     * @param metr        Metric used to measure distance between data objects.
+     * @param dObj        Data object that is the reference for neighbours.
+     * @param objectArray Array of data objects to be searched.
+     * @param noOfNearest Number of nearest neighbours to be returned.
+     * @param nearest     Set of nearest neighbours to be updated.
+     * @param nextId      Identifier for the first new neighbour,
+     *                    the identifiers must be unique within the set nearest.
+     * @return            Identifier for the next new neighbour.
+     */
+    int getKNearest(Metric metr, DoubleData dObj, DoubleData[] objectArray, int noOfNearest, TreeSet<Neighbour> nearest, int nextId)
+    {
+    	if (noOfNearest == 0) return nextId;
     	for (int obj = 0; obj < objectArray.length; obj++)
         {
             double dist = metr.dist(dObj, objectArray[obj]);
@@ -175,7 +195,7 @@ public class NearestNeighboursProvider
             if (nearest.size() > 0) last = (Neighbour)nearest.last();
             if (nearest.size() < noOfNearest || dist <= last.dist())
             {
-                nearest.add(new Neighbour(((DoubleDataWithDecision)objectArray[obj]), dist, m_Counter++));
+                nearest.add(new Neighbour(((DoubleDataWithDecision)objectArray[obj]), dist, nextId++));
                 if (nearest.size() > noOfNearest)
                 {
                 	int lastCount = 0;
@@ -188,5 +208,6 @@ public class NearestNeighboursProvider
                 }
             }
         }
+    	return nextId;
     }
 }
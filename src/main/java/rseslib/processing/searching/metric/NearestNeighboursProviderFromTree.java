@@ -28,6 +28,8 @@ import rseslib.structure.index.metric.IndexingTreeLeaf;
 import rseslib.structure.index.metric.IndexingTreeNode;
 import rseslib.structure.metric.Metric;
 import rseslib.structure.metric.Neighbour;
+import rseslib.system.monitoring.Counter;
+import rseslib.system.monitoring.Monitoring;
 
 /**
  * The method extracting nearest neighbours of a data object
@@ -37,6 +39,10 @@ import rseslib.structure.metric.Neighbour;
  */
 public class NearestNeighboursProviderFromTree extends NearestNeighboursProvider
 {
+    /** Monitoring counter of searches. */
+    private static final Counter s_Searches = Monitoring.counter(Monitoring.NEIGHBOUR_SEARCHES, "provider", "NearestNeighboursProviderFromTree");
+    /** Monitoring counter of distance calculations. */
+    private static final Counter s_DistCalculations = Monitoring.counter(Monitoring.DISTANCE_CALCULATIONS, "provider", "NearestNeighboursProviderFromTree");
     /** Counter for the number of getKNearest calls. */
     private int m_nCallsCounter = 0;
     /** Counter for the number of distance calculations. */
@@ -171,6 +177,8 @@ public class NearestNeighboursProviderFromTree extends NearestNeighboursProvider
         m_nCallsCounter++;
         m_nDistCalculationsCounter += distCalculationsCounter;
         m_nSquareDistCalculationsCounter += distCalculationsCounter*distCalculationsCounter;
+        s_Searches.increment();
+        s_DistCalculations.add(distCalculationsCounter);
         Neighbour[] nearest = new Neighbour[m_OrderedNearest.size()];
         for (int obj = 0; obj < m_OrderedNearest.size(); obj++)
             nearest[obj] = (Neighbour)m_OrderedNearest.get(obj);
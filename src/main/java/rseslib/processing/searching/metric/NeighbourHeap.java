@@ -0,0 +1,295 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.processing.searching.metric;
+
+import rseslib.structure.data.DoubleData;
+import rseslib.structure.data.DoubleDataWithDecision;
+import rseslib.structure.metric.Neighbour;
+import rseslib.structure.metric.NeighbourList;
+
+/**
+ * Bounded priority queue of nearest neighbours kept in primitive arrays.
+ * It holds the k nearest candidates in a max-heap ordered by the distance
+ * and by the order of offering, so the furthest and the latest candidate is at the top.
+ * The candidates equally distant as the k-th nearest one are kept
+ * in a separate list of ties, so like in the TreeSet based search
+ * all candidates with the distance not greater than the k-th distance are returned
+ * and the equally distant candidates are ordered as they were offered.
+ * A heap is reused by subsequent searches and allocates memory
+ * only when it grows.
+ */
+class NeighbourHeap
+{
+    /** Number of nearest neighbours to be kept. */
+    private int m_nK;
+    /** Number of candidates in the heap. */
+    private int m_nSize = 0;
+    /** Distances of candidates in the heap. */
+    private double[] m_arrDist = new double[16];
+    /** Order numbers of candidates in the heap. */
+    private int[] m_arrOrder = new int[16];
+    /** Candidates in the heap. */
+    private DoubleData[] m_arrObjects = new DoubleData[16];
+    /** Number of candidates equally distant as the top of the heap and not kept in the heap. */
+    private int m_nNoOfTies = 0;
+    /** Order numbers of the ties. */
+    private int[] m_arrTieOrder = new int[16];
+    /** Candidates equally distant as the top of the heap and not kept in the heap. */
+    private DoubleData[] m_arrTies = new DoubleData[16];
+    /** Order number for the next offered candidate. */
+    private int m_nNextOrder = 0;
+
+    /**
+     * Removes all candidates and sets the number of nearest neighbours to be kept.
+     *
+     * @param k Number of nearest neighbours to be kept.
+     */
+    void clear(int k)
+    {
+        for (int i = 0; i < m_nSize; i++)
+            m_arrObjects[i] = null;
+        for (int i = 0; i < m_nNoOfTies; i++)
+            m_arrTies[i] = null;
+        m_nSize = 0;
+        m_nNoOfTies = 0;
+        m_nNextOrder = 0;
+        m_nK = k;
+        if (m_arrDist.length < k)
+        {
+            m_arrDist = new double[k];
+            m_arrOrder = new int[k];
+            m_arrObjects = new DoubleData[k];
+        }
+    }
+
+    /**
+     * Returns the number of candidates collected so far.
+     *
+     * @return Number of candidates.
+     */
+    int size()
+    {
+        return m_nSize + m_nNoOfTies;
+    }
+
+    /**
+     * Checks whether k candidates are already collected.
+     *
+     * @return True if k candidates are collected.
+     */
+    boolean isFull()
+    {
+        return m_nSize >= m_nK;
+    }
+
+    /**
+     * Returns the distance of the furthest collected candidate.
+     *
+     * @return Distance of the furthest candidate.
+     */
+    double maxDist()
+    {
+        return m_arrDist[0];
+    }
+
+    /**
+     * Offers a candidate with its distance to the reference object.
+     *
+     * @param obj  Candidate.
+     * @param dist Distance of the candidate to the reference object.
+     */
+    void offer(DoubleData obj, double dist)
+    {
+        if (m_nK == 0) return;
+        int order = m_nNextOrder++;
+        if (m_nSize < m_nK)
+        {
+            int pos = m_nSize++;
+            while (pos > 0)
+            {
+                int parent = (pos - 1) >> 1;
+                if (m_arrDist[parent] > dist) break;
+                m_arrDist[pos] = m_arrDist[parent];
+                m_arrOrder[pos] = m_arrOrder[parent];
+                m_arrObjects[pos] = m_arrObjects[parent];
+                pos = parent;
+            }
+            m_arrDist[pos] = dist;
+            m_arrOrder[pos] = order;
+            m_arrObjects[pos] = obj;
+        }
+        else if (dist == m_arrDist[0])
+            addTie(obj, order);
+        else if (dist < m_arrDist[0])
+        {
+            double evictedDist = m_arrDist[0];
+            int evictedOrder = m_arrOrder[0];
+            DoubleData evicted = m_arrObjects[0];
+            siftDown(dist, order, obj, m_nSize);
+            if (m_arrDist[0] == evictedDist)
+                addTie(evicted, evictedOrder);
+            else
+            {
+                for (int i = 0; i < m_nNoOfTies; i++)
+                    m_arrTies[i] = null;
+                m_nNoOfTies = 0;
+            }
+        }
+    }
+
+    /**
+     * Places a candidate at the top of the heap and moves it down.
+     *
+     * @param dist  Distance of the candidate.
+     * @param order Order number of the candidate.
+     * @param obj   Candidate.
+     * @param size  Number of candidates in the heap.
+     */
+    private void siftDown(double dist, int order, DoubleData obj, int size)
+    {
+        int pos = 0;
+        int child;
+        while ((child = 2*pos + 1) < size)
+        {
+            if (child + 1 < size && after(child + 1, child)) child++;
+            if (m_arrDist[child] < dist || (m_arrDist[child] == dist && m_arrOrder[child] < order)) break;
+            m_arrDist[pos] = m_arrDist[child];
+            m_arrOrder[pos] = m_arrOrder[child];
+            m_arrObjects[pos] = m_arrObjects[child];
+            pos = child;
+        }
+        m_arrDist[pos] = dist;
+        m_arrOrder[pos] = order;
+        m_arrObjects[pos] = obj;
+    }
+
+    /**
+     * Checks whether one candidate in the heap follows another in the order of neighbours.
+     *
+     * @param i Position of the first candidate.
+     * @param j Position of the second candidate.
+     * @return  True if the first candidate is further or equally distant and offered later.
+     */
+    private boolean after(int i, int j)
+    {
+        return m_arrDist[i] > m_arrDist[j] || (m_arrDist[i] == m_arrDist[j] && m_arrOrder[i] > m_arrOrder[j]);
+    }
+
+    /**
+     * Adds a candidate to the ties ordered by the order numbers.
+     *
+     * @param obj   Candidate.
+     * @param order Order number of the candidate.
+     */
+    private void addTie(DoubleData obj, int order)
+    {
+        if (m_nNoOfTies == m_arrTies.length)
+        {
+            int[] tieOrder = new int[2*m_arrTies.length];
+            System.arraycopy(m_arrTieOrder, 0, tieOrder, 0, m_nNoOfTies);
+            m_arrTieOrder = tieOrder;
+            DoubleData[] ties = new DoubleData[tieOrder.length];
+            System.arraycopy(m_arrTies, 0, ties, 0, m_nNoOfTies);
+            m_arrTies = ties;
+        }
+        int pos = m_nNoOfTies++;
+        for (; pos > 0 && m_arrTieOrder[pos-1] > order; pos--)
+        {
+            m_arrTieOrder[pos] = m_arrTieOrder[pos-1];
+            m_arrTies[pos] = m_arrTies[pos-1];
+        }
+        m_arrTieOrder[pos] = order;
+        m_arrTies[pos] = obj;
+    }
+
+    /**
+     * Sorts the candidates in the heap in the order of neighbours.
+     * The heap is empty after sorting, the sorted candidates
+     * are placed in the arrays of the heap up to the former size of the heap.
+     *
+     * @return Number of sorted candidates in the arrays of the heap.
+     */
+    private int sort()
+    {
+        int size = m_nSize;
+        for (int last = size - 1; last > 0; last--)
+        {
+            double dist = m_arrDist[last];
+            int order = m_arrOrder[last];
+            DoubleData obj = m_arrObjects[last];
+            m_arrDist[last] = m_arrDist[0];
+            m_arrOrder[last] = m_arrOrder[0];
+            m_arrObjects[last] = m_arrObjects[0];
+            siftDown(dist, order, obj, last);
+        }
+        m_nSize = 0;
+        return size;
+    }
+
+    /**
+     * Moves the candidates to a list of neighbours ordered by the distance.
+     * The heap is empty afterwards.
+     *
+     * @param result List to be filled with the nearest neighbours.
+     */
+    void moveTo(NeighbourList result)
+    {
+        result.clear();
+        int size = sort();
+        for (int i = 0; i < size; i++)
+        {
+            result.add((DoubleDataWithDecision)m_arrObjects[i], m_arrDist[i]);
+            m_arrObjects[i] = null;
+        }
+        double tieDist = (size > 0) ? m_arrDist[size - 1] : 0;
+        for (int i = 0; i < m_nNoOfTies; i++)
+        {
+            result.add((DoubleDataWithDecision)m_arrTies[i], tieDist);
+            m_arrTies[i] = null;
+        }
+        m_nNoOfTies = 0;
+    }
+
+    /**
+     * Moves the candidates to a new array of neighbours ordered by the distance.
+     * The heap is empty afterwards.
+     *
+     * @param offset Number of empty positions at the beginning of the array.
+     * @return       Array of nearest neighbours starting from the position offset.
+     */
+    Neighbour[] moveToArray(int offset)
+    {
+        int size = sort();
+        Neighbour[] result = new Neighbour[offset + size + m_nNoOfTies];
+        for (int i = 0; i < size; i++)
+        {
+            result[offset + i] = new Neighbour((DoubleDataWithDecision)m_arrObjects[i], m_arrDist[i], m_arrOrder[i]);
+            m_arrObjects[i] = null;
+        }
+        for (int i = 0; i < m_nNoOfTies; i++)
+        {
+            result[offset + size + i] = new Neighbour((DoubleDataWithDecision)m_arrTies[i], m_arrDist[size - 1], m_arrTieOrder[i]);
+            m_arrTies[i] = null;
+        }
+        m_nNoOfTies = 0;
+        return result;
+    }
+}
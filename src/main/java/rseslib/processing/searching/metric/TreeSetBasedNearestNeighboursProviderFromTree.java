@@ -21,7 +21,7 @@
 package rseslib.processing.searching.metric;
 
 import java.util.ArrayList;
-import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
 
 import rseslib.structure.data.DoubleData;
 import rseslib.structure.index.metric.IndexingTreeFork;
@@ -29,36 +29,121 @@ import rseslib.structure.index.metric.IndexingTreeLeaf;
 import rseslib.structure.index.metric.IndexingTreeNode;
 import rseslib.structure.metric.Metric;
 import rseslib.structure.metric.Neighbour;
-import rseslib.structure.metric.NeighbourComparator;
+import rseslib.structure.metric.NeighbourList;
+import rseslib.system.monitoring.Counter;
+import rseslib.system.monitoring.Monitoring;
 
 /**
  * The method extracting nearest neighbours of a data object
  * from an indexing binary tree.
- * TreeSet is used as the priority queue for nearest neighbours.
+ * A bounded heap in primitive arrays is used as the priority queue
+ * for nearest neighbours.
+ * The state of a search is kept in a search context,
+ * each thread uses its own context, so one provider
+ * can be used by many threads at the same time.
  *
  * @author      Arkadiusz Wojna
  */
 public class TreeSetBasedNearestNeighboursProviderFromTree extends NearestNeighboursProvider
 {
+    /** Monitoring counter of searches. */
+    private static final Counter s_Searches = Monitoring.counter(Monitoring.NEIGHBOUR_SEARCHES, "provider", "TreeSetBasedNearestNeighboursProviderFromTree");
+    /** Monitoring counter of distance calculations. */
+    private static final Counter s_DistCalculations = Monitoring.counter(Monitoring.DISTANCE_CALCULATIONS, "provider", "TreeSetBasedNearestNeighboursProviderFromTree");
     /** Counter for the number of getKNearest calls. */
-    private int m_nCallsCounter = 0;
+    private final LongAdder m_nCallsCounter = new LongAdder();
     /** Counter for the number of distance calculations. */
-    private double m_nDistCalculationsCounter = 0;
+    private final LongAdder m_nDistCalculationsCounter = new LongAdder();
     /** Counter for the square number of distance calculations. */
-    private double m_nSquareDistCalculationsCounter = 0;
-    /** List of ordered nearest neighbours. */
-    TreeSet<Neighbour> m_OrderedNearest = new TreeSet<Neighbour>(new NeighbourComparator());
-    /** List of stacked tree nodes. */
-    ArrayList<IndexingTreeNode> m_NodesStack = new ArrayList<IndexingTreeNode>();
-    /** List of stacked distances from centres of tree nodes corresponding to the elements in m_NodesStack. */
-    double[] m_DistStack = new double[256];
+    private final LongAdder m_nSquareDistCalculationsCounter = new LongAdder();
     /**
-     * List of stacked distances, each position corresponds
-     * to the centre of the node placed at the same position in the stack of nodes m_NodesStack
-     * and represents the distance between the brother of the node from m_NodesStack
-     * closest to a query data object and a query object.
+     * Search contexts of particular threads shared by all providers,
+     * so a thread keeps one context regardless of the number of providers it has used.
      */
-    double[][] m_PruningDistStack = new double[256][];
+    private static final ThreadLocal<SearchContext> s_Contexts = new ThreadLocal<SearchContext>()
+    {
+        protected SearchContext initialValue()
+        {
+            return new SearchContext();
+        }
+    };
+
+    /**
+     * State of a search for nearest neighbours.
+     * A context can be reused by subsequent searches
+     * but it can not be used by two searches at the same time.
+     * All buffers of a search are kept in its context,
+     * so a search allocates memory only when the buffers grow
+     * and when the result is returned as an array of neighbours.
+     */
+    public static class SearchContext
+    {
+        /** Bounded heap of nearest neighbours. */
+        NeighbourHeap m_Nearest = new NeighbourHeap();
+        /** List of stacked tree nodes. */
+        ArrayList<IndexingTreeNode> m_NodesStack = new ArrayList<IndexingTreeNode>();
+        /** List of stacked distances from centres of tree nodes corresponding to the elements in m_NodesStack. */
+        double[] m_DistStack = new double[256];
+        /**
+         * List of stacked distances, each position corresponds
+         * to the centre of the node placed at the same position in the stack of nodes m_NodesStack
+         * and represents the distance between the brother of the node from m_NodesStack
+         * closest to a query data object and a query object.
+         */
+        double[][] m_PruningDistStack = new double[256][];
+        /**
+         * Arrays of distances to the children of expanded forks,
+         * the array at a position is used by the fork whose children
+         * are stacked from this position in the stack of nodes.
+         */
+        double[][] m_SubnodesDistances = new double[256][];
+        /** Flags indicating the children of an expanded fork that are already stacked. */
+        boolean[] m_Stacked = new boolean[16];
+        /** Distance from the root of the tree used as the pruning distance of the root. */
+        double[] m_RootDist = new double[1];
+
+        /**
+         * Allocates more positions in the stack of distances.
+         */
+        private void enlargeDistStack()
+        {
+            double[] newDistStack = new double[2*m_DistStack.length];
+            for (int d = 0; d < m_DistStack.length; d++) newDistStack[d] = m_DistStack[d];
+            m_DistStack = newDistStack;
+        }
+
+        /**
+         * Allocates more positions in the stack of pruning distances.
+         */
+        private void enlargePruningDistStack()
+        {
+            double[][] newDistStack = new double[2*m_PruningDistStack.length][];
+            for (int d = 0; d < m_PruningDistStack.length; d++) newDistStack[d] = m_PruningDistStack[d];
+            m_PruningDistStack = newDistStack;
+        }
+
+        /**
+         * Returns the array for the distances to the children of a fork
+         * stacked from a given position in the stack of nodes.
+         *
+         * @param stackPos   Position of the first child in the stack of nodes.
+         * @param noOfChildren Number of children of the fork.
+         * @return           Array for the distances to the children.
+         */
+        private double[] subnodesDistances(int stackPos, int noOfChildren)
+        {
+            if (stackPos >= m_SubnodesDistances.length)
+            {
+                double[][] newDistances = new double[Math.max(2*m_SubnodesDistances.length, stackPos+1)][];
+                System.arraycopy(m_SubnodesDistances, 0, newDistances, 0, m_SubnodesDistances.length);
+                m_SubnodesDistances = newDistances;
+            }
+            if (m_SubnodesDistances[stackPos]==null || m_SubnodesDistances[stackPos].length!=noOfChildren)
+                m_SubnodesDistances[stackPos] = new double[noOfChildren];
+            if (m_Stacked.length < noOfChildren) m_Stacked = new boolean[noOfChildren];
+            return m_SubnodesDistances[stackPos];
+        }
+    }
 
     /**
      * Returns the average number of distance calculations.
@@ -67,8 +152,9 @@ public class TreeSetBasedNearestNeighboursProviderFromTree extends NearestNeighb
      */
     public double getAverageNoOfDistCalculations()
     {
-        if (m_nCallsCounter==0) return 0;
-        return m_nDistCalculationsCounter/((double)m_nCallsCounter);
+        long calls = m_nCallsCounter.sum();
+        if (calls==0) return 0;
+        return m_nDistCalculationsCounter.sum()/((double)calls);
     }
 
     /**
@@ -78,103 +164,168 @@ public class TreeSetBasedNearestNeighboursProviderFromTree extends NearestNeighb
      */
     public double getStdDevNoOfDistCalculations()
     {
-        if (m_nCallsCounter==0) return 0;
-        return Math.sqrt(m_nSquareDistCalculationsCounter/((double)m_nCallsCounter)-getAverageNoOfDistCalculations()*getAverageNoOfDistCalculations());
+        long calls = m_nCallsCounter.sum();
+        if (calls==0) return 0;
+        double avg = m_nDistCalculationsCounter.sum()/((double)calls);
+        return Math.sqrt(m_nSquareDistCalculationsCounter.sum()/((double)calls)-avg*avg);
+    }
+
+    /**
+     * Returns noOfNearest data objects from the tree hierarchyRoot nearest to dObj.
+     * If the noOfNearest-th and a number of next data objects
+     * are equally distant to dObj, then all that have the same distance
+     * to dObj, are added to the return array.
+     * The search uses the search context of the calling thread.
+     *
+     * @param metr          Metric used to measure distance between data objects.
+     * @param dObj          Data object that is the reference for neighbours.
+     * @param hierarchyRoot Binary tree indexing data objects to be searched.
+     * @param noOfNearest   Number of nearest neighbours to be returned.
+     * @return              Array of nearest neighbours sorted ascending according to distance to dObj.
+     */
+    public Neighbour[] getKNearest(Metric metr, DoubleData dObj, IndexingTreeNode hierarchyRoot, int noOfNearest)
+    {
+        return getKNearest(metr, dObj, hierarchyRoot, noOfNearest, s_Contexts.get());
     }
 
     /**
-     * Allocates more positions in the stack of distances.
+     * Returns noOfNearest data objects from the tree hierarchyRoot nearest to dObj
+     * using a given search context.
+     * If the noOfNearest-th and a number of next data objects
+     * are equally distant to dObj, then all that have the same distance
+     * to dObj, are added to the return array.
+     *
+     * @param metr          Metric used to measure distance between data objects.
+     * @param dObj          Data object that is the reference for neighbours.
+     * @param hierarchyRoot Binary tree indexing data objects to be searched.
+     * @param noOfNearest   Number of nearest neighbours to be returned.
+     * @param ctx           Search context not used by other searches at the same time.
+     * @return              Array of nearest neighbours sorted ascending according to distance to dObj.
      */
-    private void enlargeDistStack()
+    public Neighbour[] getKNearest(Metric metr, DoubleData dObj, IndexingTreeNode hierarchyRoot, int noOfNearest, SearchContext ctx)
     {
-        double[] newDistStack = new double[2*m_DistStack.length];
-        for (int d = 0; d < m_DistStack.length; d++) newDistStack[d] = m_DistStack[d];
-        m_DistStack = newDistStack;
+        return getKNearest(metr, dObj, hierarchyRoot, noOfNearest, ctx, 0);
     }
 
     /**
-     * Allocates more positions in the stack of pruning distances.
+     * Returns noOfNearest data objects from the tree hierarchyRoot nearest to dObj
+     * in an array with a number of empty positions at the beginning.
+     *
+     * @param metr          Metric used to measure distance between data objects.
+     * @param dObj          Data object that is the reference for neighbours.
+     * @param hierarchyRoot Binary tree indexing data objects to be searched.
+     * @param noOfNearest   Number of nearest neighbours to be returned.
+     * @param ctx           Search context not used by other searches at the same time.
+     * @param offset        Number of empty positions at the beginning of the returned array.
+     * @return              Array of nearest neighbours sorted ascending according to distance to dObj
+     *                      starting from the position offset.
      */
-    private void enlargePruningDistStack()
+    Neighbour[] getKNearest(Metric metr, DoubleData dObj, IndexingTreeNode hierarchyRoot, int noOfNearest, SearchContext ctx, int offset)
     {
-        double[][] newDistStack = new double[2*m_PruningDistStack.length][];
-        for (int d = 0; d < m_PruningDistStack.length; d++) newDistStack[d] = m_PruningDistStack[d];
-        m_PruningDistStack = newDistStack;
+        search(metr, dObj, hierarchyRoot, noOfNearest, ctx);
+        return ctx.m_Nearest.moveToArray(offset);
     }
 
     /**
-     * Returns noOfNearest data objects from the tree hierarchyRoot nearest to dObj.
+     * Finds noOfNearest data objects from the tree hierarchyRoot nearest to dObj
+     * and puts them to a list of neighbours.
      * If the noOfNearest-th and a number of next data objects
      * are equally distant to dObj, then all that have the same distance
-     * to dObj, are added to the return array.
+     * to dObj, are added to the list.
+     * No memory is allocated if the buffers of the search context
+     * and the list are large enough.
      *
      * @param metr          Metric used to measure distance between data objects.
      * @param dObj          Data object that is the reference for neighbours.
      * @param hierarchyRoot Binary tree indexing data objects to be searched.
-     * @param noOfNearest   Number of nearest neighbours to be returned.
-     * @return              Array of nearest neighbours sorted ascending according to distance to dObj.
+     * @param noOfNearest   Number of nearest neighbours to be found.
+     * @param ctx           Search context not used by other searches at the same time.
+     * @param result        List to be filled with the nearest neighbours sorted ascending according to distance to dObj.
      */
-    public Neighbour[] getKNearest(Metric metr, DoubleData dObj, IndexingTreeNode hierarchyRoot, int noOfNearest)
+    public void getKNearest(Metric metr, DoubleData dObj, IndexingTreeNode hierarchyRoot, int noOfNearest, SearchContext ctx, NeighbourList result)
+    {
+        search(metr, dObj, hierarchyRoot, noOfNearest, ctx);
+        ctx.m_Nearest.moveTo(result);
+    }
+
+    /**
+     * Collects noOfNearest data objects from the tree hierarchyRoot nearest to dObj
+     * in the heap of a search context.
+     *
+     * @param metr          Metric used to measure distance between data objects.
+     * @param dObj          Data object that is the reference for neighbours.
+     * @param hierarchyRoot Binary tree indexing data objects to be searched.
+     * @param noOfNearest   Number of nearest neighbours to be collected.
+     * @param ctx           Search context not used by other searches at the same time.
+     */
+    private void search(Metric metr, DoubleData dObj, IndexingTreeNode hierarchyRoot, int noOfNearest, SearchContext ctx)
     {
-        m_OrderedNearest.clear();
-        m_NodesStack.clear();
-        m_DistStack[m_NodesStack.size()] = metr.dist(dObj, hierarchyRoot.getCenter());
-        m_PruningDistStack[m_NodesStack.size()] = new double[1];
-        m_PruningDistStack[m_NodesStack.size()][0] = m_DistStack[m_NodesStack.size()];
-        m_NodesStack.add(hierarchyRoot);
+        NeighbourHeap nearest = ctx.m_Nearest;
+        ArrayList<IndexingTreeNode> nodesStack = ctx.m_NodesStack;
+        nearest.clear(noOfNearest);
+        nodesStack.clear();
+        ctx.m_DistStack[nodesStack.size()] = metr.dist(dObj, hierarchyRoot.getCenter());
+        ctx.m_RootDist[0] = ctx.m_DistStack[nodesStack.size()];
+        ctx.m_PruningDistStack[nodesStack.size()] = ctx.m_RootDist;
+        nodesStack.add(hierarchyRoot);
         int distCalculationsCounter = 1;
-        while (m_NodesStack.size() > 0)
+        while (nodesStack.size() > 0)
         {
-            IndexingTreeNode cl = m_NodesStack.remove(m_NodesStack.size()-1);
+            IndexingTreeNode cl = nodesStack.remove(nodesStack.size()-1);
             double lastNearestDist = 0.0;
             boolean check = true;
-            if (m_OrderedNearest.size() >= noOfNearest)
+            if (nearest.isFull())
             {
-                lastNearestDist = m_OrderedNearest.last().dist();
-                if (m_DistStack[m_NodesStack.size()] > cl.getRadius()+lastNearestDist) check = false;
+                lastNearestDist = nearest.maxDist();
+                if (ctx.m_DistStack[nodesStack.size()] > cl.getRadius()+lastNearestDist) check = false;
                 if (check)
                 {
+                    double[] pruningDist = ctx.m_PruningDistStack[nodesStack.size()];
                     int nearestSubnode = 0;
-                    for (int subnode = 1; subnode < m_PruningDistStack[m_NodesStack.size()].length; subnode++)
-                        if (m_PruningDistStack[m_NodesStack.size()][subnode] < m_PruningDistStack[m_NodesStack.size()][nearestSubnode])
+                    for (int subnode = 1; subnode < pruningDist.length; subnode++)
+                        if (pruningDist[subnode] < pruningDist[nearestSubnode])
                             nearestSubnode = subnode;
-                    if (m_DistStack[m_NodesStack.size()]-lastNearestDist
-                        > m_PruningDistStack[m_NodesStack.size()][nearestSubnode]+lastNearestDist) check = false;
+                    if (ctx.m_DistStack[nodesStack.size()]-lastNearestDist
+                        > pruningDist[nearestSubnode]+lastNearestDist) check = false;
                 }
             }
             if (check)
                 if (cl.isElementary())
                 {
-                    getKNearest(metr, dObj, ((IndexingTreeLeaf)cl).getObjects(), noOfNearest, m_OrderedNearest);
+                    DoubleData[] objects = ((IndexingTreeLeaf)cl).getObjects();
+                    for (int obj = 0; obj < objects.length; obj++)
+                        nearest.offer(objects[obj], metr.dist(dObj, objects[obj]));
                     distCalculationsCounter += cl.size();
                 }
                 else
                 {
                     IndexingTreeFork forkCl = (IndexingTreeFork)cl;
-                    double[] subnodesDistances = new double[forkCl.noOfChildren()];
+                    double[] subnodesDistances = ctx.subnodesDistances(nodesStack.size(), forkCl.noOfChildren());
                     for (int subnode = 0; subnode < subnodesDistances.length; subnode++)
                         subnodesDistances[subnode] = metr.dist(dObj, forkCl.getChildNode(subnode).getCenter());
-                    boolean[] stacked = new boolean[forkCl.noOfChildren()];
+                    boolean[] stacked = ctx.m_Stacked;
                     for (int sortedSubnode = 0; sortedSubnode < subnodesDistances.length; sortedSubnode++)
                     {
                         int furthestSubnode = -1;
                         for (int subnode = 0; subnode < subnodesDistances.length; subnode++)
                             if (!stacked[subnode] && (furthestSubnode == -1 || subnodesDistances[subnode] >= subnodesDistances[furthestSubnode]))
                                 furthestSubnode = subnode;
-                        if (m_NodesStack.size() >= m_DistStack.length) enlargeDistStack();
-                        m_DistStack[m_NodesStack.size()] = subnodesDistances[furthestSubnode];
-                        if (m_NodesStack.size() >= m_PruningDistStack.length) enlargePruningDistStack();
-                        m_PruningDistStack[m_NodesStack.size()] = subnodesDistances;
-                        m_NodesStack.add(forkCl.getChildNode(furthestSubnode));
+                        if (nodesStack.size() >= ctx.m_DistStack.length) ctx.enlargeDistStack();
+                        ctx.m_DistStack[nodesStack.size()] = subnodesDistances[furthestSubnode];
+                        if (nodesStack.size() >= ctx.m_PruningDistStack.length) ctx.enlargePruningDistStack();
+                        ctx.m_PruningDistStack[nodesStack.size()] = subnodesDistances;
+                        nodesStack.add(forkCl.getChildNode(furthestSubnode));
                         stacked[furthestSubnode] = true;
                     }
+                    for (int subnode = 0; subnode < subnodesDistances.length; subnode++)
+                        stacked[subnode] = false;
                     distCalculationsCounter += forkCl.noOfChildren();
                 }
         }
-        m_nCallsCounter++;
-        m_nDistCalculationsCounter += distCalculationsCounter;
-        m_nSquareDistCalculationsCounter += distCalculationsCounter*distCalculationsCounter;
-        Neighbour[] nearest = m_OrderedNearest.toArray(new Neighbour[0]);
-        return nearest;
+        m_nCallsCounter.increment();
+        m_nDistCalculationsCounter.add(distCalculationsCounter);
+        m_nSquareDistCalculationsCounter.add((long)distCalculationsCounter*distCalculationsCounter);
+        s_Searches.increment();
+        s_DistCalculations.add(distCalculationsCounter);
     }
 }
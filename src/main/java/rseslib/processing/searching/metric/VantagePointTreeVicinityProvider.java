@@ -0,0 +1,271 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+
+
+package rseslib.processing.searching.metric;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import rseslib.structure.data.DoubleData;
+import rseslib.structure.metric.Metric;
+import rseslib.util.random.RandomSelection;
+
+/**
+ * Provides vicinity of data objects extracted from a given data collection.
+ * Data collection is indexed with a vantage point tree.
+ * Each internal node selects a vantage point from its data objects
+ * and splits the remaining data objects at the median distance
+ * to the vantage point into the inner and the outer subnode.
+ * The subnodes remember the range of distances of their data objects
+ * to the vantage point, so the triangle inequality gives the lower bound
+ * of the distance between a reference object and the data objects of a subnode.
+ * The vantage point is selected from a few random candidates
+ * as the one with the largest spread of distances to a random sample.
+ * The random numbers are drawn from the generator of RandomSelection,
+ * so the tree is reproducible with a seeded generator.
+ */
+public class VantagePointTreeVicinityProvider extends AbstractBinaryTreeVicinityProvider
+{
+    /** Number of candidates for a vantage point. */
+    private static final int NO_OF_CANDIDATES = 5;
+    /** Size of the sample used to evaluate the candidates for a vantage point. */
+    private static final int EVALUATION_SAMPLE_SIZE = 16;
+
+    /**
+     * Internal node of a vantage point tree
+     * with the vantage point at the first position of the range of this node.
+     */
+    private static class VantagePointNode extends Node
+    {
+        /** Minimal distance of the data objects of the inner subnode to the vantage point. */
+        double m_nInnerLow;
+        /** Maximal distance of the data objects of the inner subnode to the vantage point. */
+        double m_nInnerHigh;
+        /** Minimal distance of the data objects of the outer subnode to the vantage point. */
+        double m_nOuterLow;
+        /** Maximal distance of the data objects of the outer subnode to the vantage point. */
+        double m_nOuterHigh;
+
+        /**
+         * Constructor.
+         *
+         * @param from Index of the vantage point.
+         * @param to   Index after the last data object of this node.
+         */
+        VantagePointNode(int from, int to)
+        {
+            super(from, to);
+        }
+    }
+
+    /**
+     * Constructor builds a vantage point tree.
+     *
+     * @param metric  Metric used as a measure of distance between data objects.
+     * @param objects Data objects to be indexed.
+     */
+    public VantagePointTreeVicinityProvider(Metric metric, ArrayList<DoubleData> objects)
+    {
+        super(metric, objects);
+        m_Root = build();
+    }
+
+    /**
+     * Builds the tree.
+     *
+     * @return Root of the tree.
+     */
+    private Node build()
+    {
+        double[] dist = new double[m_Objects.length];
+        Node root = createNode(0, m_Objects.length);
+        ArrayList<Node> nodes = new ArrayList<Node>();
+        if (root instanceof VantagePointNode) nodes.add(root);
+        while (nodes.size() > 0)
+        {
+            VantagePointNode vpNode = (VantagePointNode)nodes.remove(nodes.size()-1);
+            int from = vpNode.m_nFrom, to = vpNode.m_nTo;
+            swap(dist, from, selectVantagePoint(from, to));
+            for (int obj = from+1; obj < to; obj++)
+                dist[obj] = m_Metric.dist(m_Objects[from], m_Objects[obj]);
+            int mid = from + 1 + (to - from - 1)/2;
+            select(dist, from+1, to, mid);
+            vpNode.m_nInnerLow = Double.MAX_VALUE;
+            vpNode.m_nOuterLow = Double.MAX_VALUE;
+            for (int obj = from+1; obj < mid; obj++)
+            {
+                if (dist[obj] < vpNode.m_nInnerLow) vpNode.m_nInnerLow = dist[obj];
+                if (dist[obj] > vpNode.m_nInnerHigh) vpNode.m_nInnerHigh = dist[obj];
+            }
+            for (int obj = mid; obj < to; obj++)
+            {
+                if (dist[obj] < vpNode.m_nOuterLow) vpNode.m_nOuterLow = dist[obj];
+                if (dist[obj] > vpNode.m_nOuterHigh) vpNode.m_nOuterHigh = dist[obj];
+            }
+            vpNode.m_Left = createNode(from+1, mid);
+            vpNode.m_Right = createNode(mid, to);
+            if (vpNode.m_Left instanceof VantagePointNode) nodes.add(vpNode.m_Left);
+            if (vpNode.m_Right instanceof VantagePointNode) nodes.add(vpNode.m_Right);
+        }
+        return root;
+    }
+
+    /**
+     * Creates a leaf for a small range of data objects
+     * and an internal node to be split for a large range.
+     *
+     * @param from Index of the first data object in the range.
+     * @param to   Index after the last data object in the range.
+     * @return     Created node.
+     */
+    private static Node createNode(int from, int to)
+    {
+        if (to - from > LEAF_SIZE) return new VantagePointNode(from, to);
+        return new Node(from, to);
+    }
+
+    /**
+     * Selects a vantage point from a range of data objects.
+     * Among a few random candidates the one with the largest
+     * second moment of distances to a random sample around their median is selected.
+     *
+     * @param from Index of the first data object in the range.
+     * @param to   Index after the last data object in the range.
+     * @return     Index of the selected vantage point.
+     */
+    private int selectVantagePoint(int from, int to)
+    {
+        Random random = RandomSelection.generator();
+        int size = to - from;
+        if (size <= NO_OF_CANDIDATES*EVALUATION_SAMPLE_SIZE)
+            return from + random.nextInt(size);
+        int best = -1;
+        double bestSpread = -1;
+        double[] sampleDist = new double[EVALUATION_SAMPLE_SIZE];
+        for (int cand = 0; cand < NO_OF_CANDIDATES; cand++)
+        {
+            int candidate = from + random.nextInt(size);
+            for (int s = 0; s < sampleDist.length; s++)
+                sampleDist[s] = m_Metric.dist(m_Objects[candidate], m_Objects[from + random.nextInt(size)]);
+            Arrays.sort(sampleDist);
+            double median = sampleDist[sampleDist.length/2];
+            double spread = 0;
+            for (int s = 0; s < sampleDist.length; s++)
+                spread += (sampleDist[s] - median)*(sampleDist[s] - median);
+            if (spread > bestSpread)
+            {
+                best = candidate;
+                bestSpread = spread;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Reorders a range of data objects so that the data object
+     * at a given position has its distance at the right place
+     * in the order of distances, the data objects before
+     * are not further and the data objects after are not nearer.
+     *
+     * @param dist Distances of the data objects to the vantage point.
+     * @param from Index of the first data object in the range.
+     * @param to   Index after the last data object in the range.
+     * @param pos  Position to be selected.
+     */
+    private void select(double[] dist, int from, int to, int pos)
+    {
+        Random random = RandomSelection.generator();
+        int left = from, right = to - 1;
+        while (left < right)
+        {
+            // three-way partition keeps equal distances together
+            double pivot = dist[left + random.nextInt(right - left + 1)];
+            int lt = left, gt = right, obj = left;
+            while (obj <= gt)
+                if (dist[obj] < pivot) swap(dist, obj++, lt++);
+                else if (dist[obj] > pivot) swap(dist, obj, gt--);
+                else obj++;
+            if (pos < lt) right = lt - 1;
+            else if (pos > gt) left = gt + 1;
+            else return;
+        }
+    }
+
+    /**
+     * Collects the nearest neighbours of a data object
+     * in the heap of a search context.
+     *
+     * @param dObj Data object that is the reference for neighbours.
+     * @param ctx  Search context with the cleared heap and the empty stack.
+     * @return     Number of distance calculations.
+     */
+    int search(DoubleData dObj, SearchContext ctx)
+    {
+        NeighbourHeap nearest = ctx.m_Nearest;
+        int distCalculationsCounter = 0;
+        ctx.push(m_Root, 0);
+        while (ctx.m_nStackSize > 0)
+        {
+            ctx.m_nStackSize--;
+            Node node = ctx.m_NodeStack[ctx.m_nStackSize];
+            double bound = ctx.m_BoundStack[ctx.m_nStackSize];
+            if (nearest.isFull() && bound > nearest.maxDist()) continue;
+            if (node.isLeaf())
+                distCalculationsCounter += scan(node, dObj, nearest);
+            else
+            {
+                VantagePointNode vpNode = (VantagePointNode)node;
+                double dist = m_Metric.dist(dObj, m_Objects[vpNode.m_nFrom]);
+                distCalculationsCounter++;
+                nearest.offer(m_Objects[vpNode.m_nFrom], dist);
+                double innerBound = Math.max(bound, Math.max(lowerBound(dist, vpNode.m_nInnerHigh), lowerBound(vpNode.m_nInnerLow, dist)));
+                double outerBound = Math.max(bound, Math.max(lowerBound(dist, vpNode.m_nOuterHigh), lowerBound(vpNode.m_nOuterLow, dist)));
+                if (innerBound <= outerBound)
+                {
+                    push(ctx, vpNode.m_Right, outerBound);
+                    push(ctx, vpNode.m_Left, innerBound);
+                }
+                else
+                {
+                    push(ctx, vpNode.m_Left, innerBound);
+                    push(ctx, vpNode.m_Right, outerBound);
+                }
+            }
+        }
+        return distCalculationsCounter;
+    }
+
+    /**
+     * Puts a subnode on the stack of a search context
+     * unless it is pruned by the nearest neighbours found so far.
+     *
+     * @param ctx   Search context.
+     * @param node  Subnode.
+     * @param bound Lower bound of the distance between the reference object and the data objects of the subnode.
+     */
+    private static void push(SearchContext ctx, Node node, double bound)
+    {
+        if (!ctx.m_Nearest.isFull() || bound <= ctx.m_Nearest.maxDist())
+            ctx.push(node, bound);
+    }
+}
@@ -22,6 +22,7 @@ package rseslib.processing.searching.metric;
 
 import rseslib.structure.data.DoubleData;
 import rseslib.structure.metric.Neighbour;
+import rseslib.structure.metric.NeighbourList;
 
 /**
  * Provides vicinity of data objects
@@ -54,4 +55,33 @@ public interface VicinityProvider
      * @return              Vicinity of a given data object.
      */
     public abstract Neighbour[] getVicinity(DoubleData dObj, int noOfNearest);
+
+    /**
+     * Provides nearest neighbours of a given data object
+     * in a list of neighbours sorted according to the growing distance.
+     * Providers can implement this method without creating
+     * an object for each neighbour.
+     *
+     * @param dObj          Data object to be used for searching vicinity.
+     * @param noOfNearest   Number of nearest neighbours to be returned.
+     * @param result        List to be filled with the vicinity of the data object.
+     */
+    public default void getVicinity(DoubleData dObj, int noOfNearest, NeighbourList result)
+    {
+        Neighbour[] vicinity = getVicinity(dObj, noOfNearest);
+        result.clear();
+        for (int n = 1; n < vicinity.length; n++)
+            result.add(vicinity[n].neighbour(), vicinity[n].dist());
+    }
+
+    /**
+     * Releases the state kept for the calling thread by this provider,
+     * like the remembered result of the last query.
+     * It should be called after a batch of queries,
+     * so that pooled threads do not keep data objects reachable
+     * after the queries have been completed.
+     */
+    public default void releaseQueries()
+    {
+    }
 }
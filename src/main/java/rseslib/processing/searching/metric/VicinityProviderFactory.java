@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+
+
+package rseslib.processing.searching.metric;
+
+import java.util.ArrayList;
+import java.util.Properties;
+
+import rseslib.processing.indexing.metric.TreeIndexer;
+import rseslib.structure.data.DoubleData;
+import rseslib.structure.metric.Metric;
+import rseslib.system.Configuration;
+import rseslib.system.PropertyConfigurationException;
+import rseslib.system.progress.Progress;
+
+/**
+ * Factory of vicinity providers indexing
+ * a collection of data objects with a required type of index.
+ */
+public class VicinityProviderFactory
+{
+    /** Property name for the type of index. */
+    public static final String INDEX_TYPE_PROPERTY_NAME = "indexType";
+
+    /** Index types. */
+    public enum IndexType { KApproxCentersTree, VantagePointTree, BallTree; }
+
+    /**
+     * Returns the type of index defined in properties.
+     * If the type is not defined the tree with k approximate centers is used,
+     * as in the configurations created before other indices were available.
+     *
+     * @param prop Properties with the type of index.
+     * @return     Type of index.
+     * @throws PropertyConfigurationException if the type of index is unknown.
+     */
+    public static IndexType getIndexType(Properties prop) throws PropertyConfigurationException
+    {
+        String indexTypeName = prop.getProperty(INDEX_TYPE_PROPERTY_NAME);
+        if (indexTypeName == null)
+            return IndexType.KApproxCentersTree;
+        try
+        {
+            return IndexType.valueOf(indexTypeName);
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new PropertyConfigurationException("Unknown index type: "+indexTypeName);
+        }
+    }
+
+    /**
+     * Returns the properties of the tree indexer: the default properties
+     * with the number of indexing threads and the sample size for centers
+     * taken from given properties if they are defined there,
+     * so the configurations without these properties use the defaults.
+     *
+     * @param prop Properties with the parameters of indexing.
+     * @return     Properties of the tree indexer.
+     * @throws PropertyConfigurationException if the default properties of the tree indexer cannot be read.
+     */
+    public static Properties getIndexerProperties(Properties prop) throws PropertyConfigurationException
+    {
+        Properties indexerProp = Configuration.loadDefaultProperties(TreeIndexer.class);
+        for (String name : new String[] { TreeIndexer.INDEXING_THREADS_PROPERTY_NAME, TreeIndexer.CENTERS_SAMPLE_SIZE_PROPERTY_NAME })
+            if (prop.getProperty(name)!=null)
+                indexerProp.setProperty(name, prop.getProperty(name));
+        return indexerProp;
+    }
+
+    /**
+     * Indexes data objects with the type of index defined in properties
+     * and returns the provider of vicinity searching the index.
+     *
+     * @param prop    Properties with the type of index and the parameters of indexing.
+     * @param metric  Metric used as a measure of distance between data objects.
+     * @param objects Data objects to be indexed.
+     * @param prog    Progress object.
+     * @return        Provider of vicinity.
+     * @throws PropertyConfigurationException if the type of index is unknown.
+     * @throws InterruptedException when the user interrupts the execution.
+     */
+    public static VicinityProvider getVicinityProvider(Properties prop, Metric metric, ArrayList<DoubleData> objects, Progress prog) throws PropertyConfigurationException, InterruptedException
+    {
+        VicinityProvider provider = null;
+        switch (getIndexType(prop))
+        {
+            case KApproxCentersTree:
+                provider = new IndexingTreeVicinityProvider(null, metric, new TreeIndexer(getIndexerProperties(prop)).indexing(objects, metric, prog));
+                break;
+            case VantagePointTree:
+                prog.set("Indexing training objects with a vantage point tree", 1);
+                provider = new VantagePointTreeVicinityProvider(metric, objects);
+                prog.step();
+                break;
+            case BallTree:
+                prog.set("Indexing training objects with a ball tree", 1);
+                provider = new BallTreeVicinityProvider(metric, objects);
+                prog.step();
+                break;
+        }
+        return provider;
+    }
+}
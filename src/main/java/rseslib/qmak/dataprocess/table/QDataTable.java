@@ -140,6 +140,9 @@ public class QDataTable extends AbstractTableModel implements iQDataTable, FileS
         case CSV:
         	doi = new RseslibDoubleDataInput(dataFile, hdr, prog);
         	break;
+        case BINARY:
+        	doi = new BinaryDoubleDataInput(dataFile, hdr, prog);
+        	break;
         }
 		header = doi.attributes();
 		try {
@@ -175,6 +178,9 @@ public class QDataTable extends AbstractTableModel implements iQDataTable, FileS
         case CSV:
         	doi = new RseslibDoubleDataInput(dataFile, prog);
         	break;
+        case BINARY:
+        	doi = new BinaryDoubleDataInput(dataFile, prog);
+        	break;
         }
 		header = doi.attributes();
 		try {
@@ -225,6 +231,10 @@ public class QDataTable extends AbstractTableModel implements iQDataTable, FileS
         case CSV:
         	doi = new RseslibDoubleDataInput(dataFile, new ArrayHeader(hdrFile), prog);
         	break;
+        case BINARY:
+        	// the header embedded in a binary file is verified against the header file
+        	doi = new BinaryDoubleDataInput(dataFile, new ArrayHeader(hdrFile), prog);
+        	break;
         }
 		header = doi.attributes();
 		try {
@@ -412,6 +422,9 @@ public class QDataTable extends AbstractTableModel implements iQDataTable, FileS
         case CSV:
         	doi = new RseslibDoubleDataInput(dataFile, prog);
         	break;
+        case BINARY:
+        	doi = new BinaryDoubleDataInput(dataFile, prog);
+        	break;
         }
 		header = doi.attributes();
 		try {
@@ -721,6 +734,19 @@ public class QDataTable extends AbstractTableModel implements iQDataTable, FileS
     {
     	throw new IOException("Arff format not implemented");
     }
+
+    /**
+     * Saves this object to a file in rseslib binary format.
+     *
+     * @param outputFile File to be used for storing this object.
+     * @param prog       Progress object for progress reporting.
+     * @throws IOException If an I/O error has occured.
+     * @throws InterruptedException If user has interrupted saving object.
+     */
+    public void storeBinary(File outputFile, Progress prog) throws IOException, InterruptedException
+    {
+    	BinaryDoubleDataOutput.store(header, data, outputFile, prog);
+    }
     
 	/**
 	 * Return properties of the table
@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.simplegrid;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.StringTokenizer;
+
+import rseslib.simplegrid.common.Communication;
+import rseslib.simplegrid.manager.Manager;
+import rseslib.simplegrid.node.Node;
+
+/**
+ * Manager and a number of nodes running in one JVM
+ * and communicating on the loopback interface on ephemeral UDP ports.
+ * The local cluster is used to measure and test the grid
+ * on a single machine.
+ */
+public class LocalCluster
+{
+    /** Number of UDP ports of the manager. */
+    public static final int s_nNoOfPorts = 4;
+
+    Manager m_Manager;
+    Node[] m_aNodes;
+    Thread[] m_aNodeThreads;
+
+    /**
+     * Starts the manager and the nodes.
+     *
+     * @param scripts        Task files.
+     * @param results        Result files, one for each task file.
+     * @param noOfNodes      Number of nodes.
+     * @param threadsPerNode Number of worker threads in each node.
+     */
+    public LocalCluster(ArrayList<String> scripts, ArrayList<String> results, int noOfNodes, int threadsPerNode)
+    {
+        m_Manager = new Manager(scripts, results, new int[s_nNoOfPorts]);
+        int[] ports = m_Manager.getUDPPorts();
+        long cacheBytes = Runtime.getRuntime().maxMemory()/4/noOfNodes;
+        m_aNodes = new Node[noOfNodes];
+        m_aNodeThreads = new Thread[noOfNodes];
+        for (int n = 0; n < noOfNodes; n++)
+        {
+            m_aNodes[n] = new Node("localhost", ports, new ArrayList<String>(), false, false, threadsPerNode, cacheBytes, false);
+            m_aNodeThreads[n] = new Thread(m_aNodes[n], "SGM Node "+n);
+            m_aNodeThreads[n].setDaemon(true);
+            m_aNodeThreads[n].start();
+        }
+    }
+
+    /**
+     * Returns the manager.
+     *
+     * @return Manager.
+     */
+    public Manager getManager()
+    {
+        return m_Manager;
+    }
+
+    /**
+     * Returns the nodes.
+     *
+     * @return Nodes.
+     */
+    public Node[] getNodes()
+    {
+        return m_aNodes;
+    }
+
+    /**
+     * Waits until all tasks are computed.
+     *
+     * @param checkMillis Time in milliseconds between checks.
+     * @throws Exception  If an error has occured in the manager.
+     */
+    public void waitUntilFinished(int checkMillis) throws Exception
+    {
+        while (!m_Manager.isFinished())
+            Thread.sleep(checkMillis);
+    }
+
+    /**
+     * Stops the nodes and the manager.
+     *
+     * @throws InterruptedException If interrupted while waiting for the nodes.
+     */
+    public void stop() throws InterruptedException
+    {
+        for (Node node : m_aNodes)
+            node.stop();
+        for (Thread thread : m_aNodeThreads)
+            thread.join();
+        m_Manager.stop();
+    }
+
+    /**
+     * Returns the statistics of scheduling.
+     *
+     * @return Statistics of scheduling.
+     */
+    public String getStatistics()
+    {
+        int computed = 0;
+        int requests = 0;
+        long requestNanos = 0;
+        long maxRequestNanos = 0;
+        for (Node node : m_aNodes)
+        {
+            computed += node.getNoOfComputedTasks();
+            requests += node.getNoOfTaskRequests();
+            requestNanos += node.getTaskRequestNanos();
+            maxRequestNanos = Math.max(maxRequestNanos, node.getMaxTaskRequestNanos());
+        }
+        int results = m_Manager.getNoOfResults();
+        int executions = m_Manager.getNoOfExecutions();
+        return "Results: "+results+", scheduled executions: "+executions+", computed by nodes: "+computed
+            +", ignored results: "+m_Manager.getNoOfIgnoredResults()+System.lineSeparator()
+            +"Duplicate executions: "+String.format("%.3f", results==0 ? 0.0 : (double)(executions-results)/results)+System.lineSeparator()
+            +"Task requests: "+requests+", average latency: "+String.format("%.3f", requests==0 ? 0.0 : requestNanos/1e6/requests)
+            +" ms, maximal latency: "+String.format("%.3f", maxRequestNanos/1e6)+" ms";
+    }
+
+    /**
+     * Runs the tasks from the files listed in an experiment file
+     * (see BatchManagerMain) on a local cluster and prints the statistics.
+     *
+     * @param args Experiment file, optionally followed by -NODES n and -THREADS n.
+     */
+    public static void main(String[] args)
+    {
+        System.out.println("SGM (SimpleGridManager) Local Cluster "+Communication.s_strSGMVersion);
+        try
+        {
+            if (args.length>0)
+            {
+                int nodes = 2;
+                int threads = Math.max(Runtime.getRuntime().availableProcessors()/nodes, 1);
+                for (int argpos=1;argpos<args.length;argpos++)
+                {
+                    if (args[argpos].equalsIgnoreCase("-NODES")&& args.length>(argpos+1))
+                        nodes = Integer.parseInt(args[++argpos]);
+                    else if (args[argpos].equalsIgnoreCase("-THREADS")&& args.length>(argpos+1))
+                        threads = Integer.parseInt(args[++argpos]);
+                }
+                BufferedReader br = new BufferedReader(new FileReader(args[0]));
+                String line;
+                ArrayList<String> scripts = new ArrayList<String>();
+                ArrayList<String> results = new ArrayList<String>();
+                while (null!=(line=br.readLine()))
+                {
+                    StringTokenizer strtok = new StringTokenizer(line);
+                    scripts.add(strtok.nextToken());
+                    results.add(strtok.nextToken());
+                }
+                br.close();
+                long start = System.currentTimeMillis();
+                LocalCluster cluster = new LocalCluster(scripts, results, nodes, threads);
+                cluster.waitUntilFinished(100);
+                long time = System.currentTimeMillis()-start;
+                cluster.stop();
+                System.out.println(cluster.getStatistics());
+                System.out.println("Time: "+time+" ms");
+            }
+            else
+            {
+                System.out.println("Syntax: LocalCluster <experiment file> [-NODES n] [-THREADS n]");
+                System.out.println("The experiment file has the same format as for BatchManagerMain.");
+            }
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+        System.out.flush();
+        System.err.flush();
+    }
+}
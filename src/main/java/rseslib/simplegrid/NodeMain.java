@@ -46,6 +46,8 @@ public class NodeMain
         {
             boolean forcerelay=false;
             boolean deepdebug=false;
+            int threads=Runtime.getRuntime().availableProcessors();
+            long cacheBytes=Runtime.getRuntime().maxMemory()/4;
             ArrayList<String> relayServers = new ArrayList<String>();
             if (args.length>0)
             {
@@ -64,6 +66,16 @@ public class NodeMain
                         while (strtok.hasMoreTokens())
                             relayServers.add(strtok.nextToken());   
                     }
+                    if (args[argpos].equalsIgnoreCase("-THREADS")&& args.length>(argpos+1))
+                    {
+                        argpos++;
+                        threads=Integer.parseInt(args[argpos]);
+                    }
+                    if (args[argpos].equalsIgnoreCase("-CACHE")&& args.length>(argpos+1))
+                    {
+                        argpos++;
+                        cacheBytes=Long.parseLong(args[argpos])<<20;
+                    }
                     if (args[argpos].equalsIgnoreCase("-FORCERELAY"))
                         forcerelay=true;
                     if (args[argpos].equalsIgnoreCase("-DEEPDEBUG"))
@@ -76,13 +88,15 @@ public class NodeMain
                     (new Thread(new RelayServer(args[0],relayServers))).start();
                     Thread.sleep(100);
                 }
-                new Node(args[0],relayServers,deepdebug,forcerelay);
+                new Node(args[0],relayServers,deepdebug,forcerelay,threads,cacheBytes);
             }
             else
             {
                 System.out.println("Server name expected. Please provide server address (e.g. localhost).");
-            	System.out.println("Syntax: NodeMain <servername> [-DIE x] [-FILEDEBUG]");
+            	System.out.println("Syntax: NodeMain <servername> [-DIE x] [-THREADS n] [-CACHE mb] [-FILEDEBUG]");
             	System.out.println("-DIE <time> : will shutdown node at specified time/day (e.g. -DIE 15:49 or -DIE \"FR 15:45\").");
+            	System.out.println("-THREADS <n> : number of tasks computed in parallel (default: number of processors).");
+            	System.out.println("-CACHE <mb> : memory limit for data tables kept between tasks (default: 1/4 of the maximal heap size).");
             	System.out.println("-FILEDEBUG : writes all error messages from classifiers to sgm_node_log.txt file.");
             }
         }
@@ -41,11 +41,18 @@ public class Communication
     public static final String s_strWelcome = "Welcome to Simplistic Grid";
     public static final String s_strGetTask = "get task";
     public static final String s_strPutTask = "put task";
+    public static final String s_strPutTasks = "put tasks"; /* results of many tasks separated with new lines */
     public static final String s_strPutAnswer = "task aquired";
+    public static final String s_strHeartbeat = "heartbeat"; /* sent by busy nodes to keep the leases of computed tasks */
+    public static final String s_strAlive = "alive";
+    public static final String s_strNoTask = "no task"; /* answer to nodes sending an identifier when all tasks are in execution */
+    public static final String s_strReleaseTasks = "release tasks"; /* node identifier and the tasks failed on the node separated with new lines */
+    public static final String s_strReleaseAnswer = "tasks released";
     public static final String s_strErrorUnknownCommand = "SGM ERROR1: Unknown command";
     
     public static final int s_nPacketSize=1500;
     public static final int s_nBufferSize=2000;
+    public static final int s_nHeartbeatMillis=30*1000;
     
     public static final String s_strSGMVersion = "3.6.0-SNAPSHOT";
     
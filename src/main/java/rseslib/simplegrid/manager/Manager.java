@@ -23,17 +23,17 @@ package rseslib.simplegrid.manager;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.StringTokenizer;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 import rseslib.simplegrid.common.Communication;
 
@@ -44,7 +44,19 @@ import rseslib.simplegrid.common.Communication;
 
 public class Manager implements Runnable
 {
-    class Job { public String m_sTask; public int m_nProcessingFile; public Job(String task,int file) { m_sTask=task; m_nProcessingFile=file; } }
+    class Job
+    {
+        public String m_sTask;
+        public int m_nProcessingFile;
+        /* Nodes holding a lease on this job: the nodes computing the job */
+        public ArrayList<String> m_aLeases = new ArrayList<String>();
+        public int m_nExecutions = 0;
+        public long m_lStarted = 0;
+        public int m_nFailures = 0;
+        public boolean m_bQueued = true;
+        public boolean m_bDone = false;
+        public Job(String task,int file) { m_sTask=task; m_nProcessingFile=file; }
+    }
     
     int[] m_aUDPPorts;
     DatagramSocket[] m_aUDPSockets;
@@ -54,20 +66,61 @@ public class Manager implements Runnable
     ArrayList<String> m_aScriptFiles;
     ArrayList<String> m_aResultFiles;
     
-    HashMap<String,Integer> m_hmScheduledJobs = new HashMap<String,Integer>();
-    HashSet<String> m_hmComputedJobs;
-    HashMap<String,Long> m_hmActivityStatistics = new HashMap<String,Long>();
+    HashMap<String,Job> m_hmScheduledJobs = new HashMap<String,Job>();
+    ResultStore[] m_aResultStores;
+    ConcurrentHashMap<String,Long> m_hmActivityStatistics = new ConcurrentHashMap<String,Long>();
+    /* Last task request or heartbeat of each node: renews the leases held by the node */
+    ConcurrentHashMap<String,Long> m_hmLeaseRenewals = new ConcurrentHashMap<String,Long>();
 
     LinkedList<Job> m_lSchedulingQueue = new LinkedList<Job>();
     
     int m_nFinishSleep = 10*60*1000;
+    int m_nResultFlushMillis = 200;
+    int m_nResultSyncMillis = 2000;
+    
+    /* A lease expires if the node holding it does not communicate (nodes send heartbeats while computing) */
+    int m_nLeaseTimeoutMillis = 4*Communication.s_nHeartbeatMillis;
+    int m_nLeaseCheckMillis = 1000;
+    long m_lLastLeaseCheck = 0;
+    /* Stragglers: jobs computed longer than this percentile of observed durations are executed again on another node */
+    double m_dStragglerPercentile = 0.9;
+    int m_nMinDurationSamples = 10;
+    int m_nMaxExecutions = 2;
+    /* Jobs that failed on nodes this number of times are abandoned */
+    int m_nMaxFailures = 3;
+    long[] m_alDurations = new long[1024];
+    int m_nDurations = 0;
+    
+    /* Scheduling statistics */
+    int m_nExecutions = 0;
+    int m_nResults = 0;
+    int m_nIgnoredResults = 0;
+    int m_nFailures = 0;
+    int m_nAbandonedJobs = 0;
+    volatile boolean m_bStopped = false;
+    /* UDP handler threads still running: the last terminating thread closes the result files */
+    int m_nRunningThreads = 0;
     
     public Manager(ArrayList<String> aScriptFiles,ArrayList<String> aResultFiles)
     {
-        m_aUDPPorts = new int[Communication.s_aUDPPorts.length];
-        System.arraycopy(Communication.s_aUDPPorts, 0, m_aUDPPorts, 0, m_aUDPPorts.length);
+        this(aScriptFiles,aResultFiles,Communication.s_aUDPPorts);
+    }
+    
+    /* Port 0 binds an ephemeral port, the bound ports are returned by getUDPPorts */
+    public Manager(ArrayList<String> aScriptFiles,ArrayList<String> aResultFiles,int[] ports)
+    {
+        m_aUDPPorts = new int[ports.length];
+        System.arraycopy(ports, 0, m_aUDPPorts, 0, m_aUDPPorts.length);
         m_aScriptFiles=aScriptFiles;
         m_aResultFiles=aResultFiles;
+        m_aResultStores = new ResultStore[m_aResultFiles.size()];
+        Runtime.getRuntime().addShutdownHook(new Thread()
+        {
+            public void run()
+            {
+                closeResultStores();
+            }
+        });
         
         /* Pre-fetch 32 lines of script file */
         try { for (int i=0;i<32;i++) scheduleNextTask(-1); } catch (Exception e) { e.printStackTrace(); }
@@ -76,11 +129,12 @@ public class Manager implements Runnable
         for (int i=0;i<m_aUDPPorts.length;i++)
         {
             m_nThreadToken = i;
+            synchronized (this) { m_nRunningThreads++; }
             (new Thread(this)).start();
             do
             {
                try { Thread.sleep(100); } catch (Exception e) {}
-            } while (m_aUDPSockets[i]==null && m_aUDPPorts[i]>0);
+            } while (m_aUDPSockets[i]==null && m_aUDPPorts[i]>=0);
         }
     }
     
@@ -96,7 +150,7 @@ public class Manager implements Runnable
             String line;
             while (!readed && null!=(line=m_brScript.readLine()))
             {
-                if (!m_hmComputedJobs.contains(line))
+                if (!m_aResultStores[m_nProcessingFile].contains(line))
                 {
                     m_lSchedulingQueue.add(new Job(line,m_nProcessingFile));
                     readed=true;
@@ -108,7 +162,6 @@ public class Manager implements Runnable
                 //System.out.println("File was empty");
                 m_brScript.close();
                 m_brScript=null;
-                m_hmComputedJobs.clear();
                 m_nProcessingFile++;
                 //fillListWithScheduled();
             }           
@@ -117,8 +170,8 @@ public class Manager implements Runnable
         {        
             if (m_nProcessingFile==m_aScriptFiles.size())
             {
-                //System.out.println("No more files, filling with scheduled");
-                fillListWithScheduled();
+                //System.out.println("No more files, re-executing stragglers");
+                scheduleStragglers();
             }
             else
             {
@@ -128,45 +181,133 @@ public class Manager implements Runnable
         }
     }
     
-    void fillListWithScheduled()
+    /* Schedules again the jobs with all leases expired,
+       the leases of older nodes do not expire since they send no heartbeats (stragglers are still executed again) */
+    void checkLeases()
     {
-        if (!m_hmScheduledJobs.isEmpty())
+        long time = System.currentTimeMillis();
+        if (time-m_lLastLeaseCheck<m_nLeaseCheckMillis)
+            return;
+        m_lLastLeaseCheck = time;
+        for (Job j : m_hmScheduledJobs.values())
         {
-            for (Entry<String,Integer> e : m_hmScheduledJobs.entrySet())
+            Iterator<String> it = j.m_aLeases.iterator();
+            while (it.hasNext())
+            {
+                String node = it.next();
+                if (!sendsHeartbeats(node))
+                    continue;
+                Long lastActivity = m_hmLeaseRenewals.get(node);
+                if (lastActivity==null || time-lastActivity>m_nLeaseTimeoutMillis)
+                    it.remove();
+            }
+            if (j.m_aLeases.isEmpty() && !j.m_bQueued)
             {
-            	if (!m_hmComputedJobs.contains(e.getKey()))
-            	{
-            		m_lSchedulingQueue.add(new Job(e.getKey(),e.getValue()));
-            	}
+                System.out.println(Communication.getTimeStamp()+" Lease expired, scheduling again: "+j.m_sTask);
+                j.m_bQueued = true;
+                m_lSchedulingQueue.addFirst(j);
+            }
+        }
+    }
+    
+    /* Schedules speculative re-execution of the jobs computed longer than the percentile of observed durations */
+    void scheduleStragglers()
+    {
+        int samples = Math.min(m_nDurations,m_alDurations.length);
+        if (samples<m_nMinDurationSamples)
+            return;
+        long[] durations = Arrays.copyOf(m_alDurations,samples);
+        Arrays.sort(durations);
+        long threshold = durations[(int)Math.ceil(m_dStragglerPercentile*samples)-1];
+        long time = System.currentTimeMillis();
+        for (Job j : m_hmScheduledJobs.values())
+            if (!j.m_bQueued && j.m_nExecutions<m_nMaxExecutions && time-j.m_lStarted>threshold)
+            {
+                System.out.println(Communication.getTimeStamp()+" Straggler ("+(time-j.m_lStarted)+" ms), scheduling again: "+j.m_sTask);
+                j.m_bQueued = true;
+                m_lSchedulingQueue.add(j);
             }
-        }        
     }
 
     void readNewScripts() throws IOException
     {
         m_brScript =  new BufferedReader(new FileReader(m_aScriptFiles.get(m_nProcessingFile)));
-        try
+        if (m_aResultStores[m_nProcessingFile]==null)
         {
-            if (m_hmComputedJobs==null) m_hmComputedJobs = new HashSet<String>();
-            else m_hmComputedJobs.clear();
-            BufferedReader br = new BufferedReader(new FileReader(m_aResultFiles.get(m_nProcessingFile)));
-            String line;
-            while (null!=(line=br.readLine()))
-            {
-                StringTokenizer strtok = new StringTokenizer(line,"|");
-                m_hmComputedJobs.add(strtok.nextToken().trim());
-            }
-            br.close();
+            m_aResultStores[m_nProcessingFile] = new ResultStore(m_aResultFiles.get(m_nProcessingFile), m_nResultFlushMillis, m_nResultSyncMillis);
+            System.out.println(Communication.getTimeStamp()+" "+m_aResultStores[m_nProcessingFile].size()+" computed tasks found in "+m_aResultFiles.get(m_nProcessingFile));
+        }
+    }
+    
+    public int[] getUDPPorts()
+    {
+        return m_aUDPPorts.clone();
+    }
+    
+    /* Returns true if all tasks from the script files are computed */
+    public synchronized boolean isFinished() throws IOException
+    {
+        while (m_lSchedulingQueue.isEmpty() && m_nProcessingFile<m_aScriptFiles.size())
+            scheduleNextTask(-1);
+        for (Job j : m_lSchedulingQueue)
+            if (!j.m_bDone)
+                return false;
+        return m_hmScheduledJobs.isEmpty();
+    }
+    
+    public synchronized int getNoOfExecutions()
+    {
+        return m_nExecutions;
+    }
+    
+    public synchronized int getNoOfResults()
+    {
+        return m_nResults;
+    }
+    
+    /* Returns the number of results of jobs already computed by another execution */
+    public synchronized int getNoOfIgnoredResults()
+    {
+        return m_nIgnoredResults;
+    }
+    
+    /* Returns the number of executions that failed on nodes */
+    public synchronized int getNoOfFailures()
+    {
+        return m_nFailures;
+    }
+    
+    /* Returns the number of jobs abandoned after failing m_nMaxFailures times */
+    public synchronized int getNoOfAbandonedJobs()
+    {
+        return m_nAbandonedJobs;
+    }
+    
+    /* Closes the UDP sockets and the result files, results received after closing are not stored */
+    public void stop()
+    {
+        m_bStopped = true;
+        for (DatagramSocket dsoc : m_aUDPSockets)
+            if (dsoc!=null) dsoc.close();
+        closeResultStores();
+    }
+    
+    /* Closes the result files under the lock held while appending results */
+    synchronized void closeResultStores()
+    {
+        for (ResultStore store : m_aResultStores)
+        {
+            try { if (store!=null) store.close(); } catch (IOException e) { e.printStackTrace(); }
         }
-        catch (Exception e) { }
     }
     
-    synchronized String scheduleNextLine(int my_token) throws IOException
+    synchronized String scheduleNextLine(int my_token,String node) throws IOException
     {
         int tries=0;
         int length=0;
         String line = null;
         
+        checkLeases();
         while (tries<10&&length<(Communication.s_nPacketSize*0.9))
         {
             tries++;
@@ -176,6 +317,19 @@ public class Manager implements Runnable
             if (!m_lSchedulingQueue.isEmpty())
             {
                 Job j = m_lSchedulingQueue.remove();
+                if (j.m_bDone)
+                    continue;
+                if (j.m_aLeases.contains(node))
+                {
+                    /* the same node does not compute a job twice */
+                    m_lSchedulingQueue.add(j);
+                    continue;
+                }
+                if (line!=null && line.length()+1+j.m_sTask.length()>Communication.s_nPacketSize)
+                {
+                    m_lSchedulingQueue.addFirst(j);
+                    break;
+                }
         
                 if (line==null)
                     line=j.m_sTask;
@@ -184,10 +338,13 @@ public class Manager implements Runnable
                 
                 length=line.length();
 
-                if (length>Communication.s_nPacketSize)
-                    m_lSchedulingQueue.add(j);
-                else
-                    m_hmScheduledJobs.put(j.m_sTask, j.m_nProcessingFile);
+                j.m_bQueued = false;
+                j.m_aLeases.add(node);
+                j.m_nExecutions++;
+                m_nExecutions++;
+                if (j.m_lStarted==0)
+                    j.m_lStarted = System.currentTimeMillis();
+                m_hmScheduledJobs.put(j.m_sTask, j);
             }
         }
         //System.out.println("Prepared("+tries+") line is "+line);
@@ -198,19 +355,67 @@ public class Manager implements Runnable
     {
         StringTokenizer strtok = new StringTokenizer(line,"|");
         String task = strtok.nextToken().trim();
-        if (m_hmScheduledJobs.containsKey(task))
+        /* The first result wins, results of other executions are ignored */
+        Job j = m_hmScheduledJobs.remove(task);
+        if (j!=null)
         {
-            int file = m_hmScheduledJobs.get(task);
+            j.m_bDone = true;
+            m_nResults++;
+            if (j.m_nExecutions==1)
+                m_alDurations[m_nDurations++%m_alDurations.length] = System.currentTimeMillis()-j.m_lStarted;
+            m_aResultStores[j.m_nProcessingFile].append(line);
+        }
+        else
+            m_nIgnoredResults++;
+    }
+    
+    /* Releases the lease of a node on a job that failed on the node:
+       the job is scheduled again unless other nodes compute it or it failed m_nMaxFailures times */
+    synchronized void releaseTask(String task,String node)
+    {
+        Job j = m_hmScheduledJobs.get(task);
+        if (j==null || !j.m_aLeases.remove(node))
+            return;
+        j.m_nFailures++;
+        m_nFailures++;
+        if (j.m_nFailures>=m_nMaxFailures)
+        {
+            System.out.println(Communication.getTimeStamp()+" Task failed "+j.m_nFailures+" times, abandoned: "+task);
             m_hmScheduledJobs.remove(task);
-            if (!m_hmComputedJobs.contains(task))
-            {
-                PrintWriter pw = new PrintWriter(new FileWriter(m_aResultFiles.get(file),true));
-                pw.println(line);
-                pw.flush();
-                pw.close();
-            }
-            m_hmComputedJobs.add(task);
+            j.m_bDone = true;
+            m_nAbandonedJobs++;
         }
+        else if (j.m_aLeases.isEmpty() && !j.m_bQueued)
+        {
+            System.out.println(Communication.getTimeStamp()+" Task failed, scheduling again: "+task);
+            j.m_bQueued = true;
+            m_lSchedulingQueue.addFirst(j);
+        }
+    }
+    
+    synchronized boolean noScheduledJobs()
+    {
+        return m_hmScheduledJobs.isEmpty();
+    }
+    
+    /* The result files are closed when no UDP handler thread can append results */
+    synchronized void threadTerminated()
+    {
+        if (--m_nRunningThreads==0)
+            closeResultStores();
+    }
+    
+    /* Nodes are identified by the address and the identifier sent by the node (older nodes send no identifier) */
+    static String nodeId(String address,String id)
+    {
+        id = id.trim();
+        return id.length()==0 ? address : address+"/"+id;
+    }
+    
+    /* Only the nodes sending an identifier send heartbeats */
+    static boolean sendsHeartbeats(String node)
+    {
+        return node.indexOf('/')>=0;
     }
     
     public void run()
@@ -219,6 +424,7 @@ public class Manager implements Runnable
         try
         {
             DatagramSocket dsoc = new DatagramSocket(m_aUDPPorts[my_token]);
+            m_aUDPPorts[my_token]=dsoc.getLocalPort();
             m_aUDPSockets[my_token]=dsoc;
             System.out.println(Communication.getTimeStamp()+" UThread"+my_token+" initialized (on UDP Port "+m_aUDPPorts[my_token]+").");
             while (true)
@@ -240,11 +446,47 @@ public class Manager implements Runnable
                 {
                     line = Communication.s_strWelcome;
                 }
-                else if (line.equalsIgnoreCase(Communication.s_strGetTask))
+                else if (line.toLowerCase().startsWith(Communication.s_strGetTask))
                 {
-                    line = scheduleNextLine(my_token);
+                    String id = line.substring(Communication.s_strGetTask.length()).trim();
+                    String node = nodeId(dtgrm.getAddress().getHostAddress(),id);
+                    m_hmLeaseRenewals.put(node, System.currentTimeMillis());
+                    line = scheduleNextLine(my_token,node);
+                    /* nodes sending an identifier wait for the tasks in execution without timeouts */
+                    if (line==null && id.length()>0 && !m_hmScheduledJobs.isEmpty())
+                        line = Communication.s_strNoTask;
                     
                 }
+                else if (line.toLowerCase().startsWith(Communication.s_strHeartbeat))
+                {
+                    String node = nodeId(dtgrm.getAddress().getHostAddress(),line.substring(Communication.s_strHeartbeat.length()));
+                    m_hmLeaseRenewals.put(node, System.currentTimeMillis());
+                    line = Communication.s_strAlive;
+                }
+                else if (line.startsWith(Communication.s_strReleaseTasks))
+                {
+                    StringTokenizer strtok = new StringTokenizer(line.substring(Communication.s_strReleaseTasks.length()),"\n");
+                    String node = nodeId(dtgrm.getAddress().getHostAddress(),strtok.hasMoreTokens() ? strtok.nextToken() : "");
+                    m_hmLeaseRenewals.put(node, System.currentTimeMillis());
+                    while (strtok.hasMoreTokens())
+                    {
+                        String task = strtok.nextToken().trim();
+                        if (task.length()>0)
+                            releaseTask(task,node);
+                    }
+                    line = Communication.s_strReleaseAnswer;
+                }
+                else if (line.startsWith(Communication.s_strPutTasks))
+                {
+                    StringTokenizer strtok = new StringTokenizer(line.substring(Communication.s_strPutTasks.length()),"\n");
+                    while (strtok.hasMoreTokens())
+                    {
+                        String result = strtok.nextToken().trim();
+                        if (result.length()>0)
+                            returnNextTask(result);
+                    }
+                    line = Communication.s_strPutAnswer;
+                }
                 else if (line.startsWith(Communication.s_strPutTask))
                 {
                     returnNextTask(line.substring(Communication.s_strPutTask.length()).trim());
@@ -266,8 +508,8 @@ public class Manager implements Runnable
                 }
                 else
                 {
-                    if (m_hmScheduledJobs.size()==0)
-                    {                        
+                    if (noScheduledJobs())
+                    {
                         System.out.println("UThread"+my_token+" no more scheduled job - terminating thread. Other threads wait for jobs in execution. If you sure all jobs are done you can kill the server now.");
                         break;
                     }
@@ -283,9 +525,16 @@ public class Manager implements Runnable
         }
         catch (Exception e)
         {
-            System.out.println(Communication.getTimeStamp()+" UThread"+my_token+" failed (on UDP Port "+m_aUDPPorts[my_token]+").");
-            m_aUDPPorts[my_token] = -1; 
-            e.printStackTrace();
+            if (!m_bStopped)
+            {
+                System.out.println(Communication.getTimeStamp()+" UThread"+my_token+" failed (on UDP Port "+m_aUDPPorts[my_token]+").");
+                m_aUDPPorts[my_token] = -1; 
+                e.printStackTrace();
+            }
+        }
+        finally
+        {
+            threadTerminated();
         }
         
     }
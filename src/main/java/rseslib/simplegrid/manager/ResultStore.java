@@ -0,0 +1,482 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package rseslib.simplegrid.manager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.StringTokenizer;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * Append-only store of task results kept in a result file.
+ * Results are appended to the result file through a buffer
+ * flushed periodically, so many results are written at once,
+ * and the file is synchronized with the disk less frequently.
+ * The keys of computed tasks are journaled in an index file
+ * (the result file name with the suffix .idx) as 64-bit hashes,
+ * each followed by the length of the result file up to the end of the result line.
+ * On opening the completed tasks are read from the index
+ * and only the part of the result file not covered by the index
+ * is parsed, e.g. the results written before a crash
+ * or appended to the file by hand.
+ * The whole result file is parsed only if the index is missing
+ * or does not match the result file.
+ * If the hash of a task is found the task is compared
+ * with the task of the result line pointed by the index,
+ * so tasks with colliding hashes are not taken for computed.
+ */
+public class ResultStore
+{
+    /** Suffix of the index file name. */
+    public static final String s_strIndexSuffix = ".idx";
+    /** Size of one index record: the hash of a task and the length of the result file. */
+    static final int s_nIndexRecordSize = 16;
+
+    File m_fResults;
+    File m_fIndex;
+    FileOutputStream m_fosResults;
+    FileOutputStream m_fosIndex;
+    BufferedOutputStream m_bosResults;
+    DataOutputStream m_dosIndex;
+    /** Result file opened for reading the result lines pointed by the index. */
+    RandomAccessFile m_rafResults;
+    /** Length of the result file including the buffered results. */
+    long m_lLength;
+    /** Hashes of computed tasks mapped to the ends of the first result lines with these hashes. */
+    LongMap m_Computed = new LongMap();
+    /** Computed tasks with the hashes colliding with the hashes of other computed tasks. */
+    HashSet<String> m_Collided = new HashSet<String>();
+    boolean m_bModified = false;
+    boolean m_bUnsynchronized = false;
+    long m_lLastSync;
+    int m_nSyncMillis;
+    Timer m_Timer;
+
+    /**
+     * Opens a result store for a given result file,
+     * the result file and the index file are created if they do not exist.
+     *
+     * @param resultFile    Name of the result file.
+     * @param flushMillis   Time in milliseconds between flushes of buffered results.
+     * @param syncMillis    Time in milliseconds between synchronizations of the files with the disk.
+     * @throws IOException  If an I/O error has occured.
+     */
+    public ResultStore(String resultFile, int flushMillis, int syncMillis) throws IOException
+    {
+        m_fResults = new File(resultFile);
+        m_fIndex = new File(resultFile+s_strIndexSuffix);
+        m_nSyncMillis = syncMillis;
+        m_rafResults = new RandomAccessFile(m_fResults, "rw");
+        long indexed = readIndex();
+        m_fosIndex = new FileOutputStream(m_fIndex, true);
+        m_dosIndex = new DataOutputStream(new BufferedOutputStream(m_fosIndex));
+        m_lLength = m_fResults.length();
+        if (indexed<m_lLength)
+            indexResults(indexed);
+        m_fosResults = new FileOutputStream(m_fResults, true);
+        m_bosResults = new BufferedOutputStream(m_fosResults, 1<<16);
+        m_lLastSync = System.currentTimeMillis();
+        m_Timer = new Timer("SGM Result Store "+m_fResults.getName(), true);
+        m_Timer.schedule(new TimerTask()
+        {
+            public void run()
+            {
+                try { flush(); } catch (IOException e) { e.printStackTrace(); }
+            }
+        }, flushMillis, flushMillis);
+    }
+
+    /**
+     * Reads the hashes of computed tasks from the index file.
+     * An incomplete last record is truncated.
+     * If the index covers more than the result file contains
+     * the index is cleared and the whole result file is indexed again.
+     *
+     * @return              Length of the result file covered by the index.
+     * @throws IOException  If an I/O error has occured.
+     */
+    long readIndex() throws IOException
+    {
+        if (!m_fIndex.exists())
+            return 0;
+        long records = m_fIndex.length()/s_nIndexRecordSize;
+        long indexed = 0;
+        ArrayList<Long> repeated = new ArrayList<Long>();
+        DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(m_fIndex), 1<<16));
+        try
+        {
+            for (long r = 0; r < records; r++)
+            {
+                long h = dis.readLong();
+                indexed = dis.readLong();
+                if (!m_Computed.put(h, indexed))
+                    repeated.add(indexed);
+            }
+        }
+        finally
+        {
+            dis.close();
+        }
+        if (indexed>m_fResults.length())
+        {
+            m_Computed = new LongMap();
+            records = 0;
+            indexed = 0;
+        }
+        else
+            for (long end : repeated)
+                addCollided(taskAt(end));
+        if (m_fIndex.length()!=records*s_nIndexRecordSize)
+        {
+            RandomAccessFile raf = new RandomAccessFile(m_fIndex, "rw");
+            raf.setLength(records*s_nIndexRecordSize);
+            raf.close();
+        }
+        return indexed;
+    }
+
+    /**
+     * Parses the part of the result file not covered by the index
+     * and adds the tasks found to the index.
+     *
+     * @param from          Position in the result file the parsing starts from.
+     * @throws IOException  If an I/O error has occured.
+     */
+    void indexResults(long from) throws IOException
+    {
+        FileInputStream fis = new FileInputStream(m_fResults);
+        try
+        {
+            fis.getChannel().position(from);
+            InputStream is = new BufferedInputStream(fis, 1<<16);
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            long end = from;
+            for (int b = is.read(); b!=-1; b = is.read())
+            {
+                end++;
+                if (b!='\n')
+                    line.write(b);
+                if (b=='\n' || end==m_lLength)
+                {
+                    String task = taskOf(line.toString());
+                    line.reset();
+                    if (task.length()>0 && !contains(task))
+                        index(task, end);
+                }
+            }
+        }
+        finally
+        {
+            fis.close();
+        }
+        m_dosIndex.flush();
+    }
+
+    /**
+     * Adds a computed task to the index.
+     *
+     * @param task          Task.
+     * @param end           Length of the result file up to the end of the result line of the task.
+     * @throws IOException  If an I/O error has occured.
+     */
+    void index(String task, long end) throws IOException
+    {
+        long h = hash(task);
+        if (!m_Computed.put(h, end))
+            m_Collided.add(task);
+        m_dosIndex.writeLong(h);
+        m_dosIndex.writeLong(end);
+    }
+
+    /**
+     * Adds a task with the hash found more than once in the index
+     * if the task differs from the task of the first result line with this hash.
+     *
+     * @param task          Task.
+     * @throws IOException  If an I/O error has occured.
+     */
+    void addCollided(String task) throws IOException
+    {
+        if (!task.equals(taskAt(m_Computed.get(hash(task)))))
+            m_Collided.add(task);
+    }
+
+    /**
+     * Returns the task from a result line.
+     *
+     * @param line Result line.
+     * @return     Task from the result line.
+     */
+    static String taskOf(String line)
+    {
+        StringTokenizer strtok = new StringTokenizer(line,"|");
+        if (!strtok.hasMoreTokens()) return "";
+        return strtok.nextToken().trim();
+    }
+
+    /**
+     * Returns the task from the result line ending at a given position of the result file.
+     * The buffered results are written to the result file before reading.
+     *
+     * @param end           Length of the result file up to the end of the result line.
+     * @return              Task from the result line.
+     * @throws IOException  If an I/O error has occured.
+     */
+    String taskAt(long end) throws IOException
+    {
+        if (m_bosResults!=null)
+            m_bosResults.flush();
+        if (end<0 || end>m_rafResults.length())
+            return "";
+        byte[] block = new byte[1024];
+        long stop = end;
+        while (stop>0)
+        {
+            m_rafResults.seek(stop-1);
+            int b = m_rafResults.read();
+            if (b!='\n' && b!='\r')
+                break;
+            stop--;
+        }
+        long start = stop;
+        search: while (start>0)
+        {
+            int len = (int)Math.min(block.length, start);
+            m_rafResults.seek(start-len);
+            m_rafResults.readFully(block, 0, len);
+            for (int i = len-1; i >= 0; i--)
+                if (block[i]=='\n')
+                {
+                    start -= len-1-i;
+                    break search;
+                }
+            start -= len;
+        }
+        byte[] line = new byte[(int)(stop-start)];
+        m_rafResults.seek(start);
+        m_rafResults.readFully(line);
+        return taskOf(new String(line));
+    }
+
+    /**
+     * Returns a 64-bit hash of a task.
+     *
+     * @param task Task.
+     * @return     Hash of the task.
+     */
+    static long hash(String task)
+    {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < task.length(); i++)
+        {
+            h ^= task.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Checks whether a task has been computed.
+     * If the hash of the task is found the task is compared
+     * with the task of the stored result line.
+     *
+     * @param task          Task.
+     * @return              True if the result of the task is stored.
+     * @throws IOException  If an I/O error has occured.
+     */
+    public synchronized boolean contains(String task) throws IOException
+    {
+        long end = m_Computed.get(hash(task));
+        if (end<0)
+            return false;
+        return m_Collided.contains(task) || task.equals(taskAt(end));
+    }
+
+    /**
+     * Returns the number of stored results.
+     *
+     * @return Number of stored results.
+     */
+    public synchronized int size()
+    {
+        return m_Computed.size()+m_Collided.size();
+    }
+
+    /**
+     * Appends the result of a task if the task has not been computed yet.
+     * The result is written to the disk with the next flush.
+     *
+     * @param line          Result line beginning with the task.
+     * @return              True if the result has been appended.
+     * @throws IOException  If an I/O error has occured or the store is closed.
+     */
+    public synchronized boolean append(String line) throws IOException
+    {
+        if (m_Timer==null)
+            throw new IOException("Result store "+m_fResults+" is closed");
+        String task = taskOf(line);
+        if (contains(task))
+            return false;
+        byte[] bytes = (line+System.lineSeparator()).getBytes();
+        m_bosResults.write(bytes);
+        m_lLength += bytes.length;
+        index(task, m_lLength);
+        m_bModified = true;
+        return true;
+    }
+
+    /**
+     * Writes the buffered results to the result file before the index
+     * and synchronizes both files with the disk
+     * if the synchronization period has elapsed.
+     *
+     * @throws IOException  If an I/O error has occured.
+     */
+    public synchronized void flush() throws IOException
+    {
+        if (m_Timer==null)
+            return;
+        if (m_bModified)
+        {
+            m_bosResults.flush();
+            m_dosIndex.flush();
+            m_bModified = false;
+            m_bUnsynchronized = true;
+        }
+        if (m_bUnsynchronized && System.currentTimeMillis()-m_lLastSync>=m_nSyncMillis)
+            sync();
+    }
+
+    /**
+     * Synchronizes the result file and the index file with the disk.
+     *
+     * @throws IOException  If an I/O error has occured.
+     */
+    synchronized void sync() throws IOException
+    {
+        m_fosResults.getChannel().force(false);
+        m_fosIndex.getChannel().force(false);
+        m_bUnsynchronized = false;
+        m_lLastSync = System.currentTimeMillis();
+    }
+
+    /**
+     * Writes all buffered results, synchronizes the files
+     * with the disk and closes this store.
+     *
+     * @throws IOException  If an I/O error has occured.
+     */
+    public synchronized void close() throws IOException
+    {
+        if (m_Timer==null)
+            return;
+        m_Timer.cancel();
+        m_Timer = null;
+        m_bosResults.flush();
+        m_dosIndex.flush();
+        sync();
+        m_bosResults.close();
+        m_dosIndex.close();
+        m_rafResults.close();
+    }
+
+    /**
+     * Map from long keys to non-negative long values with open addressing.
+     * The key 0 is stored separately.
+     */
+    static class LongMap
+    {
+        long[] m_arrKeys = new long[1024];
+        long[] m_arrValues = new long[1024];
+        int m_nSize = 0;
+        boolean m_bContainsZero = false;
+        long m_lZeroValue;
+
+        /** Returns the value of a key or -1 if the key is not in the map. */
+        long get(long key)
+        {
+            if (key==0)
+                return m_bContainsZero ? m_lZeroValue : -1;
+            int mask = m_arrKeys.length-1;
+            for (int pos = (int)key & mask; m_arrKeys[pos]!=0; pos = (pos+1) & mask)
+                if (m_arrKeys[pos]==key)
+                    return m_arrValues[pos];
+            return -1;
+        }
+
+        /** Adds a key with a value, returns false and keeps the old value if the key is in the map. */
+        boolean put(long key, long value)
+        {
+            if (key==0)
+            {
+                if (m_bContainsZero) return false;
+                m_bContainsZero = true;
+                m_lZeroValue = value;
+                m_nSize++;
+                return true;
+            }
+            if (2*(m_nSize+1)>m_arrKeys.length)
+            {
+                long[] oldKeys = m_arrKeys;
+                long[] oldValues = m_arrValues;
+                m_arrKeys = new long[2*oldKeys.length];
+                m_arrValues = new long[2*oldValues.length];
+                for (int i = 0; i < oldKeys.length; i++)
+                    if (oldKeys[i]!=0) insert(oldKeys[i], oldValues[i]);
+            }
+            if (!insert(key, value))
+                return false;
+            m_nSize++;
+            return true;
+        }
+
+        private boolean insert(long key, long value)
+        {
+            int mask = m_arrKeys.length-1;
+            int pos = (int)key & mask;
+            for (; m_arrKeys[pos]!=0; pos = (pos+1) & mask)
+                if (m_arrKeys[pos]==key)
+                    return false;
+            m_arrKeys[pos] = key;
+            m_arrValues[pos] = value;
+            return true;
+        }
+
+        int size()
+        {
+            return m_nSize;
+        }
+    }
+}
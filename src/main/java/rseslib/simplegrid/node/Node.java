@@ -21,9 +21,9 @@
 package rseslib.simplegrid.node;
 
 
-import java.io.File;
 import java.io.FileWriter;
 import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
@@ -32,12 +32,12 @@ import java.util.LinkedList;
 import java.util.Properties;
 import java.util.StringTokenizer;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import rseslib.processing.classification.Classifier;
 import rseslib.processing.classification.SingleClassifierTest;
 import rseslib.processing.classification.TestResult;
 import rseslib.simplegrid.common.Communication;
-import rseslib.structure.table.ArrayListDoubleDataTable;
 import rseslib.structure.table.DoubleDataTable;
 import rseslib.system.progress.EmptyProgress;
 import rseslib.system.progress.Progress;
@@ -47,7 +47,7 @@ import rseslib.system.progress.Progress;
  *
  */
 
-public class Node
+public class Node implements Runnable
 {
     boolean settings_deepdebug = false;
     boolean settings_forcerelay = false;
@@ -59,30 +59,81 @@ public class Node
     int m_nLastFailure = -1;
     
     int m_nComputedTasks = 0;
+    int m_nNoOfThreads;
+    TableCache m_Cache;
+    String m_sServerName;
     InetAddress m_oManagerAddress[];
     ArrayList<InetAddress> m_aRelays;
     
     int m_nTimeoutMillis = 5*1000;
+    /* Identifier sent with task requests and heartbeats, the manager leases tasks to this identifier */
+    static AtomicInteger s_nNodeCounter = new AtomicInteger();
+    String m_sNodeId = ManagementFactory.getRuntimeMXBean().getName()+"."+s_nNodeCounter.incrementAndGet();
+    long m_lLastHeartbeat = 0;
+    /* After the manager answers it has no task for now, tasks are requested again after a delay */
+    int m_nNoTaskDelayMillis = 1000;
+    long m_lNextTaskRequest = 0;
     int m_nLastActionType = -1; /* Stores last action to sleep for too-many "3" = get new task */
     boolean m_nChannelFound = false;
     int m_nChannel = 0;
     NodeInfoFrame m_frame;
     LinkedList<String> m_llScheduledTasks = new LinkedList<String>();
     LinkedList<String> m_llDoneTasks = new LinkedList<String>();
+    /* Failed tasks to be released, the manager schedules them again */
+    LinkedList<String> m_llFailedTasks = new LinkedList<String>();
+    volatile boolean m_bStopped = false;
+    volatile DatagramSocket m_CurrentSocket = null;
+    
+    /* Scheduling latency: round trips of successful task requests */
+    int m_nTaskRequests = 0;
+    long m_lTaskRequestNanos = 0;
+    long m_lMaxTaskRequestNanos = 0;
+    
+    /* Worker thread: takes scheduled tasks one by one and computes them */
+    class Worker implements Runnable
+    {
+        public void run()
+        {
+            try
+            {
+                while (true)
+                    doProcessing(takeScheduledTask());
+            }
+            catch (InterruptedException e) { }
+        }
+    }
     
     public Node(String aServerName,ArrayList<String> alRelayServers,boolean deepdebug,boolean forcerelay)
+    {
+        this(aServerName,alRelayServers,deepdebug,forcerelay,Runtime.getRuntime().availableProcessors(),Runtime.getRuntime().maxMemory()/4);
+    }
+    
+    public Node(String aServerName,ArrayList<String> alRelayServers,boolean deepdebug,boolean forcerelay,int threads,long cacheBytes)
+    {
+        this(aServerName,Communication.s_aUDPPorts,alRelayServers,deepdebug,forcerelay,threads,cacheBytes,true);
+        run();
+    }
+    
+    /* Creates a node communicating with the manager on given ports, the node is started with run() */
+    public Node(String aServerName,int[] ports,ArrayList<String> alRelayServers,boolean deepdebug,boolean forcerelay,int threads,long cacheBytes,boolean gui)
     {
         settings_deepdebug=deepdebug;
+        m_Cache = new TableCache(cacheBytes);
         settings_forcerelay=forcerelay;
+        m_sServerName=aServerName;
+        m_nNoOfThreads = Math.max(threads,1);
         m_frame=null;
-        try
+        if (gui)
         {
-            m_frame = new NodeInfoFrame();
-            m_frame.setVisible(true);
+            try
+            {
+                m_frame = new NodeInfoFrame();
+                m_frame.setVisible(true);
+            }
+            catch (Exception e) { }
         }
-        catch (Exception e) { }
-        m_aUDPPorts = new int[Communication.s_aUDPPorts.length];
-        System.arraycopy(Communication.s_aUDPPorts, 0, m_aUDPPorts, 0, m_aUDPPorts.length);
+        m_aUDPPorts = new int[ports.length];
+        System.arraycopy(ports, 0, m_aUDPPorts, 0, m_aUDPPorts.length);
         m_nChannel = (int)(Math.random()*m_aUDPPorts.length);
         m_aConnectionTrials = new int[m_aUDPPorts.length];
         m_aPositiveConnections = new int[m_aUDPPorts.length];
@@ -95,21 +146,28 @@ public class Node
               m_aRelays.add(addr);
             } catch (Exception er) { }
         }
-
-        
+    }
+    
+    public void run()
+    {
+        Thread[] workers = new Thread[m_nNoOfThreads];
         try
         {
-            InetAddress server = InetAddress.getByName(aServerName); 
+            InetAddress server = InetAddress.getByName(m_sServerName); 
             m_oManagerAddress  = new InetAddress[m_aUDPPorts.length];
             for (int i=0;i<m_oManagerAddress.length;i++) m_oManagerAddress[i]=server; 
-            while (true)
+            /* Workers compute tasks, this thread only communicates with the manager */
+            for (int i=0;i<m_nNoOfThreads;i++)
             {
-                if (!m_llDoneTasks.isEmpty() || m_llScheduledTasks.isEmpty())
-                {
+                workers[i] = new Thread(new Worker(),"SGM Worker "+i);
+                workers[i].setDaemon(true);
+                workers[i].start();
+            }
+            while (!m_bStopped)
+            {
+                waitForCommunication();
+                if (!m_bStopped)
                     doCommunication();
-                }
-                else 
-                    doProcessing();
             }
         }
         catch (Exception e)
@@ -128,6 +186,8 @@ public class Node
                 catch (Exception e2) { }
             }
         }
+        for (Thread worker : workers)
+            if (worker!=null) worker.interrupt();
         try
         {
             m_frame.setVisible(false);
@@ -135,7 +195,139 @@ public class Node
         }
         catch (Exception e) { }
     }
+    
+    /* Stops the node after the current communication with the manager, the computed tasks are abandoned */
+    public synchronized void stop()
+    {
+        m_bStopped = true;
+        DatagramSocket dsoc = m_CurrentSocket;
+        if (dsoc!=null) dsoc.close();
+        notifyAll();
+    }
+    
+    public synchronized int getNoOfComputedTasks()
+    {
+        return m_nComputedTasks;
+    }
+    
+    public synchronized int getNoOfTaskRequests()
+    {
+        return m_nTaskRequests;
+    }
+    
+    public synchronized long getTaskRequestNanos()
+    {
+        return m_lTaskRequestNanos;
+    }
+    
+    public synchronized long getMaxTaskRequestNanos()
+    {
+        return m_lMaxTaskRequestNanos;
+    }
 
+    /* Waits until there are results or failed tasks to be sent, the queue of scheduled tasks
+       is shorter than the number of workers and more tasks should be prefetched
+       or a heartbeat should be sent to the manager */
+    synchronized void waitForCommunication() throws InterruptedException
+    {
+        while (!m_bStopped && m_llDoneTasks.isEmpty() && m_llFailedTasks.isEmpty())
+        {
+            long time = System.currentTimeMillis();
+            long wait = m_lLastHeartbeat+Communication.s_nHeartbeatMillis-time;
+            if (m_llScheduledTasks.size()<m_nNoOfThreads)
+                wait = Math.min(wait,m_lNextTaskRequest-time);
+            if (wait<=0)
+                break;
+            wait(wait);
+        }
+    }
+    
+    synchronized void addTaskRequestTime(long nanos)
+    {
+        m_nTaskRequests++;
+        m_lTaskRequestNanos += nanos;
+        if (nanos>m_lMaxTaskRequestNanos) m_lMaxTaskRequestNanos = nanos;
+    }
+    
+    synchronized boolean needsTasks()
+    {
+        return m_llScheduledTasks.size()<m_nNoOfThreads && System.currentTimeMillis()>=m_lNextTaskRequest;
+    }
+    
+    synchronized String takeScheduledTask() throws InterruptedException
+    {
+        while (m_llScheduledTasks.isEmpty())
+            wait();
+        String task = m_llScheduledTasks.remove();
+        notifyAll();
+        return task;
+    }
+    
+    synchronized void addScheduledTasks(String answer)
+    {
+        StringTokenizer strtok = new StringTokenizer(answer,"|");
+        while (strtok.hasMoreTokens())
+            m_llScheduledTasks.add(strtok.nextToken().trim());
+        notifyAll();
+    }
+    
+    synchronized void addDoneTask(String result)
+    {
+        m_llDoneTasks.add(result);
+        m_nComputedTasks++;
+        notifyAll();
+    }
+    
+    /* Takes as many results as fit into one packet, at least one result */
+    synchronized ArrayList<String> takeDoneTasks()
+    {
+        if (m_llDoneTasks.isEmpty())
+            return null;
+        ArrayList<String> results = new ArrayList<String>();
+        int length = Communication.s_strPutTasks.length();
+        do
+        {
+            String result = m_llDoneTasks.remove();
+            results.add(result);
+            length += result.length()+1;
+        }
+        while (!m_llDoneTasks.isEmpty() && length+m_llDoneTasks.getFirst().length()+1<=Communication.s_nPacketSize);
+        return results;
+    }
+    
+    synchronized void returnDoneTasks(ArrayList<String> results)
+    {
+        m_llDoneTasks.addAll(results);
+    }
+    
+    synchronized void addFailedTask(String task)
+    {
+        m_llFailedTasks.add(task);
+        notifyAll();
+    }
+    
+    /* Takes as many failed tasks as fit into one packet, at least one task */
+    synchronized ArrayList<String> takeFailedTasks()
+    {
+        if (m_llFailedTasks.isEmpty())
+            return null;
+        ArrayList<String> tasks = new ArrayList<String>();
+        int length = Communication.s_strReleaseTasks.length()+m_sNodeId.length()+2;
+        do
+        {
+            String task = m_llFailedTasks.remove();
+            tasks.add(task);
+            length += task.length()+1;
+        }
+        while (!m_llFailedTasks.isEmpty() && length+m_llFailedTasks.getFirst().length()+1<=Communication.s_nPacketSize);
+        return tasks;
+    }
+    
+    synchronized void returnFailedTasks(ArrayList<String> tasks)
+    {
+        m_llFailedTasks.addAll(tasks);
+    }
+    
     void doCommunication()
     {
         int action = 0;
@@ -150,6 +342,8 @@ public class Node
         m_nLastFailure=m_nChannel;
 
         String message;
+        ArrayList<String> results = null;
+        ArrayList<String> failed = null;
         
         if (!m_nChannelFound)
         {
@@ -163,9 +357,17 @@ public class Node
                 System.out.flush();
             }
         }
-        else if (!m_llDoneTasks.isEmpty())
+        else if ((results = takeDoneTasks())!=null)
         {
-            message = m_llDoneTasks.remove();
+            if (results.size()==1)
+                message = Communication.s_strPutTask+" "+results.get(0);
+            else
+            {
+                StringBuffer sb = new StringBuffer(Communication.s_strPutTasks);
+                for (String result : results)
+                    sb.append("\n").append(result);
+                message = sb.toString();
+            }
             action = 2;
             if (m_frame!=null)
                 m_frame.updateInfo(m_oManagerAddress[m_nChannel].getHostAddress(),getPortString(), m_nComputedTasks, "Sending results ...");
@@ -174,9 +376,38 @@ public class Node
                 System.out.print(Communication.getTimeStamp()+" Node sending results on UDPChannel "+m_nChannel+"... ");
                 System.out.flush();
             }
-        } else
+        }
+        else if ((failed = takeFailedTasks())!=null)
         {
-            message = Communication.s_strGetTask;
+            StringBuffer sb = new StringBuffer(Communication.s_strReleaseTasks);
+            sb.append(" ").append(m_sNodeId);
+            for (String task : failed)
+                sb.append("\n").append(task);
+            message = sb.toString();
+            action = 5;
+            if (m_frame!=null)
+                m_frame.updateInfo(m_oManagerAddress[m_nChannel].getHostAddress(),getPortString(), m_nComputedTasks, "Releasing failed tasks ...");
+            else
+            {
+                System.out.print(Communication.getTimeStamp()+" Node releasing failed tasks on UDPChannel "+m_nChannel+"... ");
+                System.out.flush();
+            }
+        }
+        else if (!needsTasks())
+        {
+            message = Communication.s_strHeartbeat+" "+m_sNodeId;
+            action = 4;
+            if (m_frame!=null)
+                m_frame.updateInfo(m_oManagerAddress[m_nChannel].getHostAddress(),getPortString(), m_nComputedTasks, "Sending heartbeat ...");
+            else
+            {
+                System.out.print(Communication.getTimeStamp()+" Node sending heartbeat on UDPChannel "+m_nChannel+"... ");
+                System.out.flush();
+            }
+        }
+        else
+        {
+            message = Communication.s_strGetTask+" "+m_sNodeId;
             action = 3;
             if (m_frame!=null)
                 m_frame.updateInfo(m_oManagerAddress[m_nChannel].getHostAddress(),getPortString(), m_nComputedTasks, "Requesting task ...");
@@ -193,9 +424,11 @@ public class Node
         m_nLastActionType=action;
         String answer = null;
         DatagramSocket dsoc = null;
+        long requestStart = System.nanoTime();
         try
         {
             dsoc = new DatagramSocket();
+            m_CurrentSocket = dsoc;
             dsoc.setSoTimeout(m_nTimeoutMillis);
             byte buf[] = message.getBytes();
             DatagramPacket dtgrm = new DatagramPacket(buf,buf.length,m_oManagerAddress[m_nChannel],m_aUDPPorts[m_nChannel]);
@@ -206,6 +439,7 @@ public class Node
             byte buf2[] = new byte[dtgrm.getLength()];
             System.arraycopy(buf,dtgrm.getOffset(),buf2,0,dtgrm.getLength());
             answer = new String(buf2);
+            dsoc.close();
         }
         catch (Exception e)
         { 
@@ -231,7 +465,11 @@ public class Node
             m_nChannelFound = false;
             if (action == 2)
             {
-                m_llDoneTasks.add(message);
+                returnDoneTasks(results);
+            }
+            else if (action == 5)
+            {
+                returnFailedTasks(failed);
             }
         }
         else
@@ -255,14 +493,41 @@ public class Node
             else if (action == 2)
             {
                 if (!answer.equalsIgnoreCase(Communication.s_strPutAnswer)) 
-                    m_llDoneTasks.add(message);
+                    returnDoneTasks(results);
+                else
+                {
+                    m_nLastActionType=-1;
+                    if (m_frame!=null)
+                        m_frame.updateCacheInfo(m_Cache.getStatistics());
+                    else
+                        System.out.println(Communication.getTimeStamp()+" "+m_Cache.getStatistics());
+                }
+            }
+            else if (action == 4)
+            {
+                m_lLastHeartbeat=System.currentTimeMillis();
+                m_nLastActionType=-1;
+            }
+            else if (action == 5)
+            {
+                /* managers not knowing the command answer with an error, the tasks are not sent again */
+                m_lLastHeartbeat=System.currentTimeMillis();
+                m_nLastActionType=-1;
+            }
+            else if (answer.equalsIgnoreCase(Communication.s_strNoTask))
+            {
+                m_lLastHeartbeat=System.currentTimeMillis();
+                m_lNextTaskRequest=m_lLastHeartbeat+m_nNoTaskDelayMillis;
+                m_nLastActionType=-1;
             }
             else /* action 3 */
             {
+                m_lLastHeartbeat=System.currentTimeMillis();
+                addTaskRequestTime(System.nanoTime()-requestStart);
                 //System.out.println("Received tasks length="+answer.length());
-                StringTokenizer strtok = new StringTokenizer(answer,"|");
-                while (strtok.hasMoreTokens())
-                    m_llScheduledTasks.add(strtok.nextToken().trim());
+                addScheduledTasks(answer);
+                /* Tasks received, prefetching of next tasks does not need to sleep */
+                m_nLastActionType=-1;
             }
         }
     }
@@ -307,11 +572,12 @@ public class Node
         if (m_nChannel==m_aUDPPorts.length) m_nChannel=0;        
     }
             
-    void doProcessing()
+    void doProcessing(String task)
     {
+        TableCache.Entry trnEntry = null;
+        TableCache.Entry tstEntry = null;
         try
         {
-            String task = m_llScheduledTasks.remove();
 
             if (m_frame!=null)
                 m_frame.updateInfo(m_oManagerAddress[m_nChannel].getHostAddress(),getPortString(), m_nComputedTasks, task);
@@ -340,8 +606,10 @@ public class Node
             }
             
             Progress emptyProg = new EmptyProgress();
-            DoubleDataTable trn = new ArrayListDoubleDataTable(new File(task_table_trn),emptyProg);
-            DoubleDataTable tst = new ArrayListDoubleDataTable(new File(task_table_tst),emptyProg);
+            trnEntry = m_Cache.acquire(task_table_trn);
+            tstEntry = m_Cache.acquire(task_table_tst);
+            DoubleDataTable trn = trnEntry.m_Table;
+            DoubleDataTable tst = tstEntry.m_Table;
             
             Class[] cTypes = new Class[3];
             cTypes[0] = task_prop.getClass();
@@ -360,11 +628,13 @@ public class Node
             StringBuffer sb = new StringBuffer();
             for (Entry e : stat.entrySet())
                 sb.append(e.getKey()+"="+e.getValue()+";");
-            m_llDoneTasks.add(Communication.s_strPutTask+" "+task+" | "+sb.toString());
-            m_nComputedTasks++;
+            addDoneTask(task+" | "+sb.toString());
         }
-        catch (Exception e)
+        catch (Throwable e)
         {
+            /* the manager is informed about the failure, otherwise the heartbeats would keep the lease forever */
+            System.out.println(Communication.getTimeStamp()+" Task failed: "+e);
+            addFailedTask(task);
             if (settings_deepdebug)
             {
                 try
@@ -378,6 +648,11 @@ public class Node
                 catch (Exception e2) { }
             }
         }
+        finally
+        {
+            if (trnEntry!=null) m_Cache.release(trnEntry);
+            if (tstEntry!=null) m_Cache.release(tstEntry);
+        }
     }
 
     
@@ -63,6 +63,8 @@ public class NodeInfoFrame extends JFrame
 
     private JLabel jLabel7 = null;
 
+    private JLabel jLabel8 = null;
+
     long start_time;
     /**
      * This is the default constructor
@@ -81,7 +83,7 @@ public class NodeInfoFrame extends JFrame
      */
     private void initialize()
     {
-        this.setSize(640, 160);
+        this.setSize(640, 180);
         this.setIconImage(Toolkit.getDefaultToolkit().getImage(getClass().getResource("/rseslib/simplegrid/sg_node16.gif")));
         this.setContentPane(getJContentPane());
         this.setTitle("SG-Node "+rseslib.simplegrid.common.Communication.s_strSGMVersion);
@@ -169,8 +171,10 @@ public class NodeInfoFrame extends JFrame
             jLabel6.setText("Automatic shutdown is not scheduled");
             jLabel7 = new JLabel();
             jLabel7.setText("Relay server is disabled");
+            jLabel8 = new JLabel();
+            jLabel8.setText("Table cache is empty");
             GridLayout gridLayout = new GridLayout();
-            gridLayout.setRows(7);
+            gridLayout.setRows(8);
             gridLayout.setColumns(1);
             jPanelCenter = new JPanel();
             jPanelCenter.setLayout(gridLayout);
@@ -181,6 +185,7 @@ public class NodeInfoFrame extends JFrame
             jPanelCenter.add(jLabel5, null);
             jPanelCenter.add(jLabel6, null);
             jPanelCenter.add(jLabel7, null);
+            jPanelCenter.add(jLabel8, null);
         }
         return jPanelCenter;
     }
@@ -223,6 +228,11 @@ public class NodeInfoFrame extends JFrame
             jLabel7.setText("Relaying servers: "+RelayServer.s_nRelayServerIsWorking+"  Relayed messages: "+RelayServer.s_nRelayedDatagramsCounter );
         }
     }
+
+    void updateCacheInfo(String statistics)
+    {
+        jLabel8.setText(statistics);
+    }
     public String getTime(long dtime)
     {
       int secs=(int)dtime/1000;
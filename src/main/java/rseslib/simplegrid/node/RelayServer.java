@@ -73,7 +73,7 @@ public class RelayServer implements Runnable
             {                
                 try
                 {
-                    byte[] buf = new byte[1024];
+                    byte[] buf = new byte[Communication.s_nBufferSize];
                     DatagramPacket dtgrm = new DatagramPacket(buf,buf.length);
                     relay_soc.receive(dtgrm);
                     InetAddress received_addr = dtgrm.getAddress();
@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.simplegrid.node;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import rseslib.structure.attribute.NominalValueScope;
+import rseslib.structure.table.ArrayListDoubleDataTable;
+import rseslib.structure.table.DoubleDataTable;
+import rseslib.system.progress.EmptyProgress;
+
+/**
+ * Memory-bounded cache of data tables loaded by a node.
+ * Tables are identified by the canonical path, the size
+ * and the modification time of a file, so a modified file is loaded again.
+ * A table is kept in the cache while it is used by a task
+ * and the least recently used tables not used by any task
+ * are removed when the estimated size of the cached tables
+ * exceeds the limit. Each table is loaded in its own nominal value scope
+ * released when the table is removed from the cache.
+ */
+public class TableCache
+{
+    /** Cached table loaded from one file. */
+    class Entry
+    {
+        String m_sKey;
+        DoubleDataTable m_Table = null;
+        NominalValueScope m_Scope = null;
+        Exception m_LoadingError = null;
+        long m_lBytes = 0;
+        int m_nUsers = 0;
+    }
+
+    /** Maximal estimated size of cached tables in bytes. */
+    long m_lMaxBytes;
+    /** Estimated size of cached tables in bytes. */
+    long m_lCachedBytes = 0;
+    /** Cached tables in the order from the least to the most recently used. */
+    LinkedHashMap<String,Entry> m_hmEntries = new LinkedHashMap<String,Entry>(16,0.75f,true);
+    int m_nHits = 0;
+    int m_nMisses = 0;
+    int m_nEvictions = 0;
+
+    /**
+     * Constructs a cache with a limit on the estimated size of cached tables.
+     *
+     * @param maxBytes Maximal estimated size of cached tables in bytes.
+     */
+    public TableCache(long maxBytes)
+    {
+        m_lMaxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the cache entry with the table loaded from a file
+     * loading the table if it is not cached.
+     * The entry must be returned with release after the table is no longer used.
+     *
+     * @param fileName   Name of a data file.
+     * @return           Cache entry with the table loaded from the file.
+     * @throws Exception If loading the table has failed.
+     */
+    public Entry acquire(String fileName) throws Exception
+    {
+        File file = new File(fileName);
+        String key = file.getCanonicalPath()+"|"+file.length()+"|"+file.lastModified();
+        Entry entry;
+        synchronized (this)
+        {
+            entry = m_hmEntries.get(key);
+            if (entry==null)
+            {
+                m_nMisses++;
+                entry = new Entry();
+                entry.m_sKey = key;
+                m_hmEntries.put(key, entry);
+            }
+            else
+                m_nHits++;
+            entry.m_nUsers++;
+        }
+        boolean loaded = false;
+        synchronized (entry)
+        {
+            if (entry.m_Table==null && entry.m_LoadingError==null)
+            {
+                NominalValueScope scope = new NominalValueScope();
+                scope.enter();
+                try
+                {
+                    entry.m_Table = new ArrayListDoubleDataTable(file, new EmptyProgress());
+                    entry.m_Scope = scope;
+                    entry.m_lBytes = estimateBytes(entry.m_Table);
+                    loaded = true;
+                }
+                catch (Exception e)
+                {
+                    entry.m_LoadingError = e;
+                }
+                finally
+                {
+                    scope.exit();
+                    if (!loaded) scope.release();
+                }
+            }
+        }
+        synchronized (this)
+        {
+            if (loaded)
+            {
+                m_lCachedBytes += entry.m_lBytes;
+                evict();
+            }
+            else if (entry.m_LoadingError!=null)
+            {
+                entry.m_nUsers--;
+                if (m_hmEntries.get(key)==entry) m_hmEntries.remove(key);
+                throw entry.m_LoadingError;
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Returns an entry acquired by a task.
+     *
+     * @param entry Entry no longer used by the task.
+     */
+    public synchronized void release(Entry entry)
+    {
+        entry.m_nUsers--;
+        evict();
+    }
+
+    /**
+     * Removes the least recently used tables not used by any task
+     * until the estimated size of cached tables does not exceed the limit.
+     */
+    void evict()
+    {
+        Iterator<Entry> it = m_hmEntries.values().iterator();
+        while (m_lCachedBytes>m_lMaxBytes && it.hasNext())
+        {
+            Entry entry = it.next();
+            if (entry.m_nUsers==0 && entry.m_Table!=null)
+            {
+                it.remove();
+                m_lCachedBytes -= entry.m_lBytes;
+                m_nEvictions++;
+                entry.m_Scope.release();
+            }
+        }
+    }
+
+    /**
+     * Estimates the memory used by a table:
+     * an object with an array of doubles for each data object.
+     *
+     * @param table Data table.
+     * @return      Estimated size of the table in bytes.
+     */
+    static long estimateBytes(DoubleDataTable table)
+    {
+        return (long)table.noOfObjects()*(8L*table.attributes().noOfAttr()+64);
+    }
+
+    /**
+     * Returns the statistics of this cache.
+     *
+     * @return Statistics of this cache.
+     */
+    public synchronized String getStatistics()
+    {
+        return "Table cache: "+m_hmEntries.size()+" tables ("+(m_lCachedBytes>>20)+" MB), "
+            +m_nHits+" hits, "+m_nMisses+" misses, "+m_nEvictions+" evictions";
+    }
+}
@@ -30,6 +30,7 @@ import java.util.Arrays;
 import java.util.Collection;
 
 import rseslib.structure.attribute.formats.ArffHeaderReader;
+import rseslib.structure.attribute.formats.BinaryHeaderReader;
 import rseslib.structure.attribute.formats.DataFormatRecognizer;
 import rseslib.structure.attribute.formats.HeaderFormatException;
 import rseslib.structure.attribute.formats.HeaderReader;
@@ -103,6 +104,9 @@ public class ArrayHeader implements Header
             hr = new RseslibHeaderReader(br);
             br.close();
             break;
+        case BINARY:
+            hr = new BinaryHeaderReader(headerFile);
+            break;
         }
         initialize(hr);
     }
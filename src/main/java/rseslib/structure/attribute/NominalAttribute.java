@@ -23,9 +23,7 @@ package rseslib.structure.attribute;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
  * Nominal attribute information.
@@ -36,15 +34,24 @@ public class NominalAttribute extends Attribute
 {
     /** Serialization version. */
 	private static final long serialVersionUID = 2L;
-	/** Map between string and global double code of nominal values. */
-    private static Map<String,Integer> s_StringValueToGlobalValueCodeMap = new HashMap<String,Integer>();
-    /** Map between global double codes and string representation of nominal values. */
-    private static ArrayList<String> s_StringValueList = new ArrayList<String>();
+	/** Dictionary between string representation and global codes of nominal values. */
+    private static final NominalValueDictionary s_Dictionary = new NominalValueDictionary();
 
-    /** The number of values of this attribute. */
-    private int m_nNoOfValues = 0;
-    /** Map between local integer and global double codes of nominal values. */
-    private int[] m_LocalToGlobalValueCodeMap = new int[2];
+    /**
+     * Published maps between local and global codes of the values of this attribute.
+     * The maps are never modified, so they can be read without locking.
+     * They are replaced with new maps from time to time
+     * and they can miss the values added since the last replacement.
+     */
+    private volatile ValueCodeMaps m_ValueCodeMaps = ValueCodeMaps.EMPTY;
+    /** Number of values of this attribute including the values not published yet. */
+    private volatile int m_nNoOfValues = 0;
+    /** Global codes of all values indexed with local codes, may be longer than the number of values. Guarded by this object. */
+    private int[] m_LocalToGlobal = new int[4];
+    /** Open addressing hash map between global and local codes of all values. Guarded by this object. */
+    private int[] m_GlobalToLocal = emptyGlobalToLocalMap(4);
+    /** Number of added values and locked lookups since the last publication of the maps. Guarded by this object. */
+    private int m_nUnpublishedOperations = 0;
     /** Global code of the least frequent value of this attribute. Can be used only in the attributes with 2 values, -1 in the attributes with more than 2 values. */
     private double m_dMinorityValueGlobalCode = -1;
 
@@ -71,8 +78,13 @@ public class NominalAttribute extends Attribute
     public NominalAttribute(Type attrType, NominalAttribute attr)
     {
         super(attrType, (attrType!=Type.text)?ValueSet.nominal:ValueSet.nonapplicable, attr.name());
-        m_nNoOfValues = attr.m_nNoOfValues;
-        m_LocalToGlobalValueCodeMap = attr.m_LocalToGlobalValueCodeMap;
+        synchronized (attr)
+        {
+            m_nNoOfValues = attr.m_nNoOfValues;
+            m_LocalToGlobal = attr.m_LocalToGlobal.clone();
+            m_GlobalToLocal = attr.m_GlobalToLocal.clone();
+        }
+        publish();
         m_dMinorityValueGlobalCode = attr.m_dMinorityValueGlobalCode;
     }
 
@@ -84,9 +96,10 @@ public class NominalAttribute extends Attribute
      */
     private void writeObject(ObjectOutputStream out) throws IOException
     {
-    	out.writeInt(m_nNoOfValues);
-    	for (int v = 0; v < m_nNoOfValues; v++)
-    		out.writeObject(stringValue(m_LocalToGlobalValueCodeMap[v]));
+    	ValueCodeMaps maps = completeMaps();
+    	out.writeInt(maps.m_nNoOfValues);
+    	for (int v = 0; v < maps.m_nNoOfValues; v++)
+    		out.writeObject(stringValue(maps.m_LocalToGlobal[v]));
     	if(m_dMinorityValueGlobalCode == -1)
     		out.writeObject((String)null);
     	else
@@ -101,8 +114,9 @@ public class NominalAttribute extends Attribute
      */
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
     {
-    	m_nNoOfValues = 0;
-    	m_LocalToGlobalValueCodeMap = new int[2];
+    	m_ValueCodeMaps = ValueCodeMaps.EMPTY;
+    	m_LocalToGlobal = new int[4];
+    	m_GlobalToLocal = emptyGlobalToLocalMap(4);
     	int noOfValues = in.readInt();
     	for (int v = 0; v < noOfValues; v++)
     		globalValueCode((String)in.readObject());
@@ -113,6 +127,16 @@ public class NominalAttribute extends Attribute
     		m_dMinorityValueGlobalCode = globalValueCode(minorityValue);
     }
 
+    /**
+     * Returns the global dictionary of nominal values.
+     *
+     * @return Global dictionary of nominal values.
+     */
+    static NominalValueDictionary dictionary()
+    {
+        return s_Dictionary;
+    }
+
     /**
      * Returns the number of values of this attribute.
      *
@@ -127,34 +151,135 @@ public class NominalAttribute extends Attribute
      * Converts the string representation of a nominal value to a double value
      * that is unique for the whole system.
      * Global codes are successive integer numbers.
+     * If a nominal value scope is entered in the current thread
+     * the value is registered in this scope,
+     * otherwise the value is kept until the end of the program.
+     * The method can be called concurrently.
      *
      * @param valueName String representation of a nominal value.
      * @return          Global double code of the nominal value.
      */
     public double globalValueCode(String valueName)
     {
-        Integer value = (Integer)s_StringValueToGlobalValueCodeMap.get(valueName);
-        if (value==null)
-        {
-            value = new Integer(s_StringValueList.size());
-            s_StringValueToGlobalValueCodeMap.put(valueName, value);
-            s_StringValueList.add(valueName);
-        }
-        boolean newValue = true;
-        for (int v = 0; newValue && v < m_nNoOfValues; v++)
-            if (m_LocalToGlobalValueCodeMap[v]==value.intValue()) newValue = false;
-        if (newValue)
-        {
-            if (m_nNoOfValues == m_LocalToGlobalValueCodeMap.length)
+        int value = s_Dictionary.code(valueName, NominalValueScope.current());
+        if (m_ValueCodeMaps.localValueCode(value)==-1)
+            synchronized (this)
             {
-                int[] doubleLocalIntToGlobalIntValueMap = new int[2*m_LocalToGlobalValueCodeMap.length];
-                for (int v = 0; v < m_LocalToGlobalValueCodeMap.length; v++)
-                    doubleLocalIntToGlobalIntValueMap[v] = m_LocalToGlobalValueCodeMap[v];
-                m_LocalToGlobalValueCodeMap = doubleLocalIntToGlobalIntValueMap;
+                if (getGlobalToLocal(m_GlobalToLocal, value)==-1)
+                {
+                    if (m_nNoOfValues==m_LocalToGlobal.length)
+                        m_LocalToGlobal = Arrays.copyOf(m_LocalToGlobal, 2 * m_LocalToGlobal.length);
+                    m_LocalToGlobal[m_nNoOfValues] = value;
+                    if (4 * (m_nNoOfValues + 1) > m_GlobalToLocal.length)
+                    {
+                        m_GlobalToLocal = emptyGlobalToLocalMap(m_GlobalToLocal.length);
+                        for (int v = 0; v < m_nNoOfValues; v++)
+                            putGlobalToLocal(m_GlobalToLocal, m_LocalToGlobal[v], v);
+                    }
+                    putGlobalToLocal(m_GlobalToLocal, value, m_nNoOfValues);
+                    m_nNoOfValues++;
+                }
+                countUnpublishedOperation();
             }
-            m_LocalToGlobalValueCodeMap[m_nNoOfValues++] = value.intValue();
+        return value;
+    }
+
+    /**
+     * Counts an operation that could not be served by the published maps
+     * and publishes the maps with all values if the number of such operations
+     * since the last publication exceeds a quarter of the number of published values,
+     * so the cost of copying the maps is amortized to a constant per operation.
+     * Must be called by a thread holding the lock of this object.
+     */
+    private void countUnpublishedOperation()
+    {
+        m_nUnpublishedOperations++;
+        if (4 * m_nUnpublishedOperations > m_ValueCodeMaps.m_nNoOfValues)
+            publish();
+    }
+
+    /**
+     * Publishes the maps with all values of this attribute.
+     */
+    private synchronized void publish()
+    {
+        m_ValueCodeMaps = new ValueCodeMaps(Arrays.copyOf(m_LocalToGlobal, m_nNoOfValues), m_GlobalToLocal.clone());
+        m_nUnpublishedOperations = 0;
+    }
+
+    /**
+     * Returns the maps with all values of this attribute,
+     * publishes them if some values are missing in the published maps.
+     *
+     * @return Maps with all values of this attribute.
+     */
+    private ValueCodeMaps completeMaps()
+    {
+        ValueCodeMaps maps = m_ValueCodeMaps;
+        if (maps.m_nNoOfValues==m_nNoOfValues) return maps;
+        synchronized (this)
+        {
+            if (m_ValueCodeMaps.m_nNoOfValues!=m_nNoOfValues) publish();
+            return m_ValueCodeMaps;
         }
-        return value.intValue();
+    }
+
+    /**
+     * Creates an empty hash map between global and local codes.
+     *
+     * @param noOfSlots Number of slots, must be a power of 2.
+     * @return          Empty hash map.
+     */
+    private static int[] emptyGlobalToLocalMap(int noOfSlots)
+    {
+        int[] map = new int[2 * noOfSlots];
+        for (int slot = 1; slot < map.length; slot += 2)
+            map[slot] = -1;
+        return map;
+    }
+
+    /**
+     * Returns the index of the first slot to be checked
+     * for a global code in a hash map between global and local codes.
+     *
+     * @param map             Hash map between global and local codes.
+     * @param globalValueCode Global code.
+     * @return                Index of the first cell of the slot.
+     */
+    private static int firstSlot(int[] map, int globalValueCode)
+    {
+        int hash = globalValueCode * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (map.length - 2);
+    }
+
+    /**
+     * Finds a global code in a hash map between global and local codes.
+     *
+     * @param map             Hash map between global and local codes.
+     * @param globalValueCode Global code.
+     * @return                Local code, -1 if the global code is not found.
+     */
+    private static int getGlobalToLocal(int[] map, int globalValueCode)
+    {
+        for (int slot = firstSlot(map, globalValueCode); map[slot+1]!=-1; slot = (slot + 2) & (map.length - 1))
+            if (map[slot]==globalValueCode) return map[slot+1];
+        return -1;
+    }
+
+    /**
+     * Adds a pair of a global and a local code to a hash map.
+     *
+     * @param map             Hash map between global and local codes.
+     * @param globalValueCode Global code.
+     * @param localValueCode  Local code.
+     */
+    private static void putGlobalToLocal(int[] map, int globalValueCode, int localValueCode)
+    {
+        int slot = firstSlot(map, globalValueCode);
+        while (map[slot+1]!=-1)
+            slot = (slot + 2) & (map.length - 1);
+        map[slot] = globalValueCode;
+        map[slot+1] = localValueCode;
     }
 
     /**
@@ -166,9 +291,9 @@ public class NominalAttribute extends Attribute
     public static String stringValue(double globalValueCode)
     {
         if (Double.isNaN(globalValueCode)) throw new RuntimeException("Nominal value global integer code is NaN");
-        int intGlobalValue = (int)globalValueCode;
-        if (intGlobalValue < 0 || intGlobalValue >= s_StringValueList.size()) throw new RuntimeException("Nominal value global integer code is out of range");
-        return (String)s_StringValueList.get(intGlobalValue);
+        String value = s_Dictionary.value((int)globalValueCode);
+        if (value==null) throw new RuntimeException("Nominal value global integer code is out of range or the value has been released");
+        return value;
     }
 
     
@@ -179,13 +304,8 @@ public class NominalAttribute extends Attribute
      * @return          True if the value occurs on this attribute.
      */
     public boolean valueOccurs(String valueName) {
-    	Integer value = (Integer)s_StringValueToGlobalValueCodeMap.get(valueName);
-    	if (value==null)
-    		return false;
-    	for (int v = 0; v < m_nNoOfValues; v++)
-    		if (m_LocalToGlobalValueCodeMap[v]==value.intValue())
-    			return true;
-    	return false;
+    	int value = s_Dictionary.lookup(valueName);
+    	return (value!=-1 && localValueCode(value)!=-1);
     }
 
     /**
@@ -194,6 +314,7 @@ public class NominalAttribute extends Attribute
      * in the range of values of this nominal attribute.
      * The local codes are the succesive numbers
      * from 0 to noOfValues()-1.
+     * The conversion takes constant time.
      *
      * @param globalValueCode Global double code of a nominal value.
      * @return                Local integer code.
@@ -202,10 +323,16 @@ public class NominalAttribute extends Attribute
      */
     public int localValueCode(double globalValueCode)
     {
-        if (Double.isNaN(globalValueCode)) return -1;
-        for (int localVal = 0; localVal < m_nNoOfValues; localVal++)
-            if (m_LocalToGlobalValueCodeMap[localVal]==globalValueCode) return localVal;
-        return -1;
+        int intGlobalValue = (int)globalValueCode;
+        if (intGlobalValue!=globalValueCode) return -1;
+        ValueCodeMaps maps = m_ValueCodeMaps;
+        int local = maps.localValueCode(intGlobalValue);
+        if (local!=-1 || maps.m_nNoOfValues==m_nNoOfValues) return local;
+        synchronized (this)
+        {
+            countUnpublishedOperation();
+            return getGlobalToLocal(m_GlobalToLocal, intGlobalValue);
+        }
     }
 
     /**
@@ -218,8 +345,14 @@ public class NominalAttribute extends Attribute
     public double globalValueCode(int localValueCode)
     {
         if (localValueCode==-1) return Double.NaN;
-        if (localValueCode < 0 || localValueCode >= m_nNoOfValues) throw new RuntimeException("Nominal value local integer code is out of range");
-        return m_LocalToGlobalValueCodeMap[localValueCode];
+        ValueCodeMaps maps = m_ValueCodeMaps;
+        if (localValueCode >= 0 && localValueCode < maps.m_nNoOfValues) return maps.m_LocalToGlobal[localValueCode];
+        synchronized (this)
+        {
+            if (localValueCode < 0 || localValueCode >= m_nNoOfValues) throw new RuntimeException("Nominal value local integer code is out of range");
+            countUnpublishedOperation();
+            return m_LocalToGlobal[localValueCode];
+        }
     }
 
     /**
@@ -260,7 +393,52 @@ public class NominalAttribute extends Attribute
     public String toString()
     {
         StringBuffer sbuf = new StringBuffer(super.toString());
-        for (int val = 0; val < noOfValues(); val++) sbuf.append(" '"+stringValue(globalValueCode(val))+"'");
+        ValueCodeMaps maps = completeMaps();
+        for (int val = 0; val < maps.m_nNoOfValues; val++) sbuf.append(" '"+stringValue(maps.m_LocalToGlobal[val])+"'");
         return sbuf.toString();
     }
+
+    /**
+     * Immutable maps between local and global codes of nominal values.
+     */
+    private static final class ValueCodeMaps
+    {
+        /** Maps without values. */
+        static final ValueCodeMaps EMPTY = new ValueCodeMaps(new int[0], emptyGlobalToLocalMap(4));
+
+        /** Number of values. */
+        final int m_nNoOfValues;
+        /** Global codes of the values indexed with local codes. */
+        final int[] m_LocalToGlobal;
+        /**
+         * Open addressing hash map between global and local codes.
+         * Each slot occupies two successive cells: a global code and a local code,
+         * the local code -1 denotes an empty slot.
+         */
+        private final int[] m_GlobalToLocal;
+
+        /**
+         * Constructor.
+         *
+         * @param localToGlobal Global codes of the values indexed with local codes.
+         * @param globalToLocal Hash map between global and local codes.
+         */
+        ValueCodeMaps(int[] localToGlobal, int[] globalToLocal)
+        {
+            m_nNoOfValues = localToGlobal.length;
+            m_LocalToGlobal = localToGlobal;
+            m_GlobalToLocal = globalToLocal;
+        }
+
+        /**
+         * Converts a global code to a local code.
+         *
+         * @param globalValueCode Global code.
+         * @return                Local code, -1 if the global code is not found.
+         */
+        int localValueCode(int globalValueCode)
+        {
+            return getGlobalToLocal(m_GlobalToLocal, globalValueCode);
+        }
+    }
  }
@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.structure.attribute;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Thread-safe dictionary assigning global integer codes
+ * to string representations of nominal values.
+ * Reading codes and values does not block.
+ * New values are added under one of several locks
+ * selected by the hash of a value, so values with different hashes
+ * can be added concurrently.
+ * A value added outside any scope stays in the dictionary
+ * until the end of the program. A value added within scopes
+ * is removed when all these scopes are released.
+ * Codes of removed values are not reused.
+ */
+class NominalValueDictionary
+{
+    /** Binary logarithm of the number of codes in one segment of the code table. */
+    private static final int SEGMENT_BITS = 12;
+    /** Number of codes in one segment of the code table. */
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    /** Number of locks used for adding and removing values. */
+    private static final int NO_OF_STRIPES = 64;
+
+    /** Map between string values and their entries. */
+    private ConcurrentHashMap<String,Entry> m_Entries = new ConcurrentHashMap<String,Entry>();
+    /** Segments of the table between codes and values, null for released segments. */
+    private volatile Segment[] m_Segments = new Segment[16];
+    /** The next code to be assigned. */
+    private AtomicInteger m_NextCode = new AtomicInteger();
+    /** Lock for changes in the table of segments. */
+    private Object m_SegmentLock = new Object();
+    /** Locks for adding and removing values. */
+    private Object[] m_Stripes = new Object[NO_OF_STRIPES];
+
+    /**
+     * Constructs an empty dictionary.
+     */
+    NominalValueDictionary()
+    {
+        for (int s = 0; s < m_Stripes.length; s++)
+            m_Stripes[s] = new Object();
+    }
+
+    /**
+     * Returns the lock for adding and removing a given value.
+     *
+     * @param value String value.
+     * @return      Lock for the value.
+     */
+    private Object stripe(String value)
+    {
+        int hash = value.hashCode();
+        return m_Stripes[(hash ^ (hash >>> 16)) & (NO_OF_STRIPES - 1)];
+    }
+
+    /**
+     * Returns the code of a value adding the value if it is not in the dictionary.
+     * If the scope is null the value is kept until the end of the program,
+     * otherwise the value is kept at least until the scope is released.
+     *
+     * @param value String value.
+     * @param scope Scope using the value, null if the value is to be kept permanently.
+     * @return      Code of the value.
+     */
+    int code(String value, NominalValueScope scope)
+    {
+        Entry entry = m_Entries.get(value);
+        if (entry!=null && (scope==null ? entry.m_bPermanent : scope.contains(entry.m_nCode))) return entry.m_nCode;
+        if (scope!=null && scope.isReleased()) throw new RuntimeException("An attempt to add a nominal value to a released scope");
+        synchronized (stripe(value))
+        {
+            entry = m_Entries.get(value);
+            if (entry==null)
+            {
+                entry = new Entry(allocate(value));
+                m_Entries.put(value, entry);
+            }
+            if (scope==null) entry.m_bPermanent = true;
+            else if (scope.add(entry.m_nCode)) entry.m_nRefs++;
+            return entry.m_nCode;
+        }
+    }
+
+    /**
+     * Returns the code of a value without adding the value.
+     *
+     * @param value String value.
+     * @return      Code of the value, -1 if the value is not in the dictionary.
+     */
+    int lookup(String value)
+    {
+        Entry entry = m_Entries.get(value);
+        return (entry==null) ? -1 : entry.m_nCode;
+    }
+
+    /**
+     * Returns the value with a given code.
+     *
+     * @param code Code of a value.
+     * @return     String value, null if there is no value with this code.
+     */
+    String value(int code)
+    {
+        Segment[] segments = m_Segments;
+        int s = code >>> SEGMENT_BITS;
+        if (code < 0 || s >= segments.length || segments[s]==null) return null;
+        return segments[s].m_Values.get(code & (SEGMENT_SIZE - 1));
+    }
+
+    /**
+     * Returns the number of values in this dictionary.
+     *
+     * @return Number of values in this dictionary.
+     */
+    int size()
+    {
+        return m_Entries.size();
+    }
+
+    /**
+     * Assigns a new code to a value.
+     *
+     * @param value String value.
+     * @return      Code assigned to the value.
+     */
+    private int allocate(String value)
+    {
+        int code = m_NextCode.getAndIncrement();
+        if (code < 0) throw new RuntimeException("The number of nominal values exceeded the range of codes");
+        int s = code >>> SEGMENT_BITS;
+        Segment[] segments = m_Segments;
+        Segment segment = (s < segments.length) ? segments[s] : null;
+        if (segment==null)
+            synchronized (m_SegmentLock)
+            {
+                segments = m_Segments;
+                if (s < segments.length && segments[s]!=null) segment = segments[s];
+                else
+                {
+                    segments = Arrays.copyOf(segments, Math.max(segments.length, 2 * s + 1));
+                    segment = new Segment();
+                    segments[s] = segment;
+                    m_Segments = segments;
+                }
+            }
+        segment.m_nLive.incrementAndGet();
+        segment.m_nAllocated.incrementAndGet();
+        segment.m_Values.set(code & (SEGMENT_SIZE - 1), value);
+        return code;
+    }
+
+    /**
+     * Releases all values used by a scope.
+     * The values not used by other scopes
+     * and not added permanently are removed.
+     *
+     * @param scope Scope to be released.
+     */
+    void release(NominalValueScope scope)
+    {
+        for (int code : scope.codes())
+            release(code);
+    }
+
+    /**
+     * Releases one use of a value by a scope.
+     *
+     * @param code Code of the value.
+     */
+    private void release(int code)
+    {
+        int s = code >>> SEGMENT_BITS;
+        Segment[] segments = m_Segments;
+        if (s >= segments.length || segments[s]==null) return;
+        Segment segment = segments[s];
+        String value = segment.m_Values.get(code & (SEGMENT_SIZE - 1));
+        if (value==null) return;
+        synchronized (stripe(value))
+        {
+            Entry entry = m_Entries.get(value);
+            if (entry==null || entry.m_nCode!=code) return;
+            if (--entry.m_nRefs > 0 || entry.m_bPermanent) return;
+            m_Entries.remove(value);
+        }
+        segment.m_Values.set(code & (SEGMENT_SIZE - 1), null);
+        if (segment.m_nLive.decrementAndGet()==0 && segment.m_nAllocated.get()==SEGMENT_SIZE)
+            synchronized (m_SegmentLock)
+            {
+                segments = m_Segments.clone();
+                segments[s] = null;
+                m_Segments = segments;
+            }
+    }
+
+    /**
+     * Entry of a value in the dictionary.
+     */
+    private static class Entry
+    {
+        /** Code of the value. */
+        final int m_nCode;
+        /** Number of scopes using the value. */
+        int m_nRefs = 0;
+        /** Switch indicating whether the value is kept until the end of the program. */
+        volatile boolean m_bPermanent = false;
+
+        /**
+         * Constructor.
+         *
+         * @param code Code of the value.
+         */
+        Entry(int code)
+        {
+            m_nCode = code;
+        }
+    }
+
+    /**
+     * Segment of the table between codes and values.
+     */
+    private static class Segment
+    {
+        /** Values in the order of codes, null for codes not assigned or released. */
+        final AtomicReferenceArray<String> m_Values = new AtomicReferenceArray<String>(SEGMENT_SIZE);
+        /** Number of values in this segment. */
+        final AtomicInteger m_nLive = new AtomicInteger();
+        /** Number of codes assigned in this segment. */
+        final AtomicInteger m_nAllocated = new AtomicInteger();
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.structure.attribute;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Scope of nominal values limiting the lifetime
+ * of the values in the global dictionary of nominal values.
+ * While a scope is entered in a thread, all nominal values
+ * coded by NominalAttribute in this thread are registered in the scope.
+ * Values coded outside any scope are kept until the end of the program.
+ * After a dataset is no longer used the scope used for loading
+ * the dataset can be released and the values used only by this scope
+ * are removed from the dictionary.
+ * Global codes of removed values must not be used after release.
+ * <p>
+ * Typical usage:
+ * <pre>
+ * NominalValueScope scope = new NominalValueScope();
+ * scope.enter();
+ * try { table = new ArrayListDoubleDataTable(file, prog); }
+ * finally { scope.exit(); }
+ * ...
+ * scope.release();
+ * </pre>
+ */
+public class NominalValueScope
+{
+    /** Scope entered in the current thread. */
+    private static final ThreadLocal<NominalValueScope> s_CurrentScope = new ThreadLocal<NominalValueScope>();
+
+    /** Global codes of values used by this scope. */
+    private Set<Integer> m_Codes = Collections.newSetFromMap(new ConcurrentHashMap<Integer,Boolean>());
+    /** Switch indicating whether this scope has been released. */
+    private volatile boolean m_bReleased = false;
+
+    /**
+     * Returns the scope entered in the current thread.
+     *
+     * @return Scope entered in the current thread, null if no scope is entered.
+     */
+    public static NominalValueScope current()
+    {
+        return s_CurrentScope.get();
+    }
+
+    /**
+     * Enters this scope in the current thread.
+     * The same scope can be entered in many threads.
+     */
+    public void enter()
+    {
+        if (m_bReleased) throw new RuntimeException("An attempt to enter a released nominal value scope");
+        if (s_CurrentScope.get()!=null) throw new RuntimeException("Another nominal value scope has been already entered in the current thread");
+        s_CurrentScope.set(this);
+    }
+
+    /**
+     * Exits this scope in the current thread.
+     */
+    public void exit()
+    {
+        if (s_CurrentScope.get()!=this) throw new RuntimeException("An attempt to exit a nominal value scope not entered in the current thread");
+        s_CurrentScope.remove();
+    }
+
+    /**
+     * Releases the values used by this scope.
+     * The values not used by other scopes
+     * and not coded outside scopes are removed
+     * from the global dictionary of nominal values.
+     * The scope cannot be used after release.
+     */
+    public void release()
+    {
+        if (s_CurrentScope.get()==this) throw new RuntimeException("An attempt to release a nominal value scope entered in the current thread");
+        if (m_bReleased) return;
+        m_bReleased = true;
+        NominalAttribute.dictionary().release(this);
+        m_Codes.clear();
+    }
+
+    /**
+     * Returns true if this scope has been released.
+     *
+     * @return True if this scope has been released.
+     */
+    public boolean isReleased()
+    {
+        return m_bReleased;
+    }
+
+    /**
+     * Returns the number of values used by this scope.
+     *
+     * @return Number of values used by this scope.
+     */
+    public int noOfValues()
+    {
+        return m_Codes.size();
+    }
+
+    /**
+     * Checks whether a value is used by this scope.
+     *
+     * @param code Global code of a value.
+     * @return     True if the value is used by this scope.
+     */
+    boolean contains(int code)
+    {
+        return m_Codes.contains(code);
+    }
+
+    /**
+     * Registers a value in this scope.
+     *
+     * @param code Global code of a value.
+     * @return     True if the value was not registered in this scope before.
+     */
+    boolean add(int code)
+    {
+        return m_Codes.add(code);
+    }
+
+    /**
+     * Returns the global codes of values used by this scope.
+     *
+     * @return Global codes of values used by this scope.
+     */
+    Collection<Integer> codes()
+    {
+        return m_Codes;
+    }
+}
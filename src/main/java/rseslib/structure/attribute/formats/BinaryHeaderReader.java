@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.structure.attribute.formats;
+
+import java.io.BufferedInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import rseslib.structure.attribute.ArrayHeader;
+import rseslib.structure.attribute.Attribute;
+import rseslib.structure.attribute.Header;
+import rseslib.structure.attribute.NominalAttribute;
+import rseslib.structure.attribute.NumericAttribute;
+
+/**
+ * Reader for data header in rseslib binary format.
+ * The binary header starts with the format signature
+ * and the format version followed by the missing values
+ * and the list of attributes.
+ * Nominal attributes are stored together with their values
+ * in the order of local codes, so local codes are preserved
+ * after reloading.
+ */
+public class BinaryHeaderReader implements HeaderReader
+{
+    /** Signature at the beginning of files in rseslib binary format. */
+    public static final byte[] SIGNATURE = { 0, 'R', 'S', 'E', 'S', 'L', 'I', 'B' };
+    /** Version of the binary format. */
+    public static final int VERSION = 1;
+
+    /** The set of strings that denote missing values. */
+    private Collection<String> m_MissingValues = new ArrayList<String>();
+    /** The first missing value enumerated in header file. */
+    private String m_Missing = null;
+    /**
+     * The table indicating which attributes
+     * are to be read in while loading data from file.
+     */
+    private boolean[] m_AttrLoaded;
+    /** Array of attributes (read in only). */
+    private Attribute[] m_arrAttributes;
+
+    /**
+     * Constructor reading the header from a file in binary format.
+     *
+     * @param dataFile     Data file in binary format.
+     * @throws IOException if an I/O error has occured.
+     */
+    public BinaryHeaderReader(File dataFile) throws IOException, HeaderFormatException
+    {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(dataFile)));
+        try
+        {
+            read(input);
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+
+    /**
+     * Constructor reading the header from an input.
+     * After reading the input is positioned
+     * at the first byte following the header.
+     *
+     * @param input        Input for reading header information.
+     * @throws IOException if an I/O error has occured.
+     */
+    public BinaryHeaderReader(DataInput input) throws IOException, HeaderFormatException
+    {
+        read(input);
+    }
+
+    /**
+     * Checks whether a given file starts with the binary format signature.
+     *
+     * @param dataFile     Data file to be checked.
+     * @return             True if the file starts with the binary format signature.
+     * @throws IOException if an I/O error has occured.
+     */
+    public static boolean hasSignature(File dataFile) throws IOException
+    {
+        FileInputStream input = new FileInputStream(dataFile);
+        try
+        {
+            for (int b = 0; b < SIGNATURE.length; b++)
+                if (input.read()!=SIGNATURE[b]) return false;
+            return true;
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+
+    /**
+     * Reads the header information.
+     *
+     * @param input        Input for reading header information.
+     * @throws IOException if an I/O error has occured.
+     */
+    private void read(DataInput input) throws IOException, HeaderFormatException
+    {
+        for (int b = 0; b < SIGNATURE.length; b++)
+            if (input.readByte()!=SIGNATURE[b]) throw new HeaderFormatException("Missing signature of rseslib binary format");
+        int version = input.readInt();
+        if (version!=VERSION) throw new HeaderFormatException("Unsupported version "+version+" of rseslib binary format");
+        int noOfMissing = input.readInt();
+        for (int m = 0; m < noOfMissing; m++)
+        {
+            String missing = input.readUTF();
+            if (m_Missing==null) m_Missing = missing;
+            m_MissingValues.add(missing);
+        }
+        m_arrAttributes = new Attribute[input.readInt()];
+        m_AttrLoaded = new boolean[m_arrAttributes.length];
+        for (int attr = 0; attr < m_arrAttributes.length; attr++)
+        {
+            m_AttrLoaded[attr] = true;
+            Attribute.Type type = Attribute.Type.values()[input.readByte()];
+            Attribute.ValueSet valueSet = Attribute.ValueSet.values()[input.readByte()];
+            boolean dictionary = input.readBoolean();
+            String name = input.readUTF();
+            if (dictionary)
+            {
+                NominalAttribute nomAttr = new NominalAttribute(type, name);
+                int noOfValues = input.readInt();
+                for (int v = 0; v < noOfValues; v++)
+                    nomAttr.globalValueCode(input.readUTF());
+                m_arrAttributes[attr] = nomAttr;
+            }
+            else if (valueSet==Attribute.ValueSet.numeric)
+                m_arrAttributes[attr] = new NumericAttribute(type, name);
+            else m_arrAttributes[attr] = new Attribute(type, valueSet, name);
+        }
+    }
+
+    /**
+     * Writes a header in binary format.
+     *
+     * @param hdr          Header to be written.
+     * @param output       Output for writing.
+     * @throws IOException if an I/O error has occured.
+     */
+    public static void write(Header hdr, DataOutput output) throws IOException
+    {
+        output.write(SIGNATURE);
+        output.writeInt(VERSION);
+        Collection<String> missing = new ArrayList<String>();
+        if (hdr instanceof ArrayHeader) missing = ((ArrayHeader)hdr).missingValues();
+        else if (hdr.missing()!=null) missing.add(hdr.missing());
+        output.writeInt(missing.size());
+        for (String val : missing)
+            output.writeUTF(val);
+        output.writeInt(hdr.noOfAttr());
+        for (int attr = 0; attr < hdr.noOfAttr(); attr++)
+        {
+            Attribute.Type type = Attribute.Type.conditional;
+            if (hdr.isText(attr)) type = Attribute.Type.text;
+            else if (hdr.isDecision(attr)) type = Attribute.Type.decision;
+            Attribute.ValueSet valueSet = Attribute.ValueSet.nonapplicable;
+            if (hdr.isNumeric(attr)) valueSet = Attribute.ValueSet.numeric;
+            else if (hdr.isNominal(attr)) valueSet = Attribute.ValueSet.nominal;
+            output.writeByte(type.ordinal());
+            output.writeByte(valueSet.ordinal());
+            boolean dictionary = (hdr.attribute(attr) instanceof NominalAttribute);
+            output.writeBoolean(dictionary);
+            output.writeUTF(hdr.name(attr));
+            if (dictionary)
+            {
+                NominalAttribute nomAttr = (NominalAttribute)hdr.attribute(attr);
+                output.writeInt(nomAttr.noOfValues());
+                for (int v = 0; v < nomAttr.noOfValues(); v++)
+                    output.writeUTF(NominalAttribute.stringValue(nomAttr.globalValueCode(v)));
+            }
+        }
+    }
+
+    /**
+     * Returns the set of all strings denoting missing value.
+     *
+     * @return Set of all strings denoting missing value.
+     */
+    public Collection<String> allMissing()
+    {
+        return m_MissingValues;
+    }
+
+    /**
+     * Returns missing value.
+     *
+     * @return String that denotes the missing value.
+     */
+    public String singleMissing()
+    {
+        return m_Missing;
+    }
+
+    /**
+     * Returns the bit mask indicating
+     * which original attributes are to be read in
+     * while loading data from file.
+     *
+     * @return The bit mask where true at a position i
+     *         indicates that attribute i is to be read in
+     *         and false indicates that the attribute is to be skipped.
+     */
+    public boolean[] bitMaskOfLoaded()
+    {
+        return m_AttrLoaded;
+    }
+
+    /**
+     * Returns the information about attributes (loaded only).
+     *
+     * @return Array of attributes.
+     */
+    public Attribute[] attributesForLoading()
+    {
+        return m_arrAttributes;
+    }
+}
@@ -32,7 +32,7 @@ import java.io.IOException;
  */
 public class DataFormatRecognizer
 {
-	public enum Format { ARFF, RSES, CSV }; 
+	public enum Format { ARFF, RSES, CSV, BINARY }; 
   
 	/**
      * Checks whether the format of data in a given file is from RSES2.x.
@@ -43,6 +43,8 @@ public class DataFormatRecognizer
      */
     public Format recognizeFormat(File dataFile) throws IOException
     {
+    	if (BinaryHeaderReader.hasSignature(dataFile))
+    		return Format.BINARY;
     	Format frm = null;
     	boolean arff_possible = true;    	
         BufferedReader bw = new BufferedReader(new FileReader(dataFile));
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+
+
+package rseslib.structure.data;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+
+import rseslib.structure.attribute.Header;
+
+/**
+ * Base class for lightweight views of data objects
+ * whose values are stored outside the view, e.g. in table columns
+ * or in a mapped file. Subclasses provide the attributes
+ * and the access to the values, this class implements
+ * the remaining methods of a data object on top of them.
+ * A view is serialized as a detached copy of its values,
+ * so it is deserialized as a standard data object.
+ */
+public abstract class AbstractDoubleDataView implements DoubleDataWithDecision, Serializable
+{
+    /** Serialization version. */
+	private static final long serialVersionUID = 1L;
+
+    /**
+     * Sets decision.
+     *
+     * @param decVal Decision value.
+     */
+    public void setDecision(double decVal)
+    {
+        set(attributes().decision(), decVal);
+    }
+
+    /**
+     * Returns decision.
+     *
+     * @return Decision value.
+     */
+    public double getDecision()
+    {
+        return get(attributes().decision());
+    }
+
+    /**
+     * Writes this object.
+     *
+     * @param output Output for writing.
+     * @throws IOException If an I/O error has occured.
+     */
+    public void store(BufferedWriter output) throws IOException
+    {
+        ((DoubleDataObject)clone()).store(output);
+    }
+
+    /**
+     * Writes this object in arff format.
+     *
+     * @param output Output for writing.
+     * @throws IOException If an I/O error has occured.
+     */
+    public void storeArff(BufferedWriter output) throws IOException
+    {
+        ((DoubleDataObject)clone()).storeArff(output);
+    }
+
+    /**
+     * Returns a detached copy of this data object.
+     * The copy is a standard data object independent of the storage of this view.
+     *
+     * @return Copy of this data object.
+     */
+    public Object clone()
+    {
+        Header hdr = attributes();
+        DoubleDataObject copy = new DoubleDataObject(hdr);
+        for (int att = 0; att < hdr.noOfAttr(); att++)
+            copy.set(att, get(att));
+        return copy;
+    }
+
+    /**
+     * Replaces this view with a detached copy of its values in serialization.
+     *
+     * @return Copy of this data object.
+     * @throws ObjectStreamException Never thrown.
+     */
+    protected Object writeReplace() throws ObjectStreamException
+    {
+        return clone();
+    }
+
+    /**
+     * Returns true for a view of the same type with the same header
+     * and the same attribute values.
+     *
+     * @param obj Object for comparison.
+     * @return    True if data object is equivallent.
+     */
+    public boolean equals(Object obj)
+    {
+        if (obj==null || obj.getClass()!=getClass()) return false;
+        DoubleData dd = (DoubleData)obj;
+        Header hdr = attributes();
+        if (hdr!=dd.attributes()) return false;
+        for (int att = 0; att < hdr.noOfAttr(); att++)
+            if (Double.doubleToLongBits(get(att))!=Double.doubleToLongBits(dd.get(att))) return false;
+        return true;
+    }
+
+    /**
+     * Returns hash code generated only from attribute values.
+     *
+     * @return Hash code generated only from attribute values.
+     */
+    public int hashCode()
+    {
+        int result = 1;
+        for (int att = 0; att < attributes().noOfAttr(); att++)
+        {
+            long bits = Double.doubleToLongBits(get(att));
+            result = 31 * result + (int)(bits ^ (bits >>> 32));
+        }
+        return result;
+    }
+
+    /**
+     * Constructs string representation of this data object.
+     *
+     * @return String representation of this data object.
+     */
+    public String toString()
+    {
+        return clone().toString();
+    }
+}
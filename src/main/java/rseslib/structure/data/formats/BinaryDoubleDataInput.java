@@ -0,0 +1,377 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.structure.data.formats;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+import rseslib.structure.attribute.ArrayHeader;
+import rseslib.structure.attribute.BadHeaderException;
+import rseslib.structure.attribute.Header;
+import rseslib.structure.attribute.NominalAttribute;
+import rseslib.structure.attribute.formats.BinaryHeaderReader;
+import rseslib.structure.attribute.formats.HeaderFormatException;
+import rseslib.structure.data.DoubleData;
+import rseslib.system.progress.Progress;
+
+/**
+ * Input stream for data in rseslib binary format
+ * (see BinaryDoubleDataOutput).
+ * The columns of the file are memory-mapped
+ * and the data objects returned by this input
+ * are views reading values directly from the mapped columns,
+ * so loading does not copy the data to the heap.
+ * If the file is writable the columns are mapped in copy-on-write mode,
+ * otherwise a column mapped read-only is copied to the heap
+ * when a value in this column is changed for the first time.
+ * In both cases values of the data objects can be changed
+ * and the changes are not written back to the file.
+ * Changes are synchronized, values are read without locking:
+ * replaced columns and code translations are published
+ * as new arrays and never modified afterwards.
+ */
+public class BinaryDoubleDataInput implements DoubleDataInput
+{
+    /** Header. */
+    private Header m_Header;
+    /** Number of objects in the file. */
+    private int m_nNoOfObjects;
+    /** Mapped columns of double values, null for columns with local codes. */
+    private volatile DoubleBuffer[] m_DoubleColumns;
+    /** Mapped columns of local codes, null for columns with double values. */
+    private volatile IntBuffer[] m_CodeColumns;
+    /** Translation of local codes from the file to global codes, null for columns with double values. */
+    private volatile double[][] m_GlobalCodes;
+    /** Progress object for progress reporting. */
+    private Progress m_Progress;
+    /** Index of the next data object to be read. */
+    private int m_nObjNumber = 0;
+    /** Approximate percentage of data loaded. */
+    private int m_Percentage = 0;
+
+    /**
+     * Constructs this input stream
+     * and reads attribute information
+     * from data file.
+     *
+     * @param dataFile       Data file to be loaded.
+     * @param prog           Progress object for progress reporting.
+     * @throws IOException   If an I/O error occurs.
+     * @throws InterruptedException  If user has interrupted reading data.
+     */
+    public BinaryDoubleDataInput(File dataFile, Progress prog) throws IOException, HeaderFormatException, InterruptedException
+    {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(dataFile)));
+        try
+        {
+            ArrayHeader fileHdr = new ArrayHeader(new BinaryHeaderReader(input));
+            m_Header = fileHdr;
+            mapColumns(dataFile, input, fileHdr);
+        }
+        finally
+        {
+            input.close();
+        }
+        m_Progress = prog;
+        m_Progress.set("Loading data from "+dataFile.getPath(), 100);
+        if (m_nNoOfObjects==0) close();
+    }
+
+    /**
+     * Constructs this input stream
+     * and verifies information about attributes
+     * from data file.
+     *
+     * @param dataFile       Data file to be loaded.
+     * @param hdr            Header to be verified with data specification in a file.
+     * @param prog           Progress object for progress reporting.
+     * @throws IOException   If an I/O error occurs.
+     * @throws InterruptedException  If user has interrupted reading data.
+     */
+    public BinaryDoubleDataInput(File dataFile, Header hdr, Progress prog) throws IOException, HeaderFormatException, BadHeaderException, InterruptedException
+    {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(dataFile)));
+        try
+        {
+            ArrayHeader fileHdr = new ArrayHeader(new BinaryHeaderReader(input));
+            if (!verifyAttributeTypes(fileHdr, hdr)) throw new BadHeaderException("Incompatible data header in file "+dataFile.getPath());
+            m_Header = hdr;
+            mapColumns(dataFile, input, fileHdr);
+        }
+        finally
+        {
+            input.close();
+        }
+        m_Progress = prog;
+        m_Progress.set("Loading data from "+dataFile.getPath(), 100);
+        if (m_nNoOfObjects==0) close();
+    }
+
+    /**
+     * Verifies compatibility of the header from a binary file
+     * with a given header.
+     *
+     * @param fileHdr  Header read from a binary file.
+     * @param hdr      Header to be verified.
+     * @return         True if headers are compatible, false otherwise.
+     */
+    private static boolean verifyAttributeTypes(Header fileHdr, Header hdr)
+    {
+        if (fileHdr.noOfAttr()!=hdr.noOfAttr()) return false;
+        for (int attr = 0; attr < fileHdr.noOfAttr(); attr++)
+        {
+            if (fileHdr.isNominal(attr)!=hdr.isNominal(attr)) return false;
+            if (fileHdr.isNumeric(attr)!=hdr.isNumeric(attr)) return false;
+            if (fileHdr.isText(attr)!=hdr.isText(attr)) return false;
+            if (fileHdr.isConditional(attr)!=hdr.isConditional(attr)) return false;
+            if (fileHdr.isDecision(attr)!=hdr.isDecision(attr)) return false;
+            if (BinaryDoubleDataOutput.isCodedColumn(fileHdr, attr)!=BinaryDoubleDataOutput.isCodedColumn(hdr, attr)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads the table of column offsets and maps the columns into memory.
+     *
+     * @param dataFile       Data file.
+     * @param input          Input positioned after the header.
+     * @param fileHdr        Header read from the file.
+     * @throws IOException   If an I/O error occurs.
+     */
+    private void mapColumns(File dataFile, DataInputStream input, Header fileHdr) throws IOException
+    {
+        m_nNoOfObjects = input.readInt();
+        long[] offsets = new long[fileHdr.noOfAttr()];
+        for (int attr = 0; attr < offsets.length; attr++)
+            offsets[attr] = input.readLong();
+        DoubleBuffer[] doubleColumns = new DoubleBuffer[offsets.length];
+        IntBuffer[] codeColumns = new IntBuffer[offsets.length];
+        double[][] globalCodes = new double[offsets.length][];
+        boolean writable = dataFile.canWrite();
+        RandomAccessFile file = new RandomAccessFile(dataFile, writable ? "rw" : "r");
+        try
+        {
+            FileChannel channel = file.getChannel();
+            FileChannel.MapMode mode = writable ? FileChannel.MapMode.PRIVATE : FileChannel.MapMode.READ_ONLY;
+            for (int attr = 0; attr < offsets.length; attr++)
+            {
+                long size = BinaryDoubleDataOutput.columnSize(fileHdr, attr, m_nNoOfObjects);
+                if (size > Integer.MAX_VALUE) throw new IOException("Column "+fileHdr.name(attr)+" in "+dataFile.getPath()+" too large to be mapped");
+                if (offsets[attr] + size > channel.size()) throw new IOException("Truncated binary data file "+dataFile.getPath());
+                if (BinaryDoubleDataOutput.isCodedColumn(fileHdr, attr))
+                {
+                    codeColumns[attr] = channel.map(mode, offsets[attr], size).asIntBuffer();
+                    NominalAttribute fileAttr = (NominalAttribute)fileHdr.attribute(attr);
+                    NominalAttribute attrInfo = (NominalAttribute)m_Header.attribute(attr);
+                    globalCodes[attr] = new double[fileAttr.noOfValues()];
+                    for (int v = 0; v < fileAttr.noOfValues(); v++)
+                        globalCodes[attr][v] = attrInfo.globalValueCode(NominalAttribute.stringValue(fileAttr.globalValueCode(v)));
+                }
+                else doubleColumns[attr] = channel.map(mode, offsets[attr], size).asDoubleBuffer();
+            }
+            m_DoubleColumns = doubleColumns;
+            m_CodeColumns = codeColumns;
+            m_GlobalCodes = globalCodes;
+        }
+        finally
+        {
+            file.close();
+        }
+    }
+
+    /**
+     * Returns the array of attributes.
+     *
+     * @return Array of attributes.
+     */
+    public Header attributes()
+    {
+        return m_Header;
+    }
+
+    /**
+     * Returns the total number of objects in the file.
+     *
+     * @return Number of objects in the file.
+     */
+    public int noOfObjects()
+    {
+        return m_nNoOfObjects;
+    }
+
+    /**
+     * Returns true if there is more data to be read, false otherwise.
+     *
+     * @return True if there is more data to be read, false otherwise.
+     */
+    public boolean available()
+    {
+        return m_nObjNumber < m_nNoOfObjects;
+    }
+
+    /**
+     * Reads a new data from this stream.
+     * The returned object is a view of the mapped file.
+     *
+     * @return Read data.
+     * @throws IOException If an I/O error occurs.
+     * @throws InterruptedException  If user has interrupted reading data.
+     */
+    public DoubleData readDoubleData() throws IOException, InterruptedException
+    {
+        if (!available()) throw new IOException("An atempt of reading data from an empty data input");
+        DoubleData dObject = new MappedDoubleDataObject(this, m_nObjNumber++);
+        while (100L*m_nObjNumber >= (long)(m_Percentage+1)*m_nNoOfObjects && m_Percentage < 100)
+        {
+            m_Percentage++;
+            m_Progress.step();
+        }
+        return dObject;
+    }
+
+    /**
+     * Copies the values of all remaining objects
+     * to given columns, one array per attribute.
+     * After this operation no more data is available in this input.
+     *
+     * @param columns  Columns to be filled starting from position 0,
+     *                 each column must have at least as many positions
+     *                 as the number of remaining objects.
+     * @return         Number of objects copied.
+     * @throws InterruptedException  If user has interrupted reading data.
+     */
+    public int readColumns(double[][] columns) throws InterruptedException
+    {
+        int noOfRead = m_nNoOfObjects - m_nObjNumber;
+        for (int attr = 0; attr < columns.length; attr++)
+            if (m_DoubleColumns[attr]!=null)
+            {
+                DoubleBuffer col = m_DoubleColumns[attr].duplicate();
+                col.position(m_nObjNumber);
+                col.get(columns[attr], 0, noOfRead);
+            }
+            else
+                for (int obj = 0; obj < noOfRead; obj++)
+                    columns[attr][obj] = getValue(m_nObjNumber + obj, attr);
+        m_nObjNumber = m_nNoOfObjects;
+        close();
+        return noOfRead;
+    }
+
+    /**
+     * Returns the value of a given attribute in a given object.
+     *
+     * @param obj  Index of the object in the file.
+     * @param attr Index of the attribute.
+     * @return     Value of the attribute.
+     */
+    double getValue(int obj, int attr)
+    {
+        DoubleBuffer doubleColumn = m_DoubleColumns[attr];
+        if (doubleColumn!=null) return doubleColumn.get(obj);
+        double[] codes = m_GlobalCodes[attr];
+        int code = m_CodeColumns[attr].get(obj);
+        if (code < 0) return Double.NaN;
+        if (code >= codes.length)
+            // the code has been added by a concurrent change
+            synchronized (this)
+            {
+                codes = m_GlobalCodes[attr];
+            }
+        return codes[code];
+    }
+
+    /**
+     * Sets the value of a given attribute in a given object.
+     * The change is not written back to the file.
+     *
+     * @param obj   Index of the object in the file.
+     * @param attr  Index of the attribute.
+     * @param value New value of the attribute.
+     */
+    synchronized void setValue(int obj, int attr, double value)
+    {
+        if (m_DoubleColumns[attr]!=null)
+        {
+            DoubleBuffer column = m_DoubleColumns[attr];
+            if (column.isReadOnly())
+            {
+                DoubleBuffer copy = DoubleBuffer.allocate(column.capacity());
+                copy.put(column.duplicate());
+                DoubleBuffer[] doubleColumns = m_DoubleColumns.clone();
+                doubleColumns[attr] = copy;
+                m_DoubleColumns = doubleColumns;
+                column = copy;
+            }
+            column.put(obj, value);
+            return;
+        }
+        IntBuffer column = m_CodeColumns[attr];
+        if (column.isReadOnly())
+        {
+            IntBuffer copy = IntBuffer.allocate(column.capacity());
+            copy.put(column.duplicate());
+            IntBuffer[] codeColumns = m_CodeColumns.clone();
+            codeColumns[attr] = copy;
+            m_CodeColumns = codeColumns;
+            column = copy;
+        }
+        int code = -1;
+        if (!Double.isNaN(value))
+        {
+            double[] codes = m_GlobalCodes[attr];
+            for (int c = 0; code==-1 && c < codes.length; c++)
+                if (codes[c]==value) code = c;
+            if (code==-1)
+            {
+                code = codes.length;
+                double[] extendedCodes = new double[codes.length + 1];
+                System.arraycopy(codes, 0, extendedCodes, 0, codes.length);
+                extendedCodes[code] = value;
+                double[][] globalCodes = m_GlobalCodes.clone();
+                globalCodes[attr] = extendedCodes;
+                m_GlobalCodes = globalCodes;
+            }
+        }
+        column.put(obj, code);
+    }
+
+    /**
+     * Completes progress reporting.
+     *
+     * @throws InterruptedException  If user has interrupted reading data.
+     */
+    private void close() throws InterruptedException
+    {
+        while (m_Percentage < 100)
+        {
+            m_Percentage++;
+            m_Progress.step();
+        }
+    }
+}
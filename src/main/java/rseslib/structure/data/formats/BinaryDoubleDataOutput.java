@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.structure.data.formats;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+
+import rseslib.structure.attribute.Header;
+import rseslib.structure.attribute.NominalAttribute;
+import rseslib.structure.attribute.formats.BinaryHeaderReader;
+import rseslib.structure.data.DoubleData;
+import rseslib.system.progress.Progress;
+
+/**
+ * Writer of data in rseslib binary format.
+ * The file consists of the binary header (see BinaryHeaderReader),
+ * the number of objects, the table of column offsets
+ * and the columns of values, one block per attribute.
+ * Attributes with a dictionary of values (nominal and text attributes)
+ * are stored as int local codes with -1 for missing values,
+ * the other attributes are stored as double values.
+ * Each column starts at an offset aligned to 8 bytes,
+ * so that it can be memory-mapped and read directly.
+ */
+public class BinaryDoubleDataOutput
+{
+    /** Alignment of column blocks in bytes. */
+    static final int ALIGNMENT = 8;
+
+    /**
+     * Checks whether values of a given attribute
+     * are stored as int local codes.
+     *
+     * @param hdr  Header.
+     * @param attr Index of the attribute.
+     * @return     True if values are stored as int local codes, false if as double values.
+     */
+    static boolean isCodedColumn(Header hdr, int attr)
+    {
+        return (hdr.attribute(attr) instanceof NominalAttribute);
+    }
+
+    /**
+     * Returns the size in bytes of a column of a given attribute.
+     *
+     * @param hdr        Header.
+     * @param attr       Index of the attribute.
+     * @param noOfObjects Number of objects.
+     * @return           Size of the column in bytes.
+     */
+    static long columnSize(Header hdr, int attr, int noOfObjects)
+    {
+        return (isCodedColumn(hdr, attr) ? 4L : 8L) * noOfObjects;
+    }
+
+    /**
+     * Returns the smallest aligned position not less than a given position.
+     *
+     * @param pos Position in a file.
+     * @return    Aligned position.
+     */
+    static long align(long pos)
+    {
+        return (pos + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    /**
+     * Saves data objects to a file in binary format.
+     *
+     * @param hdr        Header of the data objects.
+     * @param objects    Data objects to be saved.
+     * @param outputFile File to be used for storing data.
+     * @param prog       Progress object for progress reporting.
+     * @throws IOException If an I/O error has occured.
+     * @throws InterruptedException If user has interrupted saving data.
+     */
+    public static void store(Header hdr, Collection<DoubleData> objects, File outputFile, Progress prog) throws IOException, InterruptedException
+    {
+        prog.set("Saving data table to "+outputFile.getPath(), hdr.noOfAttr());
+        ByteArrayOutputStream hdrBytes = new ByteArrayOutputStream();
+        DataOutputStream hdrOutput = new DataOutputStream(hdrBytes);
+        BinaryHeaderReader.write(hdr, hdrOutput);
+        hdrOutput.close();
+        int noOfObjects = objects.size();
+        long[] offsets = new long[hdr.noOfAttr()];
+        long pos = align(hdrBytes.size() + 4 + 8L * offsets.length);
+        for (int attr = 0; attr < offsets.length; attr++)
+        {
+            offsets[attr] = pos;
+            pos = align(pos + columnSize(hdr, attr, noOfObjects));
+        }
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(outputFile), 1 << 16));
+        try
+        {
+            hdrBytes.writeTo(output);
+            output.writeInt(noOfObjects);
+            for (int attr = 0; attr < offsets.length; attr++)
+                output.writeLong(offsets[attr]);
+            pos = hdrBytes.size() + 4 + 8L * offsets.length;
+            for (int attr = 0; attr < offsets.length; attr++)
+            {
+                for (; pos < offsets[attr]; pos++)
+                    output.writeByte(0);
+                if (isCodedColumn(hdr, attr))
+                {
+                    NominalAttribute nomAttr = (NominalAttribute)hdr.attribute(attr);
+                    for (DoubleData obj : objects)
+                        output.writeInt(nomAttr.localValueCode(obj.get(attr)));
+                }
+                else
+                    for (DoubleData obj : objects)
+                        output.writeDouble(obj.get(attr));
+                pos += columnSize(hdr, attr, noOfObjects);
+                prog.step();
+            }
+        }
+        finally
+        {
+            output.close();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.structure.data.formats;
+
+import java.util.Arrays;
+
+/**
+ * Dictionary assigning successive integer codes to byte strings
+ * in the order of their first occurrence.
+ * Strings are looked up directly in a byte buffer,
+ * a copy of the bytes is made only when a new string is added.
+ * The dictionary is not thread-safe.
+ */
+class ByteStringDictionary
+{
+    /** Strings in the order of codes. */
+    private byte[][] m_Keys = new byte[8][];
+    /** Hash values of strings in the order of codes. */
+    private int[] m_Hashes = new int[8];
+    /** Open addressing table of codes, -1 denotes an empty slot. */
+    private int[] m_Table = new int[16];
+    /** Number of strings in this dictionary. */
+    private int m_nSize = 0;
+
+    /**
+     * Constructs an empty dictionary.
+     */
+    ByteStringDictionary()
+    {
+        Arrays.fill(m_Table, -1);
+    }
+
+    /**
+     * Returns the number of strings in this dictionary.
+     *
+     * @return Number of strings in this dictionary.
+     */
+    int size()
+    {
+        return m_nSize;
+    }
+
+    /**
+     * Returns the bytes of a string with a given code.
+     *
+     * @param code Code of a string.
+     * @return     Bytes of the string.
+     */
+    byte[] key(int code)
+    {
+        return m_Keys[code];
+    }
+
+    /**
+     * Returns the code of a string given as a range of bytes in a buffer.
+     * If the string is not in this dictionary it is added with the next code.
+     *
+     * @param buf  Buffer with the string.
+     * @param from Index of the first byte of the string.
+     * @param to   Index following the last byte of the string.
+     * @return     Code of the string.
+     */
+    int code(byte[] buf, int from, int to)
+    {
+        int hash = 1;
+        for (int i = from; i < to; i++)
+            hash = 31 * hash + buf[i];
+        int mask = m_Table.length - 1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (m_Table[slot]!=-1)
+        {
+            int code = m_Table[slot];
+            if (m_Hashes[code]==hash && equal(m_Keys[code], buf, from, to)) return code;
+            slot = (slot + 1) & mask;
+        }
+        if (m_nSize==m_Keys.length)
+        {
+            m_Keys = Arrays.copyOf(m_Keys, 2 * m_nSize);
+            m_Hashes = Arrays.copyOf(m_Hashes, 2 * m_nSize);
+        }
+        int code = m_nSize++;
+        m_Keys[code] = Arrays.copyOfRange(buf, from, to);
+        m_Hashes[code] = hash;
+        m_Table[slot] = code;
+        if (2 * m_nSize > m_Table.length) rehash();
+        return code;
+    }
+
+    /**
+     * Compares a string with a range of bytes in a buffer.
+     *
+     * @param key  String to be compared.
+     * @param buf  Buffer.
+     * @param from Index of the first byte of the range.
+     * @param to   Index following the last byte of the range.
+     * @return     True if the string and the range are equal.
+     */
+    private static boolean equal(byte[] key, byte[] buf, int from, int to)
+    {
+        if (key.length!=to-from) return false;
+        for (int i = 0; i < key.length; i++)
+            if (key[i]!=buf[from+i]) return false;
+        return true;
+    }
+
+    /**
+     * Doubles the size of the open addressing table.
+     */
+    private void rehash()
+    {
+        m_Table = new int[2 * m_Table.length];
+        Arrays.fill(m_Table, -1);
+        int mask = m_Table.length - 1;
+        for (int code = 0; code < m_nSize; code++)
+        {
+            int slot = (m_Hashes[code] ^ (m_Hashes[code] >>> 16)) & mask;
+            while (m_Table[slot]!=-1)
+                slot = (slot + 1) & mask;
+            m_Table[slot] = code;
+        }
+    }
+}
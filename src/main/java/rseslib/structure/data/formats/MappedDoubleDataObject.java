@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.structure.data.formats;
+
+import rseslib.structure.attribute.Header;
+import rseslib.structure.data.AbstractDoubleDataView;
+
+/**
+ * Lightweight view of a single data object
+ * in a memory-mapped file in rseslib binary format.
+ * The view does not hold attribute values,
+ * it reads them directly from the mapped columns.
+ * Changed values are kept in memory and are not written back to the file
+ * (see BinaryDoubleDataInput).
+ */
+public class MappedDoubleDataObject extends AbstractDoubleDataView
+{
+    /** Serialization version. */
+	private static final long serialVersionUID = 1L;
+
+	/** Input providing the mapped columns. */
+    private final BinaryDoubleDataInput m_Input;
+    /** Index of this object in the file. */
+    private final int m_nIndex;
+
+    /**
+     * Constructs a view of a given object in a mapped file.
+     *
+     * @param input Input providing the mapped columns.
+     * @param index Index of the object in the file.
+     */
+    MappedDoubleDataObject(BinaryDoubleDataInput input, int index)
+    {
+        m_Input = input;
+        m_nIndex = index;
+    }
+
+    /**
+     * Returns the index of this object in the file.
+     *
+     * @return Index of this object in the file.
+     */
+    public int getIndex()
+    {
+        return m_nIndex;
+    }
+
+    /**
+     * Returns attribute types for this data object.
+     *
+     * @return Attribute types for this data object.
+     */
+    public Header attributes()
+    {
+        return m_Input.attributes();
+    }
+
+    /**
+     * Sets the value of a given attribute to a given double value.
+     * The change is not written back to the file.
+     *
+     * @param atrNo Index of the attribute to be changed.
+     * @param value Double attribute value.
+     */
+    public void set(int atrNo, double value)
+    {
+        m_Input.setValue(m_nIndex, atrNo, value);
+    }
+
+    /**
+     * Returns the double value of a given attribute.
+     *
+     * @param atrNo Index of the attribute to be returned.
+     * @return      Double attribute value.
+     */
+    public double get(int atrNo)
+    {
+        return m_Input.getValue(m_nIndex, atrNo);
+    }
+}
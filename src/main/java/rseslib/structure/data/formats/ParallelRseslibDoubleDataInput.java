@@ -0,0 +1,913 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.structure.data.formats;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import rseslib.structure.attribute.ArrayHeader;
+import rseslib.structure.attribute.BadHeaderException;
+import rseslib.structure.attribute.Header;
+import rseslib.structure.attribute.NominalAttribute;
+import rseslib.structure.attribute.formats.HeaderFormatException;
+import rseslib.structure.attribute.formats.RseslibHeaderReader;
+import rseslib.structure.data.DoubleData;
+import rseslib.structure.data.DoubleDataObject;
+import rseslib.system.progress.EmptyProgress;
+import rseslib.system.progress.Progress;
+
+/**
+ * Input stream for data in rseslib format
+ * parsing the data file concurrently.
+ * The file is split into byte ranges ending at line boundaries
+ * and the ranges are tokenized in parallel directly on bytes.
+ * Nominal and text values are first coded with dictionaries local
+ * to a range and the local dictionaries are merged in the order
+ * of ranges, so the codes of values are the same
+ * as the codes assigned by RseslibDoubleDataInput.
+ * Ranges are parsed ahead of reading by a bounded number of tasks
+ * and the local dictionaries are merged when a range is reached by reading,
+ * so the first data objects are returned as soon as the first range is parsed
+ * and only a few parsed ranges are kept in memory at a time.
+ * The parsing threads and the data file are released
+ * when all data have been read or when the input is closed.
+ */
+public class ParallelRseslibDoubleDataInput implements DoubleDataInput, Closeable
+{
+    /** Minimal size of a data file worth parsing in parallel. */
+    public static final long MIN_PARALLEL_FILE_SIZE = 1L << 22;
+    /** Maximal size of a range of a data file parsed by a single task. */
+    private static final long MAX_CHUNK_SIZE = 1L << 24;
+    /** Minimal size of a range of a data file parsed by a single task. */
+    private static final long MIN_CHUNK_SIZE = 1L << 16;
+    /** Number of ranges per thread used to balance the load of threads. */
+    private static final int CHUNKS_PER_THREAD = 4;
+    /** Powers of ten exactly representable as double values. */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    /** Header. */
+    private ArrayHeader m_Header;
+    /** Switch indicating whether a comma is the separator between attribute values. */
+    private boolean m_CommaAsValueSeparator;
+    /** Separator at the end of data line, null if there is no separator. */
+    private byte[] m_LineEnding = null;
+    /** Strings denoting missing values. */
+    private byte[][] m_MissingValues;
+    /** Charset of data file. */
+    private Charset m_Charset = Charset.defaultCharset();
+    /** Number of lines preceding data lines. */
+    private int m_nHeaderLines = 0;
+    /** Position of the first byte following the data header. */
+    private long m_nDataStart;
+    /** Size of data file. */
+    private long m_nFileSize;
+    /** Input stream of data file, null after reading is completed. */
+    private FileInputStream m_Input;
+    /** Executor parsing ranges of data file, null after reading is completed. */
+    private ExecutorService m_Executor;
+    /** Maximal number of ranges parsed ahead of reading. */
+    private int m_nMaxParsedChunks;
+    /** Ranges waiting for parsing. */
+    private ArrayDeque<Chunk> m_WaitingChunks = new ArrayDeque<Chunk>();
+    /** Ranges submitted for parsing in the order of ranges. */
+    private ArrayDeque<Future<Chunk>> m_ParsedChunks = new ArrayDeque<Future<Chunk>>();
+    /** Range with data objects being read, null if no range is being read. */
+    private Chunk m_CurrentChunk = null;
+    /** Translation of local codes in the current range to global codes for each attribute. */
+    private double[][] m_CurrentGlobalCodes;
+    /** Index of the next data object to be returned from the current range. */
+    private int m_nNextObject = 0;
+    /** Number of lines preceding the current range. */
+    private int m_nLineOffset;
+    /** Progress object for progress reporting. */
+    private Progress m_Progress;
+    /** Approximate percentage of data loaded. */
+    private int m_Percentage = 0;
+
+    /**
+     * Checks whether parallel parsing of a data file is applicable
+     * and worth using. It requires more than one processor,
+     * a large enough file and a default charset
+     * coding ASCII characters with single bytes.
+     *
+     * @param dataFile Data file to be loaded.
+     * @return         True if the file should be loaded with this input.
+     */
+    public static boolean isApplicable(File dataFile)
+    {
+        if (Runtime.getRuntime().availableProcessors() < 2 || dataFile.length() < MIN_PARALLEL_FILE_SIZE) return false;
+        Charset charset = Charset.defaultCharset();
+        if (charset.equals(StandardCharsets.UTF_8)) return true;
+        String probe = "\\#,. \t\r\n0123456789+-eE";
+        return (charset.newEncoder().maxBytesPerChar()==1.0f
+                && Arrays.equals(probe.getBytes(charset), probe.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    /**
+     * Constructs this input stream,
+     * reads attribute information from data file
+     * and parses data using all available processors.
+     *
+     * @param dataFile       Data file to be loaded.
+     * @param prog           Progress object for progress reporting.
+     * @throws IOException   If an I/O error occurs.
+     * @throws InterruptedException  If user has interrupted reading data.
+     */
+    public ParallelRseslibDoubleDataInput(File dataFile, Progress prog) throws IOException, HeaderFormatException, DataFormatException, InterruptedException
+    {
+        this(dataFile, prog, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs this input stream,
+     * reads attribute information from data file
+     * and parses data using a given number of threads.
+     *
+     * @param dataFile       Data file to be loaded.
+     * @param prog           Progress object for progress reporting.
+     * @param noOfThreads    Number of threads parsing data.
+     * @throws IOException   If an I/O error occurs.
+     * @throws InterruptedException  If user has interrupted reading data.
+     */
+    public ParallelRseslibDoubleDataInput(File dataFile, Progress prog, int noOfThreads) throws IOException, HeaderFormatException, DataFormatException, InterruptedException
+    {
+        RseslibDoubleDataInput seqInput = new RseslibDoubleDataInput(dataFile, new EmptyProgress());
+        init(seqInput);
+        start(dataFile, prog, noOfThreads);
+    }
+
+    /**
+     * Constructs this input stream,
+     * verifies information about attributes from data file
+     * and parses data using all available processors.
+     *
+     * @param dataFile       Data file to be loaded.
+     * @param hdr            Header to be verified with data specification in a file.
+     * @param prog           Progress object for progress reporting.
+     * @throws IOException   If an I/O error occurs.
+     * @throws InterruptedException  If user has interrupted reading data.
+     */
+    public ParallelRseslibDoubleDataInput(File dataFile, Header hdr, Progress prog) throws IOException, HeaderFormatException, DataFormatException, BadHeaderException, InterruptedException
+    {
+        this(dataFile, hdr, prog, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs this input stream,
+     * verifies information about attributes from data file
+     * and parses data using a given number of threads.
+     *
+     * @param dataFile       Data file to be loaded.
+     * @param hdr            Header to be verified with data specification in a file.
+     * @param prog           Progress object for progress reporting.
+     * @param noOfThreads    Number of threads parsing data.
+     * @throws IOException   If an I/O error occurs.
+     * @throws InterruptedException  If user has interrupted reading data.
+     */
+    public ParallelRseslibDoubleDataInput(File dataFile, Header hdr, Progress prog, int noOfThreads) throws IOException, HeaderFormatException, DataFormatException, BadHeaderException, InterruptedException
+    {
+        RseslibDoubleDataInput seqInput = new RseslibDoubleDataInput(dataFile, hdr, new EmptyProgress());
+        init(seqInput);
+        start(dataFile, prog, noOfThreads);
+    }
+
+    /**
+     * Takes the header and the separators detected by a sequential input.
+     *
+     * @param seqInput       Sequential input opened for the same file.
+     * @throws IOException   If an I/O error occurs.
+     * @throws InterruptedException  If user has interrupted reading data.
+     */
+    private void init(RseslibDoubleDataInput seqInput) throws IOException, InterruptedException
+    {
+        m_Header = (ArrayHeader)seqInput.attributes();
+        m_CommaAsValueSeparator = seqInput.commaAsValueSeparator();
+        if (seqInput.lineEnding()!=null) m_LineEnding = seqInput.lineEnding().getBytes(m_Charset);
+        seqInput.close();
+        m_MissingValues = new byte[m_Header.missingValues().size()][];
+        int m = 0;
+        for (String missing : m_Header.missingValues())
+            m_MissingValues[m++] = missing.getBytes(m_Charset);
+    }
+
+    /**
+     * Finds the position of the first byte following the data header
+     * and counts the number of lines of the header.
+     *
+     * @param dataFile       Data file.
+     * @return               Position of the first byte following the data header.
+     * @throws IOException   If an I/O error occurs.
+     */
+    private long findDataStart(File dataFile) throws IOException
+    {
+        byte[] start = ("\\"+RseslibHeaderReader.HEADER_START_KEYWORD).getBytes(m_Charset);
+        byte[] end = ("\\"+RseslibHeaderReader.HEADER_END_KEYWORD).getBytes(m_Charset);
+        InputStream input = new BufferedInputStream(new FileInputStream(dataFile), 1 << 16);
+        try
+        {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            long lineLength = readLine(input, line);
+            if (lineLength==-1 || !startsWith(line.toByteArray(), start)) return 0;
+            long pos = lineLength;
+            m_nHeaderLines = 1;
+            while ((lineLength = readLine(input, line)) != -1)
+            {
+                pos += lineLength;
+                m_nHeaderLines++;
+                if (startsWith(line.toByteArray(), end)) break;
+            }
+            return pos;
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+
+    /**
+     * Reads one line from an input.
+     *
+     * @param input          Input to be read from.
+     * @param line           Buffer for the line without the line terminator.
+     * @return               Number of bytes read including the line terminator, -1 at the end of input.
+     * @throws IOException   If an I/O error occurs.
+     */
+    private static long readLine(InputStream input, ByteArrayOutputStream line) throws IOException
+    {
+        line.reset();
+        long length = 0;
+        int b;
+        while ((b = input.read()) != -1)
+        {
+            length++;
+            if (b=='\n') return length;
+            if (b=='\r')
+            {
+                input.mark(1);
+                if (input.read()=='\n') length++;
+                else input.reset();
+                return length;
+            }
+            line.write(b);
+        }
+        return (length==0) ? -1 : length;
+    }
+
+    /**
+     * Checks whether an array of bytes starts with a given prefix.
+     *
+     * @param bytes  Array to be checked.
+     * @param prefix Prefix.
+     * @return       True if the array starts with the prefix.
+     */
+    private static boolean startsWith(byte[] bytes, byte[] prefix)
+    {
+        if (bytes.length < prefix.length) return false;
+        for (int i = 0; i < prefix.length; i++)
+            if (bytes[i]!=prefix[i]) return false;
+        return true;
+    }
+
+    /**
+     * Finds the first line boundary not preceding a given position.
+     *
+     * @param channel        Channel of data file.
+     * @param pos            Position in data file.
+     * @return               Position of the first byte of a line.
+     * @throws IOException   If an I/O error occurs.
+     */
+    private static long lineBoundary(FileChannel channel, long pos) throws IOException
+    {
+        long size = channel.size();
+        ByteBuffer buf = ByteBuffer.allocate(1 << 12);
+        for (pos--; pos < size; )
+        {
+            buf.clear();
+            int read = channel.read(buf, pos);
+            if (read <= 0) break;
+            for (int i = 0; i < read; i++)
+                if (buf.get(i)=='\n') return pos + i + 1;
+            pos += read;
+        }
+        return size;
+    }
+
+    /**
+     * Splits data into ranges and starts parsing of the first ranges.
+     *
+     * @param dataFile       Data file to be loaded.
+     * @param prog           Progress object for progress reporting.
+     * @param noOfThreads    Number of threads parsing data.
+     * @throws IOException   If an I/O error occurs.
+     * @throws InterruptedException  If user has interrupted reading data.
+     */
+    private void start(File dataFile, Progress prog, int noOfThreads) throws IOException, InterruptedException
+    {
+        m_Progress = prog;
+        m_Progress.set("Loading data from "+dataFile.getPath(), 100);
+        noOfThreads = Math.max(1, noOfThreads);
+        m_nDataStart = findDataStart(dataFile);
+        m_nLineOffset = m_nHeaderLines;
+        m_Input = new FileInputStream(dataFile);
+        try
+        {
+            FileChannel channel = m_Input.getChannel();
+            m_nFileSize = channel.size();
+            long chunkSize = (m_nFileSize - m_nDataStart) / (CHUNKS_PER_THREAD * noOfThreads) + 1;
+            chunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, chunkSize));
+            for (long from = m_nDataStart; from < m_nFileSize; )
+            {
+                long to = (from + chunkSize < m_nFileSize) ? lineBoundary(channel, from + chunkSize) : m_nFileSize;
+                m_WaitingChunks.add(new Chunk(channel, from, to));
+                from = to;
+            }
+        }
+        catch (IOException e)
+        {
+            shutdown();
+            throw e;
+        }
+        m_nMaxParsedChunks = 2 * noOfThreads;
+        m_Executor = Executors.newFixedThreadPool(noOfThreads, new ThreadFactory() {
+            public Thread newThread(Runnable task)
+            {
+                Thread thread = new Thread(task, "rseslib-parser");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        submitChunks();
+    }
+
+    /**
+     * Submits waiting ranges for parsing
+     * up to the maximal number of ranges parsed ahead.
+     */
+    private void submitChunks()
+    {
+        while (m_ParsedChunks.size() < m_nMaxParsedChunks && !m_WaitingChunks.isEmpty())
+            m_ParsedChunks.add(m_Executor.submit(m_WaitingChunks.poll()));
+    }
+
+    /**
+     * Waits for the next parsed range, merges its dictionaries
+     * and makes it the current range.
+     *
+     * @throws IOException   If an I/O error occurs.
+     * @throws InterruptedException  If user has interrupted reading data.
+     */
+    private void nextChunk() throws IOException, InterruptedException
+    {
+        boolean done = false;
+        try
+        {
+            Chunk chunk = result(m_ParsedChunks.poll());
+            submitChunks();
+            m_CurrentGlobalCodes = chunk.mergeDictionaries();
+            m_CurrentChunk = chunk;
+            m_nNextObject = 0;
+            while (100*(chunk.m_nTo-m_nDataStart) >= (m_Percentage+1)*(m_nFileSize-m_nDataStart) && m_Percentage < 99)
+            {
+                m_Percentage++;
+                m_Progress.step();
+            }
+            done = true;
+        }
+        finally
+        {
+            if (!done) shutdown();
+        }
+    }
+
+    /**
+     * Stops parsing and closes data file.
+     */
+    private void shutdown()
+    {
+        m_WaitingChunks.clear();
+        m_ParsedChunks.clear();
+        if (m_Executor!=null)
+        {
+            m_Executor.shutdownNow();
+            m_Executor = null;
+        }
+        if (m_Input!=null)
+        {
+            try
+            {
+                m_Input.close();
+            }
+            catch (IOException e)
+            {
+            }
+            m_Input = null;
+        }
+    }
+
+    /**
+     * Stops parsing and releases the parsing threads and the data file
+     * before all data have been read. It has no effect
+     * if all data have been already read.
+     */
+    public void close()
+    {
+        shutdown();
+    }
+
+    /**
+     * Releases resources and completes progress reporting
+     * after all data have been read.
+     *
+     * @throws InterruptedException  If user has interrupted reading data.
+     */
+    private void finish() throws InterruptedException
+    {
+        shutdown();
+        while (m_Percentage < 100)
+        {
+            m_Percentage++;
+            m_Progress.step();
+        }
+    }
+
+    /**
+     * Waits for the result of a task and rethrows exceptions thrown by the task.
+     *
+     * @param task           Submitted task.
+     * @return               Result of the task.
+     * @throws IOException   If an I/O error occured in the task.
+     * @throws InterruptedException  If the current thread was interrupted.
+     */
+    private static Chunk result(Future<Chunk> task) throws IOException, InterruptedException
+    {
+        try
+        {
+            return task.get();
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof IOException) throw (IOException)e.getCause();
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+            if (e.getCause() instanceof Error) throw (Error)e.getCause();
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Checks whether a byte is a whitespace character.
+     * The same ASCII characters are recognized as by Character.isWhitespace.
+     *
+     * @param b Byte to be checked.
+     * @return  True if the byte is a whitespace character.
+     */
+    private static boolean isWhitespace(byte b)
+    {
+        return (b==' ' || (b >= '\t' && b <= '\r') || (b >= '\u001C' && b <= '\u001F'));
+    }
+
+    /**
+     * Finds the first occurence of a byte in a range of a buffer.
+     *
+     * @param buf  Buffer.
+     * @param b    Byte to be found.
+     * @param from Index of the first byte of the range.
+     * @param to   Index following the last byte of the range.
+     * @return     Index of the found byte or -1 if the byte does not occur.
+     */
+    private static int indexOf(byte[] buf, byte b, int from, int to)
+    {
+        for (int i = from; i < to; i++)
+            if (buf[i]==b) return i;
+        return -1;
+    }
+
+    /**
+     * Finds the first occurence of a sequence of bytes in a range of a buffer.
+     *
+     * @param buf  Buffer.
+     * @param seq  Sequence to be found.
+     * @param from Index of the first byte of the range.
+     * @param to   Index following the last byte of the range.
+     * @return     Index of the found sequence or -1 if the sequence does not occur.
+     */
+    private static int indexOf(byte[] buf, byte[] seq, int from, int to)
+    {
+        for (int i = from; i + seq.length <= to; i++)
+        {
+            int j = 0;
+            while (j < seq.length && buf[i+j]==seq[j]) j++;
+            if (j==seq.length) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether a range of a buffer is one of the strings denoting missing values.
+     *
+     * @param buf  Buffer.
+     * @param from Index of the first byte of the range.
+     * @param to   Index following the last byte of the range.
+     * @return     True if the range denotes a missing value.
+     */
+    private boolean isMissing(byte[] buf, int from, int to)
+    {
+        for (byte[] missing : m_MissingValues)
+            if (missing.length==to-from && indexOf(buf, missing, from, to)==from) return true;
+        return false;
+    }
+
+    /**
+     * Parses a decimal number from a range of a buffer.
+     * Numbers with at most 18 significant digits and a small exponent
+     * are converted exactly with a single floating point operation,
+     * other numbers are converted with Double.parseDouble.
+     *
+     * @param buf  Buffer.
+     * @param from Index of the first byte of the number.
+     * @param to   Index following the last byte of the number.
+     * @return     Parsed number.
+     * @throws NumberFormatException If the range is not a number.
+     */
+    private double parseNumber(byte[] buf, int from, int to) throws NumberFormatException
+    {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (buf[i]=='-' || buf[i]=='+')) negative = (buf[i++]=='-');
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean anyDigit = false;
+        for (; i < to && buf[i] >= '0' && buf[i] <= '9'; i++, anyDigit = true)
+        {
+            mantissa = 10 * mantissa + (buf[i] - '0');
+            if (mantissa!=0) digits++;
+        }
+        if (i < to && buf[i]=='.')
+            for (i++; i < to && buf[i] >= '0' && buf[i] <= '9'; i++, anyDigit = true)
+            {
+                mantissa = 10 * mantissa + (buf[i] - '0');
+                if (mantissa!=0) digits++;
+                exponent--;
+            }
+        if (anyDigit && i < to && (buf[i]=='e' || buf[i]=='E'))
+        {
+            int e = i + 1;
+            boolean negativeExp = false;
+            if (e < to && (buf[e]=='-' || buf[e]=='+')) negativeExp = (buf[e++]=='-');
+            int exp = 0;
+            boolean anyExpDigit = false;
+            for (; e < to && buf[e] >= '0' && buf[e] <= '9' && exp < 10000; e++, anyExpDigit = true)
+                exp = 10 * exp + (buf[e] - '0');
+            if (anyExpDigit)
+            {
+                exponent += negativeExp ? -exp : exp;
+                i = e;
+            }
+        }
+        if (anyDigit && i==to && digits <= 18)
+        {
+            if (mantissa==0) return negative ? -0.0 : 0.0;
+            if (mantissa < (1L << 53) && exponent >= -22 && exponent <= 22)
+            {
+                double value = (exponent >= 0) ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+                return negative ? -value : value;
+            }
+        }
+        return Double.parseDouble(new String(buf, from, to-from, m_Charset));
+    }
+
+    /**
+     * Returns the array of attributes.
+     *
+     * @return Array of attributes.
+     */
+    public Header attributes()
+    {
+        return m_Header;
+    }
+
+    /**
+     * Returns true if there is more data to be read, false otherwise.
+     * Waits for parsing of the next range if all data objects
+     * from the current range have been read.
+     *
+     * @return True if there is more data to be read, false otherwise.
+     * @throws IOException If an I/O error occurs.
+     * @throws InterruptedException  If user has interrupted reading data.
+     */
+    public boolean available() throws IOException, InterruptedException
+    {
+        while (m_CurrentChunk==null || (m_nNextObject==m_CurrentChunk.m_Objects.size() && m_CurrentChunk.m_ErrorMessage==null))
+        {
+            if (m_CurrentChunk!=null)
+            {
+                m_nLineOffset += m_CurrentChunk.m_nLines;
+                m_CurrentChunk = null;
+            }
+            if (m_ParsedChunks.isEmpty())
+            {
+                finish();
+                return false;
+            }
+            nextChunk();
+        }
+        return true;
+    }
+
+    /**
+     * Reads a new data from this stream.
+     *
+     * @return Read data.
+     * @throws IOException If an I/O error occurs.
+     * @throws InterruptedException  If user has interrupted reading data.
+     */
+    public DoubleData readDoubleData() throws IOException, DataFormatException, InterruptedException
+    {
+        if (!available()) throw new IOException("An atempt of reading data from an empty data input");
+        if (m_nNextObject==m_CurrentChunk.m_Objects.size())
+        {
+            // the rest of the current range contains an error
+            shutdown();
+            throw new DataFormatException(m_CurrentChunk.m_ErrorMessage+(m_nLineOffset+m_CurrentChunk.m_nErrorLine)+m_CurrentChunk.m_ErrorMessageEnd);
+        }
+        DoubleDataObject dObject = m_CurrentChunk.m_Objects.get(m_nNextObject);
+        m_CurrentChunk.m_Objects.set(m_nNextObject++, null);
+        for (int attr = 0; attr < m_CurrentGlobalCodes.length; attr++)
+            if (m_CurrentGlobalCodes[attr]!=null)
+            {
+                double code = dObject.get(attr);
+                if (!Double.isNaN(code)) dObject.set(attr, m_CurrentGlobalCodes[attr][(int)code]);
+            }
+        return dObject;
+    }
+
+    /**
+     * Task parsing a range of a data file.
+     * Values of nominal and text attributes are coded
+     * with dictionaries local to the range.
+     */
+    private class Chunk implements Callable<Chunk>
+    {
+        /** Channel of data file. */
+        private FileChannel m_Channel;
+        /** Position of the first byte of the range. */
+        private long m_nFrom;
+        /** Position following the last byte of the range. */
+        private long m_nTo;
+        /** Data objects parsed from the range. */
+        private ArrayList<DoubleDataObject> m_Objects = new ArrayList<DoubleDataObject>();
+        /** Number of lines in the range. */
+        private int m_nLines = 0;
+        /** Dictionaries of values of nominal and text attributes. */
+        private ByteStringDictionary[] m_Dictionaries;
+        /** Attributes of values in the order of their first occurrence in the range. */
+        private int[] m_FirstOccurAttr = new int[16];
+        /** Local codes of values in the order of their first occurrence in the range. */
+        private int[] m_FirstOccurCode = new int[16];
+        /** Number of values occurring in the range. */
+        private int m_nFirstOccur = 0;
+        /** Error message preceding the line number, null if there is no error. */
+        private String m_ErrorMessage = null;
+        /** Error message following the line number. */
+        private String m_ErrorMessageEnd = "";
+        /** Line number of the error relative to the beginning of the range. */
+        private int m_nErrorLine;
+
+        /**
+         * Constructor.
+         *
+         * @param channel Channel of data file.
+         * @param from    Position of the first byte of the range.
+         * @param to      Position following the last byte of the range.
+         */
+        Chunk(FileChannel channel, long from, long to)
+        {
+            m_Channel = channel;
+            m_nFrom = from;
+            m_nTo = to;
+            m_Dictionaries = new ByteStringDictionary[m_Header.noOfAttr()];
+            for (int attr = 0; attr < m_Dictionaries.length; attr++)
+                if (m_Header.attribute(attr) instanceof NominalAttribute)
+                    m_Dictionaries[attr] = new ByteStringDictionary();
+        }
+
+        /**
+         * Reads and parses the range.
+         *
+         * @return This task.
+         * @throws IOException If an I/O error occurs.
+         */
+        public Chunk call() throws IOException
+        {
+            byte[] buf = new byte[(int)(m_nTo - m_nFrom)];
+            ByteBuffer buffer = ByteBuffer.wrap(buf);
+            while (buffer.hasRemaining())
+                if (m_Channel.read(buffer, m_nFrom + buffer.position()) < 0)
+                    throw new IOException("Unexpected end of data file");
+            int pos = 0;
+            while (pos < buf.length && m_ErrorMessage==null)
+            {
+                int end = pos;
+                while (end < buf.length && buf[end]!='\n' && buf[end]!='\r') end++;
+                m_nLines++;
+                if (end > pos && buf[pos]!='#') parseLine(buf, pos, end);
+                pos = end + 1;
+                if (end + 1 < buf.length && buf[end]=='\r' && buf[end+1]=='\n') pos++;
+            }
+            m_Channel = null;
+            return this;
+        }
+
+        /**
+         * Sets the error found in the current line.
+         *
+         * @param message    Error message preceding the line number.
+         * @param messageEnd Error message following the line number.
+         */
+        private void error(String message, String messageEnd)
+        {
+            m_ErrorMessage = message;
+            m_ErrorMessageEnd = messageEnd;
+            m_nErrorLine = m_nLines;
+        }
+
+        /**
+         * Returns the local code of a value of a nominal or a text attribute.
+         *
+         * @param attr Attribute index.
+         * @param buf  Buffer.
+         * @param from Index of the first byte of the value.
+         * @param to   Index following the last byte of the value.
+         * @return     Local code of the value.
+         */
+        private int code(int attr, byte[] buf, int from, int to)
+        {
+            int size = m_Dictionaries[attr].size();
+            int code = m_Dictionaries[attr].code(buf, from, to);
+            if (m_Dictionaries[attr].size() > size)
+            {
+                if (m_nFirstOccur==m_FirstOccurAttr.length)
+                {
+                    m_FirstOccurAttr = Arrays.copyOf(m_FirstOccurAttr, 2 * m_nFirstOccur);
+                    m_FirstOccurCode = Arrays.copyOf(m_FirstOccurCode, 2 * m_nFirstOccur);
+                }
+                m_FirstOccurAttr[m_nFirstOccur] = attr;
+                m_FirstOccurCode[m_nFirstOccur++] = code;
+            }
+            return code;
+        }
+
+        /**
+         * Parses one data line.
+         * The rules are the same as in RseslibDoubleDataInput.
+         *
+         * @param buf  Buffer.
+         * @param from Index of the first byte of the line.
+         * @param to   Index following the last byte of the line.
+         */
+        private void parseLine(byte[] buf, int from, int to)
+        {
+            int noOfAttrInFile = m_Header.noOfAttrInFile();
+            int attrIndex = 0;
+            int valueIndex = from;
+            DoubleDataObject dObject = new DoubleDataObject(m_Header);
+            while (valueIndex < to && isWhitespace(buf[valueIndex])) valueIndex++;
+            for (int att = 0; att < noOfAttrInFile; att++)
+            {
+                if (valueIndex >= to)
+                {
+                    error("Too few attributes in line ", "");
+                    return;
+                }
+                int sepIndex = valueIndex;
+                if (m_CommaAsValueSeparator)
+                {
+                    sepIndex = indexOf(buf, (byte)',', valueIndex, to);
+                    if (att==noOfAttrInFile-1)
+                    {
+                        if (sepIndex!=-1)
+                        {
+                            error("Too many attributes in the data line ", "");
+                            return;
+                        }
+                        if (m_LineEnding==null) sepIndex = to;
+                        else
+                        {
+                            sepIndex = indexOf(buf, m_LineEnding, valueIndex, to);
+                            if (sepIndex==-1)
+                            {
+                                error("Line ending not found at the end of the data line ", "");
+                                return;
+                            }
+                        }
+                    }
+                    else if (sepIndex==-1)
+                    {
+                        error("Too few attributes in the data line ", "");
+                        return;
+                    }
+                }
+                else while (sepIndex < to && !isWhitespace(buf[sepIndex])) sepIndex++;
+                if (m_Header.attrInFileLoaded(att))
+                {
+                    int valueEnd = sepIndex;
+                    while (valueEnd > valueIndex && isWhitespace(buf[valueEnd-1])) valueEnd--;
+                    if (m_Header.isInterpretable(attrIndex))
+                    {
+                        if (isMissing(buf, valueIndex, valueEnd))
+                            dObject.set(attrIndex, Double.NaN);
+                        else if (m_Header.isNominal(attrIndex))
+                            dObject.set(attrIndex, code(attrIndex, buf, valueIndex, valueEnd));
+                        else if (m_Header.isNumeric(attrIndex))
+                        {
+                            try
+                            {
+                                dObject.set(attrIndex, parseNumber(buf, valueIndex, valueEnd));
+                            }
+                            catch (NumberFormatException e)
+                            {
+                                error("Attribute "+(att+1)+": "+m_Header.name(att)+" defined as numeric but the value '"+new String(buf, valueIndex, valueEnd-valueIndex, m_Charset)+"' in the data line ", " is not a number");
+                                return;
+                            }
+                        }
+                    }
+                    else if (m_Header.isText(attrIndex))
+                        dObject.set(attrIndex, code(attrIndex, buf, valueIndex, valueEnd));
+                    attrIndex++;
+                }
+                if (m_CommaAsValueSeparator && att < noOfAttrInFile-1) valueIndex = sepIndex + 1;
+                else valueIndex = sepIndex;
+                while (valueIndex < to && isWhitespace(buf[valueIndex])) valueIndex++;
+                if (att==noOfAttrInFile-1)
+                    if (valueIndex!=((m_LineEnding==null) ? to : to-m_LineEnding.length))
+                    {
+                        error("The data line ", " too long");
+                        return;
+                    }
+            }
+            m_Objects.add(dObject);
+        }
+
+        /**
+         * Adds the values occurring in this range to the global dictionary
+         * in the order of their first occurrence.
+         * This method must be called for consecutive ranges in the order of ranges.
+         *
+         * @return Translation of local codes to global codes for each attribute.
+         */
+        double[][] mergeDictionaries()
+        {
+            double[][] globalCodes = new double[m_Dictionaries.length][];
+            for (int attr = 0; attr < m_Dictionaries.length; attr++)
+                if (m_Dictionaries[attr]!=null)
+                    globalCodes[attr] = new double[m_Dictionaries[attr].size()];
+            for (int v = 0; v < m_nFirstOccur; v++)
+            {
+                int attr = m_FirstOccurAttr[v];
+                int code = m_FirstOccurCode[v];
+                String value = new String(m_Dictionaries[attr].key(code), m_Charset);
+                globalCodes[attr][code] = ((NominalAttribute)m_Header.attribute(attr)).globalValueCode(value);
+            }
+            m_Dictionaries = null;
+            return globalCodes;
+        }
+    }
+}
@@ -208,6 +208,26 @@ public class RseslibDoubleDataInput implements DoubleDataInput
         dataReader.close();
     }
 
+    /**
+     * Returns true if a comma is the separator between attribute values.
+     *
+     * @return True if a comma is the separator between attribute values.
+     */
+    boolean commaAsValueSeparator()
+    {
+        return m_CommaAsValueSeparator;
+    }
+
+    /**
+     * Returns the separator at the end of data line.
+     *
+     * @return Separator at the end of data line, null if there is no separator.
+     */
+    String lineEnding()
+    {
+        return m_LineEnding;
+    }
+
      /**
       * Returns the array of attributes.
       *
@@ -327,7 +347,7 @@ public class RseslibDoubleDataInput implements DoubleDataInput
      * @throws IOException If an I/O error occurs.
      * @throws InterruptedException  If user has interrupted reading data.
      */
-    private void close() throws IOException, InterruptedException
+    void close() throws IOException, InterruptedException
     {
         m_Line = null;
         m_DataReader.close();
@@ -53,6 +53,27 @@ public class IndexingTreeFork extends IndexingTreeNode
             m_Subnodes[subnode] = new IndexingTreeLeaf(this, metric, subnodesData[subnode], subnodesCenters[subnode]);
     }
 
+    /**
+     * Constructor restoring a node with the already computed subnodes,
+     * radius and weight. This node becomes the supernode of the subnodes.
+     *
+     * @param metric   Metric used to measure distance between data objects.
+     * @param center   Center of this node.
+     * @param radius   Radius of this node.
+     * @param weight   Weight of this node.
+     * @param subnodes Array of subnodes.
+     */
+    public IndexingTreeFork(Metric metric, DoubleData center, double radius, double weight, IndexingTreeNode[] subnodes)
+    {
+        super(metric, center, radius, weight);
+        m_Subnodes = subnodes;
+        for (int subnode = 0; subnode < m_Subnodes.length; subnode++)
+        {
+            m_Subnodes[subnode].setParent(this);
+            m_nSize += m_Subnodes[subnode].size();
+        }
+    }
+
     /**
      * Returns the number of children in this node.
      *
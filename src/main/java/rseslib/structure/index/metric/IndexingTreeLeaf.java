@@ -48,6 +48,21 @@ public class IndexingTreeLeaf extends IndexingTreeNode
         m_arrObjects = objects;
     }
 
+    /**
+     * Constructor restoring a leaf with the already computed radius and weight.
+     *
+     * @param metric    Metric used to measure distance between data objects.
+     * @param objects   Set of data objects of this node.
+     * @param center    Center of this node.
+     * @param radius    Radius of this node.
+     * @param weight    Weight of this node.
+     */
+    public IndexingTreeLeaf(Metric metric, DoubleData[] objects, DoubleData center, double radius, double weight)
+    {
+        super(metric, center, radius, weight);
+        m_arrObjects = objects;
+    }
+
     /**
      * Returns the height of this tree.
      *
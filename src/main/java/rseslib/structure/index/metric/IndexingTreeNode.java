@@ -62,6 +62,22 @@ public abstract class IndexingTreeNode
         computeRadiusAndWeight(objects, m_Metric);
     }
 
+    /**
+     * Constructor restoring a node with the already computed radius and weight.
+     *
+     * @param metric  Metric used to measure distance between data objects.
+     * @param center  Center of this node.
+     * @param radius  Radius of this node.
+     * @param weight  Weight of this node.
+     */
+    public IndexingTreeNode(Metric metric, DoubleData center, double radius, double weight)
+    {
+        m_Metric = metric;
+        m_Center = center;
+        m_nRadius = radius;
+        m_nWeight = weight;
+    }
+
     /**
      * Returns the height of this tree.
      *
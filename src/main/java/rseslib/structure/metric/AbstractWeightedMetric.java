@@ -59,6 +59,10 @@ public abstract class AbstractWeightedMetric extends Configuration implements Me
     double[] m_arrWeights;
     /** Number of weighting iterations. */
     private int m_NoOfIterations = 0;
+    /** Distance function compiled for the current weights, null if it has to be compiled. */
+    private transient volatile DistanceKernel m_Kernel = null;
+    /** Indicates whether this metric can not be compiled to a distance kernel in its current state. */
+    private transient volatile boolean m_bNotCompilable = false;
 
     /**
      * Constructor.
@@ -118,6 +122,29 @@ public abstract class AbstractWeightedMetric extends Configuration implements Me
      */
     public abstract double valueDist(double val1, double val2, int attr);
 
+    /**
+     * Compiles the distance function of this metric for the current weights.
+     * Subclasses with the distances between values that can be expressed
+     * by the differences of values, by the equality or by tables
+     * add their conditional attributes to the kernel.
+     *
+     * @return Distance kernel or null if this metric can not be compiled.
+     */
+    DistanceKernel compileKernel()
+    {
+        return null;
+    }
+
+    /**
+     * Discards the compiled distance function,
+     * called when the weights or the values compared by this metric change.
+     */
+    void invalidateKernel()
+    {
+        m_Kernel = null;
+        m_bNotCompilable = false;
+    }
+
     /**
      * Returns the distance between two data objects.
      *
@@ -127,6 +154,15 @@ public abstract class AbstractWeightedMetric extends Configuration implements Me
      */
     public double dist(DoubleData datObj1, DoubleData datObj2)
     {
+        DistanceKernel kernel = m_Kernel;
+        if (kernel == null && !m_bNotCompilable)
+        {
+            kernel = compileKernel();
+            if (kernel == null) m_bNotCompilable = true;
+            else m_Kernel = kernel;
+        }
+        if (kernel != null)
+            return kernel.dist(datObj1, datObj2);
         switch (m_nMetricType)
         {
             case Indexed:
@@ -221,6 +257,7 @@ public abstract class AbstractWeightedMetric extends Configuration implements Me
     public void setWeight(int attrInd, double weight)
     {
         m_arrWeights[attrInd] = weight;
+        invalidateKernel();
     }
 
     /**
@@ -59,7 +59,7 @@ public class CityHammingMetric extends AbstractWeightedMetric
         for (int attr = 0; attr < m_arrMaxDistances.length; attr++)
             if (m_attrTypes.isConditional(attr) && m_attrTypes.isNumeric(attr))
             {
-                NumericalStatistics attrWithStats = new NumericalStatistics(tab.getDataObjects(), attr);
+                NumericalStatistics attrWithStats = tab.getNumericalStatistics(attr);
                 m_arrMaxDistances[attr] = attrWithStats.getMaximum() - attrWithStats.getMinimum();
             }
     }
@@ -116,4 +116,23 @@ public class CityHammingMetric extends AbstractWeightedMetric
         	return 1;
         return 0;
     }
+
+    /**
+     * Compiles the distance function of this metric for the current weights.
+     *
+     * @return Distance kernel.
+     */
+    DistanceKernel compileKernel()
+    {
+        DistanceKernel kernel = new DistanceKernel(m_nMetricType, m_nMetricIndex, m_arrWeights);
+        for (int attr = 0; attr < m_attrTypes.noOfAttr(); attr++)
+            if (m_attrTypes.isConditional(attr))
+            {
+                if (m_attrTypes.isNumeric(attr) && m_arrMaxDistances[attr] > 0.0)
+                    kernel.addDifferenceAttribute(attr, 1/m_arrMaxDistances[attr], 1);
+                else if (m_attrTypes.isNumeric(attr) || m_attrTypes.isNominal(attr))
+                    kernel.addEqualityAttribute(attr);
+            }
+        return kernel.build();
+    }
 }
@@ -143,6 +143,7 @@ public class CitySVDMetric extends AbstractWeightedMetric
     {
     	AttributeTransformer trans = m_Transformer;
     	m_Transformer = null;
+    	invalidateKernel();
         return trans;
     }
 
@@ -177,4 +178,28 @@ public class CitySVDMetric extends AbstractWeightedMetric
             return m_arrDeltaWeights[attr][intVal1][intVal2];
         }
     }
+
+    /**
+     * Compiles the distance function of this metric for the current weights.
+     * The metric is compiled only if the values are transformed outside.
+     *
+     * @return Distance kernel or null if the values are transformed inside this metric.
+     */
+    DistanceKernel compileKernel()
+    {
+        if (m_Transformer!=null)
+            return null;
+        DistanceKernel kernel = new DistanceKernel(m_nMetricType, m_nMetricIndex, m_arrWeights);
+        for (int attr = 0; attr < m_attrTypes.noOfAttr(); attr++)
+            if (m_attrTypes.isConditional(attr))
+            {
+                if (m_attrTypes.isNumeric(attr))
+                    kernel.addDifferenceAttribute(attr, 1, m_arrMaxDistances[attr]);
+                else if (m_bDecisionVectorAsDecisionValueDifference)
+                    kernel.addDifferenceAttribute(attr, 1, 2);
+                else
+                    kernel.addTableAttribute(attr, m_arrDeltaWeights[attr], 2);
+            }
+        return kernel.build();
+    }
 }
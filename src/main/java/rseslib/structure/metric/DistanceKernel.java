@@ -0,0 +1,339 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.structure.metric;
+
+import java.util.Arrays;
+
+import rseslib.structure.data.DoubleData;
+
+/**
+ * Distance function of a weighted metric compiled
+ * for the current attribute weights and the metric type.
+ * Conditional attributes are split into three groups
+ * with contiguous arrays of attribute indices and coefficients:
+ * attributes with the distance proportional to the difference of values,
+ * attributes with the distance 0 for equal values and 1 otherwise
+ * and attributes with the distances between values given by a table.
+ * The weights and the exponent of the metric type
+ * are folded into the coefficients and the tables,
+ * so the distance is computed in a loop over each group
+ * without type checks and virtual calls per attribute.
+ * A kernel is immutable after it is built.
+ */
+final class DistanceKernel
+{
+    /** Type of the compiled metric. */
+    private final AbstractWeightedMetric.MetricType m_nMetricType;
+    /** Index of the metric used only with the indexed metric type. */
+    private final double m_nMetricIndex;
+    /** Weights of attributes. */
+    private final double[] m_arrWeights;
+
+    /** Number of attributes with the distance proportional to the difference of values. */
+    private int m_nNoOfDiffAttrs = 0;
+    /** Indices of attributes with the distance proportional to the difference of values. */
+    private int[] m_arrDiffAttrs;
+    /** Coefficients of the absolute differences of values. */
+    private double[] m_arrDiffCoefficients;
+    /** Weighted distances for attributes with the distance proportional to the difference of values when a value is missing. */
+    private double[] m_arrDiffMissing;
+    /** Number of attributes with the distance 0 for equal values and 1 otherwise. */
+    private int m_nNoOfEqualityAttrs = 0;
+    /** Indices of attributes with the distance 0 for equal values and 1 otherwise. */
+    private int[] m_arrEqualityAttrs;
+    /** Weights of attributes with the distance 0 for equal values and 1 otherwise. */
+    private double[] m_arrEqualityWeights;
+    /** Number of attributes with the distances between values given by a table. */
+    private int m_nNoOfTableAttrs = 0;
+    /** Indices of attributes with the distances between values given by a table. */
+    private int[] m_arrTableAttrs;
+    /** Numbers of values of attributes with the distances between values given by a table. */
+    private int[] m_arrTableSizes;
+    /** Weighted distances between values i and j at the index i*size+j for particular attributes. */
+    private double[][] m_arrTables;
+    /** Weighted distances for attributes with the distances given by a table when a value is missing or unknown. */
+    private double[] m_arrTableMissing;
+
+    /**
+     * Constructor of an empty kernel, attributes are added by subclasses of weighted metrics.
+     *
+     * @param metricType  Type of the metric.
+     * @param metricIndex Index of the metric used only with the indexed metric type.
+     * @param weights     Weights of attributes.
+     */
+    DistanceKernel(AbstractWeightedMetric.MetricType metricType, double metricIndex, double[] weights)
+    {
+        m_nMetricType = metricType;
+        m_nMetricIndex = metricIndex;
+        m_arrWeights = weights;
+        m_arrDiffAttrs = new int[weights.length];
+        m_arrDiffCoefficients = new double[weights.length];
+        m_arrDiffMissing = new double[weights.length];
+        m_arrEqualityAttrs = new int[weights.length];
+        m_arrEqualityWeights = new double[weights.length];
+        m_arrTableAttrs = new int[weights.length];
+        m_arrTableSizes = new int[weights.length];
+        m_arrTables = new double[weights.length][];
+        m_arrTableMissing = new double[weights.length];
+    }
+
+    /**
+     * Returns the distance for a single attribute transformed
+     * with the exponent of the metric type and multiplied by the weight.
+     *
+     * @param valueDist Distance between two values of an attribute.
+     * @param attr      Index of the attribute.
+     * @return          Weighted term of the distance between objects.
+     */
+    private double term(double valueDist, int attr)
+    {
+        switch (m_nMetricType)
+        {
+            case Euclidean:
+                return valueDist*valueDist*m_arrWeights[attr];
+            case Indexed:
+                return Math.pow(valueDist, m_nMetricIndex)*m_arrWeights[attr];
+            default:
+                return valueDist*m_arrWeights[attr];
+        }
+    }
+
+    /**
+     * Adds an attribute with the distance equal to the absolute difference of values
+     * multiplied by a scale.
+     *
+     * @param attr        Index of the attribute.
+     * @param scale       Scale of the absolute difference of values.
+     * @param missingDist Distance between values when one of them is missing.
+     */
+    void addDifferenceAttribute(int attr, double scale, double missingDist)
+    {
+        m_arrDiffAttrs[m_nNoOfDiffAttrs] = attr;
+        m_arrDiffCoefficients[m_nNoOfDiffAttrs] = term(scale, attr);
+        m_arrDiffMissing[m_nNoOfDiffAttrs] = term(missingDist, attr);
+        m_nNoOfDiffAttrs++;
+    }
+
+    /**
+     * Adds an attribute with the distance 0 between equal values and 1 otherwise.
+     * Missing values are at the distance 1 from all values.
+     *
+     * @param attr Index of the attribute.
+     */
+    void addEqualityAttribute(int attr)
+    {
+        m_arrEqualityAttrs[m_nNoOfEqualityAttrs] = attr;
+        m_arrEqualityWeights[m_nNoOfEqualityAttrs] = term(1, attr);
+        m_nNoOfEqualityAttrs++;
+    }
+
+    /**
+     * Adds an attribute with the distances between values given by a table.
+     * Values are integer codes from 0 to the size of the table minus 1.
+     *
+     * @param attr        Index of the attribute.
+     * @param distances   Distances between values.
+     * @param missingDist Distance between values when one of them is missing or out of the table.
+     */
+    void addTableAttribute(int attr, double[][] distances, double missingDist)
+    {
+        int size = distances.length;
+        double[] table = new double[size*size];
+        for (int i = 0; i < size; i++)
+            for (int j = 0; j < size; j++)
+                table[i*size+j] = term(distances[i][j], attr);
+        m_arrTableAttrs[m_nNoOfTableAttrs] = attr;
+        m_arrTableSizes[m_nNoOfTableAttrs] = size;
+        m_arrTables[m_nNoOfTableAttrs] = table;
+        m_arrTableMissing[m_nNoOfTableAttrs] = term(missingDist, attr);
+        m_nNoOfTableAttrs++;
+    }
+
+    /**
+     * Trims the arrays of this kernel to the numbers of added attributes.
+     *
+     * @return This kernel.
+     */
+    DistanceKernel build()
+    {
+        m_arrDiffAttrs = Arrays.copyOf(m_arrDiffAttrs, m_nNoOfDiffAttrs);
+        m_arrDiffCoefficients = Arrays.copyOf(m_arrDiffCoefficients, m_nNoOfDiffAttrs);
+        m_arrDiffMissing = Arrays.copyOf(m_arrDiffMissing, m_nNoOfDiffAttrs);
+        m_arrEqualityAttrs = Arrays.copyOf(m_arrEqualityAttrs, m_nNoOfEqualityAttrs);
+        m_arrEqualityWeights = Arrays.copyOf(m_arrEqualityWeights, m_nNoOfEqualityAttrs);
+        m_arrTableAttrs = Arrays.copyOf(m_arrTableAttrs, m_nNoOfTableAttrs);
+        m_arrTableSizes = Arrays.copyOf(m_arrTableSizes, m_nNoOfTableAttrs);
+        m_arrTables = Arrays.copyOf(m_arrTables, m_nNoOfTableAttrs);
+        m_arrTableMissing = Arrays.copyOf(m_arrTableMissing, m_nNoOfTableAttrs);
+        return this;
+    }
+
+    /**
+     * Returns the distance between two data objects.
+     *
+     * @param datObj1 First data object to be compared.
+     * @param datObj2 Second data object to be compared.
+     * @return        Distance between the objects datObj1 and datObj2.
+     */
+    double dist(DoubleData datObj1, DoubleData datObj2)
+    {
+        switch (m_nMetricType)
+        {
+            case City:
+                return distCity(datObj1, datObj2);
+            case Euclidean:
+                return distEuclidean(datObj1, datObj2);
+            case Maximum:
+                return distMaximum(datObj1, datObj2);
+            default:
+                return distIndexed(datObj1, datObj2);
+        }
+    }
+
+    /**
+     * Returns the Manhattan city distance between two data objects.
+     *
+     * @param datObj1 First data object to be compared.
+     * @param datObj2 Second data object to be compared.
+     * @return        Manhattan city distance between the objects datObj1 and datObj2.
+     */
+    private double distCity(DoubleData datObj1, DoubleData datObj2)
+    {
+        double dist = 0;
+        final int[] diffAttrs = m_arrDiffAttrs;
+        for (int i = 0; i < diffAttrs.length; i++)
+        {
+            double diff = datObj1.get(diffAttrs[i]) - datObj2.get(diffAttrs[i]);
+            if (diff != diff) dist += m_arrDiffMissing[i];
+            else dist += Math.abs(diff)*m_arrDiffCoefficients[i];
+        }
+        return dist + distNominal(datObj1, datObj2);
+    }
+
+    /**
+     * Returns the euclidean distance between two data objects.
+     *
+     * @param datObj1 First data object to be compared.
+     * @param datObj2 Second data object to be compared.
+     * @return        Euclidean distance between the objects datObj1 and datObj2.
+     */
+    private double distEuclidean(DoubleData datObj1, DoubleData datObj2)
+    {
+        double dist = 0;
+        final int[] diffAttrs = m_arrDiffAttrs;
+        for (int i = 0; i < diffAttrs.length; i++)
+        {
+            double diff = datObj1.get(diffAttrs[i]) - datObj2.get(diffAttrs[i]);
+            if (diff != diff) dist += m_arrDiffMissing[i];
+            else dist += diff*diff*m_arrDiffCoefficients[i];
+        }
+        return Math.sqrt(dist + distNominal(datObj1, datObj2));
+    }
+
+    /**
+     * Returns the sum of weighted terms of the distance
+     * for the attributes compared by equality and by a table.
+     *
+     * @param datObj1 First data object to be compared.
+     * @param datObj2 Second data object to be compared.
+     * @return        Sum of weighted terms for the attributes compared by equality and by a table.
+     */
+    private double distNominal(DoubleData datObj1, DoubleData datObj2)
+    {
+        double dist = 0;
+        final int[] equalityAttrs = m_arrEqualityAttrs;
+        for (int i = 0; i < equalityAttrs.length; i++)
+            if (datObj1.get(equalityAttrs[i]) != datObj2.get(equalityAttrs[i]))
+                dist += m_arrEqualityWeights[i];
+        final int[] tableAttrs = m_arrTableAttrs;
+        for (int i = 0; i < tableAttrs.length; i++)
+            dist += tableTerm(datObj1.get(tableAttrs[i]), datObj2.get(tableAttrs[i]), i);
+        return dist;
+    }
+
+    /**
+     * Returns the maximum distance between two data objects.
+     *
+     * @param datObj1 First data object to be compared.
+     * @param datObj2 Second data object to be compared.
+     * @return        Maximum distance between the objects datObj1 and datObj2.
+     */
+    private double distMaximum(DoubleData datObj1, DoubleData datObj2)
+    {
+        double dist = 0;
+        final int[] diffAttrs = m_arrDiffAttrs;
+        for (int i = 0; i < diffAttrs.length; i++)
+        {
+            double diff = datObj1.get(diffAttrs[i]) - datObj2.get(diffAttrs[i]);
+            double term = (diff != diff) ? m_arrDiffMissing[i] : Math.abs(diff)*m_arrDiffCoefficients[i];
+            if (term > dist) dist = term;
+        }
+        final int[] equalityAttrs = m_arrEqualityAttrs;
+        for (int i = 0; i < equalityAttrs.length; i++)
+            if (m_arrEqualityWeights[i] > dist && datObj1.get(equalityAttrs[i]) != datObj2.get(equalityAttrs[i]))
+                dist = m_arrEqualityWeights[i];
+        final int[] tableAttrs = m_arrTableAttrs;
+        for (int i = 0; i < tableAttrs.length; i++)
+        {
+            double term = tableTerm(datObj1.get(tableAttrs[i]), datObj2.get(tableAttrs[i]), i);
+            if (term > dist) dist = term;
+        }
+        return dist;
+    }
+
+    /**
+     * Returns the indexed distance between two data objects.
+     *
+     * @param datObj1 First data object to be compared.
+     * @param datObj2 Second data object to be compared.
+     * @return        Indexed distance between the objects datObj1 and datObj2.
+     */
+    private double distIndexed(DoubleData datObj1, DoubleData datObj2)
+    {
+        double dist = 0;
+        final int[] diffAttrs = m_arrDiffAttrs;
+        for (int i = 0; i < diffAttrs.length; i++)
+        {
+            double diff = datObj1.get(diffAttrs[i]) - datObj2.get(diffAttrs[i]);
+            if (diff != diff) dist += m_arrDiffMissing[i];
+            else dist += Math.pow(Math.abs(diff), m_nMetricIndex)*m_arrDiffCoefficients[i];
+        }
+        return dist + distNominal(datObj1, datObj2);
+    }
+
+    /**
+     * Returns the weighted term of the distance for an attribute with the distances given by a table.
+     *
+     * @param val1 The first attribute value.
+     * @param val2 The second attribute value.
+     * @param i    Position of the attribute in the table group.
+     * @return     Weighted term of the distance.
+     */
+    private double tableTerm(double val1, double val2, int i)
+    {
+        int size = m_arrTableSizes[i];
+        if (val1 != val1 || val2 != val2) return m_arrTableMissing[i];
+        int intVal1 = (int)val1;
+        int intVal2 = (int)val2;
+        if (intVal1<0 || intVal2<0 || intVal1>=size || intVal2>=size) return m_arrTableMissing[i];
+        return m_arrTables[i][intVal1*size+intVal2];
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.structure.metric;
+
+import rseslib.structure.data.DoubleDataWithDecision;
+
+/**
+ * Reusable list of neighbours of a data object
+ * ordered by the distance to the reference data object.
+ * Neighbours are kept in parallel arrays of data objects and distances
+ * without creating an object for each neighbour,
+ * so one list can be filled by subsequent searches without allocation.
+ * Unlike arrays of neighbours returned by vicinity providers
+ * the first neighbour is at the position 0.
+ */
+public class NeighbourList
+{
+    /** Data of the neighbours. */
+    private DoubleDataWithDecision[] m_arrNeighbours;
+    /** Distances of the neighbours to the reference data object. */
+    private double[] m_arrDistances;
+    /** Number of neighbours in this list. */
+    private int m_nSize = 0;
+
+    /**
+     * Constructor.
+     */
+    public NeighbourList()
+    {
+        this(16);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param capacity Initial number of neighbours that can be stored without reallocation.
+     */
+    public NeighbourList(int capacity)
+    {
+        m_arrNeighbours = new DoubleDataWithDecision[Math.max(1, capacity)];
+        m_arrDistances = new double[m_arrNeighbours.length];
+    }
+
+    /**
+     * Removes all neighbours from this list.
+     */
+    public void clear()
+    {
+        for (int n = 0; n < m_nSize; n++)
+            m_arrNeighbours[n] = null;
+        m_nSize = 0;
+    }
+
+    /**
+     * Adds a neighbour at the end of this list.
+     * Neighbours must be added in the order of the distance.
+     *
+     * @param neighbour Data of the neighbour.
+     * @param dist      Distance of the neighbour to the reference data object.
+     */
+    public void add(DoubleDataWithDecision neighbour, double dist)
+    {
+        if (m_nSize == m_arrNeighbours.length)
+        {
+            DoubleDataWithDecision[] neighbours = new DoubleDataWithDecision[2*m_arrNeighbours.length];
+            System.arraycopy(m_arrNeighbours, 0, neighbours, 0, m_nSize);
+            m_arrNeighbours = neighbours;
+            double[] distances = new double[neighbours.length];
+            System.arraycopy(m_arrDistances, 0, distances, 0, m_nSize);
+            m_arrDistances = distances;
+        }
+        m_arrNeighbours[m_nSize] = neighbour;
+        m_arrDistances[m_nSize] = dist;
+        m_nSize++;
+    }
+
+    /**
+     * Returns the number of neighbours in this list.
+     *
+     * @return Number of neighbours.
+     */
+    public int size()
+    {
+        return m_nSize;
+    }
+
+    /**
+     * Returns data of a neighbour.
+     *
+     * @param n Position of a neighbour, the nearest neighbour is at the position 0.
+     * @return  Data of the neighbour.
+     */
+    public DoubleDataWithDecision neighbour(int n)
+    {
+        return m_arrNeighbours[n];
+    }
+
+    /**
+     * Returns the distance of a neighbour to the reference data object.
+     *
+     * @param n Position of a neighbour, the nearest neighbour is at the position 0.
+     * @return  Distance of the neighbour.
+     */
+    public double dist(int n)
+    {
+        return m_arrDistances[n];
+    }
+}
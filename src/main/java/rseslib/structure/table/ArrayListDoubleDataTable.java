@@ -21,11 +21,11 @@
 package rseslib.structure.table;
 
 import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Random;
 
 import rseslib.structure.attribute.BadHeaderException;
 import rseslib.structure.attribute.Header;
@@ -33,10 +33,11 @@ import rseslib.structure.attribute.NominalAttribute;
 import rseslib.structure.attribute.formats.DataFormatRecognizer;
 import rseslib.structure.attribute.formats.HeaderFormatException;
 import rseslib.structure.data.DoubleData;
-import rseslib.structure.data.DoubleDataWithDecision;
 import rseslib.structure.data.formats.ArffDoubleDataInput;
+import rseslib.structure.data.formats.BinaryDoubleDataInput;
 import rseslib.structure.data.formats.DataFormatException;
 import rseslib.structure.data.formats.DoubleDataInput;
+import rseslib.structure.data.formats.ParallelRseslibDoubleDataInput;
 import rseslib.structure.data.formats.RsesDoubleDataInput;
 import rseslib.structure.data.formats.RseslibDoubleDataInput;
 import rseslib.system.Report;
@@ -51,21 +52,16 @@ import rseslib.util.random.RandomSelection;
  */
 public class ArrayListDoubleDataTable implements DoubleDataTable
 {
-    /** Random number generator. */
-    private static final Random RANDOM_GENERATOR = new Random();
-
     /** Array of attribute types. */
     private Header m_arrAttributes;
     /** Array of data objects in this set. */
     private ArrayList<DoubleData> m_DataObjects = new ArrayList<DoubleData>();
-    /** Array of numerical statistics for numerical attributes. */
-    private NumericalStatistics[] m_NumStats = null;
     /**
-     * Array of sizes of particular decision classes.
-     * Array indices correspond to local decision codes from this data header.
-     * It is null if the decision distribution has not been requested yet.
+     * Statistics of all attributes computed at the first request
+     * and then updated on adding and removing objects.
+     * It is null if no statistics has been requested yet.
      */
-    private int[][] m_ValueDistribution = null;
+    private TableStatistics m_Statistics = null;
 
     /**
      * Constructor reading data from a file.
@@ -89,14 +85,25 @@ public class ArrayListDoubleDataTable implements DoubleDataTable
         	doi = new RsesDoubleDataInput(dataFile, prog);
         	break;
         case CSV:
-        	doi = new RseslibDoubleDataInput(dataFile, prog);
+        	if (ParallelRseslibDoubleDataInput.isApplicable(dataFile)) doi = new ParallelRseslibDoubleDataInput(dataFile, prog);
+        	else doi = new RseslibDoubleDataInput(dataFile, prog);
+        	break;
+        case BINARY:
+        	doi = new BinaryDoubleDataInput(dataFile, prog);
         	break;
         }
         m_arrAttributes = doi.attributes();
-        while (doi.available())
+        try
         {
-            DoubleData dObject = doi.readDoubleData();
-            m_DataObjects.add(dObject);
+            while (doi.available())
+            {
+                DoubleData dObject = doi.readDoubleData();
+                m_DataObjects.add(dObject);
+            }
+        }
+        finally
+        {
+            if (doi instanceof Closeable) ((Closeable)doi).close();
         }
         setMinorityDecision();
     }
@@ -126,14 +133,25 @@ public class ArrayListDoubleDataTable implements DoubleDataTable
         	doi = new RsesDoubleDataInput(dataFile, hdr, prog);
         	break;
         case CSV:
-        	doi = new RseslibDoubleDataInput(dataFile, hdr, prog);
+        	if (ParallelRseslibDoubleDataInput.isApplicable(dataFile)) doi = new ParallelRseslibDoubleDataInput(dataFile, hdr, prog);
+        	else doi = new RseslibDoubleDataInput(dataFile, hdr, prog);
+        	break;
+        case BINARY:
+        	doi = new BinaryDoubleDataInput(dataFile, hdr, prog);
         	break;
         }
         m_arrAttributes = doi.attributes();
-        while (doi.available())
+        try
         {
-            DoubleData dObject = doi.readDoubleData();
-            m_DataObjects.add(dObject);
+            while (doi.available())
+            {
+                DoubleData dObject = doi.readDoubleData();
+                m_DataObjects.add(dObject);
+            }
+        }
+        finally
+        {
+            if (doi instanceof Closeable) ((Closeable)doi).close();
         }
         setMinorityDecision();
     }
@@ -164,7 +182,6 @@ public class ArrayListDoubleDataTable implements DoubleDataTable
     public ArrayListDoubleDataTable(Header attributes)
     {
         m_arrAttributes = attributes;
-        m_ValueDistribution = new int[m_arrAttributes.noOfAttr()][];
     }
 
     /**
@@ -193,6 +210,22 @@ public class ArrayListDoubleDataTable implements DoubleDataTable
         setMinorityDecision();
     }
 
+    /**
+     * Constructs a table with a given header from a list of data objects.
+     * The list is used by the table without copying.
+     *
+     * @param attributes Header for the table.
+     * @param objects    List of data objects used to construct this table.
+     * @param stats      Statistics of the data objects, null if not computed yet.
+     */
+    ArrayListDoubleDataTable(Header attributes, ArrayList<DoubleData> objects, TableStatistics stats)
+    {
+        m_arrAttributes = attributes;
+        m_DataObjects = objects;
+        if (stats!=null) stats.describe(objects);
+        m_Statistics = stats;
+    }
+
     /**
      * Saves this object to a file.
      *
@@ -267,11 +300,7 @@ public class ArrayListDoubleDataTable implements DoubleDataTable
     public void add(DoubleData obj)
     {
         m_DataObjects.add(obj);
-        m_NumStats = null;
-        if (m_ValueDistribution!=null)
-        	for (int att = 0; att < m_ValueDistribution.length; att++)
-        		if (m_ValueDistribution[att]!=null)
-        			m_ValueDistribution[att][((NominalAttribute)m_arrAttributes.attribute(att)).localValueCode(obj.get(att))]++;
+        if (m_Statistics!=null) m_Statistics.add(obj);
     }
 
     /**
@@ -287,10 +316,7 @@ public class ArrayListDoubleDataTable implements DoubleDataTable
             if (iterObj.equals(obj))
             {
                 m_DataObjects.remove(iterObj);
-                if (m_ValueDistribution!=null)
-                	for (int att = 0; att < m_ValueDistribution.length; att++)
-                		if (m_ValueDistribution[att]!=null)
-                			m_ValueDistribution[att][((NominalAttribute)m_arrAttributes.attribute(att)).localValueCode(obj.get(att))]--;
+                if (m_Statistics!=null) m_Statistics.remove(iterObj);
                 return true;
             }
         return false;
@@ -348,11 +374,20 @@ public class ArrayListDoubleDataTable implements DoubleDataTable
     public NumericalStatistics getNumericalStatistics(int attr)
     {
     	if (!m_arrAttributes.isNumeric(attr)) return null;
-    	if (m_NumStats==null)
-            m_NumStats = new NumericalStatistics[m_arrAttributes.noOfAttr()];
-    	if (m_NumStats[attr]==null)
-    		m_NumStats[attr] = new NumericalStatistics(m_DataObjects,attr);
-    	return m_NumStats[attr];
+    	return statistics().getNumericalStatistics(attr);
+    }
+
+    /**
+     * Returns the statistics of all attributes
+     * computing them in one pass at the first request.
+     *
+     * @return Statistics of all attributes.
+     */
+    synchronized TableStatistics statistics()
+    {
+    	if (m_Statistics==null)
+    		m_Statistics = TableStatistics.compute(m_arrAttributes, m_DataObjects);
+    	return m_Statistics;
     }
 
     /**
@@ -389,16 +424,7 @@ public class ArrayListDoubleDataTable implements DoubleDataTable
     public int[] getValueDistribution(int attrInd)
     {
     	if (!m_arrAttributes.isNominal(attrInd)) return null;
-    	if (m_ValueDistribution==null)
-    		m_ValueDistribution = new int[m_arrAttributes.noOfAttr()][];
-        if (m_ValueDistribution[attrInd]==null)
-        {
-            NominalAttribute attr = (NominalAttribute)m_arrAttributes.attribute(attrInd);
-            m_ValueDistribution[attrInd] = new int[attr.noOfValues()];
-            for (DoubleData dObj : m_DataObjects)
-            	m_ValueDistribution[attrInd][attr.localValueCode(dObj.get(attrInd))]++;
-        }
-        return m_ValueDistribution[attrInd];
+    	return statistics().getValueDistribution(attrInd);
     }
 
 
@@ -431,23 +457,7 @@ public class ArrayListDoubleDataTable implements DoubleDataTable
      */
     public ArrayList<DoubleData>[] randomPartition(int noOfParts)
     {
-        ArrayList<DoubleData>[] parts = new ArrayList[noOfParts];
-        for (int part = 0; part < parts.length; part++) parts[part] = new ArrayList<DoubleData>();
-        boolean[] assigned = new boolean[m_DataObjects.size()];
-        int noOfAssigned = 0;
-        int part = 0;
-        while (part < parts.length - 1)
-        {
-            int ind = RANDOM_GENERATOR.nextInt(m_DataObjects.size());
-            while (assigned[ind]) ind = RANDOM_GENERATOR.nextInt(m_DataObjects.size());
-            parts[part].add(m_DataObjects.get(ind));
-            assigned[ind] = true;
-            noOfAssigned++;
-            if (noOfAssigned*parts.length >= m_DataObjects.size()*(part+1)) part++;
-        }
-        for (int ind = 0; ind < m_DataObjects.size(); ind++)
-            if (!assigned[ind]) parts[parts.length-1].add(m_DataObjects.get(ind));
-        return parts;
+        return DoubleDataTableView.parts(m_DataObjects, RandomSelection.partition(m_DataObjects.size(), noOfParts), noOfParts);
     }
 
     /**
@@ -459,49 +469,8 @@ public class ArrayListDoubleDataTable implements DoubleDataTable
     public ArrayList<DoubleData>[] randomStratifiedPartition(int noOfParts)
     {
     	NominalAttribute decAttr = m_arrAttributes.nominalDecisionAttribute();
-    	
-    	// separate objects into decision classes
-    	ArrayList<DoubleData>[] decClass = new ArrayList[decAttr.noOfValues()];
-        for (int dec = 0; dec < decClass.length; dec++)
-        	decClass[dec] = new ArrayList<DoubleData>();
-    	for (DoubleData dObj : m_DataObjects)
-    		decClass[decAttr.localValueCode(((DoubleDataWithDecision)dObj).getDecision())].add(dObj);
-    	
-    	// partition each decision class separately
-        ArrayList<DoubleData>[][] parts = new ArrayList[decAttr.noOfValues()][];
-        for (int dec = 0; dec < parts.length; dec++)
-        {
-        	parts[dec] = new ArrayList[noOfParts];
-        	for (int part = 0; part < parts[dec].length; part++)
-        		parts[dec][part] = new ArrayList<DoubleData>();
-            boolean[] assigned = new boolean[decClass[dec].size()];
-            int noOfAssigned = 0;
-            int part = 0;
-            while (part < noOfParts - 1)
-            {
-                int ind = RANDOM_GENERATOR.nextInt(decClass[dec].size());
-                while (assigned[ind])
-                	ind = RANDOM_GENERATOR.nextInt(decClass[dec].size());
-                parts[dec][part].add(decClass[dec].get(ind));
-                assigned[ind] = true;
-                noOfAssigned++;
-                if (noOfAssigned * noOfParts >= decClass[dec].size() * (part + 1))
-                	part++;
-            }
-            for (int ind = 0; ind < decClass[dec].size(); ind++)
-                if (!assigned[ind])
-                	parts[dec][noOfParts - 1].add(decClass[dec].get(ind));
-        }
-        
-        // merge folds from parts for particular decisions
-        ArrayList<DoubleData>[] folds = new ArrayList[noOfParts];
-    	for (int fold = 0; fold < folds.length; fold++)
-    	{
-    		folds[fold] = new ArrayList<DoubleData>();
-            for (int dec = 0; dec < parts.length; dec++)
-            	folds[fold].addAll(parts[dec][fold]);
-    	}
-        return folds;
+    	int[] decisions = DoubleDataTableView.decisions(m_DataObjects, decAttr);
+        return DoubleDataTableView.parts(m_DataObjects, RandomSelection.stratifiedPartition(decisions, decAttr.noOfValues(), noOfParts), noOfParts);
     }
 
     /**
@@ -553,20 +522,7 @@ public class ArrayListDoubleDataTable implements DoubleDataTable
             for (DoubleData object : m_DataObjects)
                 tab.m_DataObjects.add((DoubleData)object.clone());
         }
-        if (m_ValueDistribution!=null)
-        {
-        	tab.m_ValueDistribution = new int[m_ValueDistribution.length][];
-        	for (int att = 0; att < m_ValueDistribution.length; att++)
-        		if (m_ValueDistribution[att]!=null)
-        			tab.m_ValueDistribution[att] = m_ValueDistribution[att].clone();
-        }
-        if (m_NumStats!=null)
-        {
-        	tab.m_NumStats = new NumericalStatistics[m_NumStats.length];
-        	for (int att = 0; att < m_NumStats.length; att++)
-        		if (m_NumStats[att]!=null)
-        			tab.m_NumStats[att] = (NumericalStatistics)m_NumStats[att].clone();
-        }
+        tab.m_Statistics = null;
         tab.setMinorityDecision();
         return tab;
     }
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.structure.table;
+
+import rseslib.structure.attribute.Header;
+import rseslib.structure.data.AbstractDoubleDataView;
+
+/**
+ * Lightweight view of a single row of a columnar table.
+ * The view does not hold attribute values,
+ * it reads and writes them directly in the columns of the table.
+ * The table keeps one view per row and updates the views when rows are removed,
+ * so a view always refers to the same object. A view of a removed object
+ * is detached from the table and keeps a copy of its values.
+ */
+public class ColumnarDoubleDataObject extends AbstractDoubleDataView
+{
+    /** Serialization version. */
+	private static final long serialVersionUID = 1L;
+
+	/** Attributes of this object. */
+    private final Header m_Header;
+    /** Table containing the values of this object, null if the object was removed from the table. */
+    private ColumnarDoubleDataTable m_Table;
+    /** Index of this object in the table. */
+    private int m_nIndex;
+    /** Values of this object after removal from the table. */
+    private double[] m_arrValues = null;
+
+    /**
+     * Constructs a view of a given row of a columnar table.
+     *
+     * @param table Table containing the values of this object.
+     * @param index Index of the object in the table.
+     */
+    ColumnarDoubleDataObject(ColumnarDoubleDataTable table, int index)
+    {
+        m_Header = table.attributes();
+        m_Table = table;
+        m_nIndex = index;
+    }
+
+    /**
+     * Returns the index of this object in the table.
+     *
+     * @return Index of this object in the table, -1 if the object was removed from the table.
+     */
+    public int getIndex()
+    {
+        return m_nIndex;
+    }
+
+    /**
+     * Moves this view one position back after removal of a preceding row.
+     */
+    void shiftBack()
+    {
+        m_nIndex--;
+    }
+
+    /**
+     * Detaches this view from the table before removal of its row.
+     * The values are copied to the view.
+     */
+    void detach()
+    {
+        m_arrValues = new double[m_Header.noOfAttr()];
+        for (int att = 0; att < m_arrValues.length; att++)
+            m_arrValues[att] = m_Table.getValue(m_nIndex, att);
+        m_Table = null;
+        m_nIndex = -1;
+    }
+
+    /**
+     * Returns attribute types for this data object.
+     *
+     * @return Attribute types for this data object.
+     */
+    public Header attributes()
+    {
+        return m_Header;
+    }
+
+    /**
+     * Sets the value of a given attribute to a given double value.
+     *
+     * @param atrNo Index of the attribute to be changed.
+     * @param value Double attribute value.
+     */
+    public void set(int atrNo, double value)
+    {
+        if (m_Table==null) m_arrValues[atrNo] = value;
+        else m_Table.setValue(m_nIndex, atrNo, value);
+    }
+
+    /**
+     * Returns the double value of a given attribute.
+     *
+     * @param atrNo Index of the attribute to be returned.
+     * @return      Double attribute value.
+     */
+    public double get(int atrNo)
+    {
+        if (m_Table==null) return m_arrValues[atrNo];
+        return m_Table.getValue(m_nIndex, atrNo);
+    }
+}
@@ -0,0 +1,671 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.structure.table;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+
+import rseslib.structure.attribute.BadHeaderException;
+import rseslib.structure.attribute.Header;
+import rseslib.structure.attribute.NominalAttribute;
+import rseslib.structure.attribute.formats.DataFormatRecognizer;
+import rseslib.structure.attribute.formats.HeaderFormatException;
+import rseslib.structure.data.DoubleData;
+import rseslib.structure.data.formats.ArffDoubleDataInput;
+import rseslib.structure.data.formats.BinaryDoubleDataInput;
+import rseslib.structure.data.formats.DataFormatException;
+import rseslib.structure.data.formats.DoubleDataInput;
+import rseslib.structure.data.formats.ParallelRseslibDoubleDataInput;
+import rseslib.structure.data.formats.RsesDoubleDataInput;
+import rseslib.structure.data.formats.RseslibDoubleDataInput;
+import rseslib.system.Report;
+import rseslib.system.progress.Progress;
+import rseslib.util.random.RandomSelection;
+
+/**
+ * Table of data objects with double values
+ * stored column by column in primitive arrays,
+ * one array per attribute.
+ * Data objects returned by the table are lightweight views
+ * of the rows of the table (see ColumnarDoubleDataObject).
+ * Code processing single attributes can scan a whole column
+ * with column(attr) or read single values with getValue(obj, attr)
+ * without materializing data objects.
+ */
+public class ColumnarDoubleDataTable implements DoubleDataTable
+{
+    /** Initial capacity of columns. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Array of attribute types. */
+    private Header m_arrAttributes;
+    /** Columns of attribute values, one array per attribute. */
+    private double[][] m_Columns;
+    /** Number of objects that can be stored in the columns without reallocation. */
+    private int m_nCapacity;
+    /** Number of objects in this table. */
+    private int m_nNoOfObjects = 0;
+    /**
+     * Views of the rows, one per row, null if no view has been requested yet.
+     * The entries of the rows whose views have not been requested yet are null.
+     */
+    private ArrayList<DoubleData> m_RowViews = null;
+    /** Number of null entries in m_RowViews. */
+    private int m_nNoOfMissingViews = 0;
+    /** Array of numerical statistics for numerical attributes. */
+    private NumericalStatistics[] m_NumStats = null;
+    /**
+     * Array of sizes of particular decision classes.
+     * Array indices correspond to local decision codes from this data header.
+     * It is null if the decision distribution has not been requested yet.
+     */
+    private int[][] m_ValueDistribution = null;
+
+    /**
+     * Constructor reading data from a file.
+     * Data format is recognized automatically.
+     *
+     * @param dataFile Data file to be loaded.
+     * @param prog     Progress object for progress reporting.
+     * @throws IOException If error in data has occured.
+     * @throws InterruptedException  If user has interrupted reading data.
+     */
+    public ColumnarDoubleDataTable(File dataFile, Progress prog) throws IOException, HeaderFormatException, DataFormatException, InterruptedException
+    {
+        DoubleDataInput doi = null;
+        DataFormatRecognizer rec = new DataFormatRecognizer();
+        switch (rec.recognizeFormat(dataFile))
+        {
+        case ARFF:
+        	doi = new ArffDoubleDataInput(dataFile, prog);
+        	break;
+        case RSES:
+        	doi = new RsesDoubleDataInput(dataFile, prog);
+        	break;
+        case CSV:
+        	if (ParallelRseslibDoubleDataInput.isApplicable(dataFile)) doi = new ParallelRseslibDoubleDataInput(dataFile, prog);
+        	else doi = new RseslibDoubleDataInput(dataFile, prog);
+        	break;
+        case BINARY:
+        	doi = new BinaryDoubleDataInput(dataFile, prog);
+        	break;
+        }
+        load(doi);
+        setMinorityDecision();
+    }
+
+    /**
+     * Constructor reading data from a file.
+     * Data format is recognized automatically.
+     * The constructor verifies compatibility of data
+     * with a given header.
+     *
+     * @param dataFile Data file to be loaded.
+     * @param hdr      Header for data in a given file.
+     * @param prog     Progress object for progress reporting.
+     * @throws IOException If error in data has occured.
+     * @throws InterruptedException  If user has interrupted reading data.
+     */
+    public ColumnarDoubleDataTable(File dataFile, Header hdr, Progress prog) throws IOException, HeaderFormatException, DataFormatException, BadHeaderException, InterruptedException
+    {
+        DoubleDataInput doi = null;
+        DataFormatRecognizer rec = new DataFormatRecognizer();
+        switch (rec.recognizeFormat(dataFile))
+        {
+        case ARFF:
+        	doi = new ArffDoubleDataInput(dataFile, hdr, prog);
+        	break;
+        case RSES:
+        	doi = new RsesDoubleDataInput(dataFile, hdr, prog);
+        	break;
+        case CSV:
+        	if (ParallelRseslibDoubleDataInput.isApplicable(dataFile)) doi = new ParallelRseslibDoubleDataInput(dataFile, hdr, prog);
+        	else doi = new RseslibDoubleDataInput(dataFile, hdr, prog);
+        	break;
+        case BINARY:
+        	doi = new BinaryDoubleDataInput(dataFile, hdr, prog);
+        	break;
+        }
+        load(doi);
+        setMinorityDecision();
+    }
+
+    /**
+     * Constructs an empty table with given attributes.
+     *
+     * @param attributes Header for the table.
+     */
+    public ColumnarDoubleDataTable(Header attributes)
+    {
+        this(attributes, INITIAL_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty table with given attributes
+     * and with columns allocated for a given number of objects.
+     *
+     * @param attributes Header for the table.
+     * @param capacity   Initial number of objects that can be stored without reallocation.
+     */
+    public ColumnarDoubleDataTable(Header attributes, int capacity)
+    {
+        m_arrAttributes = attributes;
+        m_nCapacity = Math.max(capacity, 1);
+        m_Columns = new double[m_arrAttributes.noOfAttr()][m_nCapacity];
+    }
+
+    /**
+     * Constructs a columnar copy of a given table.
+     *
+     * @param table Table to be copied.
+     */
+    public ColumnarDoubleDataTable(DoubleDataTable table)
+    {
+        this(table.attributes(), table.noOfObjects());
+        for (DoubleData obj : table.getDataObjects())
+            add(obj);
+        takeMinorityDecisionFrom(table);
+    }
+
+    /**
+     * Reads all data objects from a data input
+     * and stores their values in the columns.
+     *
+     * @param doi Data input.
+     * @throws IOException If error in data has occured.
+     * @throws InterruptedException  If user has interrupted reading data.
+     */
+    private void load(DoubleDataInput doi) throws IOException, DataFormatException, InterruptedException
+    {
+        m_arrAttributes = doi.attributes();
+        if (doi instanceof BinaryDoubleDataInput)
+        {
+            // columns of a binary file are copied in bulk
+            BinaryDoubleDataInput bdi = (BinaryDoubleDataInput)doi;
+            m_nCapacity = Math.max(bdi.noOfObjects(), 1);
+            m_Columns = new double[m_arrAttributes.noOfAttr()][m_nCapacity];
+            m_nNoOfObjects = bdi.readColumns(m_Columns);
+            return;
+        }
+        m_nCapacity = INITIAL_CAPACITY;
+        m_Columns = new double[m_arrAttributes.noOfAttr()][m_nCapacity];
+        try
+        {
+            while (doi.available())
+                add(doi.readDoubleData());
+        }
+        finally
+        {
+            if (doi instanceof Closeable) ((Closeable)doi).close();
+        }
+    }
+
+    /**
+     * Saves this object to a file.
+     *
+     * @param outputFile File to be used for storing this object.
+     * @param prog       Progress object for progress reporting.
+     * @throws IOException If an I/O error has occured.
+     * @throws InterruptedException If user has interrupted saving object.
+     */
+    public void store(File outputFile, Progress prog) throws IOException, InterruptedException
+    {
+        BufferedWriter bw = new BufferedWriter(new FileWriter(outputFile));
+        prog.set("Saving data table to "+outputFile.getPath(), m_nNoOfObjects);
+        m_arrAttributes.store(bw);
+        bw.newLine();
+        for (int obj = 0; obj < m_nNoOfObjects; obj++)
+        {
+            new ColumnarDoubleDataObject(this, obj).store(bw);
+            prog.step();
+        }
+        bw.close();
+    }
+
+    /**
+     * Saves this object to a file in arff format.
+     *
+     * @param outputFile File to be used for storing this object.
+     * @param prog       Progress object for progress reporting.
+     * @throws IOException If an I/O error has occured.
+     * @throws InterruptedException If user has interrupted saving object.
+     */
+    public void storeArff(String name, File outputFile, Progress prog) throws IOException, InterruptedException
+    {
+        BufferedWriter bw = new BufferedWriter(new FileWriter(outputFile));
+        prog.set("Saving data table to "+outputFile.getPath(), m_nNoOfObjects);
+        m_arrAttributes.storeArff(name, bw);
+        bw.newLine();
+        bw.write("@DATA");
+        bw.newLine();
+        for (int obj = 0; obj < m_nNoOfObjects; obj++)
+        {
+            new ColumnarDoubleDataObject(this, obj).storeArff(bw);
+            prog.step();
+        }
+        bw.close();
+    }
+
+    /**
+     * Returns an array of attributes.
+     *
+     * @return Array of attributes.
+     */
+    public Header attributes()
+    {
+        return m_arrAttributes;
+    }
+
+    /**
+     * Returns the number of objects.
+     *
+     * @return Number of objects.
+     */
+    public int noOfObjects()
+    {
+        return m_nNoOfObjects;
+    }
+
+    /**
+     * Returns the value of a given attribute in a given object.
+     *
+     * @param obj  Index of the object.
+     * @param attr Index of the attribute.
+     * @return     Value of the attribute in the object.
+     */
+    public double getValue(int obj, int attr)
+    {
+        if (obj >= m_nNoOfObjects) throw new IndexOutOfBoundsException("Object index "+obj+" out of range");
+        return m_Columns[attr][obj];
+    }
+
+    /**
+     * Sets the value of a given attribute in a given object.
+     *
+     * @param obj   Index of the object.
+     * @param attr  Index of the attribute.
+     * @param value New value of the attribute.
+     */
+    public void setValue(int obj, int attr, double value)
+    {
+        if (obj >= m_nNoOfObjects) throw new IndexOutOfBoundsException("Object index "+obj+" out of range");
+        m_Columns[attr][obj] = value;
+        m_NumStats = null;
+        m_ValueDistribution = null;
+    }
+
+    /**
+     * Returns a read-only view of the values of a given attribute.
+     * The view shares the column of this table and holds
+     * the values of all objects in the order of the objects.
+     * The view is valid until the next object is added to or removed from this table.
+     *
+     * @param attr Index of the attribute.
+     * @return     Read-only column of values of the attribute.
+     */
+    public DoubleBuffer column(int attr)
+    {
+        return DoubleBuffer.wrap(m_Columns[attr], 0, m_nNoOfObjects).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the view of a given object.
+     * Only the view of the requested object is created.
+     *
+     * @param obj Index of the object.
+     * @return    View of the object.
+     */
+    public ColumnarDoubleDataObject getDataObject(int obj)
+    {
+        if (obj >= m_nNoOfObjects) throw new IndexOutOfBoundsException("Object index "+obj+" out of range");
+        if (m_RowViews==null)
+        {
+            m_RowViews = new ArrayList<DoubleData>(Collections.<DoubleData>nCopies(m_nNoOfObjects, null));
+            m_nNoOfMissingViews = m_nNoOfObjects;
+        }
+        DoubleData view = m_RowViews.get(obj);
+        if (view==null)
+        {
+            view = new ColumnarDoubleDataObject(this, obj);
+            m_RowViews.set(obj, view);
+            m_nNoOfMissingViews--;
+        }
+        return (ColumnarDoubleDataObject)view;
+    }
+
+    /**
+     * Adds a data object to this table.
+     * The values of the object are copied to the columns.
+     *
+     * @param obj The object to be added.
+     */
+    public void add(DoubleData obj)
+    {
+        if (m_nNoOfObjects == m_nCapacity)
+        {
+            m_nCapacity *= 2;
+            for (int att = 0; att < m_Columns.length; att++)
+            {
+                double[] newColumn = new double[m_nCapacity];
+                System.arraycopy(m_Columns[att], 0, newColumn, 0, m_nNoOfObjects);
+                m_Columns[att] = newColumn;
+            }
+        }
+        for (int att = 0; att < m_Columns.length; att++)
+            m_Columns[att][m_nNoOfObjects] = obj.get(att);
+        if (m_RowViews!=null)
+            m_RowViews.add(new ColumnarDoubleDataObject(this, m_nNoOfObjects));
+        m_nNoOfObjects++;
+        m_NumStats = null;
+        if (m_ValueDistribution!=null)
+        	for (int att = 0; att < m_ValueDistribution.length; att++)
+        		if (m_ValueDistribution[att]!=null)
+        			m_ValueDistribution[att][((NominalAttribute)m_arrAttributes.attribute(att)).localValueCode(obj.get(att))]++;
+    }
+
+    /**
+     * Removes a data object from this table.
+     * The first object with the same values is removed
+     * and the following objects are shifted one position back.
+     * The view of the removed object is detached from this table
+     * and the views of the following objects are moved with them.
+     *
+     * @param obj  The object to be removed.
+     * @return     True, if the object was found and removed from this table,
+     *             false otherwise.
+     */
+    public boolean remove(DoubleData obj)
+    {
+        for (int ind = 0; ind < m_nNoOfObjects; ind++)
+        {
+            boolean equal = true;
+            for (int att = 0; equal && att < m_Columns.length; att++)
+                if (Double.doubleToLongBits(m_Columns[att][ind])!=Double.doubleToLongBits(obj.get(att)))
+                    equal = false;
+            if (equal)
+            {
+                if (m_ValueDistribution!=null)
+                	for (int att = 0; att < m_ValueDistribution.length; att++)
+                		if (m_ValueDistribution[att]!=null)
+                			m_ValueDistribution[att][((NominalAttribute)m_arrAttributes.attribute(att)).localValueCode(m_Columns[att][ind])]--;
+                if (m_RowViews!=null)
+                {
+                    ColumnarDoubleDataObject removed = (ColumnarDoubleDataObject)m_RowViews.remove(ind);
+                    if (removed!=null) removed.detach();
+                    else m_nNoOfMissingViews--;
+                    for (int following = ind; following < m_RowViews.size(); following++)
+                        if (m_RowViews.get(following)!=null)
+                            ((ColumnarDoubleDataObject)m_RowViews.get(following)).shiftBack();
+                }
+                for (int att = 0; att < m_Columns.length; att++)
+                    System.arraycopy(m_Columns[att], ind + 1, m_Columns[att], ind, m_nNoOfObjects - ind - 1);
+                m_nNoOfObjects--;
+                m_NumStats = null;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Identifies and sets the minority decision.
+     * The minority decision is set only in case
+     * when this table has two decision classes.
+     */
+    public void setMinorityDecision()
+    {
+    	try
+    	{
+    		NominalAttribute decAttr = m_arrAttributes.nominalDecisionAttribute();
+    		if(!decAttr.isMinorityValueSet() && decAttr.noOfValues() == 2)
+    		{
+    			int[] decisionDistribution = getDecisionDistribution();
+    			int minDec = (decisionDistribution[0] <= decisionDistribution[1] ? 0 : 1);
+    			decAttr.setMinorityValueGlobalCode(decAttr.globalValueCode(minDec));
+    		}
+    	} catch (Exception e) { }
+    }
+
+    /**
+     * Assigns the minority decision in this table the same as in a given table.
+     *
+     * @param table  Table providing the minority decision to be set.
+     */
+    public void takeMinorityDecisionFrom(DoubleDataTable table)
+    {
+    	try
+    	{
+    		NominalAttribute fromDecAttr = table.attributes().nominalDecisionAttribute();
+    		double minorityDec = (fromDecAttr.isMinorityValueSet() ? fromDecAttr.getMinorityValueGlobalCode() : -1);
+    		m_arrAttributes.nominalDecisionAttribute().setMinorityValueGlobalCode(minorityDec);
+    	} catch (Exception e) { }
+    }
+
+    /**
+     * Returns collection of views of all objects from this table.
+     * The collection is created once and kept up to date
+     * while objects are added and removed.
+     * The collection must not be modified.
+     *
+     * @return Collection of all objects from this table.
+     */
+    public ArrayList<DoubleData> getDataObjects()
+    {
+        if (m_RowViews==null)
+        {
+            m_RowViews = new ArrayList<DoubleData>(m_nNoOfObjects);
+            for (int obj = 0; obj < m_nNoOfObjects; obj++)
+                m_RowViews.add(new ColumnarDoubleDataObject(this, obj));
+        }
+        else if (m_nNoOfMissingViews > 0)
+        {
+            for (int obj = 0; obj < m_nNoOfObjects; obj++)
+                if (m_RowViews.get(obj)==null)
+                    m_RowViews.set(obj, new ColumnarDoubleDataObject(this, obj));
+            m_nNoOfMissingViews = 0;
+        }
+        return m_RowViews;
+    }
+
+    /**
+     * Returns the basic statistics of a given numerical attribute.
+     * The statistics are computed with a direct scan of the attribute column.
+     *
+     * @return Statistics of a given numerical attribute.
+     */
+    public NumericalStatistics getNumericalStatistics(int attr)
+    {
+    	if (!m_arrAttributes.isNumeric(attr)) return null;
+    	if (m_NumStats==null)
+            m_NumStats = new NumericalStatistics[m_arrAttributes.noOfAttr()];
+    	if (m_NumStats[attr]==null)
+    		m_NumStats[attr] = new NumericalStatistics(m_Columns[attr], m_nNoOfObjects);
+    	return m_NumStats[attr];
+    }
+
+    /**
+     * Returns the distribution of decision values in this table if the decision is nominal.
+     * Array indices correspond to local decision codes from this data header.
+     *
+     * @return Distribution of decisions in this table.
+     */
+    public int[] getDecisionDistribution()
+    {
+    	return getValueDistribution(m_arrAttributes.decision());
+    }
+
+    /**
+     * Returns the fraction of the minority decision in this table.
+     *
+     * @return Fraction of the minority decision in this table.
+     */
+    public double getPercentOfMinorityDecision()
+    {
+    	NominalAttribute decAttr = m_arrAttributes.nominalDecisionAttribute();
+    	int minLocalCode = decAttr.localValueCode(decAttr.getMinorityValueGlobalCode());
+    	int[] decDistr = getDecisionDistribution();
+    	return ((double)decDistr[minLocalCode]) / m_nNoOfObjects;
+    }
+
+    /**
+     * Returns the distribution of values in this table for a nominal attribute.
+     * Array indices correspond to local value codes for a given attibute.
+     * The distribution is computed with a direct scan of the attribute column.
+     *
+     * @param attrInd	Index of the attribute.
+     * @return Distribution of values in this table.
+     */
+    public int[] getValueDistribution(int attrInd)
+    {
+    	if (!m_arrAttributes.isNominal(attrInd)) return null;
+    	if (m_ValueDistribution==null)
+    		m_ValueDistribution = new int[m_arrAttributes.noOfAttr()][];
+        if (m_ValueDistribution[attrInd]==null)
+        {
+            NominalAttribute attr = (NominalAttribute)m_arrAttributes.attribute(attrInd);
+            double[] column = m_Columns[attrInd];
+            int[] distr = new int[attr.noOfValues()];
+            for (int obj = 0; obj < m_nNoOfObjects; obj++)
+            	distr[attr.localValueCode(column[obj])]++;
+            m_ValueDistribution[attrInd] = distr;
+        }
+        return m_ValueDistribution[attrInd];
+    }
+
+    /**
+     * Random split of this table into 2 data collections
+     * with the splitting ratio noOfPartsForLeft to noOfPartsForRight.
+     *
+     * @param noOfPartsForLeft  Number of parts for the table returned at the position 0.
+     * @param noOfPartsForRight Number of parts for the table returned at the position 1.
+     * @return                  Table splitted into 2 data collections.
+     */
+    public ArrayList<DoubleData>[] randomSplit(int noOfPartsForLeft, int noOfPartsForRight)
+    {
+        ArrayList<DoubleData>[] parts = new ArrayList[2];
+        parts[0] = new ArrayList<DoubleData>();
+        parts[1] = new ArrayList<DoubleData>();
+        ArrayList<DoubleData> objects = getDataObjects();
+        boolean[] assigned = RandomSelection.subset(m_nNoOfObjects, noOfPartsForLeft, noOfPartsForRight);
+        for (int ind = 0; ind < m_nNoOfObjects; ind++)
+            if (assigned[ind]) parts[0].add(objects.get(ind));
+            else parts[1].add(objects.get(ind));
+        return parts;
+    }
+
+    /**
+     * Random partition of this table into a given number of parts of equal sizes.
+     *
+     * @param noOfParts Number of parts to be generated.
+     * @return          Table divided into noOfParts collections.
+     */
+    public ArrayList<DoubleData>[] randomPartition(int noOfParts)
+    {
+        return DoubleDataTableView.parts(getDataObjects(), RandomSelection.partition(m_nNoOfObjects, noOfParts), noOfParts);
+    }
+
+    /**
+     * Random partition of this table into a given number of parts of equal sizes preserving class distribution.
+     *
+     * @param noOfParts Number of parts to be generated.
+     * @return          Table divided into noOfParts collections.
+     */
+    public ArrayList<DoubleData>[] randomStratifiedPartition(int noOfParts)
+    {
+    	NominalAttribute decAttr = m_arrAttributes.nominalDecisionAttribute();
+    	double[] decColumn = m_Columns[m_arrAttributes.decision()];
+    	int[] decisions = new int[m_nNoOfObjects];
+    	for (int obj = 0; obj < m_nNoOfObjects; obj++)
+    		decisions[obj] = decAttr.localValueCode(decColumn[obj]);
+        return DoubleDataTableView.parts(getDataObjects(), RandomSelection.stratifiedPartition(decisions, decAttr.noOfValues(), noOfParts), noOfParts);
+    }
+
+    /**
+     * Returns a string representation of this object.
+     *
+     * @return String representation of this object.
+     */
+    public String toString()
+    {
+        StringBuffer buf = new StringBuffer(1024);
+        buf.append("Number of objects = " + m_nNoOfObjects+Report.lineSeparator);
+        buf.append(m_arrAttributes);
+        int dec = -1;
+        for (int i = 0; dec!=-2 && i < m_arrAttributes.noOfAttr(); i++)
+            if (m_arrAttributes.isDecision(i))
+                if (dec==-1) dec = i;
+                else dec = -2;
+        if (dec >= 0 && m_arrAttributes.isNominal(dec))
+        {
+            int[] decDistr = getDecisionDistribution();
+            NominalAttribute decAttr = m_arrAttributes.nominalDecisionAttribute();
+            int minorityDec = -1;
+            if(decAttr.isMinorityValueSet())
+            	minorityDec = decAttr.localValueCode(decAttr.getMinorityValueGlobalCode());
+            buf.append("Decisions:"+Report.lineSeparator);
+            for (int i = 0; i < decDistr.length; i++)
+                if (decDistr[i] > 0)
+                {
+                    buf.append("   number of objects with the decision " + NominalAttribute.stringValue(decAttr.globalValueCode(i)) + " is " + decDistr[i]);
+                    if (i == minorityDec)
+                    	buf.append(" (minority)");
+                    buf.append(Report.lineSeparator);
+                }
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Create and return a copy of this object.
+     * The columns and the cached statistics are copied.
+     *
+     * @return Copy of this object.
+     */
+    public Object clone()
+    {
+        ColumnarDoubleDataTable tab = new ColumnarDoubleDataTable(m_arrAttributes, m_nNoOfObjects);
+        for (int att = 0; att < m_Columns.length; att++)
+            System.arraycopy(m_Columns[att], 0, tab.m_Columns[att], 0, m_nNoOfObjects);
+        tab.m_nNoOfObjects = m_nNoOfObjects;
+        if (m_ValueDistribution!=null)
+        {
+        	tab.m_ValueDistribution = new int[m_ValueDistribution.length][];
+        	for (int att = 0; att < m_ValueDistribution.length; att++)
+        		if (m_ValueDistribution[att]!=null)
+        			tab.m_ValueDistribution[att] = m_ValueDistribution[att].clone();
+        }
+        if (m_NumStats!=null)
+        {
+        	tab.m_NumStats = new NumericalStatistics[m_NumStats.length];
+        	for (int att = 0; att < m_NumStats.length; att++)
+        		if (m_NumStats[att]!=null)
+        			tab.m_NumStats[att] = (NumericalStatistics)m_NumStats[att].clone();
+        }
+        tab.setMinorityDecision();
+        return tab;
+    }
+}
@@ -26,6 +26,7 @@ import java.util.ArrayList;
 
 import rseslib.structure.Headerable;
 import rseslib.structure.data.DoubleData;
+import rseslib.structure.data.formats.BinaryDoubleDataOutput;
 import rseslib.system.progress.Progress;
 
 /**
@@ -162,4 +163,19 @@ public interface DoubleDataTable extends Headerable, Cloneable
      * @throws InterruptedException If user has interrupted saving object.
      */
     public void storeArff(String name, File outputFile, Progress prog) throws IOException, InterruptedException;
+
+    /**
+     * Saves this object to a file in rseslib binary format.
+     * The binary file can be loaded without parsing
+     * and its columns are memory-mapped while loading.
+     *
+     * @param outputFile File to be used for storing this object.
+     * @param prog       Progress object for progress reporting.
+     * @throws IOException If an I/O error has occured.
+     * @throws InterruptedException If user has interrupted saving object.
+     */
+    public default void storeBinary(File outputFile, Progress prog) throws IOException, InterruptedException
+    {
+        BinaryDoubleDataOutput.store(attributes(), getDataObjects(), outputFile, prog);
+    }
 }
@@ -0,0 +1,449 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.structure.table;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import rseslib.structure.attribute.Header;
+import rseslib.structure.attribute.NominalAttribute;
+import rseslib.structure.data.DoubleData;
+import rseslib.structure.data.DoubleDataWithDecision;
+import rseslib.structure.data.formats.BinaryDoubleDataOutput;
+import rseslib.system.progress.Progress;
+import rseslib.util.random.RandomSelection;
+
+/**
+ * View of a subset of objects from a parent table,
+ * e.g. a fold or the complement of a fold in cross-validation.
+ * The subset is defined by the positions of objects
+ * in the parent table and the data objects are shared
+ * with the parent table, they are not copied.
+ * The statistics, the random partitions and saving the view
+ * read the objects through the positions in the parent table.
+ * The list returned by getDataObjects() is created at the first call
+ * and adding and removing objects changes this list only,
+ * the parent table remains unchanged.
+ */
+public class DoubleDataTableView implements DoubleDataTable
+{
+    /** Header of the parent table. */
+    private Header m_Header;
+    /** Objects of the parent table. */
+    private ArrayList<DoubleData> m_ParentObjects;
+    /** Positions of the objects of this view in the parent table. */
+    private int[] m_Indices;
+    /** Unmodifiable list of the objects of this view backed by the positions in the parent table. */
+    private List<DoubleData> m_Objects;
+    /** Statistics of the objects of this view, null if not requested yet or taken over by the own table. */
+    private TableStatistics m_Statistics = null;
+    /** Table with its own list of the objects of this view, null if not requested yet. */
+    private ArrayListDoubleDataTable m_Table = null;
+
+    /**
+     * Constructs a view of the objects at given positions in a parent table.
+     *
+     * @param parent  Parent table.
+     * @param indices Positions of the objects of this view in the parent table.
+     */
+    public DoubleDataTableView(DoubleDataTable parent, int[] indices)
+    {
+        m_Header = parent.attributes();
+        m_ParentObjects = parent.getDataObjects();
+        m_Indices = indices;
+        m_Objects = new ParentObjects();
+    }
+
+    /**
+     * Constructs a view of one part or of the complement of one part
+     * of a partition of a parent table.
+     *
+     * @param parent       Parent table.
+     * @param partOfObject Part assigned to each object of the parent table.
+     * @param part         Part selected for this view.
+     * @param complement   If true, the view contains the objects from all parts except the selected part,
+     *                     otherwise the view contains the objects from the selected part.
+     */
+    public DoubleDataTableView(DoubleDataTable parent, int[] partOfObject, int part, boolean complement)
+    {
+        this(parent, select(partOfObject, part, complement));
+    }
+
+    /**
+     * Selects the positions of objects from one part or from the complement of one part.
+     *
+     * @param partOfObject Part assigned to each object.
+     * @param part         Selected part.
+     * @param complement   If true, the objects not in the selected part are selected.
+     * @return             Positions of the selected objects.
+     */
+    private static int[] select(int[] partOfObject, int part, boolean complement)
+    {
+        int noOfSelected = 0;
+        for (int p : partOfObject)
+            if ((p==part)!=complement) noOfSelected++;
+        int[] indices = new int[noOfSelected];
+        noOfSelected = 0;
+        for (int ind = 0; ind < partOfObject.length; ind++)
+            if ((partOfObject[ind]==part)!=complement) indices[noOfSelected++] = ind;
+        return indices;
+    }
+
+    /**
+     * Divides a list of objects into parts.
+     *
+     * @param objects      List of objects.
+     * @param partOfObject Part assigned to each object.
+     * @param noOfParts    Number of parts.
+     * @return             Objects divided into noOfParts collections.
+     */
+    static ArrayList<DoubleData>[] parts(List<DoubleData> objects, int[] partOfObject, int noOfParts)
+    {
+        int[] sizes = new int[noOfParts];
+        for (int p : partOfObject)
+            sizes[p]++;
+        ArrayList<DoubleData>[] parts = new ArrayList[noOfParts];
+        for (int part = 0; part < parts.length; part++)
+            parts[part] = new ArrayList<DoubleData>(sizes[part]);
+        for (int ind = 0; ind < partOfObject.length; ind++)
+            parts[partOfObject[ind]].add(objects.get(ind));
+        return parts;
+    }
+
+    /**
+     * Returns the local decision codes of a list of objects.
+     *
+     * @param objects List of objects.
+     * @param decAttr Decision attribute.
+     * @return        Local decision code of each object.
+     */
+    static int[] decisions(List<DoubleData> objects, NominalAttribute decAttr)
+    {
+        int[] decisions = new int[objects.size()];
+        for (int ind = 0; ind < decisions.length; ind++)
+            decisions[ind] = decAttr.localValueCode(((DoubleDataWithDecision)objects.get(ind)).getDecision());
+        return decisions;
+    }
+
+    /**
+     * Unmodifiable list of the objects of this view
+     * reading the objects from the parent table.
+     */
+    private class ParentObjects extends AbstractList<DoubleData> implements RandomAccess
+    {
+        /**
+         * Returns the object at a given position in this view.
+         *
+         * @param index Position in this view.
+         * @return      Object at the given position.
+         */
+        public DoubleData get(int index)
+        {
+            return m_ParentObjects.get(m_Indices[index]);
+        }
+
+        /**
+         * Returns the number of objects in this view.
+         *
+         * @return Number of objects in this view.
+         */
+        public int size()
+        {
+            return m_Indices.length;
+        }
+    }
+
+    /**
+     * Returns the table with its own list of the objects of this view
+     * creating it at the first request.
+     *
+     * @return Table with the objects of this view.
+     */
+    private synchronized ArrayListDoubleDataTable table()
+    {
+        if (m_Table==null)
+        {
+            m_Table = new ArrayListDoubleDataTable(m_Header, new ArrayList<DoubleData>(m_Objects), m_Statistics);
+            m_Objects = m_Table.getDataObjects();
+            m_Statistics = null;
+        }
+        return m_Table;
+    }
+
+    /**
+     * Returns the statistics of all attributes
+     * computing them in one pass at the first request.
+     * After the objects of this view have been copied to its own table
+     * the statistics are kept and updated by that table.
+     *
+     * @return Statistics of all attributes.
+     */
+    private synchronized TableStatistics statistics()
+    {
+        if (m_Table!=null) return m_Table.statistics();
+        if (m_Statistics==null)
+            m_Statistics = TableStatistics.compute(m_Header, m_Objects);
+        return m_Statistics;
+    }
+
+    /**
+     * Returns an array of attributes.
+     *
+     * @return Array of attributes.
+     */
+    public Header attributes()
+    {
+        return m_Header;
+    }
+
+    /**
+     * Returns the number of objects.
+     *
+     * @return Number of objects.
+     */
+    public synchronized int noOfObjects()
+    {
+        return m_Objects.size();
+    }
+
+    /**
+     * Adds a data object to this view.
+     * The parent table remains unchanged.
+     *
+     * @param obj The object to be added.
+     */
+    public synchronized void add(DoubleData obj)
+    {
+        table().add(obj);
+    }
+
+    /**
+     * Removes a data object from this view.
+     * The parent table remains unchanged.
+     *
+     * @param obj  The object to be removed.
+     * @return     True, if the object was found and removed from this view,
+     *             false otherwise.
+     */
+    public synchronized boolean remove(DoubleData obj)
+    {
+        return table().remove(obj);
+    }
+
+    /**
+     * Identifies and sets the minority decision.
+     * The minority decision is set only in case
+     * when this view has two decision classes.
+     */
+    public void setMinorityDecision()
+    {
+    	try
+    	{
+    		NominalAttribute decAttr = m_Header.nominalDecisionAttribute();
+    		if(!decAttr.isMinorityValueSet() && decAttr.noOfValues() == 2)
+    		{
+    			int[] decisionDistribution = getDecisionDistribution();
+    			int minDec = (decisionDistribution[0] <= decisionDistribution[1] ? 0 : 1);
+    			decAttr.setMinorityValueGlobalCode(decAttr.globalValueCode(minDec));
+    		}
+    	} catch (Exception e) { }
+    }
+
+    /**
+     * Assigns the minority decision in this view the same as in a given table.
+     *
+     * @param table  Table providing the minority decision to be set.
+     */
+    public void takeMinorityDecisionFrom(DoubleDataTable table)
+    {
+    	try
+    	{
+    		NominalAttribute fromDecAttr = table.attributes().nominalDecisionAttribute();
+    		double minorityDec = (fromDecAttr.isMinorityValueSet() ? fromDecAttr.getMinorityValueGlobalCode() : -1);
+    		m_Header.nominalDecisionAttribute().setMinorityValueGlobalCode(minorityDec);
+    	} catch (Exception e) { }
+    }
+
+    /**
+     * Returns collection of all objects from this view.
+     * The list is created at the first call,
+     * later adding and removing objects modifies this list.
+     *
+     * @return Collection of all objects from this view.
+     */
+    public ArrayList<DoubleData> getDataObjects()
+    {
+        return table().getDataObjects();
+    }
+
+    /**
+     * Returns the basic statistics of a given numerical attribute.
+     *
+     * @return Statistics of a given numerical attribute.
+     */
+    public NumericalStatistics getNumericalStatistics(int attr)
+    {
+    	if (!m_Header.isNumeric(attr)) return null;
+    	return statistics().getNumericalStatistics(attr);
+    }
+
+    /**
+     * Returns the distribution of decision values in this view if the decision is nominal.
+     * Array indices correspond to local decision codes from this data header.
+     *
+     * @return Distribution of decisions in this view.
+     */
+    public int[] getDecisionDistribution()
+    {
+    	return getValueDistribution(m_Header.decision());
+    }
+
+    /**
+     * Returns the fraction of the minority decision in this view.
+     *
+     * @return Fraction of the minority decision in this view.
+     */
+    public double getPercentOfMinorityDecision()
+    {
+    	NominalAttribute decAttr = m_Header.nominalDecisionAttribute();
+    	int minLocalCode = decAttr.localValueCode(decAttr.getMinorityValueGlobalCode());
+    	int[] decDistr = getDecisionDistribution();
+    	return ((double)decDistr[minLocalCode]) / noOfObjects();
+    }
+
+    /**
+     * Returns the distribution of values in this view for a nominal attribute.
+     * Array indices correspond to local value codes for a given attibute.
+     *
+     * @param attrInd	Index of the attribute.
+     * @return Distribution of values in this view.
+     */
+    public int[] getValueDistribution(int attrInd)
+    {
+    	if (!m_Header.isNominal(attrInd)) return null;
+    	return statistics().getValueDistribution(attrInd);
+    }
+
+    /**
+     * Random split of this view into 2 data collections
+     * with the splitting ratio noOfPartsForLeft to noOfPartsForRight.
+     *
+     * @param noOfPartsForLeft  Number of parts for the table returned at the position 0.
+     * @param noOfPartsForRight Number of parts for the table returned at the position 1.
+     * @return                  View split into 2 data collections.
+     */
+    public synchronized ArrayList<DoubleData>[] randomSplit(int noOfPartsForLeft, int noOfPartsForRight)
+    {
+        boolean[] assigned = RandomSelection.subset(m_Objects.size(), noOfPartsForLeft, noOfPartsForRight);
+        int[] partOfObject = new int[assigned.length];
+        for (int ind = 0; ind < assigned.length; ind++)
+            partOfObject[ind] = assigned[ind] ? 0 : 1;
+        return parts(m_Objects, partOfObject, 2);
+    }
+
+    /**
+     * Random partition of this view into a given number of parts of equal sizes.
+     *
+     * @param noOfParts Number of parts to be generated.
+     * @return          View divided into noOfParts collections.
+     */
+    public synchronized ArrayList<DoubleData>[] randomPartition(int noOfParts)
+    {
+        return parts(m_Objects, RandomSelection.partition(m_Objects.size(), noOfParts), noOfParts);
+    }
+
+    /**
+     * Random partition of this view into a given number of parts of equal sizes preserving class distribution.
+     *
+     * @param noOfParts Number of parts to be generated.
+     * @return          View divided into noOfParts collections.
+     */
+    public synchronized ArrayList<DoubleData>[] randomStratifiedPartition(int noOfParts)
+    {
+    	NominalAttribute decAttr = m_Header.nominalDecisionAttribute();
+    	int[] decisions = decisions(m_Objects, decAttr);
+        return parts(m_Objects, RandomSelection.stratifiedPartition(decisions, decAttr.noOfValues(), noOfParts), noOfParts);
+    }
+
+    /**
+     * Saves this view to a file.
+     *
+     * @param outputFile File to be used for storing this object.
+     * @param prog       Progress object for progress reporting.
+     * @throws IOException If an I/O error has occured.
+     * @throws InterruptedException If user has interrupted saving object.
+     */
+    public void store(File outputFile, Progress prog) throws IOException, InterruptedException
+    {
+        table().store(outputFile, prog);
+    }
+
+    /**
+     * Saves this view to a file in arff format.
+     *
+     * @param outputFile File to be used for storing this object.
+     * @param prog       Progress object for progress reporting.
+     * @throws IOException If an I/O error has occured.
+     * @throws InterruptedException If user has interrupted saving object.
+     */
+    public void storeArff(String name, File outputFile, Progress prog) throws IOException, InterruptedException
+    {
+        table().storeArff(name, outputFile, prog);
+    }
+
+    /**
+     * Saves this view to a file in rseslib binary format.
+     *
+     * @param outputFile File to be used for storing this object.
+     * @param prog       Progress object for progress reporting.
+     * @throws IOException If an I/O error has occured.
+     * @throws InterruptedException If user has interrupted saving object.
+     */
+    public synchronized void storeBinary(File outputFile, Progress prog) throws IOException, InterruptedException
+    {
+        BinaryDoubleDataOutput.store(m_Header, m_Objects, outputFile, prog);
+    }
+
+    /**
+     * Returns a string representation of this object.
+     *
+     * @return String representation of this object.
+     */
+    public String toString()
+    {
+        return table().toString();
+    }
+
+    /**
+     * Create and return a copy of this view
+     * as an independent table with copies of data objects.
+     *
+     * @return Copy of this object.
+     */
+    public Object clone()
+    {
+        return table().clone();
+    }
+}
@@ -83,6 +83,63 @@ public class NumericalStatistics implements Cloneable
         }
     }
 
+    /**
+     * Constructor computing the statistics
+     * directly from a column of attribute values.
+     *
+     * @param values      Column of attribute values.
+     * @param noOfValues  Number of values from the beginning of the column to be taken into account.
+     */
+    public NumericalStatistics(double[] values, int noOfValues)
+    {
+    	int noOfAdded = 0;
+    	for (int i = 0; i < noOfValues; i++)
+    	{
+    		double val = values[i];
+    		if (!Double.isNaN(val))
+    		{
+    			if (noOfAdded==0)
+    			{
+    				m_nMinValue = val;
+    				m_nMaxValue = val;
+    				m_nAvgValue = val;
+    			}
+    			else
+    			{
+    				if (val < m_nMinValue) m_nMinValue = val;
+    				if (val > m_nMaxValue) m_nMaxValue = val;
+    				m_nAvgValue += val;
+    			}
+    			noOfAdded++;
+    		}
+    	}
+        if (noOfAdded > 0)
+        {
+        	m_nAvgValue /= (double)noOfAdded;
+        	m_nStdDev = 0;
+        	for (int i = 0; i < noOfValues; i++)
+        		if (!Double.isNaN(values[i]))
+        			m_nStdDev += (values[i]-m_nAvgValue)*(values[i]-m_nAvgValue);
+        	m_nStdDev = Math.sqrt(m_nStdDev / (double)noOfAdded);
+        }
+    }
+
+    /**
+     * Constructor setting precomputed statistics.
+     *
+     * @param min     The minimal value.
+     * @param max     The maximal value.
+     * @param avg     The average value.
+     * @param stdDev  Standard deviation.
+     */
+    NumericalStatistics(double min, double max, double avg, double stdDev)
+    {
+    	m_nMinValue = min;
+    	m_nMaxValue = max;
+    	m_nAvgValue = avg;
+    	m_nStdDev = stdDev;
+    }
+
     /**
      * Returns the minimal value of this attribute.
      *
@@ -0,0 +1,349 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.structure.table;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import rseslib.structure.attribute.Header;
+import rseslib.structure.attribute.NominalAttribute;
+import rseslib.structure.data.DoubleData;
+
+/**
+ * Statistics of all attributes in a collection of data objects:
+ * numerical statistics for numerical attributes
+ * and value distributions for nominal attributes.
+ * The statistics of all attributes are computed in one pass
+ * over the data objects and then updated incrementally
+ * when objects are added to or removed from the collection.
+ * The average and the standard deviation are maintained
+ * with the Welford's method. The minimum and the maximum
+ * are recomputed only for the attributes where a removed object
+ * had the extreme value.
+ * Large collections are processed in parallel in chunks
+ * of a fixed size, so the result does not depend
+ * on the number of processors.
+ */
+class TableStatistics
+{
+    /** Minimal number of values in a collection processed in parallel. */
+    private static final int MIN_PARALLEL_VALUES = 1 << 20;
+    /** Number of data objects in one chunk processed in parallel. */
+    private static final int CHUNK_SIZE = 1 << 14;
+
+    /** Header of the data objects. */
+    private Header m_Header;
+    /** Collection of data objects described by these statistics. */
+    private Collection<DoubleData> m_Objects;
+    /** Numbers of non-missing values of numerical attributes. */
+    private int[] m_nNoOfValues;
+    /** Averages of numerical attributes. */
+    private double[] m_arrAverages;
+    /** Sums of squared deviations from the averages of numerical attributes. */
+    private double[] m_arrSquares;
+    /** Minimal values of numerical attributes. */
+    private double[] m_arrMinima;
+    /** Maximal values of numerical attributes. */
+    private double[] m_arrMaxima;
+    /** Switches indicating the attributes with the minimum and the maximum to be recomputed. */
+    private boolean[] m_bExtremaOutdated;
+    /** Numerical statistics provided for numerical attributes, null if not requested yet or outdated. */
+    private NumericalStatistics[] m_NumStats;
+    /** Distributions of values of nominal attributes indexed with local value codes. */
+    private int[][] m_ValueDistribution;
+
+    /**
+     * Constructs the statistics of an empty collection.
+     *
+     * @param hdr Header of the data objects.
+     */
+    private TableStatistics(Header hdr)
+    {
+        m_Header = hdr;
+        int noOfAttr = hdr.noOfAttr();
+        m_nNoOfValues = new int[noOfAttr];
+        m_arrAverages = new double[noOfAttr];
+        m_arrSquares = new double[noOfAttr];
+        m_arrMinima = new double[noOfAttr];
+        m_arrMaxima = new double[noOfAttr];
+        m_bExtremaOutdated = new boolean[noOfAttr];
+        m_NumStats = new NumericalStatistics[noOfAttr];
+        m_ValueDistribution = new int[noOfAttr][];
+        for (int attr = 0; attr < noOfAttr; attr++)
+        {
+            m_arrMinima[attr] = Double.POSITIVE_INFINITY;
+            m_arrMaxima[attr] = Double.NEGATIVE_INFINITY;
+            if (hdr.isNominal(attr))
+                m_ValueDistribution[attr] = new int[((NominalAttribute)hdr.attribute(attr)).noOfValues()];
+        }
+    }
+
+    /**
+     * Computes the statistics of a list of data objects in one pass.
+     * Large lists are processed in parallel.
+     *
+     * @param hdr     Header of the data objects.
+     * @param objects List of data objects.
+     * @return        Statistics of the data objects.
+     */
+    static TableStatistics compute(Header hdr, List<DoubleData> objects)
+    {
+        if ((long)objects.size() * hdr.noOfAttr() < MIN_PARALLEL_VALUES || Runtime.getRuntime().availableProcessors() < 2)
+        {
+            TableStatistics stats = new TableStatistics(hdr);
+            for (DoubleData dObj : objects)
+                stats.addValues(dObj);
+            stats.m_Objects = objects;
+            return stats;
+        }
+        ArrayList<Callable<TableStatistics>> chunks = new ArrayList<Callable<TableStatistics>>();
+        for (int start = 0; start < objects.size(); start += CHUNK_SIZE)
+        {
+            final List<DoubleData> chunk = objects.subList(start, Math.min(start + CHUNK_SIZE, objects.size()));
+            final Header header = hdr;
+            chunks.add(new Callable<TableStatistics>()
+            {
+                public TableStatistics call()
+                {
+                    TableStatistics partial = new TableStatistics(header);
+                    for (DoubleData dObj : chunk)
+                        partial.addValues(dObj);
+                    return partial;
+                }
+            });
+        }
+        TableStatistics stats = new TableStatistics(hdr);
+        try
+        {
+            for (Future<TableStatistics> partial : ForkJoinPool.commonPool().invokeAll(chunks))
+                stats.merge(partial.get());
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Computing table statistics interrupted");
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+            throw new RuntimeException(e.getCause());
+        }
+        stats.m_Objects = objects;
+        return stats;
+    }
+
+    /**
+     * Returns the distribution array of a nominal attribute
+     * large enough to store a given local code.
+     *
+     * @param attr Index of a nominal attribute.
+     * @param code Local value code.
+     * @return     Distribution array of the attribute.
+     */
+    private int[] distribution(int attr, int code)
+    {
+        if (code >= m_ValueDistribution[attr].length)
+        {
+            int[] extended = new int[Math.max(code + 1, ((NominalAttribute)m_Header.attribute(attr)).noOfValues())];
+            System.arraycopy(m_ValueDistribution[attr], 0, extended, 0, m_ValueDistribution[attr].length);
+            m_ValueDistribution[attr] = extended;
+        }
+        return m_ValueDistribution[attr];
+    }
+
+    /**
+     * Updates the statistics with the values of a data object.
+     *
+     * @param dObj Data object.
+     */
+    private void addValues(DoubleData dObj)
+    {
+        for (int attr = 0; attr < m_nNoOfValues.length; attr++)
+        {
+            double val = dObj.get(attr);
+            if (Double.isNaN(val)) continue;
+            if (m_ValueDistribution[attr]!=null)
+            {
+                int code = ((NominalAttribute)m_Header.attribute(attr)).localValueCode(val);
+                if (code >= 0) distribution(attr, code)[code]++;
+            }
+            else if (m_Header.isNumeric(attr))
+            {
+                m_nNoOfValues[attr]++;
+                double delta = val - m_arrAverages[attr];
+                m_arrAverages[attr] += delta / m_nNoOfValues[attr];
+                m_arrSquares[attr] += delta * (val - m_arrAverages[attr]);
+                if (val < m_arrMinima[attr]) m_arrMinima[attr] = val;
+                if (val > m_arrMaxima[attr]) m_arrMaxima[attr] = val;
+            }
+        }
+    }
+
+    /**
+     * Merges the statistics of another collection into these statistics.
+     *
+     * @param stats Statistics of another collection.
+     */
+    private void merge(TableStatistics stats)
+    {
+        for (int attr = 0; attr < m_nNoOfValues.length; attr++)
+        {
+            if (m_ValueDistribution[attr]!=null)
+            {
+                int[] distr = distribution(attr, stats.m_ValueDistribution[attr].length - 1);
+                for (int code = 0; code < stats.m_ValueDistribution[attr].length; code++)
+                    distr[code] += stats.m_ValueDistribution[attr][code];
+            }
+            else if (stats.m_nNoOfValues[attr] > 0)
+            {
+                int total = m_nNoOfValues[attr] + stats.m_nNoOfValues[attr];
+                double delta = stats.m_arrAverages[attr] - m_arrAverages[attr];
+                m_arrAverages[attr] += delta * stats.m_nNoOfValues[attr] / total;
+                m_arrSquares[attr] += stats.m_arrSquares[attr] + delta * delta * ((double)m_nNoOfValues[attr] * stats.m_nNoOfValues[attr] / total);
+                m_nNoOfValues[attr] = total;
+                if (stats.m_arrMinima[attr] < m_arrMinima[attr]) m_arrMinima[attr] = stats.m_arrMinima[attr];
+                if (stats.m_arrMaxima[attr] > m_arrMaxima[attr]) m_arrMaxima[attr] = stats.m_arrMaxima[attr];
+            }
+        }
+    }
+
+    /**
+     * Replaces the collection described by these statistics
+     * with another collection containing the same data objects.
+     *
+     * @param objects Collection of the same data objects.
+     */
+    synchronized void describe(Collection<DoubleData> objects)
+    {
+        m_Objects = objects;
+    }
+
+    /**
+     * Updates the statistics after a data object has been added to the collection.
+     *
+     * @param dObj Added data object.
+     */
+    synchronized void add(DoubleData dObj)
+    {
+        addValues(dObj);
+        for (int attr = 0; attr < m_NumStats.length; attr++)
+            if (!Double.isNaN(dObj.get(attr)))
+                m_NumStats[attr] = null;
+    }
+
+    /**
+     * Updates the statistics after a data object has been removed from the collection.
+     * The minimum and the maximum of an attribute are marked as outdated
+     * only if the removed object had the extreme value.
+     *
+     * @param dObj Removed data object.
+     */
+    synchronized void remove(DoubleData dObj)
+    {
+        for (int attr = 0; attr < m_nNoOfValues.length; attr++)
+        {
+            double val = dObj.get(attr);
+            if (Double.isNaN(val)) continue;
+            if (m_ValueDistribution[attr]!=null)
+            {
+                int code = ((NominalAttribute)m_Header.attribute(attr)).localValueCode(val);
+                if (code >= 0 && code < m_ValueDistribution[attr].length) m_ValueDistribution[attr][code]--;
+            }
+            else if (m_Header.isNumeric(attr) && m_nNoOfValues[attr] > 0)
+            {
+                m_NumStats[attr] = null;
+                if (--m_nNoOfValues[attr]==0)
+                {
+                    m_arrAverages[attr] = 0;
+                    m_arrSquares[attr] = 0;
+                    m_arrMinima[attr] = Double.POSITIVE_INFINITY;
+                    m_arrMaxima[attr] = Double.NEGATIVE_INFINITY;
+                    m_bExtremaOutdated[attr] = false;
+                    continue;
+                }
+                double delta = val - m_arrAverages[attr];
+                m_arrAverages[attr] -= delta / m_nNoOfValues[attr];
+                m_arrSquares[attr] -= delta * (val - m_arrAverages[attr]);
+                if (m_arrSquares[attr] < 0) m_arrSquares[attr] = 0;
+                if (val <= m_arrMinima[attr] || val >= m_arrMaxima[attr])
+                    m_bExtremaOutdated[attr] = true;
+            }
+        }
+    }
+
+    /**
+     * Recomputes the minimum and the maximum of an attribute
+     * with a scan of the values of this attribute.
+     *
+     * @param attr Index of a numerical attribute.
+     */
+    private void recomputeExtrema(int attr)
+    {
+        m_arrMinima[attr] = Double.POSITIVE_INFINITY;
+        m_arrMaxima[attr] = Double.NEGATIVE_INFINITY;
+        for (DoubleData dObj : m_Objects)
+        {
+            double val = dObj.get(attr);
+            if (val < m_arrMinima[attr]) m_arrMinima[attr] = val;
+            if (val > m_arrMaxima[attr]) m_arrMaxima[attr] = val;
+        }
+        m_bExtremaOutdated[attr] = false;
+    }
+
+    /**
+     * Returns the statistics of a numerical attribute.
+     *
+     * @param attr Index of a numerical attribute.
+     * @return     Statistics of the attribute.
+     */
+    synchronized NumericalStatistics getNumericalStatistics(int attr)
+    {
+        if (m_NumStats[attr]==null)
+        {
+            if (m_nNoOfValues[attr]==0)
+                m_NumStats[attr] = new NumericalStatistics(Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+            else
+            {
+                if (m_bExtremaOutdated[attr]) recomputeExtrema(attr);
+                m_NumStats[attr] = new NumericalStatistics(m_arrMinima[attr], m_arrMaxima[attr], m_arrAverages[attr],
+                        Math.sqrt(m_arrSquares[attr] / m_nNoOfValues[attr]));
+            }
+        }
+        return m_NumStats[attr];
+    }
+
+    /**
+     * Returns the distribution of values of a nominal attribute.
+     * Array indices correspond to local value codes of the attribute.
+     *
+     * @param attr Index of a nominal attribute.
+     * @return     Distribution of values of the attribute.
+     */
+    synchronized int[] getValueDistribution(int attr)
+    {
+        return distribution(attr, ((NominalAttribute)m_Header.attribute(attr)).noOfValues() - 1);
+    }
+}
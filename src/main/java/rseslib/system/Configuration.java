@@ -22,6 +22,7 @@ package rseslib.system;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The instances of this class
@@ -30,6 +31,9 @@ import java.util.*;
  * or defined in the properties file.
  * The properties file name is the name of the class
  * extending this abstract class.
+ * The default properties of each class are read once
+ * and the typed values of properties are parsed once
+ * and remembered until a property is modified.
  *
  * @author      Grzegorz Gora, Arkadiusz Wojna
  */
@@ -37,11 +41,15 @@ public abstract class Configuration
 {
     /** Properties file extension. */
     private static final String PROPERTIES_EXTENSION = ".properties";
+    /** Default properties of the classes loaded so far. */
+    private static final Map<Class,Properties> DEFAULT_PROPERTIES = new ConcurrentHashMap<Class,Properties>();
 
     /** Map between property names and property values. */
     private Properties m_Properties;
     /** The set of modifiable properties. */
     private Set<String> m_Modifiable = new HashSet<String>();
+    /** Typed values of the properties parsed so far. */
+    private Map<String,Object> m_TypedValues = new ConcurrentHashMap<String,Object>();
 
     /**
      * Constructor that reads properties from properties file.
@@ -166,6 +174,24 @@ public abstract class Configuration
      * @throws PropertyConfigurationException If the class is not a subclass of Configuration.
      */
     public static Properties loadDefaultProperties(Class configurableClass) throws PropertyConfigurationException
+    {
+        Properties prop = DEFAULT_PROPERTIES.get(configurableClass);
+        if (prop==null)
+        {
+            prop = readDefaultProperties(configurableClass);
+            DEFAULT_PROPERTIES.put(configurableClass, prop);
+        }
+        return (Properties)prop.clone();
+    }
+
+    /**
+     * Reads the default properties for a given class from the properties files.
+     *
+     * @param configurableClass		Class.
+     * @return						Default properties for a given class.
+     * @throws PropertyConfigurationException If the class is not a subclass of Configuration.
+     */
+    private static Properties readDefaultProperties(Class configurableClass) throws PropertyConfigurationException
     {
         Class superclass = configurableClass;
         while (superclass!=null && superclass!=Configuration.class) superclass = superclass.getSuperclass();
@@ -223,12 +249,15 @@ public abstract class Configuration
      */
     public boolean getBoolProperty(String propertyName) throws PropertyConfigurationException
     {
+        Object typedVal = m_TypedValues.get(propertyName);
+        if (typedVal instanceof Boolean) return (Boolean)typedVal;
         boolean val = false;
         String propertyValueString = m_Properties.getProperty(propertyName);
         if (propertyValueString==null) throw new PropertyConfigurationException("Property "+propertyName+" for the class "+this.getClass().getName()+" is not defined");
         if (propertyValueString.equalsIgnoreCase("true")) val = true;
         else if (propertyValueString.equalsIgnoreCase("false")) val = false;
         else throw new PropertyConfigurationException("The value of the property "+propertyName+" is neither TRUE nor FALSE");
+        m_TypedValues.put(propertyName, val);
         return val;
     }
 
@@ -241,9 +270,13 @@ public abstract class Configuration
      */
     public int getIntProperty(String propertyName) throws PropertyConfigurationException
     {
+        Object typedVal = m_TypedValues.get(propertyName);
+        if (typedVal instanceof Integer) return (Integer)typedVal;
         String propertyValueString = m_Properties.getProperty(propertyName);
         if (propertyValueString==null) throw new PropertyConfigurationException("Property "+propertyName+" for the class "+this.getClass().getName()+" is not defined");
-        return Integer.parseInt(propertyValueString);
+        int val = Integer.parseInt(propertyValueString);
+        m_TypedValues.put(propertyName, val);
+        return val;
     }
 
     /**
@@ -255,9 +288,13 @@ public abstract class Configuration
      */
     public double getDoubleProperty(String propertyName) throws PropertyConfigurationException
     {
+        Object typedVal = m_TypedValues.get(propertyName);
+        if (typedVal instanceof Double) return (Double)typedVal;
         String propertyValueString = m_Properties.getProperty(propertyName);
         if (propertyValueString==null) throw new PropertyConfigurationException("Property "+propertyName+" for the class "+this.getClass().getName()+" is not defined");
-        return Double.parseDouble(propertyValueString);
+        double val = Double.parseDouble(propertyValueString);
+        m_TypedValues.put(propertyName, val);
+        return val;
     }
 
     /**
@@ -293,6 +330,18 @@ public abstract class Configuration
     {
         if (!m_Modifiable.contains(propertyName)) throw new PropertyConfigurationException("Parameter "+propertyName+" can not be changed");
         m_Properties.setProperty(propertyName, propertyValue);
+        m_TypedValues.clear();
+        propertiesModified();
+    }
+
+    /**
+     * Called after a property has been modified.
+     * Subclasses keeping the values of properties in fields
+     * override this method to refresh these fields
+     * and must call the method of the superclass.
+     */
+    protected void propertiesModified()
+    {
     }
 
     /**
@@ -317,5 +366,6 @@ public abstract class Configuration
     {
     	m_Properties = (Properties)in.readObject();
     	m_Modifiable = (Set<String>)in.readObject();
+    	m_TypedValues = new ConcurrentHashMap<String,Object>();
     }
 }
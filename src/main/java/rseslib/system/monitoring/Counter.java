@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.system.monitoring;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe monotonic counter.
+ * Updates are ignored when monitoring is disabled.
+ */
+public class Counter extends MonitoredValue
+{
+    /** Value of this counter. */
+    private final LongAdder m_Value = new LongAdder();
+
+    /**
+     * Constructor.
+     *
+     * @param name   Name of this counter.
+     * @param labels Labels of this counter: pairs of a label name and a label value.
+     */
+    Counter(String name, String[] labels)
+    {
+        super(name, labels);
+    }
+
+    /**
+     * Increments this counter.
+     */
+    public void increment()
+    {
+        if (Monitoring.s_bEnabled)
+            m_Value.increment();
+    }
+
+    /**
+     * Adds a value to this counter.
+     *
+     * @param value Value to be added.
+     */
+    public void add(long value)
+    {
+        if (Monitoring.s_bEnabled)
+            m_Value.add(value);
+    }
+
+    /**
+     * Returns the value of this counter.
+     *
+     * @return Value of this counter.
+     */
+    public long get()
+    {
+        return m_Value.sum();
+    }
+
+    /**
+     * Resets this counter to zero.
+     */
+    void reset()
+    {
+        m_Value.reset();
+    }
+}
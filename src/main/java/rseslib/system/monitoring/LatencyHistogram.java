@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.system.monitoring;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe histogram of durations in nanoseconds
+ * providing percentiles with the relative error below 1/16.
+ * Durations are counted in log-linear buckets:
+ * each power of two is divided into 16 buckets of equal width,
+ * durations below 16 nanoseconds have their own buckets.
+ * Recording is a few atomic increments without allocation
+ * and it is skipped when monitoring is disabled.
+ */
+public class LatencyHistogram extends MonitoredValue
+{
+    /** Number of bits of a duration distinguished within a power of two. */
+    private static final int SUB_BUCKET_BITS = 4;
+    /** Number of buckets within a power of two. */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /** Number of buckets. */
+    private static final int NO_OF_BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    /** Numbers of durations in the buckets. */
+    private final AtomicLongArray m_arrCounts = new AtomicLongArray(NO_OF_BUCKETS);
+    /** Number of recorded durations. */
+    private final LongAdder m_Count = new LongAdder();
+    /** Sum of recorded durations. */
+    private final LongAdder m_Sum = new LongAdder();
+    /** Maximal recorded duration. */
+    private final AtomicLong m_Max = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param name   Name of this histogram.
+     * @param labels Labels of this histogram: pairs of a label name and a label value.
+     */
+    LatencyHistogram(String name, String[] labels)
+    {
+        super(name, labels);
+    }
+
+    /**
+     * Returns the bucket of a duration.
+     *
+     * @param nanos Duration in nanoseconds.
+     * @return      Index of the bucket.
+     */
+    static int bucket(long nanos)
+    {
+        if (nanos < SUB_BUCKETS)
+            return (int)nanos;
+        int exp = 63 - Long.numberOfLeadingZeros(nanos);
+        return (exp - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + (int)((nanos >>> (exp - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * Returns the upper bound of the durations in a bucket.
+     *
+     * @param bucket Index of a bucket.
+     * @return       Upper bound of the durations in the bucket in nanoseconds.
+     */
+    static long upperBound(int bucket)
+    {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        return ((long)(SUB_BUCKETS + bucket % SUB_BUCKETS + 1) << shift) - 1;
+    }
+
+    /**
+     * Records the duration of an operation started at a given time.
+     *
+     * @param start Value returned by Monitoring.start before the operation.
+     */
+    public void stop(long start)
+    {
+        if (start != 0)
+            record(System.nanoTime() - start);
+    }
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos Duration in nanoseconds.
+     */
+    public void record(long nanos)
+    {
+        if (!Monitoring.s_bEnabled)
+            return;
+        if (nanos < 0)
+            nanos = 0;
+        m_arrCounts.incrementAndGet(bucket(nanos));
+        m_Count.increment();
+        m_Sum.add(nanos);
+        long max = m_Max.get();
+        while (nanos > max && !m_Max.compareAndSet(max, nanos))
+            max = m_Max.get();
+    }
+
+    /**
+     * Returns the number of recorded durations.
+     *
+     * @return Number of recorded durations.
+     */
+    public long getCount()
+    {
+        return m_Count.sum();
+    }
+
+    /**
+     * Returns the sum of recorded durations.
+     *
+     * @return Sum of recorded durations in nanoseconds.
+     */
+    public long getSum()
+    {
+        return m_Sum.sum();
+    }
+
+    /**
+     * Returns the average recorded duration.
+     *
+     * @return Average duration in nanoseconds, 0 if nothing has been recorded.
+     */
+    public double getMean()
+    {
+        long count = getCount();
+        return count == 0 ? 0 : getSum() / (double)count;
+    }
+
+    /**
+     * Returns the maximal recorded duration.
+     *
+     * @return Maximal duration in nanoseconds.
+     */
+    public long getMax()
+    {
+        return m_Max.get();
+    }
+
+    /**
+     * Returns a percentile of recorded durations:
+     * the upper bound of the bucket containing the percentile
+     * not greater than the maximal recorded duration.
+     *
+     * @param percentile Percentile from the range [0, 1].
+     * @return           Percentile in nanoseconds, 0 if nothing has been recorded.
+     */
+    public long getPercentile(double percentile)
+    {
+        long total = 0;
+        long[] counts = new long[NO_OF_BUCKETS];
+        for (int b = 0; b < NO_OF_BUCKETS; b++)
+        {
+            counts[b] = m_arrCounts.get(b);
+            total += counts[b];
+        }
+        if (total == 0)
+            return 0;
+        long rank = Math.max(1, (long)Math.ceil(percentile * total));
+        long seen = 0;
+        for (int b = 0; b < NO_OF_BUCKETS; b++)
+        {
+            seen += counts[b];
+            if (seen >= rank)
+                return Math.min(upperBound(b), getMax());
+        }
+        return getMax();
+    }
+
+    /**
+     * Removes all recorded durations.
+     */
+    void reset()
+    {
+        for (int b = 0; b < NO_OF_BUCKETS; b++)
+            m_arrCounts.set(b, 0);
+        m_Count.reset();
+        m_Sum.reset();
+        m_Max.set(0);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.system.monitoring;
+
+/**
+ * Value registered in the monitoring registry
+ * identified by a name and a list of labels.
+ */
+public abstract class MonitoredValue
+{
+    /** Name of this value. */
+    private final String m_sName;
+    /** Labels of this value: names at even positions followed by values. */
+    private final String[] m_arrLabels;
+
+    /**
+     * Constructor.
+     *
+     * @param name   Name of this value.
+     * @param labels Labels of this value: pairs of a label name and a label value.
+     */
+    MonitoredValue(String name, String[] labels)
+    {
+        if (labels.length % 2 != 0)
+            throw new IllegalArgumentException("Labels of "+name+" must be given as pairs of a name and a value");
+        m_sName = name;
+        m_arrLabels = labels.clone();
+    }
+
+    /**
+     * Returns the name of this value.
+     *
+     * @return Name of this value.
+     */
+    public String getName()
+    {
+        return m_sName;
+    }
+
+    /**
+     * Returns the labels of this value.
+     *
+     * @return Labels of this value: names at even positions followed by values.
+     */
+    public String[] getLabels()
+    {
+        return m_arrLabels.clone();
+    }
+
+    /**
+     * Returns the number of labels.
+     *
+     * @return Number of labels.
+     */
+    int noOfLabels()
+    {
+        return m_arrLabels.length / 2;
+    }
+
+    /**
+     * Returns the name of a label.
+     *
+     * @param l Index of a label.
+     * @return  Name of the label.
+     */
+    String labelName(int l)
+    {
+        return m_arrLabels[2*l];
+    }
+
+    /**
+     * Returns the value of a label.
+     *
+     * @param l Index of a label.
+     * @return  Value of the label.
+     */
+    String labelValue(int l)
+    {
+        return m_arrLabels[2*l+1];
+    }
+
+    /**
+     * Resets this value.
+     */
+    abstract void reset();
+}
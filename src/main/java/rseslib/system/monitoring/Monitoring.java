@@ -0,0 +1,415 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.system.monitoring;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import rseslib.system.Report;
+
+/**
+ * Registry of counters, gauges and latency histograms
+ * exported in the JSON format or in the Prometheus text format.
+ * Monitoring is disabled by default: counters and histograms
+ * can be obtained and updated but the updates are ignored.
+ * It is enabled with the system property rseslib.monitoring=true
+ * or with setEnabled. If the system property rseslib.monitoring.file is set
+ * monitoring is enabled and the values are stored in the given file
+ * when the virtual machine exits, in the JSON format if the file name ends with .json
+ * and in the Prometheus text format otherwise.
+ * Durations are exported in seconds with the count, the sum, the mean,
+ * the maximum and the percentiles 0.5, 0.9, 0.99 and 0.999.
+ */
+public class Monitoring
+{
+    /** Name of the system property enabling monitoring. */
+    public static final String ENABLED_PROPERTY_NAME = "rseslib.monitoring";
+    /** Name of the system property with the file the values are stored in at exit. */
+    public static final String FILE_PROPERTY_NAME = "rseslib.monitoring.file";
+    /** Name of the histogram of training times. */
+    public static final String TRAINING = "rseslib_training_seconds";
+    /** Name of the histogram of training phase times. */
+    public static final String TRAINING_PHASE = "rseslib_training_phase_seconds";
+    /** Name of the histogram of classification times of batches of objects classified with one call. */
+    public static final String CLASSIFICATION_BATCH = "rseslib_classification_batch_seconds";
+    /** Name of the counter of nearest neighbour searches. */
+    public static final String NEIGHBOUR_SEARCHES = "rseslib_neighbour_searches_total";
+    /** Name of the counter of distance calculations. */
+    public static final String DISTANCE_CALCULATIONS = "rseslib_distance_calculations_total";
+    /** Name of the counter of rules checked against objects. */
+    public static final String RULES_CHECKED = "rseslib_rules_checked_total";
+    /** Name of the counter of rules matching objects. */
+    public static final String RULES_MATCHED = "rseslib_rules_matched_total";
+    /** Exported percentiles. */
+    private static final double[] PERCENTILES = { 0.5, 0.9, 0.99, 0.999 };
+    /** Names of the exported percentiles in the JSON format. */
+    private static final String[] PERCENTILE_NAMES = { "p50", "p90", "p99", "p999" };
+
+    /** Switch indicating whether the updates are recorded. */
+    static volatile boolean s_bEnabled = Boolean.getBoolean(ENABLED_PROPERTY_NAME) || System.getProperty(FILE_PROPERTY_NAME) != null;
+    /** Registered values ordered by names and labels. */
+    private static final Map<String,MonitoredValue> s_Values = new ConcurrentSkipListMap<String,MonitoredValue>();
+
+    /**
+     * Stores the values at exit if the file property is set.
+     */
+    static
+    {
+        final String fileName = System.getProperty(FILE_PROPERTY_NAME);
+        if (fileName != null)
+            Runtime.getRuntime().addShutdownHook(new Thread("Rseslib monitoring export")
+            {
+                public void run()
+                {
+                    try
+                    {
+                        store(new File(fileName));
+                    }
+                    catch (IOException e)
+                    {
+                        e.printStackTrace();
+                    }
+                }
+            });
+    }
+
+    /**
+     * Gauge registered with a name and labels.
+     */
+    static class RegisteredGauge extends MonitoredValue
+    {
+        /** Registered gauge. */
+        final Gauge m_Gauge;
+
+        /**
+         * Constructor.
+         *
+         * @param name   Name of the gauge.
+         * @param labels Labels of the gauge.
+         * @param gauge  Registered gauge.
+         */
+        RegisteredGauge(String name, String[] labels, Gauge gauge)
+        {
+            super(name, labels);
+            m_Gauge = gauge;
+        }
+
+        /**
+         * Gauges are not reset.
+         */
+        void reset()
+        {
+        }
+    }
+
+    /**
+     * Checks whether monitoring is enabled.
+     *
+     * @return True if the updates are recorded.
+     */
+    public static boolean isEnabled()
+    {
+        return s_bEnabled;
+    }
+
+    /**
+     * Enables or disables monitoring.
+     *
+     * @param enabled True if the updates are to be recorded.
+     */
+    public static void setEnabled(boolean enabled)
+    {
+        s_bEnabled = enabled;
+    }
+
+    /**
+     * Returns the start time of a measured operation
+     * to be passed to the method stop of a latency histogram after the operation.
+     *
+     * @return Current time in nanoseconds or 0 if monitoring is disabled.
+     */
+    public static long start()
+    {
+        return s_bEnabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Returns the key of a value in the registry.
+     * The name is followed by a space so the values with the same name are adjacent.
+     *
+     * @param name   Name of a value.
+     * @param labels Labels of the value.
+     * @return       Key of the value.
+     */
+    private static String key(String name, String[] labels)
+    {
+        StringBuilder key = new StringBuilder(name).append(' ');
+        for (String label : labels)
+            key.append(label).append('\u0000');
+        return key.toString();
+    }
+
+    /**
+     * Returns the counter with a given name and labels,
+     * the counter is registered if it does not exist.
+     *
+     * @param name   Name of the counter.
+     * @param labels Labels of the counter: pairs of a label name and a label value.
+     * @return       Counter.
+     */
+    public static Counter counter(String name, String... labels)
+    {
+        String key = key(name, labels);
+        MonitoredValue value = s_Values.get(key);
+        if (value == null)
+        {
+            s_Values.putIfAbsent(key, new Counter(name, labels));
+            value = s_Values.get(key);
+        }
+        return (Counter)value;
+    }
+
+    /**
+     * Returns the latency histogram with a given name and labels,
+     * the histogram is registered if it does not exist.
+     *
+     * @param name   Name of the histogram.
+     * @param labels Labels of the histogram: pairs of a label name and a label value.
+     * @return       Latency histogram.
+     */
+    public static LatencyHistogram histogram(String name, String... labels)
+    {
+        String key = key(name, labels);
+        MonitoredValue value = s_Values.get(key);
+        if (value == null)
+        {
+            s_Values.putIfAbsent(key, new LatencyHistogram(name, labels));
+            value = s_Values.get(key);
+        }
+        return (LatencyHistogram)value;
+    }
+
+    /**
+     * Returns the histogram of the times of a training phase of a classifier.
+     *
+     * @param classifier Class of the classifier.
+     * @param phase      Name of the training phase.
+     * @return           Latency histogram of the training phase.
+     */
+    public static LatencyHistogram trainingPhase(Class classifier, String phase)
+    {
+        return histogram(TRAINING_PHASE, "classifier", classifier.getSimpleName(), "phase", phase);
+    }
+
+    /**
+     * Registers a gauge with a given name and labels
+     * replacing the gauge registered before with the same name and labels.
+     *
+     * @param gauge  Gauge.
+     * @param name   Name of the gauge.
+     * @param labels Labels of the gauge: pairs of a label name and a label value.
+     */
+    public static void register(Gauge gauge, String name, String... labels)
+    {
+        s_Values.put(key(name, labels), new RegisteredGauge(name, labels, gauge));
+    }
+
+    /**
+     * Resets all counters and histograms.
+     */
+    public static void reset()
+    {
+        for (MonitoredValue value : s_Values.values())
+            value.reset();
+    }
+
+    /**
+     * Stores the values in a file, in the JSON format
+     * if the file name ends with .json and in the Prometheus text format otherwise.
+     *
+     * @param file          Output file.
+     * @throws IOException  If an I/O error has occured.
+     */
+    public static void store(File file) throws IOException
+    {
+        BufferedWriter output = new BufferedWriter(new FileWriter(file));
+        if (file.getName().toLowerCase().endsWith(".json"))
+            output.write(toJson());
+        else
+            output.write(toPrometheus());
+        output.close();
+    }
+
+    /**
+     * Displays the values in the Prometheus text format with Report.
+     */
+    public static void display()
+    {
+        Report.displaynl(toPrometheus());
+    }
+
+    /**
+     * Formats a number for export.
+     *
+     * @param value Number.
+     * @return      Formatted number.
+     */
+    private static String format(double value)
+    {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15)
+            return Long.toString((long)value);
+        return String.format(Locale.US, "%.9g", value);
+    }
+
+    /**
+     * Formats a duration in seconds.
+     *
+     * @param nanos Duration in nanoseconds.
+     * @return      Formatted duration in seconds.
+     */
+    private static String seconds(double nanos)
+    {
+        return format(nanos / 1e9);
+    }
+
+    /**
+     * Escapes a string in the JSON format or in a Prometheus label value.
+     *
+     * @param str String.
+     * @return    Escaped string.
+     */
+    private static String escape(String str)
+    {
+        return str.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * Returns the labels of a value in the Prometheus format.
+     *
+     * @param value     Monitored value.
+     * @param extraName Name of an additional label, null if none.
+     * @param extraVal  Value of the additional label.
+     * @return          Labels in braces or an empty string if there are no labels.
+     */
+    private static String prometheusLabels(MonitoredValue value, String extraName, String extraVal)
+    {
+        StringBuilder sb = new StringBuilder();
+        for (int l = 0; l < value.noOfLabels(); l++)
+        {
+            if (sb.length() > 0) sb.append(',');
+            sb.append(value.labelName(l)).append("=\"").append(escape(value.labelValue(l))).append('"');
+        }
+        if (extraName != null)
+        {
+            if (sb.length() > 0) sb.append(',');
+            sb.append(extraName).append("=\"").append(extraVal).append('"');
+        }
+        if (sb.length() == 0)
+            return "";
+        return "{" + sb + "}";
+    }
+
+    /**
+     * Returns the values in the Prometheus text format.
+     * Histograms are exported as summaries.
+     *
+     * @return Values in the Prometheus text format.
+     */
+    public static String toPrometheus()
+    {
+        StringBuilder sb = new StringBuilder();
+        String lastName = null;
+        for (MonitoredValue value : s_Values.values())
+        {
+            String name = value.getName();
+            if (!name.equals(lastName))
+            {
+                String type = "gauge";
+                if (value instanceof Counter) type = "counter";
+                else if (value instanceof LatencyHistogram) type = "summary";
+                sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+                lastName = name;
+            }
+            if (value instanceof Counter)
+                sb.append(name).append(prometheusLabels(value, null, null)).append(' ').append(((Counter)value).get()).append('\n');
+            else if (value instanceof LatencyHistogram)
+            {
+                LatencyHistogram hist = (LatencyHistogram)value;
+                for (double p : PERCENTILES)
+                    sb.append(name).append(prometheusLabels(value, "quantile", format(p))).append(' ').append(seconds(hist.getPercentile(p))).append('\n');
+                sb.append(name).append("_sum").append(prometheusLabels(value, null, null)).append(' ').append(seconds(hist.getSum())).append('\n');
+                sb.append(name).append("_count").append(prometheusLabels(value, null, null)).append(' ').append(hist.getCount()).append('\n');
+            }
+            else
+                sb.append(name).append(prometheusLabels(value, null, null)).append(' ').append(format(((RegisteredGauge)value).m_Gauge.value())).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the values in the JSON format:
+     * an array of objects with the name, the labels, the type and the values.
+     *
+     * @return Values in the JSON format.
+     */
+    public static String toJson()
+    {
+        StringBuilder sb = new StringBuilder("[");
+        boolean first = true;
+        for (MonitoredValue value : s_Values.values())
+        {
+            sb.append(first ? "\n" : ",\n");
+            first = false;
+            sb.append("  {\"name\": \"").append(escape(value.getName())).append("\", \"labels\": {");
+            for (int l = 0; l < value.noOfLabels(); l++)
+            {
+                if (l > 0) sb.append(", ");
+                sb.append('"').append(escape(value.labelName(l))).append("\": \"").append(escape(value.labelValue(l))).append('"');
+            }
+            sb.append("}, ");
+            if (value instanceof Counter)
+                sb.append("\"type\": \"counter\", \"value\": ").append(((Counter)value).get());
+            else if (value instanceof LatencyHistogram)
+            {
+                LatencyHistogram hist = (LatencyHistogram)value;
+                sb.append("\"type\": \"histogram\", \"unit\": \"seconds\", \"count\": ").append(hist.getCount());
+                sb.append(", \"sum\": ").append(seconds(hist.getSum()));
+                sb.append(", \"mean\": ").append(seconds(hist.getMean()));
+                sb.append(", \"max\": ").append(seconds(hist.getMax()));
+                for (int p = 0; p < PERCENTILES.length; p++)
+                    sb.append(", \"").append(PERCENTILE_NAMES[p]).append("\": ").append(seconds(hist.getPercentile(PERCENTILES[p])));
+            }
+            else
+            {
+                double gauge = ((RegisteredGauge)value).m_Gauge.value();
+                sb.append("\"type\": \"gauge\", \"value\": ").append(Double.isNaN(gauge) || Double.isInfinite(gauge) ? "null" : format(gauge));
+            }
+            sb.append('}');
+        }
+        sb.append(first ? "]\n" : "\n]\n");
+        return sb.toString();
+    }
+}
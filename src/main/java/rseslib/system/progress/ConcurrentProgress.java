@@ -0,0 +1,334 @@
+/*
+ * Copyright (C) 2002 - 2025 The Rseslib Contributors
+ * 
+ *  This file is part of Rseslib.
+ *
+ *  Rseslib is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Rseslib is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package rseslib.system.progress;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import rseslib.system.Report;
+
+/**
+ * Thread-safe progress that can be stepped
+ * from many threads at the same time, e.g. from a fork-join computation.
+ * The steps left to be done are split into stripes
+ * and each thread counts down its own stripe,
+ * so steps made by different threads do not contend on one counter.
+ * The progress object where this progress passes information
+ * is notified by one thread at a time and not more often
+ * than once in a time interval, except the last step
+ * that is always passed immediately.
+ * The methods set and section must not be called
+ * concurrently with steps of this progress.
+ */
+public class ConcurrentProgress extends AbstractProgress
+{
+    /** Default minimal time between notifications in milliseconds. */
+    public static final long DEFAULT_INTERVAL = 100;
+    /** Maximal number of steps passed to the notified progress. */
+    private static final int MAX_NOTIFIED_STEPS = 1000;
+    /** Distance between stripes in the array of counters, keeps stripes in separate cache lines. */
+    private static final int PADDING = 8;
+    /** Maximal number of stripes. */
+    private static final int MAX_STRIPES = 64;
+    /** Number of notified steps marking that it depends on the number of steps of this progress. */
+    public static final int AUTO_NOTIFIED_STEPS = -1;
+
+    /** Progress object where this progress passes information about progress. */
+    private final Progress m_Progress;
+    /** Number of steps passed to the notified progress, AUTO_NOTIFIED_STEPS if it depends on the number of steps of this progress. */
+    private final int m_nFixedNotifiedSteps;
+    /** Minimal time between notifications in nanoseconds. */
+    private final long m_lInterval;
+    /** Lock held by the thread notifying the progress object. */
+    private final ReentrantLock m_NotificationLock = new ReentrantLock();
+    /** Number of stripes, a power of two. */
+    private int m_nStripes;
+    /** Numbers of steps left in the stripes, stripe s at the index s*PADDING. */
+    private AtomicLongArray m_arrRemaining;
+    /** Number of stripes with no steps left. */
+    private final AtomicInteger m_nCompletedStripes = new AtomicInteger();
+    /** Number of steps to be passed to the notified progress. */
+    private int m_nNotifiedSteps;
+    /** Number of steps passed to the notified progress. */
+    private int m_nStepsPassed;
+    /** Time of the next notification in nanoseconds. */
+    private volatile long m_lNextNotification;
+    /** Time when this progress was set in nanoseconds. */
+    private long m_lStartTime;
+
+    /**
+     * Constructor.
+     *
+     * @param prog Progress object where this progress passes information about progress.
+     */
+    public ConcurrentProgress(Progress prog)
+    {
+        this(prog, DEFAULT_INTERVAL);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param prog     Progress object where this progress passes information about progress.
+     * @param interval Minimal time between notifications of the progress object in milliseconds.
+     */
+    public ConcurrentProgress(Progress prog, long interval)
+    {
+        this(prog, interval, AUTO_NOTIFIED_STEPS);
+    }
+
+    /**
+     * Constructor. If the number of steps passed to the progress object is given
+     * the progress object must be already set by the caller,
+     * otherwise it is set by this progress.
+     *
+     * @param prog          Progress object where this progress passes information about progress.
+     * @param interval      Minimal time between notifications of the progress object in milliseconds.
+     * @param notifiedSteps Number of steps passed to the progress object,
+     *                      AUTO_NOTIFIED_STEPS if it depends on the number of steps of this progress.
+     */
+    public ConcurrentProgress(Progress prog, long interval, int notifiedSteps)
+    {
+        m_Progress = prog;
+        m_lInterval = interval * 1000000;
+        m_nFixedNotifiedSteps = notifiedSteps;
+    }
+
+    /**
+     * Sets the total number of steps to be done.
+     *
+     * @param name      Name of this progress.
+     * @param noOfSteps Number of steps in this progress.
+     */
+    public void set(String name, int noOfSteps)
+    {
+        super.set(name, noOfSteps);
+        int availableStripes = Math.min(MAX_STRIPES, Runtime.getRuntime().availableProcessors());
+        m_nStripes = 1;
+        while (m_nStripes < availableStripes && m_nStripes < noOfSteps)
+            m_nStripes <<= 1;
+        m_arrRemaining = new AtomicLongArray(m_nStripes*PADDING);
+        int completed = 0;
+        for (int s = 0; s < m_nStripes; s++)
+        {
+            int stripeSteps = noOfSteps / m_nStripes + (s < noOfSteps % m_nStripes ? 1 : 0);
+            m_arrRemaining.set(s*PADDING, stripeSteps);
+            if (stripeSteps == 0)
+                completed++;
+        }
+        m_nCompletedStripes.set(completed);
+        if (m_nFixedNotifiedSteps != AUTO_NOTIFIED_STEPS)
+            m_nNotifiedSteps = m_nFixedNotifiedSteps;
+        else
+        {
+            m_nNotifiedSteps = Math.min(noOfSteps, MAX_NOTIFIED_STEPS);
+            m_Progress.set(name, m_nNotifiedSteps);
+        }
+        m_nStepsPassed = 0;
+        m_lStartTime = System.nanoTime();
+        m_lNextNotification = m_lStartTime + m_lInterval;
+        if (completed == m_nStripes)
+        {
+            try
+            {
+                notifyProgress(true);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Creates a section of this progress that can be stepped
+     * in parallel with other sections. The section is set
+     * with its own number of steps and its completion
+     * makes the given number of steps of this progress.
+     * A section making 0 steps does not step this progress.
+     *
+     * @param noOfSteps Number of steps of this progress made by the section.
+     * @return          Section of this progress.
+     */
+    public ConcurrentProgress section(int noOfSteps)
+    {
+        if (noOfSteps < 0)
+            throw new IllegalArgumentException("Negative number of steps of a progress section: "+noOfSteps);
+        Progress parent = new Progress()
+        {
+            public void set(String name, int steps)
+            {
+            }
+
+            public void step() throws InterruptedException
+            {
+                ConcurrentProgress.this.step();
+            }
+        };
+        return new ConcurrentProgress(parent, m_lInterval / 1000000, noOfSteps);
+    }
+
+    /**
+     * Makes a single step.
+     *
+     * @throws InterruptedException When the process is requested to be stopped.
+     */
+    public void step() throws InterruptedException
+    {
+        AtomicLongArray remaining = m_arrRemaining;
+        if (remaining == null)
+        {
+            Report.exception(new ProgressException(m_Name+": progress not initialised"));
+            return;
+        }
+        int first = (int)Thread.currentThread().getId();
+        for (int s = 0; s < m_nStripes; s++)
+        {
+            int index = ((first + s) & (m_nStripes - 1)) * PADDING;
+            for (long left = remaining.get(index); left > 0; left = remaining.get(index))
+                if (remaining.compareAndSet(index, left, left - 1))
+                {
+                    if (left == 1 && m_nCompletedStripes.incrementAndGet() == m_nStripes)
+                        notifyProgress(true);
+                    else if (System.nanoTime() >= m_lNextNotification)
+                        notifyProgress(false);
+                    return;
+                }
+        }
+        Report.exception(new ProgressException(m_Name+": more than "+m_nEndPoint+" progress steps reported"));
+    }
+
+    /**
+     * Completes this progress: the steps not made are passed
+     * to the notified progress object at once, e.g. when the process
+     * reporting to this progress has failed. If this progress has not been set
+     * it is set with no steps. It must not be called concurrently with steps of this progress.
+     *
+     * @throws InterruptedException When the process is requested to be stopped.
+     */
+    public void finish() throws InterruptedException
+    {
+        if (m_arrRemaining == null)
+        {
+            set(m_Name, 0);
+            return;
+        }
+        for (int s = 0; s < m_nStripes; s++)
+            m_arrRemaining.set(s*PADDING, 0);
+        m_nCompletedStripes.set(m_nStripes);
+        notifyProgress(true);
+    }
+
+    /**
+     * Passes the steps done so far to the notified progress object.
+     * A regular notification is skipped if another thread notifies the progress object,
+     * the final notification waits for it.
+     *
+     * @param completed Indicates whether all steps of this progress are done.
+     * @throws InterruptedException When the process is requested to be stopped.
+     */
+    private void notifyProgress(boolean completed) throws InterruptedException
+    {
+        if (completed)
+            m_NotificationLock.lock();
+        else if (!m_NotificationLock.tryLock())
+            return;
+        try
+        {
+            m_lNextNotification = System.nanoTime() + m_lInterval;
+            int target = m_nNotifiedSteps;
+            if (!completed)
+                target = (int)((long)m_nNotifiedSteps * getStepsDone() / m_nEndPoint);
+            while (m_nStepsPassed < target)
+            {
+                m_nStepsPassed++;
+                m_Progress.step();
+            }
+        }
+        finally
+        {
+            m_NotificationLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of steps done.
+     *
+     * @return Number of steps done.
+     */
+    public long getStepsDone()
+    {
+        AtomicLongArray remaining = m_arrRemaining;
+        if (remaining == null)
+            return 0;
+        long done = m_nEndPoint;
+        for (int s = 0; s < m_nStripes; s++)
+            done -= remaining.get(s*PADDING);
+        return done;
+    }
+
+    /**
+     * Returns the average number of steps done per second since this progress was set.
+     *
+     * @return Number of steps per second.
+     */
+    public double getThroughput()
+    {
+        long elapsed = System.nanoTime() - m_lStartTime;
+        if (m_arrRemaining == null || elapsed <= 0)
+            return 0;
+        return getStepsDone() * 1e9 / elapsed;
+    }
+
+    /**
+     * Returns the estimated time to complete this progress
+     * assuming the current throughput.
+     *
+     * @return Estimated time left in milliseconds, -1 if no step has been done yet.
+     */
+    public long getEstimatedTimeLeft()
+    {
+        double throughput = getThroughput();
+        if (throughput == 0)
+            return -1;
+        return (long)((m_nEndPoint - getStepsDone()) * 1000 / throughput);
+    }
+
+    /**
+     * Returns the name, the percentage, the throughput
+     * and the estimated time left of this progress.
+     *
+     * @return Description of the state of this progress.
+     */
+    public String toString()
+    {
+        long done = getStepsDone();
+        StringBuffer sbuf = new StringBuffer(m_Name+": "+done+"/"+m_nEndPoint);
+        if (m_nEndPoint > 0)
+            sbuf.append(" ("+(100*done/m_nEndPoint)+"%)");
+        sbuf.append(", "+Math.round(getThroughput())+" steps/s");
+        long left = getEstimatedTimeLeft();
+        if (left >= 0)
+            sbuf.append(", "+(left/1000)+"s "+(left%1000)+"ms left");
+        return sbuf.toString();
+    }
+}
@@ -24,6 +24,8 @@ import rseslib.system.Report;
 
 /**
  * Progress composed from a number of subprogresses.
+ * It is not thread-safe, progress made by many threads
+ * can be passed to it through ConcurrentProgress.
  *
  * @author      Arkadiusz Wojna
  */
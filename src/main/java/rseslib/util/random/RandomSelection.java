@@ -31,6 +31,42 @@ public class RandomSelection
 {
     /** Random number generator. */
     private static final Random RANDOM_GENERATOR = new Random();
+    /** Random number generators assigned to particular threads. */
+    private static final ThreadLocal<Random> THREAD_GENERATOR = new ThreadLocal<Random>();
+
+    /**
+     * Returns the random number generator used by the current thread:
+     * the generator assigned to this thread if there is one
+     * or the generator shared by all threads otherwise.
+     *
+     * @return Random number generator used by the current thread.
+     */
+    public static Random generator()
+    {
+        Random generator = THREAD_GENERATOR.get();
+        if (generator!=null) return generator;
+        return RANDOM_GENERATOR;
+    }
+
+    /**
+     * Assigns a random number generator to the current thread.
+     * A thread with an assigned generator performs all random operations
+     * of this class with this generator, so the random operations
+     * of a thread are reproducible with a seeded generator
+     * regardless of other threads.
+     *
+     * @param generator Random number generator to be assigned to the current thread,
+     *                  null restores the generator shared by all threads.
+     * @return          Generator previously assigned to the current thread,
+     *                  null if the thread used the shared generator.
+     */
+    public static Random setGenerator(Random generator)
+    {
+        Random previous = THREAD_GENERATOR.get();
+        if (generator!=null) THREAD_GENERATOR.set(generator);
+        else THREAD_GENERATOR.remove();
+        return previous;
+    }
 
     /**
      * Selects a random fraction of indices from a given range
@@ -44,16 +80,99 @@ public class RandomSelection
     public static boolean[] subset(int range, int noOfPartsToBeSelected, int noOfPartsToBeLeft)
     {
         boolean[] assigned = new boolean[range];
-        int selected = 0;
-        while (selected*(noOfPartsToBeSelected+noOfPartsToBeLeft) < assigned.length*noOfPartsToBeSelected)
+        int noOfParts = noOfPartsToBeSelected + noOfPartsToBeLeft;
+        int noToBeSelected = (int)(((long)range * noOfPartsToBeSelected + noOfParts - 1) / noOfParts);
+        int[] permutation = permutation(range);
+        for (int i = 0; i < noToBeSelected; i++)
+            assigned[permutation[i]] = true;
+        return assigned;
+    }
+
+    /**
+     * Generates a random permutation of indices from a given range
+     * with the Fisher-Yates shuffle.
+     *
+     * @param range Range of indices.
+     * @return      Random permutation of the indices 0, ..., range-1.
+     */
+    public static int[] permutation(int range)
+    {
+        int[] permutation = new int[range];
+        for (int i = 0; i < range; i++)
+            permutation[i] = i;
+        shuffle(permutation, 0, range);
+        return permutation;
+    }
+
+    /**
+     * Shuffles a range of an array with the Fisher-Yates shuffle.
+     *
+     * @param array Array to be shuffled.
+     * @param from  The first index of the range.
+     * @param to    The index after the last index of the range.
+     */
+    private static void shuffle(int[] array, int from, int to)
+    {
+        Random generator = generator();
+        for (int i = to - 1; i > from; i--)
         {
-            int ind = RANDOM_GENERATOR.nextInt(assigned.length);
-            while (assigned[ind]) ind = RANDOM_GENERATOR.nextInt(assigned.length);
-            assigned[ind] = true;
-            selected++;
+            int j = from + generator.nextInt(i - from + 1);
+            int tmp = array[i];
+            array[i] = array[j];
+            array[j] = tmp;
         }
-        return assigned;
+    }
+
+    /**
+     * Random partition of indices from a given range
+     * into a given number of parts of equal sizes.
+     * The sizes of parts differ at most by one.
+     *
+     * @param range     Range of indices.
+     * @param noOfParts Number of parts.
+     * @return          Array with the part assigned to each index.
+     */
+    public static int[] partition(int range, int noOfParts)
+    {
+        int[] partOfIndex = new int[range];
+        int[] permutation = permutation(range);
+        for (int i = 0; i < range; i++)
+            partOfIndex[permutation[i]] = i % noOfParts;
+        return partOfIndex;
+    }
 
+    /**
+     * Random partition of indices into a given number of parts
+     * of equal sizes preserving the distribution of classes in each part.
+     * The indices of each class are shuffled and the classes
+     * are dealt one after another to the parts in a round-robin,
+     * so both the sizes of parts and the sizes of a class
+     * in different parts differ at most by one.
+     *
+     * @param classOfIndex Class of each index, classes are numbered from 0.
+     * @param noOfClasses  Number of classes.
+     * @param noOfParts    Number of parts.
+     * @return             Array with the part assigned to each index.
+     */
+    public static int[] stratifiedPartition(int[] classOfIndex, int noOfClasses, int noOfParts)
+    {
+        // sort the indices by classes
+        int[] classStart = new int[noOfClasses + 1];
+        for (int cl : classOfIndex)
+            classStart[cl + 1]++;
+        for (int cl = 0; cl < noOfClasses; cl++)
+            classStart[cl + 1] += classStart[cl];
+        int[] sorted = new int[classOfIndex.length];
+        int[] next = classStart.clone();
+        for (int ind = 0; ind < classOfIndex.length; ind++)
+            sorted[next[classOfIndex[ind]]++] = ind;
+        // shuffle each class and deal the indices to the parts
+        int[] partOfIndex = new int[classOfIndex.length];
+        for (int cl = 0; cl < noOfClasses; cl++)
+            shuffle(sorted, classStart[cl], classStart[cl + 1]);
+        for (int i = 0; i < sorted.length; i++)
+            partOfIndex[sorted[i]] = i % noOfParts;
+        return partOfIndex;
     }
 
 }
\ No newline at end of file
@@ -26,7 +26,11 @@ import rseslib.system.Report;
  * Timers.
  *
  * @author      Grzegorz Gora, Arkadiusz Wojna
+ * @deprecated  Timers are static and not thread-safe,
+ *              use {@link rseslib.system.monitoring.LatencyHistogram}
+ *              obtained from {@link rseslib.system.monitoring.Monitoring#histogram(String, String...)}.
  */
+@Deprecated
 public class Timers
 {
     /** The number of timers. */